@@ -13,7 +13,7 @@ import javafx.stage.Stage;
  */
 public class Main extends Application {
 
-    private Pingpong pingpong = new Pingpong("./data/pingpong.txt");
+    private Pingpong pingpong = new Pingpong("./data/pingpong.txt", true);
 
     @Override
     public void start(Stage stage) {
@@ -33,4 +33,9 @@ public class Main extends Application {
             e.printStackTrace();
         }
     }
+
+    @Override
+    public void stop() {
+        pingpong.shutdown();
+    }
 }
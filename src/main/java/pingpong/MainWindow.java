@@ -71,6 +71,7 @@ public class MainWindow extends AnchorPane {
             MockUi mockUi = new MockUi();
 
             if (input.trim().equals("bye")) {
+                pingpong.flush();
                 return " Bye. Hope to see you again soon!";
             }
 
@@ -1,6 +1,7 @@
 package pingpong;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import pingpong.task.Task;
 import pingpong.ui.Ui;
@@ -44,7 +45,7 @@ public class MockUi extends Ui {
     public void showTaskAdded(Task task, int totalTasks) {
         output.append(" Got it. I've added this task:\n")
                 .append("   ").append(task).append("\n")
-                .append(" Now you have ").append(totalTasks).append(" tasks in the list.");
+                .append(describeTotal(totalTasks));
     }
 
     @Override
@@ -56,15 +57,28 @@ public class MockUi extends Ui {
             for (int i = 0; i < tasks.size(); i++) {
                 output.append("   ").append(i + 1).append(". ").append(tasks.get(i)).append("\n");
             }
-            output.append(" Now you have ").append(totalTasks).append(" tasks in the list.");
+            output.append(describeTotal(totalTasks));
         }
     }
 
     @Override
-    public void showTaskList(ArrayList<Task> tasks) {
+    public void showTaskList(List<Task> tasks) {
         output.append(" Here are the tasks in your list:\n");
-        for (int i = 0; i < tasks.size(); i++) {
-            output.append(" ").append(i + 1).append(".").append(tasks.get(i)).append("\n");
+        int number = 1;
+        for (Task task : tasks) {
+            output.append(" ").append(number++).append(".").append(task).append("\n");
+        }
+    }
+
+    @Override
+    public void showArchivedTasks(List<Task> archivedTasks) {
+        if (archivedTasks.isEmpty()) {
+            output.append(" There are no archived tasks.");
+        } else {
+            output.append(" Here are the archived tasks:\n");
+            for (Task task : archivedTasks) {
+                output.append("  ").append(task).append("\n");
+            }
         }
     }
 
@@ -1,9 +1,17 @@
 package pingpong;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import pingpong.command.Command;
 import pingpong.command.Parser;
+import pingpong.storage.ExternalChange;
+import pingpong.storage.PagedTaskList;
 import pingpong.storage.SampleDataLoader;
 import pingpong.storage.Storage;
+import pingpong.storage.StorageEngine;
+import pingpong.storage.StorageEngineType;
+import pingpong.storage.TaskArchive;
 import pingpong.task.TaskList;
 import pingpong.ui.Ui;
 
@@ -12,18 +20,69 @@ import pingpong.ui.Ui;
  * Coordinates the interaction between the UI, task list, storage, and command parsing.
  */
 public class Pingpong {
+    private static final String RELOADED_MESSAGE = "Applied %d change(s) another program made to the data file.";
+    private static final String CONFLICT_ERROR = "Task %d was changed both in the data file and here; "
+            + "kept the version here.";
+    private static final String DISCARDED_ERROR = "Another Pingpong process changed the tasks at the same time; "
+            + "your latest changes were discarded.";
+    private static final String LOADING_MESSAGE = "Still loading tasks... %d loaded so far.";
+
     private static Ui ui;
     private TaskList tasks;
     private Storage storage;
     /**
      * Creates a new Pingpong application instance with the specified storage file path.
      * Initializes the UI, storage, and loads existing tasks from file.
+     * Setting the {@value PagedTaskList#SYSTEM_PROPERTY} system property keeps only that many megabytes
+     * of tasks in memory, if the storage engine streams the tasks as the text engine does.
+     * The storage engine is chosen by the {@value StorageEngineType#SYSTEM_PROPERTY} system property;
+     * by default mutations are appended to a journal next to the data file rather than rewriting it,
+     * and are written by a background thread so that commands do not wait for the disk.
      *
      * @param filePath the path to the file where tasks are stored
      */
     public Pingpong(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Creates a new Pingpong application instance with the specified storage file path, optionally loading
+     * existing tasks on a background thread so that commands are accepted at once. Commands that only append
+     * tasks run immediately; the others wait until loading completes.
+     *
+     * @param filePath the path to the file where tasks are stored
+     * @param isLoadingInBackground whether to load existing tasks in the background
+     */
+    public Pingpong(String filePath, boolean isLoadingInBackground) {
+        this(filePath, StorageEngineType.fromSystemProperty(StorageEngineType.JOURNAL).create(filePath),
+                isLoadingInBackground);
+    }
+
+    /**
+     * Creates a new Pingpong application instance that persists tasks with the given storage engine.
+     *
+     * @param filePath the path to the file where tasks are stored, used to detect the first run
+     * @param engine the engine that persists the tasks
+     */
+    public Pingpong(String filePath, StorageEngine engine) {
+        this(filePath, engine, false);
+    }
+
+    /**
+     * Creates a new Pingpong application instance that persists tasks with the given storage engine,
+     * optionally loading existing tasks on a background thread.
+     *
+     * @param filePath the path to the file where tasks are stored, used to detect the first run
+     * @param engine the engine that persists the tasks
+     * @param isLoadingInBackground whether to load existing tasks in the background
+     */
+    public Pingpong(String filePath, StorageEngine engine, boolean isLoadingInBackground) {
         ui = new Ui();
-        storage = new Storage(filePath);
+        storage = new Storage(engine);
+        TaskArchive archive = TaskArchive.fromSystemProperty(filePath);
+        if (archive != null) {
+            storage.withArchive(archive);
+        }
 
         // Check if this is the first run
         boolean isFirstRun = SampleDataLoader.isFirstRun(filePath);
@@ -31,17 +90,28 @@ public class Pingpong {
         try {
             if (isFirstRun) {
                 // First run - load sample data
-                tasks = new TaskList();
+                tasks = PagedTaskList.fromSystemProperty(storage);
                 SampleDataLoader.loadSampleData(tasks);
                 storage.save(tasks.getAllTasks());
+                tasks.clearChanges();
                 ui.showMessages(
                         "Welcome to Pingpong! Sample tasks have been loaded to help you get started.",
                         "Type 'help' to see all available commands.",
                         ""
                 );
             } else {
-                // Normal run - load existing data
-                tasks = new TaskList(storage.load());
+                tasks = PagedTaskList.fromSystemProperty(storage);
+                if (tasks instanceof PagedTaskList) {
+                    // Normal run - existing data is paged in as it loads, never in the background,
+                    // where loaded tasks would wait in memory until a command moves them into the list
+                    storage.load(tasks);
+                } else if (isLoadingInBackground) {
+                    // Normal run - commands are accepted while existing data loads
+                    storage.loadInBackground();
+                } else {
+                    // Normal run - load existing data
+                    tasks = new TaskList(storage.load());
+                }
             }
         } catch (Exception e) {
             ui.showError("Error loading tasks from file. Starting with empty task list.");
@@ -55,7 +125,7 @@ public class Pingpong {
      * @param args command line arguments (not used)
      */
     public static void main(String[] args) {
-        new Pingpong("./data/pingpong.txt").run();
+        new Pingpong("./data/pingpong.txt", true).run();
     }
 
     /**
@@ -76,8 +146,7 @@ public class Pingpong {
                 }
 
                 ui.showLine();
-                Command command = Parser.parse(fullCommand);
-                command.execute(tasks, ui, storage);
+                processCommand(fullCommand, ui);
                 ui.showLine();
 
             } catch (PingpongException e) {
@@ -87,20 +156,72 @@ public class Pingpong {
         }
 
         ui.showGoodbye();
+        shutdown();
         ui.close();
     }
 
+    /**
+     * Writes changes still pending in the background to disk and waits until they are durable.
+     */
+    public void flush() {
+        storage.flush();
+    }
+
+    /**
+     * Flushes pending changes to disk, waits for background storage work to finish and releases open files.
+     * Called when the application exits.
+     */
+    public void shutdown() {
+        storage.close(tasks);
+        if (tasks instanceof Closeable) {
+            try {
+                ((Closeable) tasks).close();
+            } catch (IOException e) {
+                ui.showError(e.getMessage());
+            }
+        }
+    }
+
     /**
      * Processes a single command using the provided UI without running the full interactive loop.
-     * Used by the GUI to get responses for user input.
+     * Used by the GUI to get responses for user input. While tasks are still loaded in the background,
+     * a command that needs all of them waits for the rest, reporting the progress on the UI.
      *
      * @param fullCommand the command to process
      * @param ui the UI to use for output
      * @throws PingpongException if an error occurs during command execution
      */
     public void processCommand(String fullCommand, Ui ui) throws PingpongException {
+        reloadExternalChanges(ui);
         Command command = Parser.parse(fullCommand);
+        if (command.needsAllTasks() && storage.isLoading(tasks)) {
+            storage.awaitLoaded(tasks, loadedCount -> ui.showMessages(String.format(LOADING_MESSAGE, loadedCount)));
+        }
         command.execute(tasks, ui, storage);
+        reloadExternalChanges(ui);
     }
 
+    /**
+     * Merges changes another program or Pingpong process made to the data file. Called before a command,
+     * so that the command sees them and its own save does not overwrite them, and after it, in case its
+     * save was refused because another process wrote first.
+     *
+     * @param ui the UI to report the merge and any conflicts on
+     */
+    private void reloadExternalChanges(Ui ui) {
+        ExternalChange.MergeResult result = storage.reloadExternalChanges(tasks);
+        if (result == null || !result.hasChanges()) {
+            return;
+        }
+
+        if (result.getAppliedCount() > 0) {
+            ui.showMessages(String.format(RELOADED_MESSAGE, result.getAppliedCount()));
+        }
+        for (ExternalChange.Conflict conflict : result.getConflicts()) {
+            ui.showError(String.format(CONFLICT_ERROR, conflict.getBaseIndex() + 1));
+        }
+        if (result.hasDiscardedChanges()) {
+            ui.showError(DISCARDED_ERROR);
+        }
+    }
 }
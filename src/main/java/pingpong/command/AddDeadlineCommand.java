@@ -35,7 +35,17 @@ public class AddDeadlineCommand extends Command {
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) {
         Task deadline = tasks.addDeadline(description, by);
-        ui.showTaskAdded(deadline, tasks.size());
-        storage.save(tasks.getAllTasks());
+        ui.showTaskAdded(deadline, countTasks(tasks, storage));
+        storage.saveChanges(tasks);
+    }
+
+    /**
+     * Runs at once while tasks are still being loaded, as it only appends a task.
+     *
+     * @return false
+     */
+    @Override
+    public boolean needsAllTasks() {
+        return false;
     }
 }
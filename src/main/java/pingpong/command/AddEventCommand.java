@@ -38,7 +38,17 @@ public class AddEventCommand extends Command {
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) {
         Task event = tasks.addEvent(description, start, end);
-        ui.showTaskAdded(event, tasks.size());
-        storage.save(tasks.getAllTasks());
+        ui.showTaskAdded(event, countTasks(tasks, storage));
+        storage.saveChanges(tasks);
+    }
+
+    /**
+     * Runs at once while tasks are still being loaded, as it only appends a task.
+     *
+     * @return false
+     */
+    @Override
+    public boolean needsAllTasks() {
+        return false;
     }
 }
@@ -34,7 +34,17 @@ public class AddMultipleCommand extends Command {
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
         ArrayList<Task> addedTasks = tasks.addTodos(descriptions);
-        ui.showTasksAdded(addedTasks, tasks.size());
-        storage.save(tasks.getAllTasks());
+        ui.showTasksAdded(addedTasks, countTasks(tasks, storage));
+        storage.saveChanges(tasks);
+    }
+
+    /**
+     * Runs at once while tasks are still being loaded, as it only appends tasks.
+     *
+     * @return false
+     */
+    @Override
+    public boolean needsAllTasks() {
+        return false;
     }
 }
\ No newline at end of file
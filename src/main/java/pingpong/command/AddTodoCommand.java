@@ -46,9 +46,19 @@ public class AddTodoCommand extends Command {
 
         assert todo != null : "Created todo should not be null";
         assert tasks.size() == originalSize + 1 : "Task list size should increase by 1";
-        assert tasks.getAllTasks().contains(todo) : "Todo should be in task list";
+        assert tasks.getAllTasks().get(tasks.size() - 1) == todo : "Todo should be in task list";
 
-        ui.showTaskAdded(todo, tasks.size());
-        storage.save(tasks.getAllTasks());
+        ui.showTaskAdded(todo, countTasks(tasks, storage));
+        storage.saveChanges(tasks);
+    }
+
+    /**
+     * Runs at once while tasks are still being loaded, as it only appends a task.
+     *
+     * @return false
+     */
+    @Override
+    public boolean needsAllTasks() {
+        return false;
     }
 }
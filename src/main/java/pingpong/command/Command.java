@@ -21,4 +21,25 @@ public abstract class Command {
      */
     public abstract void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException;
 
+    /**
+     * Checks whether the command needs every stored task, and so has to wait while tasks are still being
+     * loaded in the background. Commands that only append tasks run at once.
+     *
+     * @return true if the command needs the complete task list
+     */
+    public boolean needsAllTasks() {
+        return true;
+    }
+
+    /**
+     * Counts the tasks to report after adding some. While tasks are still being loaded in the background, the
+     * count of the list so far would be misleading, as the loaded tasks go in front of the added ones.
+     *
+     * @param tasks the task list that was added to
+     * @param storage the storage the tasks are loaded from
+     * @return the number of tasks, or {@link Ui#TOTAL_STILL_LOADING} if loading has not finished
+     */
+    protected static int countTasks(TaskList tasks, Storage storage) {
+        return storage.isLoading(tasks) ? Ui.TOTAL_STILL_LOADING : tasks.size();
+    }
 }
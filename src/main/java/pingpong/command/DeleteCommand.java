@@ -52,6 +52,6 @@ public class DeleteCommand extends Command {
         assert tasks.size() == originalSize - 1 : "Task list size should decrease by 1";
 
         ui.showTaskDeleted(deletedTask, tasks.size());
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
@@ -1,8 +1,6 @@
 package pingpong.command;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Comparator;
 
 import pingpong.PingpongException;
 import pingpong.storage.Storage;
@@ -27,7 +25,7 @@ public class DeleteMultipleCommand extends Command {
 
     /**
      * Executes the command to delete multiple specified tasks from the task list.
-     * Deletes tasks in reverse order to maintain valid indices.
+     * All task numbers are checked before any task is deleted, and the changes are saved once.
      *
      * @param tasks the task list to delete the tasks from
      * @param ui the UI to display feedback to the user
@@ -36,23 +34,14 @@ public class DeleteMultipleCommand extends Command {
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
-        // Sort task numbers in descending order to delete from highest index first
-        // This prevents index shifting issues when deleting multiple items
-        Integer[] taskNumbersWrapper = new Integer[taskNumbers.length];
+        int[] indices = new int[taskNumbers.length];
         for (int i = 0; i < taskNumbers.length; i++) {
-            taskNumbersWrapper[i] = taskNumbers[i];
+            indices[i] = taskNumbers[i] - 1;
         }
-        Arrays.sort(taskNumbersWrapper, Comparator.reverseOrder());
 
-        ArrayList<Task> deletedTasks = new ArrayList<>();
-
-        // Delete tasks in descending order of their indices
-        for (int taskNumber : taskNumbersWrapper) {
-            Task deletedTask = tasks.deleteTask(taskNumber - 1);
-            deletedTasks.add(0, deletedTask);
-        }
+        ArrayList<Task> deletedTasks = tasks.deleteTasks(indices);
 
         ui.showTasksDeleted(deletedTasks, tasks.size());
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
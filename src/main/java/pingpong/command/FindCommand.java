@@ -1,5 +1,6 @@
 package pingpong.command;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -7,19 +8,25 @@ import java.util.ArrayList;
 
 import pingpong.PingpongException;
 import pingpong.storage.Storage;
+import pingpong.storage.TaskArchive;
 import pingpong.task.Task;
 import pingpong.task.TaskList;
+import pingpong.task.TaskQuery;
 import pingpong.ui.Ui;
 
 /**
  * Command to find tasks that occur on a specific date.
  */
 public class FindCommand extends Command {
+    private static final String ARCHIVE_ERROR_PREFIX = "Could not search the archived tasks: ";
+
     private LocalDate date;
 
     private String searchTerm;
     private boolean isDateSearch;
     private LocalDate targetDate;
+    private boolean isIncludingArchive;
+    private boolean isWholeWord;
 
     /**
      * Creates a new FindCommand for the specified date.
@@ -27,7 +34,31 @@ public class FindCommand extends Command {
      * @param searchTerm the searched term (either time or description)
      */
     public FindCommand(String searchTerm) {
+        this(searchTerm, false);
+    }
+
+    /**
+     * Creates a new FindCommand for the specified date or keyword.
+     *
+     * @param searchTerm the searched term (either time or description)
+     * @param isIncludingArchive whether to search the archived tasks as well
+     */
+    public FindCommand(String searchTerm, boolean isIncludingArchive) {
+        this(searchTerm, isIncludingArchive, false);
+    }
+
+    /**
+     * Creates a new FindCommand for the specified date, keyword or whole words.
+     *
+     * @param searchTerm the searched term (either time or description)
+     * @param isIncludingArchive whether to search the archived tasks as well
+     * @param isWholeWord whether a description must contain every word of the term as a whole word,
+     *     which is answered from the keyword index, instead of containing the term anywhere
+     */
+    public FindCommand(String searchTerm, boolean isIncludingArchive, boolean isWholeWord) {
         this.searchTerm = searchTerm;
+        this.isIncludingArchive = isIncludingArchive;
+        this.isWholeWord = isWholeWord;
         this.isDateSearch = false;
 
         try {
@@ -39,12 +70,14 @@ public class FindCommand extends Command {
     }
 
     /**
-     * Executes the command to find and display tasks occurring on the specified date.
+     * Executes the command to find and display tasks occurring on the specified date, or matching the
+     * keywords, which may be combined with AND, OR and NOT.
+     * Archived tasks are found after the tasks in the list, if requested and archiving is enabled.
      *
      * @param tasks the task list to search through
      * @param ui the UI to display the found tasks
-     * @param storage the storage (not modified by this command)
-     * @throws PingpongException if an error occurs during execution
+     * @param storage the storage whose archive is searched (not modified by this command)
+     * @throws PingpongException if the keywords are not a valid query or the archived tasks cannot be searched
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
@@ -52,11 +85,25 @@ public class FindCommand extends Command {
 
         if (isDateSearch) {
             foundTasks = tasks.findTasksOnDate(targetDate);
+            foundTasks.addAll(findArchived(storage.getArchive(), null));
             String formattedDate = targetDate.format(DateTimeFormatter.ofPattern("MMM d yyyy"));
             ui.showFoundTasksByDate(foundTasks, formattedDate);
         } else {
-            foundTasks = tasks.findTasksByKeyword(searchTerm);
+            TaskQuery query = TaskQuery.parse(searchTerm, isWholeWord);
+            foundTasks = tasks.findTasks(query);
+            foundTasks.addAll(findArchived(storage.getArchive(), query));
             ui.showFoundTasksByKeyword(foundTasks, searchTerm);
         }
     }
+
+    private ArrayList<Task> findArchived(TaskArchive archive, TaskQuery query) throws PingpongException {
+        if (!isIncludingArchive || archive == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return isDateSearch ? archive.findOnDate(targetDate) : archive.find(query);
+        } catch (IOException e) {
+            throw new PingpongException(ARCHIVE_ERROR_PREFIX + e.getMessage());
+        }
+    }
 }
@@ -29,8 +29,9 @@ public class HelpCommand extends Command {
            - DateTime formats: yyyy-MM-dd HHmm OR yyyy-MM-dd HH:mm
            - Example: event Meeting /from 2025-09-10 1400 /to 2025-09-10 1600
         
-        4. list
+        4. list [--all]
            - Shows all tasks in your list
+           - --all also shows archived tasks
         
         5. mark INDEX [INDEX2 INDEX3...]
            - Marks task(s) as completed
@@ -44,9 +45,13 @@ public class HelpCommand extends Command {
            - Deletes task(s) from the list
            - Example: delete 3 OR delete 1 2 4
         
-        8. find KEYWORD/DATE
+        8. find KEYWORD/DATE [--all] [--word]
            - Finds tasks by keyword or date
-           - Example: find meeting OR find 2025-09-10
+           - --all also searches archived tasks
+           - --word only finds tasks containing every word of the keyword as a whole word
+           - Keywords can be combined with AND, OR and NOT, written in capitals
+           - Example: find meeting OR find 2025-09-10 --all OR find --word team meeting
+           - Example: find report AND NOT draft
         
         9. update INDEX [/desc DESC] [/by DATE] [/from DATETIME] [/to DATETIME]
            - Updates an existing task's details
@@ -60,7 +65,13 @@ public class HelpCommand extends Command {
         11. help
             - Shows this help message
         
-        12. bye
+        12. import PATH
+            - Adds all tasks in a todo.txt, CSV or Pingpong data file
+            - CSV columns: type,done,description,by or from,to
+            - Invalid lines are skipped and listed in PATH.rejects
+            - Example: import tasks.csv
+        
+        13. bye
             - Exits the application
         
         ============================================================
@@ -86,4 +97,14 @@ public class HelpCommand extends Command {
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
         ui.showMessages(HELP_MESSAGE.split("\n"));
     }
+
+    /**
+     * Runs at once while tasks are still being loaded, as it does not read them.
+     *
+     * @return false
+     */
+    @Override
+    public boolean needsAllTasks() {
+        return false;
+    }
 }
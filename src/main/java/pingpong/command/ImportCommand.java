@@ -0,0 +1,75 @@
+package pingpong.command;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import pingpong.PingpongException;
+import pingpong.storage.Storage;
+import pingpong.storage.TaskImporter;
+import pingpong.task.TaskList;
+import pingpong.ui.Ui;
+
+/**
+ * Command to append the tasks of an external todo.txt, CSV or data file to the task list.
+ */
+public class ImportCommand extends Command {
+    private static final String IMPORTED_MESSAGE = "Imported %d tasks from %s.";
+    private static final String REJECTED_MESSAGE = "Skipped %d invalid lines, listed in %s.";
+    private static final String TOTAL_MESSAGE = "Now you have %d tasks in the list.";
+    private static final String INVALID_PATH_ERROR = "'%s' is not a valid file path.";
+    private static final String IMPORT_ERROR = "Could not import all tasks from %s: %s\n"
+            + "The %d tasks read before the error were kept.";
+
+    private final String filePath;
+
+    /**
+     * Creates a new ImportCommand for the specified file.
+     *
+     * @param filePath the path of the file to import
+     */
+    public ImportCommand(String filePath) {
+        assert filePath != null : "File path should not be null";
+        this.filePath = filePath;
+    }
+
+    /**
+     * Executes the command to import the tasks of the file. The imported tasks are saved together once
+     * the whole file has been read.
+     *
+     * @param tasks the task list to append the imported tasks to
+     * @param ui the UI to display feedback to the user
+     * @param storage the storage to save the updated task list
+     * @throws PingpongException if the path is invalid or the file cannot be read to the end
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
+        Path path;
+        try {
+            path = Paths.get(filePath);
+        } catch (InvalidPathException e) {
+            throw new PingpongException(String.format(INVALID_PATH_ERROR, filePath));
+        }
+
+        int originalSize = tasks.size();
+        TaskImporter.Result result;
+        try {
+            result = new TaskImporter().importFile(path, tasks::addTasks);
+        } catch (IOException e) {
+            throw new PingpongException(String.format(IMPORT_ERROR, filePath, e.getMessage(),
+                    tasks.size() - originalSize));
+        } finally {
+            storage.saveChanges(tasks);
+        }
+
+        if (result.getRejectedCount() == 0) {
+            ui.showMessages(String.format(IMPORTED_MESSAGE, result.getImportedCount(), filePath),
+                    String.format(TOTAL_MESSAGE, tasks.size()));
+        } else {
+            ui.showMessages(String.format(IMPORTED_MESSAGE, result.getImportedCount(), filePath),
+                    String.format(REJECTED_MESSAGE, result.getRejectedCount(), result.getRejectReport()),
+                    String.format(TOTAL_MESSAGE, tasks.size()));
+        }
+    }
+}
@@ -1,25 +1,63 @@
 package pingpong.command;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import pingpong.PingpongException;
 import pingpong.storage.Storage;
+import pingpong.storage.TaskArchive;
+import pingpong.task.Task;
 import pingpong.task.TaskList;
 import pingpong.ui.Ui;
 
 /**
- * Command to list all tasks in the task list.
+ * Command to list all tasks in the task list, and optionally the archived tasks as well.
  */
 public class ListCommand extends Command {
+    private static final String ARCHIVE_ERROR_PREFIX = "Could not read the archived tasks: ";
+
+    private final boolean isIncludingArchive;
+
+    /**
+     * Creates a new ListCommand that lists only the tasks in the task list.
+     */
+    public ListCommand() {
+        this(false);
+    }
 
     /**
-     * Executes the command to display all tasks in the task list.
+     * Creates a new ListCommand.
+     *
+     * @param isIncludingArchive whether to list the archived tasks after the task list
+     */
+    public ListCommand(boolean isIncludingArchive) {
+        this.isIncludingArchive = isIncludingArchive;
+    }
+
+    /**
+     * Executes the command to display all tasks in the task list, followed by the archived tasks if requested
+     * and archiving is enabled.
      *
      * @param tasks the task list to display
      * @param ui the UI to show the task list
-     * @param storage the storage (not modified by this command)
-     * @throws PingpongException if an error occurs during execution
+     * @param storage the storage whose archive is listed (not modified by this command)
+     * @throws PingpongException if the archived tasks cannot be read
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
         ui.showTaskList(tasks.getAllTasks());
+
+        TaskArchive archive = storage.getArchive();
+        if (!isIncludingArchive || archive == null) {
+            return;
+        }
+        try {
+            List<Task> archivedTasks = new ArrayList<>();
+            archive.load(archivedTasks::addAll);
+            ui.showArchivedTasks(archivedTasks);
+        } catch (IOException e) {
+            throw new PingpongException(ARCHIVE_ERROR_PREFIX + e.getMessage());
+        }
     }
 }
@@ -49,6 +49,6 @@ public class MarkCommand extends Command {
         assert markedTask.isDone() : "Task should be marked as done after execution";
 
         ui.showTaskMarked(markedTask);
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
@@ -43,6 +43,6 @@ public class MarkMultipleCommand extends Command {
         Task[] markedTasksArray = markedTasks.toArray(new Task[0]);
         ui.showTasksMarked(markedTasksArray);
 
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
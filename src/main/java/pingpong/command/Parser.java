@@ -3,6 +3,7 @@ package pingpong.command;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import pingpong.PingpongException;
 import pingpong.command.parser.DateTimeParser;
@@ -27,11 +28,17 @@ public class Parser {
     private static final String ADD_MULTIPLE_COMMAND = "addmultiple";
     private static final String UPDATE_COMMAND = "update";
     private static final String HELP_COMMAND = "help";
+    private static final String IMPORT_COMMAND = "import";
+
+    // Option constants
+    private static final String ALL_OPTION = "--all";
+    private static final String WORD_OPTION = "--word";
 
     // Error messages
     private static final String EMPTY_COMMAND_ERROR = "Please enter a command.\nType 'help' to see available commands.";
     private static final String UNKNOWN_COMMAND_ERROR = "I don't understand '%s'.\n\n"
-            + "Available commands: todo, deadline, event, list, mark, unmark, delete, find, update, addmultiple, help, bye\n"
+            + "Available commands: todo, deadline, event, list, mark, unmark, delete, find, update, addmultiple, "
+            + "import, help, bye\n"
             + "Type 'help' for detailed usage information.";
     private static final String MARK_MISSING_ERROR = "Please specify which task(s) to mark.\n"
             + "Format: mark INDEX [INDEX2 INDEX3...]\n"
@@ -53,6 +60,8 @@ public class Parser {
             + "Example: event Meeting /from 2025-09-10 1400 /to 2025-09-10 1600";
     private static final String FIND_EMPTY_ERROR = "Please specify a keyword or date (yyyy-MM-dd) to search for.\n"
             + "Examples: find meeting OR find 2025-09-10";
+    private static final String IMPORT_MISSING_ERROR = "Please specify the file to import.\n"
+            + "Example: import tasks.csv";
     private static final String ADD_MULTIPLE_EMPTY_ERROR = "Please specify todo descriptions separated by semicolons.\n"
             + "Format: addmultiple DESC1; DESC2; DESC3\n"
             + "Example: addmultiple Buy milk; Call mom; Read book";
@@ -80,7 +89,7 @@ public class Parser {
 
         switch (command) {
         case LIST_COMMAND:
-            return new ListCommand();
+            return new ListCommand(hasAllOption(input));
         case HELP_COMMAND:
             return new HelpCommand();
         case MARK_COMMAND:
@@ -101,6 +110,8 @@ public class Parser {
             return parseAddMultipleCommand(input);
         case UPDATE_COMMAND:
             return parseUpdateCommand(input);
+        case IMPORT_COMMAND:
+            return parseImportCommand(input);
         default:
             throw new PingpongException(String.format(UNKNOWN_COMMAND_ERROR, command));
         }
@@ -308,8 +319,32 @@ public class Parser {
             throw new PingpongException(FIND_EMPTY_ERROR);
         }
 
-        String searchTerm = input.substring(FIND_COMMAND.length()).trim();
-        return new FindCommand(searchTerm);
+        String arguments = input.substring(FIND_COMMAND.length()).trim();
+        String withoutAll = removeOption(arguments, ALL_OPTION);
+        String searchTerm = removeOption(withoutAll, WORD_OPTION);
+        if (searchTerm.isEmpty()) {
+            throw new PingpongException(FIND_EMPTY_ERROR);
+        }
+        return new FindCommand(searchTerm, !withoutAll.equals(arguments), !searchTerm.equals(withoutAll));
+    }
+
+    private static Command parseImportCommand(String input) throws PingpongException {
+        assert input != null : "Input should not be null";
+        assert input.startsWith("import") : "Input should start with 'import'";
+
+        if (!hasArguments(input, IMPORT_COMMAND)) {
+            throw new PingpongException(IMPORT_MISSING_ERROR);
+        }
+
+        return new ImportCommand(input.substring(IMPORT_COMMAND.length()).trim());
+    }
+
+    private static boolean hasAllOption(String input) {
+        return Arrays.asList(input.trim().split("\\s+")).contains(ALL_OPTION);
+    }
+
+    private static String removeOption(String arguments, String option) {
+        return arguments.replaceAll("(^|\\s+)" + option + "(?=\\s|$)", "").trim();
     }
 
     private static Command parseAddMultipleCommand(String input) throws PingpongException {
@@ -33,6 +33,6 @@ public class UnmarkCommand extends Command {
     public void execute(TaskList tasks, Ui ui, Storage storage) throws PingpongException {
         Task unmarkedTask = tasks.unmarkTask(taskNumber - 1);
         ui.showTaskUnmarked(unmarkedTask);
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
@@ -43,6 +43,6 @@ public class UnmarkMultipleCommand extends Command {
         Task[] unmarkedTasksArray = unmarkedTasks.toArray(new Task[0]);
         ui.showTasksUnmarked(unmarkedTasksArray);
 
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
@@ -122,6 +122,6 @@ public class UpdateCommand extends Command {
         assert updatedTask != null : "Updated task should not be null";
 
         ui.showTaskUpdated(originalTask, updatedTask);
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
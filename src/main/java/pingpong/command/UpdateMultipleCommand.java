@@ -143,6 +143,6 @@ public class UpdateMultipleCommand extends Command {
         }
 
         ui.showTasksUpdated(originalTasks, updatedTasks);
-        storage.save(tasks.getAllTasks());
+        storage.saveChanges(tasks);
     }
 }
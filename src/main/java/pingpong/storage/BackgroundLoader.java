@@ -0,0 +1,116 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+
+/**
+ * Loads the stored tasks on a background thread, so that the application can accept commands before
+ * loading has finished. The loading thread only queues the batches it reads; they are moved into the
+ * task list on the thread that runs the commands, in front of any tasks that were appended meanwhile.
+ */
+public class BackgroundLoader {
+    /** How often waiting for the remaining tasks reports progress. */
+    public static final long PROGRESS_INTERVAL_MILLIS = 200;
+
+    private static final String LOAD_ERROR_PREFIX = "Error loading tasks from file: ";
+
+    /** Queued after the last batch; compared by identity, so never mistaken for an empty batch. */
+    private static final List<Task> END_OF_TASKS = new ArrayList<>();
+
+    private final LinkedBlockingQueue<List<Task>> batches = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private int loadedCount;
+    private boolean isDrained;
+
+    /**
+     * Creates a loader and starts loading from the given engine.
+     *
+     * @param engine the engine to load the tasks from
+     */
+    BackgroundLoader(StorageEngine engine) {
+        assert engine != null : "Storage engine should not be null";
+
+        this.thread = new Thread(() -> load(engine), "pingpong-background-loader");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void load(StorageEngine engine) {
+        try {
+            engine.load(batches::add);
+        } catch (IOException e) {
+            System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
+        } finally {
+            batches.add(END_OF_TASKS);
+        }
+    }
+
+    /**
+     * Moves the batches loaded so far into the task list without waiting for more.
+     *
+     * @param taskList the task list being loaded
+     * @return true if all tasks are in the task list
+     */
+    public boolean drainInto(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
+
+        List<Task> batch;
+        while (!isDrained && (batch = batches.poll()) != null) {
+            insert(taskList, batch);
+        }
+        return isDrained;
+    }
+
+    /**
+     * Waits until all tasks are in the task list, reporting the number loaded so far while waiting.
+     * Returns early if the waiting thread is interrupted.
+     *
+     * @param taskList the task list being loaded
+     * @param progressListener receives the number of tasks loaded so far at regular intervals
+     * @return true if all tasks are in the task list
+     */
+    public boolean awaitInto(TaskList taskList, IntConsumer progressListener) {
+        assert taskList != null : "Task list should not be null";
+        assert progressListener != null : "Progress listener should not be null";
+
+        while (!drainInto(taskList)) {
+            try {
+                List<Task> batch = batches.poll(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (batch == null) {
+                    progressListener.accept(loadedCount);
+                } else {
+                    insert(taskList, batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(TaskList taskList, List<Task> batch) {
+        if (batch == END_OF_TASKS) {
+            isDrained = true;
+            return;
+        }
+        taskList.insertTasks(loadedCount, batch);
+        loadedCount += batch.size();
+    }
+
+    /**
+     * Gets the number of loaded tasks moved into the task list so far.
+     *
+     * @return the loaded task count
+     */
+    public int getLoadedCount() {
+        return loadedCount;
+    }
+}
@@ -0,0 +1,275 @@
+package pingpong.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+/**
+ * Reads and writes tasks in a compact binary format, as an alternative to the text format.
+ * The file is read through a memory-mapped buffer and tasks are created directly from numeric
+ * fields, without splitting lines or parsing dates.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * header: magic (int) | version (int) | journal sequence (long) | record count (int)
+ * record: type (byte) | done (byte) | first date (long) | second date (long)
+ *         | description length (int) | description (UTF-8 bytes)
+ * </pre>
+ * <p>Deadlines store their date as an epoch day in the first date field. Events store their
+ * start and end as UTC epoch seconds. Todos leave both date fields zero.</p>
+ *
+ * <p>The done byte of every record sits at a known file offset, which is reported by both
+ * {@link #read(Path)} and {@link #write(Path, TaskSnapshot, boolean)} so that marking a task can patch
+ * that single byte in place.</p>
+ */
+public class BinaryTaskFile {
+    static final int MAGIC = 0x50505442;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 20;
+    static final int RECORD_FIXED_SIZE = 22;
+    static final byte DONE_MARKER = 1;
+    static final byte NOT_DONE_MARKER = 0;
+
+    private static final byte TODO_TYPE = 0;
+    private static final byte DEADLINE_TYPE = 1;
+    private static final byte EVENT_TYPE = 2;
+
+    private static final String CORRUPTED_FILE_WARNING = "Warning: Binary task file is corrupted after record ";
+    private static final String INVALID_HEADER_ERROR = "Not a Pingpong binary task file: ";
+
+    private final long sequence;
+    private final ArrayList<Task> tasks;
+    private final long[] doneOffsets;
+
+    private BinaryTaskFile(long sequence, ArrayList<Task> tasks, long[] doneOffsets) {
+        this.sequence = sequence;
+        this.tasks = tasks;
+        this.doneOffsets = doneOffsets;
+    }
+
+    /**
+     * Gets the journal sequence number stored in the file header.
+     *
+     * @return the journal sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the tasks read from the file.
+     *
+     * @return the tasks in file order
+     */
+    public ArrayList<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the file offset of the done byte of each task read.
+     *
+     * @return the done byte offsets, indexed like the tasks
+     */
+    public long[] getDoneOffsets() {
+        return doneOffsets;
+    }
+
+    /**
+     * Reads a binary task file through a memory-mapped buffer.
+     * Reading stops at the first corrupted record, keeping the tasks read before it.
+     *
+     * @param path the file to read
+     * @return the file contents
+     * @throws IOException if the file cannot be read or is not a binary task file
+     */
+    public static BinaryTaskFile read(Path path) throws IOException {
+        assert path != null : "Path should not be null";
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(INVALID_HEADER_ERROR + path);
+            }
+
+            long sequence = buffer.getLong();
+            int count = buffer.getInt();
+            ArrayList<Task> tasks = new ArrayList<>(Math.max(0, count));
+            long[] doneOffsets = new long[Math.max(0, count)];
+            readRecords(buffer, count, tasks, doneOffsets);
+            return new BinaryTaskFile(sequence, tasks, Arrays.copyOf(doneOffsets, tasks.size()));
+        }
+    }
+
+    /**
+     * Reads records from the buffer's position onwards, stopping at the first corrupted record.
+     *
+     * @param buffer the buffer positioned at the first record
+     * @param count the number of records to read
+     * @param tasks receives the tasks read
+     * @param doneOffsets receives the buffer position of each task's done byte, or null if not needed
+     * @return the number of records read
+     */
+    static int readRecords(ByteBuffer buffer, int count, List<Task> tasks, long[] doneOffsets) {
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < RECORD_FIXED_SIZE) {
+                System.out.println(CORRUPTED_FILE_WARNING + i);
+                return i;
+            }
+
+            if (doneOffsets != null) {
+                doneOffsets[i] = buffer.position() + 1;
+            }
+            byte type = buffer.get();
+            boolean isDone = buffer.get() == DONE_MARKER;
+            long firstDate = buffer.getLong();
+            long secondDate = buffer.getLong();
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                System.out.println(CORRUPTED_FILE_WARNING + i);
+                return i;
+            }
+
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            String description = new String(scratch, 0, length, StandardCharsets.UTF_8);
+
+            Task task = createTask(type, description, firstDate, secondDate);
+            if (task == null) {
+                System.out.println(CORRUPTED_FILE_WARNING + i);
+                return i;
+            }
+            if (isDone) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return count;
+    }
+
+    private static Task createTask(byte type, String description, long firstDate, long secondDate) {
+        switch (type) {
+        case TODO_TYPE:
+            return new Todo(description);
+        case DEADLINE_TYPE:
+            return new Deadline(description, LocalDate.ofEpochDay(firstDate));
+        case EVENT_TYPE:
+            return new Event(description, LocalDateTime.ofEpochSecond(firstDate, 0, ZoneOffset.UTC),
+                    LocalDateTime.ofEpochSecond(secondDate, 0, ZoneOffset.UTC));
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of tasks to the given file in binary format.
+     *
+     * @param path the file to write
+     * @param snapshot the tasks to write
+     * @param isForced whether to force the file to the storage device before returning
+     * @return the file offset of the done byte of each task written
+     * @throws IOException if the file cannot be written
+     */
+    public static long[] write(Path path, TaskSnapshot snapshot, boolean isForced) throws IOException {
+        assert path != null : "Path should not be null";
+        assert snapshot != null : "Snapshot should not be null";
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.getSequence());
+            out.writeInt(snapshot.size());
+
+            long[] doneOffsets = new long[snapshot.size()];
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < snapshot.size(); i++) {
+                doneOffsets[i] = offset + 1;
+                offset += writeRecord(out, snapshot.getTask(i), snapshot.isDone(i));
+            }
+
+            out.flush();
+            if (isForced) {
+                channel.force(false);
+            }
+            return doneOffsets;
+        }
+    }
+
+    /**
+     * Writes one record.
+     *
+     * @return the number of bytes written
+     */
+    static int writeRecord(DataOutputStream out, Task task, boolean isDone) throws IOException {
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+
+        switch (task.getType()) {
+        case DEADLINE:
+            out.writeByte(DEADLINE_TYPE);
+            out.writeByte(isDone ? DONE_MARKER : NOT_DONE_MARKER);
+            out.writeLong(((Deadline) task).getBy().toEpochDay());
+            out.writeLong(0);
+            break;
+        case Event:
+            Event event = (Event) task;
+            out.writeByte(EVENT_TYPE);
+            out.writeByte(isDone ? DONE_MARKER : NOT_DONE_MARKER);
+            out.writeLong(event.getStart().toEpochSecond(ZoneOffset.UTC));
+            out.writeLong(event.getEnd().toEpochSecond(ZoneOffset.UTC));
+            break;
+        default:
+            out.writeByte(TODO_TYPE);
+            out.writeByte(isDone ? DONE_MARKER : NOT_DONE_MARKER);
+            out.writeLong(0);
+            out.writeLong(0);
+            break;
+        }
+
+        out.writeInt(description.length);
+        out.write(description);
+        return RECORD_FIXED_SIZE + description.length;
+    }
+
+    /**
+     * Checks whether the given file starts with the binary task file header.
+     *
+     * @param path the file to check
+     * @return true if the file is a binary task file
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isBinaryTaskFile(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(header, 0);
+            header.flip();
+            return header.getInt() == MAGIC;
+        }
+    }
+}
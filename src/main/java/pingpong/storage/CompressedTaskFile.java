@@ -0,0 +1,431 @@
+package pingpong.storage;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import pingpong.task.Task;
+
+/**
+ * Stores tasks in blocks of a fixed number of records, each compressed on its own with {@link Deflater}.
+ * Within a block, tasks are text lines as written by {@link TaskFileFormat#formatTask(Task, boolean)},
+ * which compress well because descriptions repeat a lot.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * header: magic (int) | version (int) | journal sequence (long) | record count (int) | records per block (int)
+ * blocks: compressed bytes of each block, one after another
+ * index:  (offset (long) | compressed length (int) | uncompressed length (int) | record count (int)) per block
+ * footer: block count (int) | index offset (long)
+ * </pre>
+ * <p>Since every block is compressed independently and its position is in the index, blocks are
+ * compressed and decompressed in parallel, and a single block can be read by its index without
+ * touching the others. A task's block is its list index divided by the records per block.</p>
+ *
+ * <p>Done markers are inside compressed data, so they cannot be patched in place.</p>
+ */
+public class CompressedTaskFile implements Closeable {
+    static final int MAGIC = 0x5050545A;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    /** Default number of records compressed together in one block. */
+    public static final int DEFAULT_BLOCK_RECORDS = 1024;
+
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES * 3;
+    private static final int FOOTER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final String INVALID_HEADER_ERROR = "Not a Pingpong compressed task file: ";
+    private static final String CORRUPTED_BLOCK_WARNING = "Warning: Skipping corrupted compressed block %d of %s";
+    private static final String CORRUPTED_BLOCK_ERROR = "Compressed block %d of %s is corrupted";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long sequence;
+    private final int recordCount;
+    private final int blockRecords;
+    private final long[] blockOffsets;
+    private final int[] compressedLengths;
+    private final int[] uncompressedLengths;
+    private final int[] blockRecordCounts;
+
+    private CompressedTaskFile(Path path, FileChannel channel, long sequence, int recordCount, int blockRecords,
+            int blockCount) {
+        this.path = path;
+        this.channel = channel;
+        this.sequence = sequence;
+        this.recordCount = recordCount;
+        this.blockRecords = blockRecords;
+        this.blockOffsets = new long[blockCount];
+        this.compressedLengths = new int[blockCount];
+        this.uncompressedLengths = new int[blockCount];
+        this.blockRecordCounts = new int[blockCount];
+    }
+
+    /**
+     * Opens a compressed task file and reads its block index.
+     *
+     * @param path the file to open
+     * @return the open file, which must be closed by the caller
+     * @throws IOException if the file cannot be read or is not a compressed task file
+     */
+    public static CompressedTaskFile open(Path path) throws IOException {
+        assert path != null : "Path should not be null";
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException(INVALID_HEADER_ERROR + path);
+            }
+            ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(INVALID_HEADER_ERROR + path);
+            }
+            long sequence = header.getLong();
+            int recordCount = header.getInt();
+            int blockRecords = header.getInt();
+
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            int blockCount = footer.getInt();
+            long indexOffset = footer.getLong();
+            if (blockCount < 0 || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - FOOTER_SIZE) {
+                throw new IOException(INVALID_HEADER_ERROR + path);
+            }
+
+            CompressedTaskFile file = new CompressedTaskFile(path, channel, sequence, recordCount, blockRecords,
+                    blockCount);
+            ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            for (int i = 0; i < blockCount; i++) {
+                file.blockOffsets[i] = index.getLong();
+                file.compressedLengths[i] = index.getInt();
+                file.uncompressedLengths[i] = index.getInt();
+                file.blockRecordCounts[i] = index.getInt();
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a snapshot of tasks to the given file, compressing blocks in parallel on the common fork/join pool.
+     *
+     * @param path the file to write
+     * @param snapshot the tasks to write
+     * @param blockRecords the number of records per block
+     * @param isForced whether to force the file to the storage device before returning
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, TaskSnapshot snapshot, int blockRecords, boolean isForced)
+            throws IOException {
+        assert path != null : "Path should not be null";
+        assert snapshot != null : "Snapshot should not be null";
+        assert blockRecords > 0 : "Blocks should hold at least one record";
+
+        int blockCount = (snapshot.size() + blockRecords - 1) / blockRecords;
+        List<BlockCompressor> compressors = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            BlockCompressor compressor = new BlockCompressor(snapshot, i * blockRecords,
+                    Math.min(snapshot.size(), (i + 1) * blockRecords));
+            ForkJoinPool.commonPool().execute(compressor);
+            compressors.add(compressor);
+        }
+
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(snapshot.getSequence()).putInt(snapshot.size())
+                    .putInt(blockRecords).flip();
+            writeFully(out, header);
+
+            ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            long offset = HEADER_SIZE;
+            for (BlockCompressor compressor : compressors) {
+                CompressedBlock block = compressor.join();
+                writeFully(out, ByteBuffer.wrap(block.bytes, 0, block.length));
+                index.putLong(offset).putInt(block.length).putInt(block.uncompressedLength)
+                        .putInt(block.recordCount);
+                offset += block.length;
+            }
+            index.putInt(blockCount).putLong(offset).flip();
+            writeFully(out, index);
+            if (isForced) {
+                out.force(false);
+            }
+        } finally {
+            for (BlockCompressor compressor : compressors) {
+                compressor.quietlyJoin();
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given file starts with the compressed task file header.
+     *
+     * @param path the file to check
+     * @return true if the file is a compressed task file
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isCompressedTaskFile(Path path) throws IOException {
+        if (!Files.exists(path) || Files.size(path) < HEADER_SIZE + FOOTER_SIZE) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readFully(channel, 0, Integer.BYTES).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Gets the journal sequence number stored in the file header.
+     *
+     * @return the journal sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the number of tasks stored in the file.
+     *
+     * @return the record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the number of compressed blocks.
+     *
+     * @return the block count
+     */
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    /**
+     * Gets the number of tasks stored in a block.
+     *
+     * @param blockIndex the 0-based block index
+     * @return the record count of the block
+     */
+    public int getBlockRecordCount(int blockIndex) {
+        return blockRecordCounts[blockIndex];
+    }
+
+    /**
+     * Gets the block that holds the task at the given list index.
+     *
+     * @param recordIndex the 0-based index of the task
+     * @return the 0-based block index
+     */
+    public int getBlockOf(int recordIndex) {
+        assert recordIndex >= 0 && recordIndex < recordCount : "Record index should be within the file";
+        return recordIndex / blockRecords;
+    }
+
+    /**
+     * Decompresses a single block.
+     *
+     * @param blockIndex the 0-based block index
+     * @return the tasks of the block, in list order
+     * @throws IOException if the block cannot be read or is corrupted
+     */
+    public List<Task> readBlock(int blockIndex) throws IOException {
+        assert blockIndex >= 0 && blockIndex < getBlockCount() : "Block index should be within the file";
+
+        byte[] compressed = readFully(channel, blockOffsets[blockIndex], compressedLengths[blockIndex]).array();
+        byte[] lines = new byte[uncompressedLengths[blockIndex]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int inflated = 0;
+            while (inflated < lines.length && !inflater.finished()) {
+                int count = inflater.inflate(lines, inflated, lines.length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != lines.length) {
+                throw new IOException(String.format(CORRUPTED_BLOCK_ERROR, blockIndex, path));
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(String.format(CORRUPTED_BLOCK_ERROR, blockIndex, path), e);
+        } finally {
+            inflater.end();
+        }
+        return parseLines(lines);
+    }
+
+    /**
+     * Decompresses all blocks in parallel on the common fork/join pool.
+     * Corrupted blocks are skipped with a warning, keeping the tasks of all other blocks.
+     *
+     * @return the tasks in list order
+     * @throws IOException if the file cannot be read
+     */
+    public ArrayList<Task> readAll() throws IOException {
+        List<BlockReader> readers = new ArrayList<>(getBlockCount());
+        for (int i = 0; i < getBlockCount(); i++) {
+            BlockReader reader = new BlockReader(i);
+            ForkJoinPool.commonPool().execute(reader);
+            readers.add(reader);
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(recordCount);
+        try {
+            for (BlockReader reader : readers) {
+                List<Task> block = reader.join();
+                if (block == null) {
+                    System.out.println(String.format(CORRUPTED_BLOCK_WARNING, reader.blockIndex, path));
+                } else {
+                    tasks.addAll(block);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            // The channel may be closed on return, so stop blocks that have not started yet
+            for (BlockReader reader : readers) {
+                reader.cancel(false);
+                reader.quietlyJoin();
+            }
+        }
+        return tasks;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static List<Task> parseLines(byte[] lines) {
+        List<Task> tasks = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (lines[i] == '\n') {
+                if (i > lineStart) {
+                    Task task = TaskFileFormat.parseTask(
+                            new String(lines, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                    if (task != null) {
+                        tasks.add(task);
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        return tasks;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Compressed task file was truncated");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * The compressed bytes of one block.
+     */
+    private static class CompressedBlock {
+        private final byte[] bytes;
+        private final int length;
+        private final int uncompressedLength;
+        private final int recordCount;
+
+        private CompressedBlock(byte[] bytes, int length, int uncompressedLength, int recordCount) {
+            this.bytes = bytes;
+            this.length = length;
+            this.uncompressedLength = uncompressedLength;
+            this.recordCount = recordCount;
+        }
+    }
+
+    /**
+     * Formats and compresses the tasks of one block.
+     */
+    private static class BlockCompressor extends RecursiveTask<CompressedBlock> {
+        private final TaskSnapshot snapshot;
+        private final int from;
+        private final int to;
+
+        private BlockCompressor(TaskSnapshot snapshot, int from, int to) {
+            this.snapshot = snapshot;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected CompressedBlock compute() {
+            StringBuilder lines = new StringBuilder();
+            for (int i = from; i < to; i++) {
+                lines.append(TaskFileFormat.formatTask(snapshot.getTask(i), snapshot.isDone(i))).append('\n');
+            }
+            byte[] input = lines.toString().getBytes(StandardCharsets.UTF_8);
+
+            Deflater deflater = new Deflater();
+            try {
+                deflater.setInput(input);
+                deflater.finish();
+                byte[] output = new byte[Math.max(64, input.length / 2)];
+                int length = 0;
+                while (!deflater.finished()) {
+                    if (length == output.length) {
+                        output = Arrays.copyOf(output, output.length * 2);
+                    }
+                    length += deflater.deflate(output, length, output.length - length);
+                }
+                return new CompressedBlock(output, length, input.length, to - from);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Decompresses one block, yielding null if the block is corrupted.
+     */
+    private class BlockReader extends RecursiveTask<List<Task>> {
+        private final int blockIndex;
+
+        private BlockReader(int blockIndex) {
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            try {
+                return readBlock(blockIndex);
+            } catch (EOFException e) {
+                throw new UncheckedIOException(e);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
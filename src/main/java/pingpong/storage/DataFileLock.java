@@ -0,0 +1,195 @@
+package pingpong.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates processes sharing one data file through a lock file next to it.
+ *
+ * <p>Writers hold an exclusive {@link FileChannel#lock} on the lock file while they write the data file or
+ * its journal, and readers hold a shared one, so any number of processes can load the file at the same time
+ * while no process ever sees a write in progress. The lock file's header holds a version stamp that every
+ * write increments: header: magic (int) | version (long). A process remembers the version it last read or
+ * wrote, and a writer that finds a different version knows another process changed the data in between.</p>
+ *
+ * <p>The stamp lives in the lock file rather than the data file because marking a task in place and appending
+ * to the journal do not rewrite the data file. File locks are held on behalf of the whole Java process and
+ * cannot overlap within it, so threads of one process also take turns through an in-process lock first.</p>
+ */
+public class DataFileLock implements Closeable {
+    /** Suffix of the lock file, appended to the data file name. */
+    public static final String LOCK_SUFFIX = ".lock";
+
+    static final int MAGIC = 0x50504C4B;
+    static final int HEADER_SIZE = 12;
+
+    private static final ConcurrentHashMap<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockPath;
+    private final ReentrantLock processLock;
+    private FileChannel channel;
+
+    /**
+     * Creates the lock for a data file. The lock file is created on first use.
+     *
+     * @param dataPath the data file
+     */
+    public DataFileLock(Path dataPath) {
+        assert dataPath != null : "Data path should not be null";
+
+        this.lockPath = Paths.get(dataPath + LOCK_SUFFIX).toAbsolutePath().normalize();
+        this.processLock = PROCESS_LOCKS.computeIfAbsent(lockPath, path -> new ReentrantLock());
+    }
+
+    /**
+     * Waits for a shared lock, which other readers may hold at the same time.
+     *
+     * @return the held lock, to be closed when reading is done
+     * @throws IOException if the lock file cannot be opened or locked
+     */
+    public Holder lockShared() throws IOException {
+        return lock(true);
+    }
+
+    /**
+     * Waits for an exclusive lock, which no other reader or writer holds at the same time.
+     *
+     * @return the held lock, to be closed when writing is done
+     * @throws IOException if the lock file cannot be opened or locked
+     */
+    public Holder lockExclusive() throws IOException {
+        return lock(false);
+    }
+
+    private Holder lock(boolean isShared) throws IOException {
+        assert !processLock.isHeldByCurrentThread() : "The data file lock is not reentrant";
+
+        processLock.lock();
+        try {
+            FileLock fileLock = openChannel().lock(0, Long.MAX_VALUE, isShared);
+            return new Holder(fileLock, readVersion());
+        } catch (IOException | RuntimeException e) {
+            processLock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the version stamp without locking, to cheaply check whether another process wrote since.
+     * The value may be out of date by the time it is used, so writers check it again under the lock.
+     *
+     * @return the current version, or 0 if nothing was written yet
+     * @throws IOException if the lock file cannot be read
+     */
+    public long peekVersion() throws IOException {
+        // Before the first write the lock file, and possibly its directory, do not exist yet
+        if (channel == null && !Files.exists(lockPath)) {
+            return 0;
+        }
+        return readVersion();
+    }
+
+    private synchronized FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(lockPath.getParent());
+            channel = FileChannel.open(lockPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE);
+        }
+        return channel;
+    }
+
+    private long readVersion() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        FileChannel lockChannel = openChannel();
+        while (header.hasRemaining()) {
+            if (lockChannel.read(header, header.position()) < 0) {
+                return 0;
+            }
+        }
+        header.flip();
+        return header.getInt() == MAGIC ? header.getLong() : 0;
+    }
+
+    /**
+     * Closes the lock file. Locks still held are released.
+     *
+     * @throws IOException if the lock file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * A held lock together with the version stamp read while acquiring it.
+     */
+    public class Holder implements Closeable {
+        private final FileLock fileLock;
+        private long version;
+
+        private Holder(FileLock fileLock, long version) {
+            this.fileLock = fileLock;
+            this.version = version;
+        }
+
+        /**
+         * Gets the version stamp of the data.
+         *
+         * @return the version, which is 0 before the first write
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Increments the version stamp after a write. Only allowed while holding the exclusive lock.
+         *
+         * @param isForced whether to force the new stamp to the storage device
+         * @return the new version
+         * @throws IOException if the stamp cannot be written
+         */
+        public long bumpVersion(boolean isForced) throws IOException {
+            assert !fileLock.isShared() : "The version should only be bumped under the exclusive lock";
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putLong(version + 1).flip();
+            FileChannel lockChannel = openChannel();
+            while (header.hasRemaining()) {
+                lockChannel.write(header, header.position());
+            }
+            if (isForced) {
+                lockChannel.force(false);
+            }
+            version++;
+            return version;
+        }
+
+        /**
+         * Releases the lock.
+         *
+         * @throws IOException if the lock cannot be released
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (fileLock.isValid()) {
+                    fileLock.release();
+                }
+            } finally {
+                processLock.unlock();
+            }
+        }
+    }
+}
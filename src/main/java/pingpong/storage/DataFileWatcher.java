@@ -0,0 +1,153 @@
+package pingpong.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the data file for modifications made by other programs, such as an editor or a sync tool.
+ *
+ * <p>A daemon thread blocks on a {@link WatchService} registered for the file's directory and only raises a
+ * flag, so nothing is read while the application is idle. Writes made by the engine itself also fire events;
+ * they are told apart by the file's size, modification time and identity, which the engine records after each
+ * of its own writes.</p>
+ */
+public class DataFileWatcher implements Closeable {
+    private static final String THREAD_NAME = "pingpong-file-watcher";
+    /** How long the file must stay untouched before a change is reported, so a write in progress is not read. */
+    private static final long QUIET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path dataPath;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean isModified;
+    private volatile long lastEventNanos;
+    private volatile Stamp ownStamp;
+
+    /**
+     * Starts watching a data file. The file's current state counts as known to the engine.
+     *
+     * @param dataPath the data file, whose directory must exist
+     * @throws IOException if the directory cannot be watched
+     */
+    public DataFileWatcher(Path dataPath) throws IOException {
+        assert dataPath != null : "Data path should not be null";
+
+        this.dataPath = dataPath.toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.dataPath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.ownStamp = Stamp.of(this.dataPath);
+        this.thread = new Thread(this::watch, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch() {
+        Path fileName = dataPath.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                        lastEventNanos = System.nanoTime();
+                        isModified = true;
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Records the current state of the data file as written by the engine itself.
+     * Must be called after every write to the data file, while no other program can have changed it since.
+     */
+    public void recordOwnWrite() {
+        ownStamp = Stamp.of(dataPath);
+    }
+
+    /**
+     * Checks whether another program changed the data file since it was last checked, and clears the flag.
+     * A file that was modified less than 100 milliseconds ago is reported on a later check instead.
+     *
+     * @return true if the file differs from the state the engine last recorded
+     */
+    public boolean takeExternalChange() {
+        if (!isModified || System.nanoTime() - lastEventNanos < QUIET_NANOS) {
+            return false;
+        }
+        isModified = false;
+        return !Stamp.of(dataPath).equals(ownStamp);
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The attributes that change whenever the file is written or replaced.
+     */
+    private static class Stamp {
+        private static final Stamp MISSING = new Stamp(-1, -1, null);
+
+        private final long size;
+        private final long modifiedNanos;
+        private final Object fileKey;
+
+        private Stamp(long size, long modifiedNanos, Object fileKey) {
+            this.size = size;
+            this.modifiedNanos = modifiedNanos;
+            this.fileKey = fileKey;
+        }
+
+        static Stamp of(Path path) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new Stamp(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                        attributes.fileKey());
+            } catch (IOException e) {
+                return MISSING;
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Stamp)) {
+                return false;
+            }
+            Stamp stamp = (Stamp) other;
+            return size == stamp.size && modifiedNanos == stamp.modifiedNanos && Objects.equals(fileKey, stamp.fileKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modifiedNanos, fileKey);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Rewrites the done marker of individual records in place, so that marking or unmarking a task
+ * writes a single byte instead of the whole file.
+ *
+ * <p>Both file formats keep the done marker at a fixed position within each record. The patcher
+ * remembers the file offset of each marker from the last time the file was fully read or written,
+ * and must be invalidated whenever the record layout of the file is about to change.</p>
+ *
+ * <p>Text records carry a {@link RecordChecksum} a fixed distance before their done marker. The checksum
+ * and the marker are then read and written together, and the checksum is flipped only if the marker changes.</p>
+ */
+public class DoneFlagPatcher {
+    /** Checksum distance of records that have no checksum. */
+    public static final int NO_CHECKSUM = -1;
+
+    private static final String MISSING_CHECKSUM_ERROR = "Record checksum not found at offset ";
+
+    private final Path path;
+    private long[] doneOffsets;
+    private byte doneMarker;
+    private byte notDoneMarker;
+    private int checksumDistance;
+
+    /**
+     * Creates a patcher for the given data file. No offsets are known until {@link #setOffsets} is called.
+     *
+     * @param path the data file to patch
+     */
+    public DoneFlagPatcher(Path path) {
+        assert path != null : "Path should not be null";
+        this.path = path;
+    }
+
+    /**
+     * Records the layout of the data file as it was just read or written.
+     *
+     * @param doneOffsets the file offset of each task's done marker, in list order
+     * @param doneMarker the byte stored for a completed task
+     * @param notDoneMarker the byte stored for an incomplete task
+     */
+    public void setOffsets(long[] doneOffsets, byte doneMarker, byte notDoneMarker) {
+        setOffsets(doneOffsets, doneMarker, notDoneMarker, NO_CHECKSUM);
+    }
+
+    /**
+     * Records the layout of a data file whose records carry a checksum before their done marker.
+     *
+     * @param doneOffsets the file offset of each task's done marker, in list order
+     * @param doneMarker the byte stored for a completed task
+     * @param notDoneMarker the byte stored for an incomplete task
+     * @param checksumDistance how many bytes the checksum starts before the done marker, or {@link #NO_CHECKSUM}
+     */
+    public synchronized void setOffsets(long[] doneOffsets, byte doneMarker, byte notDoneMarker,
+            int checksumDistance) {
+        assert doneOffsets != null : "Offsets should not be null";
+
+        this.doneOffsets = doneOffsets;
+        this.doneMarker = doneMarker;
+        this.notDoneMarker = notDoneMarker;
+        this.checksumDistance = checksumDistance;
+    }
+
+    /**
+     * Forgets the known layout, for example because the file is about to be rewritten.
+     */
+    public synchronized void invalidate() {
+        this.doneOffsets = null;
+    }
+
+    /**
+     * Checks whether the known layout matches a task list of the given size.
+     *
+     * @param taskCount the number of tasks in the list
+     * @return true if done markers can be patched in place
+     */
+    public synchronized boolean canPatch(int taskCount) {
+        return doneOffsets != null && doneOffsets.length == taskCount;
+    }
+
+    /**
+     * Writes the done markers of the given tasks at their known offsets.
+     *
+     * @param indices the 0-based indices of the tasks to patch
+     * @param doneFlags the completion status to write for each index
+     * @param isForced whether to force the written bytes to the storage device
+     * @throws IOException if the file cannot be written, in which case the layout is invalidated
+     */
+    public synchronized void patch(int[] indices, boolean[] doneFlags, boolean isForced) throws IOException {
+        assert doneOffsets != null : "Offsets should be known before patching";
+        assert indices.length == doneFlags.length : "Each index should have a done flag";
+
+        ByteBuffer marker = ByteBuffer.allocate(1);
+        ByteBuffer record = checksumDistance == NO_CHECKSUM ? null : ByteBuffer.allocate(checksumDistance + 1);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < indices.length; i++) {
+                byte newMarker = doneFlags[i] ? doneMarker : notDoneMarker;
+                long offset = doneOffsets[indices[i]];
+                if (record != null) {
+                    patchChecksummed(channel, record, offset, newMarker);
+                    continue;
+                }
+                marker.clear();
+                marker.put(newMarker);
+                marker.flip();
+                channel.write(marker, offset);
+            }
+            if (isForced) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            invalidate();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the checksum and the marker of one record, and writes both back if the marker changes.
+     */
+    private void patchChecksummed(FileChannel channel, ByteBuffer record, long markerOffset, byte newMarker)
+            throws IOException {
+        long recordOffset = markerOffset - checksumDistance;
+        record.clear();
+        while (record.hasRemaining()) {
+            if (channel.read(record, recordOffset + record.position()) < 0) {
+                throw new IOException(MISSING_CHECKSUM_ERROR + recordOffset);
+            }
+        }
+
+        byte[] bytes = record.array();
+        long checksum = RecordChecksum.parseHex(bytes, 0);
+        if (checksum < 0) {
+            throw new IOException(MISSING_CHECKSUM_ERROR + recordOffset);
+        }
+        if (bytes[checksumDistance] == newMarker) {
+            return;
+        }
+
+        RecordChecksum.putHex(record, 0, RecordChecksum.toggleDone((int) checksum));
+        record.put(checksumDistance, newMarker);
+        record.clear();
+        while (record.hasRemaining()) {
+            channel.write(record, recordOffset + record.position());
+        }
+    }
+}
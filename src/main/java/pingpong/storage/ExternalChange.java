@@ -0,0 +1,225 @@
+package pingpong.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+
+/**
+ * A version of the data file written by another program, together with the version this engine last read
+ * or wrote, which both the file and the task list in memory have evolved from. If that version is not known,
+ * the file's version replaces the task list.
+ *
+ * <p>Merging is three-way on records: the file and the task list are each diffed against the common base,
+ * and only the file's changes are applied to the task list, so unchanged tasks keep their objects. A change
+ * is a conflict if the task list changed an overlapping range of the base differently; the task list's
+ * version is then kept and the conflict is reported.</p>
+ */
+public class ExternalChange {
+    private final TaskSnapshot base;
+    private final List<Task> fileTasks;
+    private final boolean hasDiscardedChanges;
+
+    /**
+     * Creates an external change.
+     *
+     * @param base the tasks as this engine last read or wrote them
+     * @param fileTasks the tasks now in the data file
+     */
+    ExternalChange(TaskSnapshot base, List<Task> fileTasks) {
+        this(base, fileTasks, false);
+        assert base != null : "Base snapshot should not be null";
+    }
+
+    private ExternalChange(TaskSnapshot base, List<Task> fileTasks, boolean hasDiscardedChanges) {
+        assert fileTasks != null : "File tasks should not be null";
+
+        this.base = base;
+        this.fileTasks = fileTasks;
+        this.hasDiscardedChanges = hasDiscardedChanges;
+    }
+
+    /**
+     * Creates an external change without a known base, which replaces the task list with the file's tasks
+     * when applied. Still only the records that differ are replaced.
+     *
+     * @param fileTasks the tasks now stored
+     * @param hasDiscardedChanges whether changes not yet written were dropped in favour of the stored tasks
+     * @return the external change
+     */
+    static ExternalChange replacing(List<Task> fileTasks, boolean hasDiscardedChanges) {
+        return new ExternalChange(null, fileTasks, hasDiscardedChanges);
+    }
+
+    /**
+     * Gets the tasks now in the data file.
+     *
+     * @return the tasks in file order
+     */
+    public List<Task> getFileTasks() {
+        return Collections.unmodifiableList(fileTasks);
+    }
+
+    /**
+     * Applies the records changed in the file to a task list, leaving conflicting records as they are.
+     * The applied replacements are not recorded as task list changes, so the caller should save the whole list.
+     *
+     * @param taskList the task list to merge the changes into
+     * @return the number of applied changes and the conflicts
+     */
+    public MergeResult applyTo(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
+
+        List<String> localLines = formatLines(taskList.getAllTasks());
+        List<String> baseLines = localLines;
+        if (base != null) {
+            baseLines = new ArrayList<>(base.size());
+            for (int i = 0; i < base.size(); i++) {
+                baseLines.add(TaskFileFormat.formatTask(base.getTask(i), base.isDone(i)));
+            }
+        }
+        List<RecordDiff.Hunk> fileHunks = RecordDiff.compute(baseLines, formatLines(fileTasks));
+        List<RecordDiff.Hunk> localHunks = RecordDiff.compute(baseLines, localLines);
+
+        List<int[]> replacedRanges = new ArrayList<>();
+        List<List<Task>> replacements = new ArrayList<>();
+        List<Conflict> conflicts = new ArrayList<>();
+        int appliedCount = 0;
+        int local = 0;
+        int shift = 0;
+        for (RecordDiff.Hunk fileHunk : fileHunks) {
+            boolean isAlreadyMade = false;
+            while (local < localHunks.size() && localHunks.get(local).getBaseEnd() <= fileHunk.getBaseStart()
+                    && !localHunks.get(local).overlaps(fileHunk)) {
+                RecordDiff.Hunk localHunk = localHunks.get(local);
+                isAlreadyMade |= localHunk.isSameChange(fileHunk);
+                shift += localHunk.getLines().size() - (localHunk.getBaseEnd() - localHunk.getBaseStart());
+                local++;
+            }
+
+            RecordDiff.Hunk overlapping = findOverlapping(localHunks, local, fileHunk);
+            List<Task> tasks = fileTasks.subList(fileHunk.getOtherStart(),
+                    fileHunk.getOtherStart() + fileHunk.getLines().size());
+            if (isAlreadyMade || (overlapping != null && overlapping.isSameChange(fileHunk))) {
+                continue;
+            }
+            if (overlapping != null) {
+                conflicts.add(new Conflict(fileHunk.getBaseStart(), tasks));
+                continue;
+            }
+            int replacedCount = fileHunk.getBaseEnd() - fileHunk.getBaseStart();
+            replacedRanges.add(new int[] {fileHunk.getBaseStart() + shift, replacedCount});
+            replacements.add(tasks);
+            appliedCount += Math.max(replacedCount, tasks.size());
+        }
+
+        // Later ranges first, so that the positions of earlier ones stay valid
+        for (int i = replacedRanges.size() - 1; i >= 0; i--) {
+            int[] range = replacedRanges.get(i);
+            taskList.replaceTasks(range[0], range[1], new ArrayList<>(replacements.get(i)));
+        }
+        return new MergeResult(appliedCount, conflicts, hasDiscardedChanges);
+    }
+
+    private static RecordDiff.Hunk findOverlapping(List<RecordDiff.Hunk> hunks, int from, RecordDiff.Hunk hunk) {
+        for (int i = from; i < hunks.size() && hunks.get(i).getBaseStart() <= hunk.getBaseEnd(); i++) {
+            if (hunks.get(i).overlaps(hunk) || hunks.get(i).isSameChange(hunk)) {
+                return hunks.get(i);
+            }
+        }
+        return null;
+    }
+
+    private static List<String> formatLines(List<Task> tasks) {
+        List<String> lines = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            lines.add(TaskFileFormat.formatTask(task, task.isDone()));
+        }
+        return lines;
+    }
+
+    /**
+     * A change made to the data file that was not applied because the task list changed the same tasks.
+     */
+    public static class Conflict {
+        private final int baseIndex;
+        private final List<Task> fileTasks;
+
+        Conflict(int baseIndex, List<Task> fileTasks) {
+            this.baseIndex = baseIndex;
+            this.fileTasks = fileTasks;
+        }
+
+        /**
+         * Gets the position of the first affected task before either side changed it.
+         *
+         * @return the 0-based index in the common base
+         */
+        public int getBaseIndex() {
+            return baseIndex;
+        }
+
+        /**
+         * Gets the tasks the data file has in place of the affected tasks.
+         *
+         * @return the tasks from the file, empty if the file deleted them
+         */
+        public List<Task> getFileTasks() {
+            return Collections.unmodifiableList(fileTasks);
+        }
+    }
+
+    /**
+     * The outcome of merging an external change into a task list.
+     */
+    public static class MergeResult {
+        private final int appliedCount;
+        private final List<Conflict> conflicts;
+        private final boolean hasDiscardedChanges;
+
+        MergeResult(int appliedCount, List<Conflict> conflicts, boolean hasDiscardedChanges) {
+            this.appliedCount = appliedCount;
+            this.conflicts = conflicts;
+            this.hasDiscardedChanges = hasDiscardedChanges;
+        }
+
+        /**
+         * Gets the number of tasks added, removed or replaced to take over the file's changes.
+         *
+         * @return the applied change count
+         */
+        public int getAppliedCount() {
+            return appliedCount;
+        }
+
+        /**
+         * Gets the changes that were not applied because the task list changed the same tasks.
+         *
+         * @return the conflicts in list order
+         */
+        public List<Conflict> getConflicts() {
+            return Collections.unmodifiableList(conflicts);
+        }
+
+        /**
+         * Checks whether changes that were not written yet were dropped, because another process wrote
+         * first and the two could not be merged.
+         *
+         * @return true if changes were discarded
+         */
+        public boolean hasDiscardedChanges() {
+            return hasDiscardedChanges;
+        }
+
+        /**
+         * Checks whether the merge changed the task list, found a conflict or discarded changes.
+         *
+         * @return true if there is anything to report
+         */
+        public boolean hasChanges() {
+            return appliedCount > 0 || !conflicts.isEmpty() || hasDiscardedChanges;
+        }
+    }
+}
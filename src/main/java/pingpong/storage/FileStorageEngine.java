@@ -0,0 +1,1150 @@
+package pingpong.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import pingpong.task.Task;
+import pingpong.task.TaskChange;
+
+/**
+ * Stores tasks in a data file, in the text format by default.
+ * Optionally appends mutations to a journal, writes the binary format, and performs writes
+ * on a background thread; each of these is enabled with a {@code withX} method.
+ */
+public class FileStorageEngine implements StorageEngine {
+    private static final String DEFAULT_DIRECTORY = "./";
+    /** Suffix of the journal file, appended to the data file name. */
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final String SNAPSHOT_HEADER = "#journal" + TaskFileFormat.FIELD_SEPARATOR;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String QUARANTINE_WARNING = "Warning: Skipped %d corrupted task records; moved them to %s";
+    private static final String STALE_ERROR = "Another Pingpong process changed %s since it was last read";
+    private static final String IMAGE_ERROR = "Warning: Could not write the startup image: ";
+    /** How far the checksum of a text record starts before its done marker. */
+    private static final int TEXT_CHECKSUM_DISTANCE = RecordChecksum.FIELD_LENGTH + TaskFileFormat.DONE_MARKER_OFFSET;
+
+    private final String filePath;
+    private final String directoryPath;
+    private final Object snapshotLock = new Object();
+    private TaskJournal journal;
+    private JournalCompactor compactor;
+    private WriteBehindSaver saver;
+    private boolean isBinaryFormat;
+    private int compressedBlockRecords;
+    private FsyncTracker fsyncTracker;
+    private final DoneFlagPatcher patcher;
+    private TextTaskEncoder encoder;
+    private long snapshotSequence;
+    private long lastReplayMillis;
+    private boolean isWatching;
+    private DataFileWatcher watcher;
+    /** The tasks of the text data file as last read or written by this engine, or null if not known. */
+    private TaskSnapshot baseline;
+    private DataFileLock dataLock;
+    /** The version stamp of the shared data as last read or written by this engine. */
+    private volatile long knownVersion;
+    /** Set when a write was refused because another process wrote first. */
+    private volatile boolean isStale;
+    private boolean isUsingImage;
+    /** Whether the files hold exactly the tasks last loaded or saved, so that an image of them can be taken. */
+    private volatile boolean isInSync;
+    /** The tasks to write a startup image of on close, or null if none should be written. */
+    private List<Task> imageTasks;
+
+    /**
+     * Creates an engine that stores tasks in the specified file.
+     *
+     * @param filePath the path to the file where tasks will be stored
+     */
+    public FileStorageEngine(String filePath) {
+        assert filePath != null : "File path should not be null";
+        assert !filePath.trim().isEmpty() : "File path should not be empty";
+
+        this.filePath = filePath;
+        this.directoryPath = extractDirectoryPath(filePath);
+        this.patcher = new DoneFlagPatcher(Paths.get(filePath));
+        this.fsyncTracker = new FsyncTracker(FsyncPolicy.BATCHED, FsyncTracker.DEFAULT_BATCH_MILLIS);
+
+        assert this.filePath != null : "File path should be set";
+        assert this.directoryPath != null : "Directory path should be set";
+    }
+
+    /**
+     * Enables journal mode, where each mutation is appended to a write-ahead journal
+     * next to the data file instead of rewriting the whole file.
+     * Loading replays the journal on top of the last snapshot.
+     * The journal is compacted in the background using the default thresholds.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withJournal() {
+        return withJournal(JournalCompactor.DEFAULT_MAX_RECORDS, JournalCompactor.DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Enables journal mode with the given compaction thresholds.
+     * Once the journal holds at least {@code maxRecords} records or {@code maxBytes} bytes,
+     * a fresh snapshot is written in the background and the journal is truncated.
+     *
+     * @param maxRecords the number of journal records that triggers a compaction
+     * @param maxBytes the journal size in bytes that triggers a compaction
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withJournal(long maxRecords, long maxBytes) {
+        this.journal = new TaskJournal(filePath + JOURNAL_SUFFIX);
+        this.compactor = new JournalCompactor(maxRecords, maxBytes);
+        return this;
+    }
+
+    /**
+     * Stores tasks in the binary format of {@link BinaryTaskFile} instead of the text format.
+     * Existing text files are still loaded and are converted on the next save.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withBinaryFormat() {
+        this.isBinaryFormat = true;
+        this.compressedBlockRecords = 0;
+        return this;
+    }
+
+    /**
+     * Stores tasks in the block-compressed format of {@link CompressedTaskFile} with the default block size.
+     * Existing files in the other formats are still loaded and are converted on the next save.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withCompressedFormat() {
+        return withCompressedFormat(CompressedTaskFile.DEFAULT_BLOCK_RECORDS);
+    }
+
+    /**
+     * Stores tasks in the block-compressed format of {@link CompressedTaskFile}.
+     * Since done markers are compressed, marking a task without a journal rewrites the file.
+     *
+     * @param blockRecords the number of tasks compressed together in one block
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withCompressedFormat(int blockRecords) {
+        assert blockRecords > 0 : "Blocks should hold at least one task";
+        this.compressedBlockRecords = blockRecords;
+        this.isBinaryFormat = false;
+        return this;
+    }
+
+    /**
+     * Sets when written data is forced to the storage device, using the default batch interval.
+     * The default policy is {@link FsyncPolicy#BATCHED}.
+     *
+     * @param policy the fsync policy
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withFsyncPolicy(FsyncPolicy policy) {
+        return withFsyncPolicy(policy, FsyncTracker.DEFAULT_BATCH_MILLIS);
+    }
+
+    /**
+     * Sets when written data is forced to the storage device.
+     *
+     * @param policy the fsync policy
+     * @param batchMillis the minimum time between forced writes under {@link FsyncPolicy#BATCHED}
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withFsyncPolicy(FsyncPolicy policy, long batchMillis) {
+        this.fsyncTracker = new FsyncTracker(policy, batchMillis);
+        return this;
+    }
+
+    /**
+     * Enables write-behind mode, where commands only mark the storage dirty and a background thread
+     * performs the disk writes. Bursts of changes are coalesced into a single flush.
+     * Call {@link #flush()} or {@link #close()} to make pending changes durable, for example on exit.
+     *
+     * @param coalesceMillis the quiet period after the last change before flushing
+     * @param maxStalenessMillis the maximum time a change may stay unflushed
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withWriteBehind(long coalesceMillis, long maxStalenessMillis) {
+        this.saver = new WriteBehindSaver(this, coalesceMillis, maxStalenessMillis);
+        return this;
+    }
+
+    /**
+     * Watches the data file for changes made by other programs, which {@link #pollExternalChange()} then reports.
+     * Only text data files are merged; the watcher starts with the first load or save.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withFileWatcher() {
+        this.isWatching = true;
+        return this;
+    }
+
+    /**
+     * Lets several processes share the data file. Reads hold a shared lock and writes an exclusive lock on a
+     * {@link DataFileLock} next to the data file, and a write is refused with a {@link StaleDataFileException}
+     * if another process wrote since this engine last read or wrote; {@link #pollExternalChange()} then
+     * reports the other process's version.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withSharedAccess() {
+        this.dataLock = new DataFileLock(Paths.get(filePath));
+        return this;
+    }
+
+    /**
+     * Writes a {@link StartupImage} of the task list on a clean shutdown, and loads the image instead of the
+     * data file and journal on the next start while they have not changed since.
+     *
+     * @return this engine for method chaining
+     */
+    public FileStorageEngine withStartupImage() {
+        this.isUsingImage = true;
+        return this;
+    }
+
+    /**
+     * Gets the version stamp of the shared data as last read or written by this engine.
+     *
+     * @return the version, or 0 if shared access is disabled or nothing was written yet
+     */
+    public long getKnownVersion() {
+        return knownVersion;
+    }
+
+    /**
+     * Gets the write-behind saver, which exposes how many flushes were performed.
+     *
+     * @return the write-behind saver, or null if write-behind mode is disabled
+     */
+    public WriteBehindSaver getSaver() {
+        return saver;
+    }
+
+    /**
+     * Gets the compactor of the journal, which exposes its thresholds and last compaction time.
+     *
+     * @return the journal compactor, or null if journal mode is disabled
+     */
+    public JournalCompactor getCompactor() {
+        return compactor;
+    }
+
+    /**
+     * Gets how long replaying the journal took during the last load.
+     *
+     * @return the replay time in milliseconds
+     */
+    public long getLastReplayMillis() {
+        return lastReplayMillis;
+    }
+
+    /**
+     * Checks whether this storage appends mutations to a journal.
+     *
+     * @return true if journal mode is enabled
+     */
+    public boolean isJournalEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Gets when written data is forced to the storage device.
+     *
+     * @return the fsync policy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncTracker.getPolicy();
+    }
+
+    /**
+     * Extracts the directory path from the full file path.
+     *
+     * @param filePath the complete file path
+     * @return the directory path portion
+     */
+    private String extractDirectoryPath(String filePath) {
+        int lastSlashIndex = filePath.lastIndexOf('/');
+        return lastSlashIndex != -1 ? filePath.substring(0, lastSlashIndex) : DEFAULT_DIRECTORY;
+    }
+
+    /**
+     * Loads tasks from the storage file.
+     * Creates the directory if it doesn't exist.
+     * Handles corrupted or invalid task data gracefully by skipping them.
+     *
+     * @return a list of tasks loaded from the file, or empty list if file doesn't exist
+     * @throws IOException if the file or journal cannot be read
+     */
+    @Override
+    public ArrayList<Task> load() throws IOException {
+        ensureDirectoryExists();
+        try (DataFileLock.Holder holder = dataLock != null ? dataLock.lockShared() : null) {
+            ArrayList<Task> tasks = readTasks();
+            if (holder != null) {
+                knownVersion = holder.getVersion();
+                isStale = false;
+                if (journal != null) {
+                    journal.trackCommittedTasks(tasks);
+                }
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Reads the data file in whichever format it is in and replays the journal on top of it,
+     * or reads the startup image if it is still current.
+     *
+     * @return the tasks in list order
+     * @throws IOException if the file or journal cannot be read
+     */
+    private ArrayList<Task> readTasks() throws IOException {
+        isInSync = false;
+        ArrayList<Task> tasks = isUsingImage ? readStartupImage() : null;
+        if (tasks != null) {
+            isInSync = true;
+            return tasks;
+        }
+
+        tasks = new ArrayList<>();
+        File dataFile = new File(filePath);
+        assert dataFile != null : "Data file object should not be null";
+
+        TaskSnapshot loadedBaseline = null;
+        if (BinaryTaskFile.isBinaryTaskFile(dataFile.toPath())) {
+            tasks = loadBinaryTasks(dataFile);
+        } else if (CompressedTaskFile.isCompressedTaskFile(dataFile.toPath())) {
+            tasks = loadCompressedTasks(dataFile);
+        } else {
+            if (dataFile.exists()) {
+                tasks = loadTasksFromFile(dataFile);
+            }
+            loadedBaseline = TaskSnapshot.of(tasks, snapshotSequence);
+        }
+        startWatching(loadedBaseline);
+
+        if (journal != null) {
+            long startNanos = System.nanoTime();
+            journal.replay(tasks, snapshotSequence);
+            lastReplayMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+
+        assert tasks != null : "Returned task list should not be null";
+        isInSync = true;
+        return tasks;
+    }
+
+    /**
+     * Reads the startup image and takes over the state the data file and journal had when it was written.
+     * Offsets for patching done markers in place are not kept in the image, so the first mark rewrites the file.
+     *
+     * @return the tasks in list order, or null if there is no current image
+     * @throws IOException if the data directory cannot be watched
+     */
+    private ArrayList<Task> readStartupImage() throws IOException {
+        Path dataPath = Paths.get(filePath);
+        StartupImage image;
+        try {
+            image = StartupImage.read(StartupImage.imagePathFor(dataPath), dataPath, getJournalPath());
+        } catch (IOException e) {
+            return null;
+        }
+        if (image == null) {
+            return null;
+        }
+
+        ArrayList<Task> tasks = image.getTasks();
+        snapshotSequence = image.getSnapshotSequence();
+        patcher.invalidate();
+        if (journal != null) {
+            journal.restore(Math.max(image.getJournalLastSequence(), snapshotSequence),
+                    image.getJournalRecordCount());
+        }
+        boolean isDataFileContent = journal == null || image.getJournalRecordCount() == 0;
+        startWatching(isDataFileContent ? TaskSnapshot.of(tasks, snapshotSequence) : null);
+        lastReplayMillis = 0;
+        return tasks;
+    }
+
+    private Path getJournalPath() {
+        return journal != null ? Paths.get(filePath + JOURNAL_SUFFIX) : null;
+    }
+
+    /**
+     * Streams a text file without a journal chunk by chunk, as soon as each chunk is parsed.
+     * Binary and compressed files, journal mode and startup images deliver the complete list as a single batch.
+     *
+     * @param batchConsumer receives the tasks in file order
+     * @throws IOException if the file or journal cannot be read
+     */
+    @Override
+    public void load(Consumer<List<Task>> batchConsumer) throws IOException {
+        assert batchConsumer != null : "Batch consumer should not be null";
+
+        Path dataPath = Paths.get(filePath);
+        if (journal != null || !Files.exists(dataPath) || BinaryTaskFile.isBinaryTaskFile(dataPath)
+                || CompressedTaskFile.isCompressedTaskFile(dataPath)
+                || (isUsingImage && Files.exists(StartupImage.imagePathFor(dataPath)))) {
+            batchConsumer.accept(load());
+            return;
+        }
+
+        // Offsets of a streamed file are not collected, so the first mark rewrites the file
+        patcher.invalidate();
+        startWatching(null);
+        isInSync = false;
+        try (DataFileLock.Holder holder = dataLock != null ? dataLock.lockShared() : null) {
+            quarantine(dataPath, TextTaskFile.stream(dataPath, batchConsumer));
+            if (holder != null) {
+                knownVersion = holder.getVersion();
+                isStale = false;
+            }
+        }
+        isInSync = true;
+    }
+
+    /**
+     * Checks whether this engine streams the tasks. Only a text data file without a journal is streamed
+     * when loading, and only when nothing copies the whole list: no write-behind or compressed snapshots,
+     * no startup image, and no file watcher or shared access, which keep the file as last read to merge with.
+     *
+     * @return true if neither loading nor saving holds all tasks at once
+     */
+    @Override
+    public boolean canStream() {
+        if (journal != null || isUsingImage || isBinaryFormat || !canWriteThroughList()) {
+            return false;
+        }
+
+        Path dataPath = Paths.get(filePath);
+        try {
+            return !BinaryTaskFile.isBinaryTaskFile(dataPath) && !CompressedTaskFile.isCompressedTaskFile(dataPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether a save can write the task list through a {@link TaskSnapshot#view}, as it is written
+     * before returning on a single thread and not kept afterwards.
+     */
+    private boolean canWriteThroughList() {
+        return saver == null && compressedBlockRecords == 0 && !isTrackingBaseline();
+    }
+
+    /**
+     * Starts the file watcher if it is enabled, taking the data file as just read as the common base
+     * of later external changes.
+     *
+     * @param loadedBaseline the tasks read from the text data file, or null if they are not kept
+     * @throws IOException if the data directory cannot be watched
+     */
+    private void startWatching(TaskSnapshot loadedBaseline) throws IOException {
+        synchronized (snapshotLock) {
+            baseline = isTrackingBaseline() ? loadedBaseline : null;
+            if (!isWatching) {
+                return;
+            }
+            if (watcher == null) {
+                watcher = new DataFileWatcher(Paths.get(filePath));
+            }
+            watcher.recordOwnWrite();
+        }
+    }
+
+    /**
+     * Checks whether external changes can be reported, which needs the data file as last read or written.
+     */
+    private boolean isTrackingBaseline() {
+        return isWatching || dataLock != null;
+    }
+
+    /**
+     * Reads the data file if another program changed it since this engine last read or wrote it.
+     * Changes to binary and compressed files, and deletion of the file, are not reported.
+     * Offsets for patching done markers in place are dropped, as the file layout is no longer known.
+     * A program editing a line leaves its checksum stale, so such a line is kept as edited if it still parses,
+     * and only lines that do not parse are quarantined; saving the merged tasks stamps the edited lines afresh.
+     *
+     * @return the change, or null if the file is unchanged or cannot be merged
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public ExternalChange pollExternalChange() throws IOException {
+        if (dataLock != null && hasOtherProcessWritten()) {
+            return reloadSharedData();
+        }
+        if (watcher == null || !watcher.takeExternalChange()) {
+            return null;
+        }
+
+        synchronized (snapshotLock) {
+            Path dataPath = Paths.get(filePath);
+            if (baseline == null || !Files.exists(dataPath) || BinaryTaskFile.isBinaryTaskFile(dataPath)
+                    || CompressedTaskFile.isCompressedTaskFile(dataPath)) {
+                return null;
+            }
+
+            patcher.invalidate();
+            TextTaskFile textFile = TextTaskFile.read(dataPath, true);
+            quarantine(dataPath, textFile.getBadRanges());
+            watcher.recordOwnWrite();
+            return new ExternalChange(baseline, textFile.getTasks());
+        }
+    }
+
+    /**
+     * Checks whether another process wrote since this engine last read or wrote. The version stamp is read
+     * without locking first, and only if it moved is it read again under the lock, since a write of this
+     * process may have been between bumping the stamp and recording it.
+     */
+    private boolean hasOtherProcessWritten() throws IOException {
+        if (isStale) {
+            return true;
+        }
+        if (dataLock.peekVersion() == knownVersion) {
+            return false;
+        }
+        try (DataFileLock.Holder holder = dataLock.lockShared()) {
+            return holder.getVersion() != knownVersion;
+        }
+    }
+
+    /**
+     * Reloads data another process wrote since this engine last read or wrote it.
+     * The other process's version is merged with the last version this engine read or wrote as the base, which is
+     * the committed tasks the journal keeps, or else the text data file as last read or written. Records
+     * and snapshots this engine had not written yet are dropped, as the changes they hold are still in the
+     * task list and are written again with the merged list. Only a binary or compressed data file without a
+     * journal has no base, so there the other process's version is taken over as a whole.
+     *
+     * @return the other process's version
+     * @throws IOException if the data cannot be read
+     */
+    private ExternalChange reloadSharedData() throws IOException {
+        synchronized (snapshotLock) {
+            TaskSnapshot base = journal != null ? journal.getCommittedTasks() : baseline;
+            boolean canMerge = base != null && (journal != null || (!isBinaryFormat && compressedBlockRecords == 0));
+            boolean hasUnwrittenChanges = isStale || (saver != null && saver.hasPendingChanges())
+                    || (journal != null && journal.hasPendingRecords());
+            if (saver != null) {
+                saver.discardPending();
+            }
+            if (journal != null) {
+                journal.close();
+                journal = new TaskJournal(filePath + JOURNAL_SUFFIX);
+            }
+
+            ArrayList<Task> tasks = load();
+            if (watcher != null) {
+                watcher.recordOwnWrite();
+                watcher.takeExternalChange();
+            }
+            return canMerge ? new ExternalChange(base, tasks) : ExternalChange.replacing(tasks, hasUnwrittenChanges);
+        }
+    }
+
+    /**
+     * Takes the exclusive lock for a write if the data file is shared, and checks that no other process
+     * wrote since this engine last read or wrote.
+     *
+     * @return the held lock, or null if the data file is not shared
+     * @throws StaleDataFileException if another process wrote in between
+     * @throws IOException if the lock cannot be taken
+     */
+    private DataFileLock.Holder lockForWrite() throws IOException {
+        if (dataLock == null) {
+            return null;
+        }
+
+        DataFileLock.Holder holder = dataLock.lockExclusive();
+        if (isStale || holder.getVersion() != knownVersion) {
+            holder.close();
+            isStale = true;
+            throw new StaleDataFileException(String.format(STALE_ERROR, filePath));
+        }
+        return holder;
+    }
+
+    private void finishWrite(DataFileLock.Holder holder, boolean isForced) throws IOException {
+        if (holder != null) {
+            knownVersion = holder.bumpVersion(isForced);
+        }
+    }
+
+    /**
+     * Creates the data directory if it doesn't exist.
+     *
+     * @throws IOException if directory creation fails
+     */
+    private void ensureDirectoryExists() throws IOException {
+        File dataDir = new File(directoryPath);
+        assert dataDir != null : "Data directory file object should not be null";
+
+        if (!dataDir.exists()) {
+            boolean created = dataDir.mkdirs();
+            if (!created) {
+                throw new IOException("Failed to create data directory: " + directoryPath);
+            }
+            assert created || dataDir.exists() : "Directory should exist after creation attempt";
+        }
+    }
+
+    /**
+     * Loads tasks from the specified file in binary format.
+     *
+     * @param dataFile the file to load from
+     * @return list of tasks loaded from file
+     * @throws IOException if file reading fails
+     */
+    private ArrayList<Task> loadBinaryTasks(File dataFile) throws IOException {
+        BinaryTaskFile binaryFile = BinaryTaskFile.read(dataFile.toPath());
+        snapshotSequence = binaryFile.getSequence();
+        patcher.setOffsets(binaryFile.getDoneOffsets(), BinaryTaskFile.DONE_MARKER, BinaryTaskFile.NOT_DONE_MARKER);
+        return binaryFile.getTasks();
+    }
+
+    /**
+     * Loads tasks from the specified file in the block-compressed format, decompressing blocks in parallel.
+     *
+     * @param dataFile the file to load from
+     * @return list of tasks loaded from file
+     * @throws IOException if file reading fails
+     */
+    private ArrayList<Task> loadCompressedTasks(File dataFile) throws IOException {
+        try (CompressedTaskFile compressedFile = CompressedTaskFile.open(dataFile.toPath())) {
+            snapshotSequence = compressedFile.getSequence();
+            patcher.invalidate();
+            return compressedFile.readAll();
+        }
+    }
+
+    /**
+     * Loads tasks from the specified file in text format.
+     * Large files are split into chunks that are parsed in parallel.
+     *
+     * @param dataFile the file to load from
+     * @return list of tasks loaded from file
+     * @throws IOException if file reading fails
+     */
+    private ArrayList<Task> loadTasksFromFile(File dataFile) throws IOException {
+        assert dataFile != null : "Data file should not be null";
+
+        TextTaskFile textFile = TextTaskFile.read(dataFile.toPath());
+        snapshotSequence = textFile.getSequence();
+        if (textFile.getDoneOffsets() != null) {
+            patcher.setOffsets(textFile.getDoneOffsets(), TaskFileFormat.DONE_MARKER_BYTE,
+                    TaskFileFormat.NOT_DONE_MARKER_BYTE,
+                    textFile.hasChecksums() ? TEXT_CHECKSUM_DISTANCE : DoneFlagPatcher.NO_CHECKSUM);
+        } else {
+            patcher.invalidate();
+        }
+        quarantine(dataFile.toPath(), textFile.getBadRanges());
+
+        ArrayList<Task> tasks = textFile.getTasks();
+        assert tasks != null : "Returned task list should not be null";
+        return tasks;
+    }
+
+    /**
+     * Moves the corrupted records found while loading to the quarantine file, and reports them with a single warning.
+     * They are dropped from the data file by the next save.
+     *
+     * @param dataPath the data file the records were read from
+     * @param badRanges the byte ranges of the corrupted records
+     * @throws IOException if the quarantine file cannot be written
+     */
+    private void quarantine(Path dataPath, List<TaskFileVerifier.BadRange> badRanges) throws IOException {
+        if (badRanges.isEmpty()) {
+            return;
+        }
+
+        Path quarantinePath = TaskFileVerifier.quarantinePathFor(dataPath);
+        long recordCount = TaskFileVerifier.quarantine(dataPath, badRanges, quarantinePath);
+        System.out.println(String.format(QUARANTINE_WARNING, recordCount, quarantinePath));
+    }
+
+    /**
+     * Saves the provided list of tasks to the storage file.
+     * Creates the directory if it doesn't exist.
+     * The tasks are written to a temporary file which then atomically replaces the storage file,
+     * so a crash during the save leaves the previous file intact.
+     * In journal mode this also discards the journal records covered by the new file.
+     * In write-behind mode the write is only scheduled. Otherwise the tasks are read through the list
+     * while writing, unless a copy is kept to merge external changes with.
+     *
+     * @param tasks the list of tasks to save
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void save(List<Task> tasks) throws IOException {
+        assert tasks != null : "Tasks list should not be null";
+
+        long sequence = journal != null ? journal.getLastSequence() : 0;
+        patcher.invalidate();
+        if (saver != null) {
+            saver.submit(TaskSnapshot.of(tasks, sequence));
+            return;
+        }
+
+        ensureDirectoryExists();
+        if (canWriteThroughList()) {
+            writeSnapshot(TaskSnapshot.view(tasks, sequence));
+        } else {
+            writeSnapshot(TaskSnapshot.of(tasks, sequence));
+        }
+    }
+
+    /**
+     * Persists the given changes.
+     * In journal mode each change becomes one journal record. Otherwise, a batch consisting only of
+     * completion status changes patches the done markers in place, and any other batch rewrites the file.
+     *
+     * @param tasks the complete list of tasks after the changes
+     * @param changes the changes in the order they were made
+     * @throws IOException if the changes cannot be written
+     */
+    @Override
+    public void applyChanges(List<Task> tasks, List<TaskChange> changes) throws IOException {
+        assert tasks != null : "Tasks list should not be null";
+        assert changes != null : "Changes should not be null";
+
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            for (TaskChange change : changes) {
+                queueJournalRecord(change);
+            }
+            commitJournal(tasks);
+        } else if (isOnlyMarked(changes)) {
+            int[] indices = new int[changes.size()];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = changes.get(i).getIndex();
+            }
+            saveMarked(tasks, indices);
+        } else {
+            save(tasks);
+        }
+    }
+
+    private void queueJournalRecord(TaskChange change) {
+        switch (change.getKind()) {
+        case ADDED:
+            journal.add(change.getTask());
+            break;
+        case UPDATED:
+            journal.update(change.getIndex(), change.getTask());
+            break;
+        case DELETED:
+            journal.delete(change.getIndex());
+            break;
+        case MARKED:
+            journal.mark(change.getIndex(), change.isDone());
+            break;
+        default:
+            assert false : "Unknown change kind: " + change.getKind();
+        }
+    }
+
+    private static boolean isOnlyMarked(List<TaskChange> changes) {
+        for (TaskChange change : changes) {
+            if (change.getKind() != TaskChange.Kind.MARKED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Persists tasks that were appended to the end of the list.
+     *
+     * @param tasks the complete list of tasks
+     * @param addedTasks the tasks that were added, in the order they were added
+     * @throws IOException if the file or journal cannot be written
+     */
+    public void saveAdded(List<Task> tasks, Task... addedTasks) throws IOException {
+        if (journal == null) {
+            save(tasks);
+            return;
+        }
+
+        for (Task task : addedTasks) {
+            journal.add(task);
+        }
+        commitJournal(tasks);
+    }
+
+    /**
+     * Persists a change in completion status of the tasks at the given indices.
+     * Used for both marking and unmarking, as the current status is read from the list.
+     * Without a journal, the done markers are patched in place when the file layout is known.
+     *
+     * @param tasks the complete list of tasks
+     * @param indices the 0-based indices of the tasks whose status changed
+     * @throws IOException if the file or journal cannot be written
+     */
+    public void saveMarked(List<Task> tasks, int... indices) throws IOException {
+        if (journal == null) {
+            if (!patchDoneFlags(tasks, indices)) {
+                save(tasks);
+            }
+            return;
+        }
+
+        for (int index : indices) {
+            journal.mark(index, tasks.get(index).isDone());
+        }
+        commitJournal(tasks);
+    }
+
+    /**
+     * Persists the deletion of tasks.
+     *
+     * @param tasks the complete list of tasks after deletion
+     * @param indices the 0-based indices of the deleted tasks, in the order they were removed
+     * @throws IOException if the file or journal cannot be written
+     */
+    public void saveDeleted(List<Task> tasks, int... indices) throws IOException {
+        if (journal == null) {
+            save(tasks);
+            return;
+        }
+
+        for (int index : indices) {
+            journal.delete(index);
+        }
+        commitJournal(tasks);
+    }
+
+    /**
+     * Persists the replacement of tasks by their updated versions.
+     *
+     * @param tasks the complete list of tasks
+     * @param indices the 0-based indices of the updated tasks
+     * @throws IOException if the file or journal cannot be written
+     */
+    public void saveUpdated(List<Task> tasks, int... indices) throws IOException {
+        if (journal == null) {
+            save(tasks);
+            return;
+        }
+
+        for (int index : indices) {
+            journal.update(index, tasks.get(index));
+        }
+        commitJournal(tasks);
+    }
+
+    /**
+     * Writes the done markers of the given tasks in place.
+     * Not possible while a write-behind flush is pending, as it would overwrite the patch.
+     *
+     * @param tasks the complete list of tasks
+     * @param indices the 0-based indices of the tasks to patch
+     * @return true if the markers were patched, false if the file needs to be rewritten instead
+     */
+    private boolean patchDoneFlags(List<Task> tasks, int... indices) {
+        if (!patcher.canPatch(tasks.size()) || (saver != null && saver.hasPendingChanges())) {
+            return false;
+        }
+
+        boolean[] doneFlags = new boolean[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            doneFlags[i] = tasks.get(indices[i]).isDone();
+        }
+
+        boolean isForced = fsyncTracker.shouldForce();
+        try (DataFileLock.Holder holder = lockForWrite()) {
+            patcher.patch(indices, doneFlags, isForced);
+            finishWrite(holder, isForced);
+            if (watcher != null) {
+                watcher.recordOwnWrite();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void commitJournal(List<Task> tasks) throws IOException {
+        if (saver != null) {
+            saver.markDirty();
+        } else {
+            ensureDirectoryExists();
+            commitJournalRecords();
+        }
+
+        if (compactor.shouldCompact(journal) && !compactor.isCompacting()) {
+            compactor.compactAsync(TaskSnapshot.of(tasks, journal.getLastSequence()), this);
+        }
+    }
+
+    /**
+     * Appends the queued journal records, under the exclusive lock if the data file is shared.
+     *
+     * @throws IOException if the journal cannot be written or another process wrote in between
+     */
+    private void commitJournalRecords() throws IOException {
+        boolean isForced = fsyncTracker.shouldForce();
+        if (!journal.hasPendingRecords()) {
+            journal.commit(isForced);
+            return;
+        }
+
+        try (DataFileLock.Holder holder = lockForWrite()) {
+            journal.commit(isForced);
+            finishWrite(holder, isForced);
+        } catch (IOException e) {
+            isInSync = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Writes changes scheduled in write-behind mode.
+     * Queued journal records are committed first, followed by the latest snapshot if one was scheduled.
+     *
+     * @param snapshot the latest scheduled snapshot, or null if only journal records are pending
+     * @throws IOException if the changes cannot be written
+     */
+    void flushPending(TaskSnapshot snapshot) throws IOException {
+        ensureDirectoryExists();
+        if (journal != null) {
+            commitJournalRecords();
+        }
+        if (snapshot != null) {
+            writeSnapshot(snapshot);
+        }
+    }
+
+    /**
+     * Writes a snapshot to the data file and, in journal mode, discards the journal records it covers.
+     * The snapshot is written to a temporary file in the same directory which atomically replaces
+     * the data file, so a crash never leaves a partially written snapshot behind. When the fsync policy
+     * calls for it, the temporary file is forced before the rename and the directory after it.
+     * Snapshots older than the one already on disk are ignored. A shared data file is written under the
+     * exclusive lock, and not at all if another process wrote since this engine last read or wrote.
+     *
+     * @param snapshot the point-in-time view of the task list to write
+     * @throws StaleDataFileException if another process wrote in between
+     * @throws IOException if the snapshot cannot be written
+     */
+    void writeSnapshot(TaskSnapshot snapshot) throws IOException {
+        synchronized (snapshotLock) {
+            if (snapshot.getSequence() < snapshotSequence) {
+                return;
+            }
+
+            boolean isForced = fsyncTracker.shouldForce();
+            try (DataFileLock.Holder holder = lockForWrite()) {
+                replaceDataFile(snapshot, isForced);
+                finishWrite(holder, isForced);
+            } catch (IOException e) {
+                isInSync = false;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot to a temporary file which then replaces the data file, and discards the journal
+     * records it covers.
+     *
+     * @param snapshot the point-in-time view of the task list to write
+     * @param isForced whether to force the new file and its directory to the storage device
+     * @throws IOException if the snapshot cannot be written
+     */
+    private void replaceDataFile(TaskSnapshot snapshot, boolean isForced) throws IOException {
+        assert Thread.holdsLock(snapshotLock) : "The data file should only be replaced under the snapshot lock";
+
+        Path dataPath = Paths.get(filePath);
+        Path tempPath = Paths.get(filePath + TEMP_SUFFIX);
+        long[] doneOffsets;
+        try {
+            if (isBinaryFormat) {
+                doneOffsets = BinaryTaskFile.write(tempPath, snapshot, isForced);
+            } else if (compressedBlockRecords > 0) {
+                CompressedTaskFile.write(tempPath, snapshot, compressedBlockRecords, isForced);
+                doneOffsets = null;
+            } else {
+                doneOffsets = writeTextSnapshot(tempPath, snapshot, isForced);
+            }
+            Files.move(tempPath, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        if (isForced) {
+            FsyncTracker.forceDirectory(dataPath.toAbsolutePath().getParent());
+        }
+        setPatchOffsets(doneOffsets);
+        if (isTrackingBaseline()) {
+            baseline = isBinaryFormat || compressedBlockRecords > 0 ? null : snapshot;
+        }
+        if (isWatching) {
+            if (watcher == null) {
+                watcher = new DataFileWatcher(dataPath);
+            }
+            watcher.recordOwnWrite();
+        }
+
+        snapshotSequence = snapshot.getSequence();
+        if (journal != null) {
+            journal.discardUpTo(snapshotSequence, isForced);
+            if (dataLock != null) {
+                journal.rebaseCommittedTasks(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Encodes a snapshot into a text file through the shared encoder, whose direct buffer is reused across saves.
+     *
+     * @return the file offset of each task's done marker
+     */
+    private long[] writeTextSnapshot(Path path, TaskSnapshot snapshot, boolean isForced) throws IOException {
+        assert Thread.holdsLock(snapshotLock) : "The shared encoder should only be used under the snapshot lock";
+        if (encoder == null) {
+            encoder = new TextTaskEncoder();
+        }
+
+        long[] doneOffsets = new long[snapshot.size()];
+        encoder.open(path);
+        try {
+            if (journal != null) {
+                encoder.writeLine(SNAPSHOT_HEADER + snapshot.getSequence());
+            }
+            for (int i = 0; i < snapshot.size(); i++) {
+                doneOffsets[i] = encoder.writeTask(snapshot.getTask(i), snapshot.isDone(i));
+            }
+        } finally {
+            encoder.close(isForced);
+        }
+        return doneOffsets;
+    }
+
+    private void setPatchOffsets(long[] doneOffsets) {
+        if (doneOffsets == null) {
+            patcher.invalidate();
+        } else if (isBinaryFormat) {
+            patcher.setOffsets(doneOffsets, BinaryTaskFile.DONE_MARKER, BinaryTaskFile.NOT_DONE_MARKER);
+        } else {
+            patcher.setOffsets(doneOffsets, TaskFileFormat.DONE_MARKER_BYTE, TaskFileFormat.NOT_DONE_MARKER_BYTE,
+                    TEXT_CHECKSUM_DISTANCE);
+        }
+    }
+
+    /**
+     * Writes all changes pending in write-behind mode and waits until they are on disk.
+     * Writes left unforced by the batched fsync policy are forced as well.
+     *
+     * @throws IOException if the files cannot be forced
+     */
+    @Override
+    public void flush() throws IOException {
+        if (saver != null) {
+            saver.flush();
+        }
+        forceUnforcedWrites();
+    }
+
+    /**
+     * Flushes pending changes, waits for background work to finish and releases open files.
+     *
+     * @throws IOException if the files cannot be forced or closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+        }
+        if (saver != null) {
+            saver.close();
+        }
+        if (journal != null) {
+            compactor.shutdown();
+        }
+        try {
+            forceUnforcedWrites();
+        } finally {
+            try {
+                if (journal != null) {
+                    journal.close();
+                }
+                writeStartupImage();
+            } finally {
+                if (dataLock != null) {
+                    dataLock.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the engine and, if startup images are enabled, writes one of the given tasks.
+     *
+     * @param tasks the complete list of tasks, with every change already saved
+     * @throws IOException if the files cannot be forced or closed
+     */
+    @Override
+    public void close(List<Task> tasks) throws IOException {
+        assert tasks != null : "Tasks list should not be null";
+
+        imageTasks = isUsingImage ? tasks : null;
+        close();
+    }
+
+    /**
+     * Writes the startup image of the tasks given to {@link #close(List)}, unless a write failed or another
+     * process wrote since, so that the files may not hold those tasks. A failure only costs the next start
+     * its speed, so it is reported as a warning.
+     */
+    private void writeStartupImage() {
+        if (imageTasks == null || !isInSync || isStale) {
+            return;
+        }
+
+        synchronized (snapshotLock) {
+            Path dataPath = Paths.get(filePath);
+            try (DataFileLock.Holder holder = dataLock != null ? dataLock.lockShared() : null) {
+                if (holder != null && holder.getVersion() != knownVersion) {
+                    return;
+                }
+                StartupImage.write(StartupImage.imagePathFor(dataPath), dataPath, getJournalPath(),
+                        TaskSnapshot.of(imageTasks, snapshotSequence),
+                        journal != null ? journal.getLastSequence() : 0,
+                        journal != null ? journal.getRecordCount() : 0);
+            } catch (IOException e) {
+                System.out.println(IMAGE_ERROR + e.getMessage());
+            } finally {
+                imageTasks = null;
+            }
+        }
+    }
+
+    private void forceUnforcedWrites() throws IOException {
+        if (!fsyncTracker.takeUnforcedWrites()) {
+            return;
+        }
+
+        synchronized (snapshotLock) {
+            Path dataPath = Paths.get(filePath);
+            FsyncTracker.forceFile(dataPath);
+            FsyncTracker.forceDirectory(dataPath.toAbsolutePath().getParent());
+        }
+        if (journal != null) {
+            journal.force();
+        }
+    }
+}
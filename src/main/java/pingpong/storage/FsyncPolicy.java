@@ -0,0 +1,15 @@
+package pingpong.storage;
+
+/**
+ * Controls when written task data is forced from the operating system's cache to the storage device.
+ * Saves are crash-safe under every policy, as the data file is only ever replaced atomically;
+ * the policy decides how many of the most recent changes a power failure may lose.
+ */
+public enum FsyncPolicy {
+    /** Forces every write before the command returns. Nothing acknowledged is lost, at the cost of latency. */
+    ALWAYS,
+    /** Forces at most once per batch interval, and on flush and close. Bounds the loss to one interval. */
+    BATCHED,
+    /** Never forces, leaving write-back to the operating system. */
+    NEVER
+}
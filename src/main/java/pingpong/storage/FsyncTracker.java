@@ -0,0 +1,114 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides, according to an {@link FsyncPolicy}, whether each write should be forced to the storage device.
+ * Under the batched policy, writes that were not forced are remembered so that they can be forced together
+ * on the next due write or on flush.
+ */
+public class FsyncTracker {
+    /** Default interval between forced writes under the batched policy. */
+    public static final long DEFAULT_BATCH_MILLIS = 1000;
+
+    private final FsyncPolicy policy;
+    private final long batchNanos;
+    private long lastForceNanos;
+    private boolean hasUnforcedWrites;
+
+    /**
+     * Creates a tracker for the given policy.
+     *
+     * @param policy the fsync policy
+     * @param batchMillis the minimum time between forced writes under the batched policy
+     */
+    public FsyncTracker(FsyncPolicy policy, long batchMillis) {
+        assert policy != null : "Policy should not be null";
+        assert batchMillis >= 0 : "Batch interval should not be negative";
+
+        this.policy = policy;
+        this.batchNanos = TimeUnit.MILLISECONDS.toNanos(batchMillis);
+        this.lastForceNanos = System.nanoTime() - batchNanos;
+    }
+
+    /**
+     * Gets the policy applied by this tracker.
+     *
+     * @return the fsync policy
+     */
+    public FsyncPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Decides whether the write about to happen should be forced, and records the decision.
+     *
+     * @return true if the write should be forced to the storage device
+     */
+    public synchronized boolean shouldForce() {
+        switch (policy) {
+        case ALWAYS:
+            return true;
+        case BATCHED:
+            long now = System.nanoTime();
+            if (now - lastForceNanos >= batchNanos) {
+                lastForceNanos = now;
+                hasUnforcedWrites = false;
+                return true;
+            }
+            hasUnforcedWrites = true;
+            return false;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether some writes were left unforced by the batched policy and should be forced on flush.
+     * Clears the flag, so the caller is expected to force the files right away.
+     *
+     * @return true if unforced writes are outstanding
+     */
+    public synchronized boolean takeUnforcedWrites() {
+        boolean hadUnforcedWrites = hasUnforcedWrites;
+        hasUnforcedWrites = false;
+        if (hadUnforcedWrites) {
+            lastForceNanos = System.nanoTime();
+        }
+        return hadUnforcedWrites;
+    }
+
+    /**
+     * Forces the contents of an existing file to the storage device.
+     *
+     * @param path the file to force
+     * @throws IOException if the file cannot be forced
+     */
+    public static void forceFile(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Forces a directory entry change, such as a rename, to the storage device.
+     * Some platforms cannot open directories for this, in which case the rename is left to the file system.
+     *
+     * @param directory the directory whose entries changed
+     */
+    public static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform; the file contents were still forced
+        }
+    }
+}
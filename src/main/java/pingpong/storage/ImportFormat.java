@@ -0,0 +1,316 @@
+package pingpong.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+import pingpong.PingpongException;
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+/**
+ * The line formats external task files can be imported from. Each line holds one task.
+ */
+public enum ImportFormat {
+    /**
+     * The data file's own format, with or without line checksums: {@code T | 1 | description},
+     * {@code D | 0 | description | 2025-09-15} or {@code E | 0 | description | 2025-09-15T14:00 | 2025-09-15T16:00}.
+     */
+    PIPE,
+    /**
+     * Comma-separated {@code type,done,description,by or from,to}, where type is T, D, E or the task type
+     * name, and done is 1, 0, true, false, x or empty. Fields may be quoted. A header row is skipped.
+     */
+    CSV,
+    /**
+     * The todo.txt format: {@code (A) 2025-09-01 description +project due:2025-09-15}, or
+     * {@code x 2025-09-16 2025-09-01 description} once done.
+     * Tasks with a {@code due:} tag become deadlines, all others todos.
+     */
+    TODO_TXT;
+
+    private static final String CSV_EXTENSION = ".csv";
+    private static final Pattern PIPE_LINE_PATTERN = Pattern.compile("^([0-9a-f]{8} )?[TDE] \\| [01] \\| .*");
+    private static final Pattern TODO_TXT_PREFIX_PATTERN =
+            Pattern.compile("^(x )?(\\([A-Z]\\) )?(\\d{4}-\\d{2}-\\d{2} )?(\\d{4}-\\d{2}-\\d{2} )?");
+    private static final Pattern TODO_TXT_DUE_PATTERN = Pattern.compile("(^|\\s)due:(\\S+)");
+    private static final String CSV_HEADER_TYPE = "type";
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1900, 1, 1);
+    private static final int DATE_LENGTH = "yyyy-MM-dd".length();
+    private static final DateTimeFormatter DATETIME_HHMM_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HHmm");
+    private static final DateTimeFormatter DATETIME_COLON_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    // Error message constants
+    private static final String FIELD_COUNT_ERROR = "Expected %d fields for this task type but found %d.";
+    private static final String UNKNOWN_TYPE_ERROR = "Unknown task type '%s'.";
+    private static final String UNKNOWN_DONE_ERROR = "Unknown done marker '%s'.";
+    private static final String UNCLOSED_QUOTE_ERROR = "A quoted field is not closed.";
+    private static final String EMPTY_DESCRIPTION_ERROR = "The description is empty.";
+    private static final String CHECKSUM_ERROR = "The line does not match its checksum.";
+    private static final String MISSING_DATE_ERROR = "A date is missing.";
+    private static final String INVALID_DATE_ERROR = "Invalid date '%s', expected yyyy-MM-dd.";
+    private static final String INVALID_DATETIME_ERROR = "Invalid datetime '%s'.";
+    private static final String EARLY_DATE_ERROR = "The date %s is before 1900.";
+    private static final String EVENT_TIMING_ERROR = "Event start time cannot be after end time.";
+
+    /**
+     * Guesses the format of a file from its name and its first non-blank line.
+     *
+     * @param path the file being imported
+     * @param firstLine the first non-blank line of the file
+     * @return the format to parse the file with
+     */
+    public static ImportFormat detect(Path path, String firstLine) {
+        assert path != null : "Path should not be null";
+        assert firstLine != null : "First line should not be null";
+
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(CSV_EXTENSION)) {
+            return CSV;
+        } else if (PIPE_LINE_PATTERN.matcher(firstLine).matches()) {
+            return PIPE;
+        }
+        return TODO_TXT;
+    }
+
+    /**
+     * Checks whether the first non-blank line of a file names the fields instead of holding a task.
+     *
+     * @param firstLine the first non-blank line of the file
+     * @return true if the line should be skipped
+     */
+    public boolean isHeader(String firstLine) {
+        assert firstLine != null : "First line should not be null";
+
+        if (this != CSV) {
+            return false;
+        }
+        int end = firstLine.indexOf(',');
+        String firstField = end < 0 ? firstLine : firstLine.substring(0, end);
+        return firstField.replace("\"", "").trim().equalsIgnoreCase(CSV_HEADER_TYPE);
+    }
+
+    /**
+     * Parses one line of a file in this format.
+     *
+     * @param line the non-blank line to parse
+     * @return the task the line describes
+     * @throws PingpongException if the line is not a valid task, with the reason as its message
+     */
+    public Task parse(String line) throws PingpongException {
+        assert line != null : "Line should not be null";
+
+        switch (this) {
+        case PIPE:
+            return parseFields(split(stripChecksum(line), TaskFileFormat.FIELD_SEPARATOR));
+        case CSV:
+            return parseFields(splitCsv(line));
+        default:
+            return parseTodoTxt(line);
+        }
+    }
+
+    /**
+     * Removes the checksum the data file prefixes its lines with, after checking it.
+     */
+    private static String stripChecksum(String line) throws PingpongException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        switch (RecordChecksum.verify(new CRC32C(), bytes, 0, bytes.length)) {
+        case RecordChecksum.VALID:
+            return line.substring(RecordChecksum.FIELD_LENGTH);
+        case RecordChecksum.CORRUPTED:
+            throw new PingpongException(CHECKSUM_ERROR);
+        default:
+            return line;
+        }
+    }
+
+    private static List<String> split(String line, String separator) {
+        List<String> fields = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = line.indexOf(separator, start)) >= 0) {
+            fields.add(line.substring(start, end));
+            start = end + separator.length();
+        }
+        fields.add(line.substring(start));
+        return fields;
+    }
+
+    private static List<String> splitCsv(String line) throws PingpongException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean isQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (isQuoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    isQuoted = false;
+                }
+            } else if (c == '"') {
+                isQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (isQuoted) {
+            throw new PingpongException(UNCLOSED_QUOTE_ERROR);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Task parseFields(List<String> fields) throws PingpongException {
+        String type = fields.get(0).trim().toUpperCase(Locale.ROOT);
+        Task task;
+        switch (type) {
+        case "T":
+        case "TODO":
+            requireFieldCount(fields, 3);
+            task = new Todo(requireDescription(fields.get(2)));
+            break;
+        case "D":
+        case "DEADLINE":
+            requireFieldCount(fields, 4);
+            task = new Deadline(requireDescription(fields.get(2)), requireReasonable(parseDate(fields.get(3))));
+            break;
+        case "E":
+        case "EVENT":
+            requireFieldCount(fields, 5);
+            task = createEvent(requireDescription(fields.get(2)), parseDateTime(fields.get(3)),
+                    parseDateTime(fields.get(4)));
+            break;
+        default:
+            throw new PingpongException(String.format(UNKNOWN_TYPE_ERROR, fields.get(0).trim()));
+        }
+
+        if (parseDone(fields.get(1))) {
+            task.markAsDone();
+        }
+        return task;
+    }
+
+    private static Task createEvent(String description, LocalDateTime start, LocalDateTime end)
+            throws PingpongException {
+        requireReasonable(start.toLocalDate());
+        if (start.isAfter(end)) {
+            throw new PingpongException(EVENT_TIMING_ERROR);
+        }
+        return new Event(description, start, end);
+    }
+
+    private static LocalDate requireReasonable(LocalDate date) throws PingpongException {
+        if (date.isBefore(EARLIEST_DATE)) {
+            throw new PingpongException(String.format(EARLY_DATE_ERROR, date));
+        }
+        return date;
+    }
+
+    private static void requireFieldCount(List<String> fields, int count) throws PingpongException {
+        // Trailing empty fields are allowed, such as the unused date columns of a todo in a CSV file
+        int used = fields.size();
+        while (used > count && fields.get(used - 1).trim().isEmpty()) {
+            used--;
+        }
+        if (used != count) {
+            throw new PingpongException(String.format(FIELD_COUNT_ERROR, count, used));
+        }
+    }
+
+    private static String requireDescription(String description) throws PingpongException {
+        String trimmed = description.trim();
+        if (trimmed.isEmpty()) {
+            throw new PingpongException(EMPTY_DESCRIPTION_ERROR);
+        }
+        return trimmed;
+    }
+
+    private static boolean parseDone(String done) throws PingpongException {
+        switch (done.trim().toLowerCase(Locale.ROOT)) {
+        case "1":
+        case "true":
+        case "x":
+            return true;
+        case "0":
+        case "false":
+        case "":
+            return false;
+        default:
+            throw new PingpongException(String.format(UNKNOWN_DONE_ERROR, done.trim()));
+        }
+    }
+
+    private static LocalDate parseDate(String date) throws PingpongException {
+        String trimmed = date.trim();
+        if (trimmed.isEmpty()) {
+            throw new PingpongException(MISSING_DATE_ERROR);
+        }
+        try {
+            return LocalDate.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            throw new PingpongException(String.format(INVALID_DATE_ERROR, trimmed));
+        }
+    }
+
+    /**
+     * Parses the date-time formats the add commands accept, as well as the ISO format of the data file.
+     * The formatters are shared, as creating them for each of a million lines dominates the import.
+     */
+    private static LocalDateTime parseDateTime(String dateTime) throws PingpongException {
+        String trimmed = dateTime.trim();
+        if (trimmed.isEmpty()) {
+            throw new PingpongException(MISSING_DATE_ERROR);
+        }
+        try {
+            if (trimmed.length() == DATE_LENGTH) {
+                return LocalDate.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE).atStartOfDay();
+            } else if (trimmed.indexOf('T') >= 0) {
+                return LocalDateTime.parse(trimmed, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            } else if (trimmed.indexOf(':') >= 0) {
+                return LocalDateTime.parse(trimmed, DATETIME_COLON_FORMATTER);
+            }
+            return LocalDateTime.parse(trimmed, DATETIME_HHMM_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new PingpongException(String.format(INVALID_DATETIME_ERROR, trimmed));
+        }
+    }
+
+    private static Task parseTodoTxt(String line) throws PingpongException {
+        Matcher prefix = TODO_TXT_PREFIX_PATTERN.matcher(line);
+        prefix.lookingAt();
+        boolean isDone = prefix.group(1) != null;
+        String rest = line.substring(prefix.end());
+
+        LocalDate due = null;
+        Matcher dueTag = TODO_TXT_DUE_PATTERN.matcher(rest);
+        if (dueTag.find()) {
+            due = parseDate(dueTag.group(2));
+            rest = rest.substring(0, dueTag.start()) + rest.substring(dueTag.end());
+        }
+
+        String description = requireDescription(rest);
+        Task task = due == null ? new Todo(description) : new Deadline(description, requireReasonable(due));
+        if (isDone) {
+            task.markAsDone();
+        }
+        return task;
+    }
+}
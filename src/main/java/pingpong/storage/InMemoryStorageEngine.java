@@ -0,0 +1,65 @@
+package pingpong.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import pingpong.task.Task;
+import pingpong.task.TaskChange;
+
+/**
+ * Keeps the saved task list in memory only, for tests and benchmarks that should not measure disk I/O.
+ * Saved lists are captured as snapshots, so later changes to the live list are not visible until saved.
+ */
+public class InMemoryStorageEngine implements StorageEngine {
+    private TaskSnapshot snapshot = TaskSnapshot.of(new ArrayList<>(), 0);
+    private long saveCount;
+
+    @Override
+    public synchronized ArrayList<Task> load() {
+        ArrayList<Task> tasks = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            Task task = snapshot.getTask(i);
+            if (snapshot.isDone(i)) {
+                task.markAsDone();
+            } else {
+                task.markAsUndone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Override
+    public synchronized void save(List<Task> tasks) {
+        assert tasks != null : "Tasks list should not be null";
+        snapshot = TaskSnapshot.of(tasks, 0);
+        saveCount++;
+    }
+
+    @Override
+    public synchronized void applyChanges(List<Task> tasks, List<TaskChange> changes) {
+        assert changes != null : "Changes should not be null";
+        if (!changes.isEmpty()) {
+            save(tasks);
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Nothing is buffered
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Gets the number of times a list was saved, including saves caused by applied changes.
+     *
+     * @return the save count
+     */
+    public synchronized long getSaveCount() {
+        return saveCount;
+    }
+}
@@ -0,0 +1,162 @@
+package pingpong.storage;
+
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Compacts the task journal in the background once it grows past a threshold.
+ * A compaction writes a fresh snapshot from a point-in-time view of the task list and then
+ * discards the journal records covered by it, so startup replay time stays bounded.
+ * Commands keep running while a compaction is in progress.
+ */
+public class JournalCompactor {
+    /** Default number of journal records that triggers a compaction. */
+    public static final long DEFAULT_MAX_RECORDS = 10_000;
+    /** Default journal size in bytes that triggers a compaction. */
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+
+    private static final String COMPACTION_ERROR_PREFIX = "Error compacting task journal: ";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final long maxRecords;
+    private final long maxBytes;
+    private final ExecutorService executor;
+    private final AtomicBoolean isCompacting;
+
+    private volatile Instant lastCompactionTime;
+    private volatile long lastCompactionMillis;
+    private volatile long compactionCount;
+
+    /**
+     * Creates a compactor with the given thresholds.
+     * A compaction is started once either threshold is reached.
+     *
+     * @param maxRecords the number of journal records that triggers a compaction
+     * @param maxBytes the journal size in bytes that triggers a compaction
+     */
+    public JournalCompactor(long maxRecords, long maxBytes) {
+        assert maxRecords > 0 : "Record threshold should be positive";
+        assert maxBytes > 0 : "Size threshold should be positive";
+
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.isCompacting = new AtomicBoolean(false);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pingpong-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether the journal has grown past either threshold.
+     *
+     * @param journal the journal to check
+     * @return true if a compaction should be started
+     */
+    public boolean shouldCompact(TaskJournal journal) {
+        return journal.getRecordCount() >= maxRecords || journal.getSizeInBytes() >= maxBytes;
+    }
+
+    /**
+     * Starts a compaction in the background unless one is already running.
+     *
+     * @param snapshot the point-in-time view of the task list to write
+     * @param storage the storage that writes the snapshot and discards covered journal records
+     * @return true if a compaction was started
+     */
+    public boolean compactAsync(TaskSnapshot snapshot, FileStorageEngine storage) {
+        assert snapshot != null : "Snapshot should not be null";
+        assert storage != null : "Storage should not be null";
+
+        if (!isCompacting.compareAndSet(false, true)) {
+            return false;
+        }
+
+        executor.execute(() -> compact(snapshot, storage));
+        return true;
+    }
+
+    private void compact(TaskSnapshot snapshot, FileStorageEngine storage) {
+        long startNanos = System.nanoTime();
+        try {
+            storage.writeSnapshot(snapshot);
+            lastCompactionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            lastCompactionTime = Instant.now();
+            compactionCount++;
+        } catch (Exception e) {
+            System.out.println(COMPACTION_ERROR_PREFIX + e.getMessage());
+        } finally {
+            isCompacting.set(false);
+        }
+    }
+
+    /**
+     * Waits for a running compaction to finish and stops the background thread.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of journal records that triggers a compaction.
+     *
+     * @return the record threshold
+     */
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    /**
+     * Gets the journal size in bytes that triggers a compaction.
+     *
+     * @return the size threshold
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Checks whether a compaction is currently running.
+     *
+     * @return true if a compaction is in progress
+     */
+    public boolean isCompacting() {
+        return isCompacting.get();
+    }
+
+    /**
+     * Gets the time the last compaction finished.
+     *
+     * @return the completion time, or null if no compaction has run
+     */
+    public Instant getLastCompactionTime() {
+        return lastCompactionTime;
+    }
+
+    /**
+     * Gets how long the last compaction took.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getLastCompactionMillis() {
+        return lastCompactionMillis;
+    }
+
+    /**
+     * Gets the number of compactions completed.
+     *
+     * @return the compaction count
+     */
+    public long getCompactionCount() {
+        return compactionCount;
+    }
+}
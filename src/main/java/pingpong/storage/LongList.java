@@ -0,0 +1,52 @@
+package pingpong.storage;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of primitive longs, which avoids boxing when millions of keys or offsets are held.
+ */
+class LongList {
+    private long[] values;
+    private int size;
+
+    LongList() {
+        this(16);
+    }
+
+    LongList(int initialCapacity) {
+        this.values = new long[Math.max(1, initialCapacity)];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    long get(int index) {
+        assert index >= 0 && index < size : "Index should be within the list";
+        return values[index];
+    }
+
+    /**
+     * Removes the value at the given index, shifting later values down.
+     *
+     * @return the removed value
+     */
+    long remove(int index) {
+        assert index >= 0 && index < size : "Index should be within the list";
+        long removed = values[index];
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
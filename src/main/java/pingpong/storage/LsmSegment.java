@@ -0,0 +1,338 @@
+package pingpong.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An immutable file of key-value records sorted by key, written once by {@link LsmTaskStore}
+ * when its memtable fills up or when segments are merged.
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * header: magic (int) | version (int) | record count (int)
+ * record: key (long) | value length (int, -1 for a deletion) | value bytes
+ * index:  entry count (int) | (key (long) | record offset (long)) for every {@value #INDEX_INTERVAL}th record
+ * footer: index offset (long)
+ * </pre>
+ * <p>The sparse index is kept in memory, so a point read costs one binary search and one short
+ * positional read.</p>
+ */
+public class LsmSegment {
+    static final int MAGIC = 0x50504C53;
+    static final int VERSION = 1;
+    static final int INDEX_INTERVAL = 64;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int FOOTER_SIZE = Long.BYTES;
+    private static final int TOMBSTONE_LENGTH = -1;
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+    private static final int POINT_READ_BUFFER_SIZE = 4 * 1024;
+    private static final String INVALID_SEGMENT_ERROR = "Not a Pingpong segment file: ";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int recordCount;
+    private final long indexOffset;
+    private final long[] indexKeys;
+    private final long[] indexOffsets;
+
+    private LsmSegment(Path path, FileChannel channel, int recordCount, long indexOffset,
+            long[] indexKeys, long[] indexOffsets) {
+        this.path = path;
+        this.channel = channel;
+        this.recordCount = recordCount;
+        this.indexOffset = indexOffset;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+    }
+
+    /**
+     * Writes records, which must be sorted by key, to a new segment file.
+     *
+     * @param path the file to write
+     * @param records the records in ascending key order; deletions have the value {@link LsmTaskStore#TOMBSTONE}
+     * @param isForced whether to force the file to the storage device before returning
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, Iterator<Map.Entry<Long, byte[]>> records, boolean isForced)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), SCAN_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+
+            LongList indexKeys = new LongList();
+            LongList indexOffsets = new LongList();
+            long offset = HEADER_SIZE;
+            int count = 0;
+            long previousKey = Long.MIN_VALUE;
+            while (records.hasNext()) {
+                Map.Entry<Long, byte[]> record = records.next();
+                long key = record.getKey();
+                assert count == 0 || key > previousKey : "Records should be sorted by key without duplicates";
+                previousKey = key;
+
+                if (count % INDEX_INTERVAL == 0) {
+                    indexKeys.add(key);
+                    indexOffsets.add(offset);
+                }
+                byte[] value = record.getValue();
+                out.writeLong(key);
+                if (value == LsmTaskStore.TOMBSTONE) {
+                    out.writeInt(TOMBSTONE_LENGTH);
+                    offset += Long.BYTES + Integer.BYTES;
+                } else {
+                    out.writeInt(value.length);
+                    out.write(value);
+                    offset += Long.BYTES + Integer.BYTES + value.length;
+                }
+                count++;
+            }
+
+            out.writeInt(indexKeys.size());
+            for (int i = 0; i < indexKeys.size(); i++) {
+                out.writeLong(indexKeys.get(i));
+                out.writeLong(indexOffsets.get(i));
+            }
+            out.writeLong(offset);
+            out.flush();
+
+            ByteBuffer countBuffer = ByteBuffer.allocate(Integer.BYTES).putInt(0, count);
+            channel.write(countBuffer, Integer.BYTES * 2);
+            if (isForced) {
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Opens a segment file for reading and loads its sparse index.
+     *
+     * @param path the segment file
+     * @return the open segment
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    public static LsmSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            if (size < HEADER_SIZE + Integer.BYTES + FOOTER_SIZE) {
+                throw new IOException(INVALID_SEGMENT_ERROR + path);
+            }
+            readFully(channel, header, 0);
+            readFully(channel, footer, size - FOOTER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException(INVALID_SEGMENT_ERROR + path);
+            }
+
+            int recordCount = header.getInt(Integer.BYTES * 2);
+            long indexOffset = footer.getLong(0);
+            if (indexOffset < HEADER_SIZE || indexOffset > size - FOOTER_SIZE - Integer.BYTES) {
+                throw new IOException(INVALID_SEGMENT_ERROR + path);
+            }
+            ByteBuffer index = ByteBuffer.allocate((int) (size - FOOTER_SIZE - indexOffset));
+            readFully(channel, index, indexOffset);
+            int indexCount = index.getInt(0);
+            long[] indexKeys = new long[indexCount];
+            long[] indexOffsets = new long[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                indexKeys[i] = index.getLong(Integer.BYTES + i * Long.BYTES * 2);
+                indexOffsets[i] = index.getLong(Integer.BYTES + i * Long.BYTES * 2 + Long.BYTES);
+            }
+            return new LsmSegment(path, channel, recordCount, indexOffset, indexKeys, indexOffsets);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the path of the segment file.
+     *
+     * @return the segment file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the number of records in the segment, including deletions.
+     *
+     * @return the record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Looks up the record stored for a key.
+     *
+     * @param key the key to look up
+     * @return the value, {@link LsmTaskStore#TOMBSTONE} if the key was deleted, or null if this segment has no record
+     * @throws IOException if the segment cannot be read
+     */
+    public byte[] get(long key) throws IOException {
+        if (indexKeys.length == 0 || key < indexKeys[0]) {
+            return null;
+        }
+        Cursor cursor = seek(key, POINT_READ_BUFFER_SIZE);
+        return cursor.hasCurrent() && cursor.key() == key ? cursor.value() : null;
+    }
+
+    /**
+     * Creates a cursor positioned at the first record whose key is at least the given key.
+     *
+     * @param fromKey the smallest key of interest
+     * @return the cursor
+     * @throws IOException if the segment cannot be read
+     */
+    public Cursor cursor(long fromKey) throws IOException {
+        return seek(fromKey, SCAN_BUFFER_SIZE);
+    }
+
+    private Cursor seek(long fromKey, int bufferSize) throws IOException {
+        int block = findBlock(fromKey);
+        Cursor cursor = new Cursor(block < 0 ? HEADER_SIZE : indexOffsets[block], bufferSize);
+        while (cursor.hasCurrent() && cursor.key() < fromKey) {
+            cursor.advance();
+        }
+        return cursor;
+    }
+
+    private int findBlock(long key) {
+        int low = 0;
+        int high = indexKeys.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexKeys[mid] <= key) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the segment file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Segment file was truncated");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Reads the records of a segment in key order through a buffer refilled with positional reads,
+     * so several cursors can read the same segment at once.
+     */
+    public class Cursor {
+        private final ByteBuffer buffer;
+        private long bufferStart;
+        private long position;
+        private long currentKey;
+        private byte[] currentValue;
+        private boolean hasCurrent;
+
+        private Cursor(long position, int bufferSize) throws IOException {
+            this.buffer = ByteBuffer.allocate(bufferSize);
+            this.position = position;
+            this.buffer.limit(0);
+            advance();
+        }
+
+        /**
+         * Checks whether the cursor is positioned on a record.
+         *
+         * @return false once all records were read
+         */
+        public boolean hasCurrent() {
+            return hasCurrent;
+        }
+
+        /**
+         * Gets the key of the current record.
+         *
+         * @return the key
+         */
+        public long key() {
+            return currentKey;
+        }
+
+        /**
+         * Gets the value of the current record.
+         *
+         * @return the value, or {@link LsmTaskStore#TOMBSTONE} for a deletion
+         */
+        public byte[] value() {
+            return currentValue;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @throws IOException if the segment cannot be read
+         */
+        public void advance() throws IOException {
+            if (position >= indexOffset) {
+                hasCurrent = false;
+                return;
+            }
+            currentKey = readBuffered(Long.BYTES).getLong();
+            int length = readBuffered(Integer.BYTES).getInt();
+            if (length == TOMBSTONE_LENGTH) {
+                currentValue = LsmTaskStore.TOMBSTONE;
+            } else if (length <= buffer.capacity()) {
+                currentValue = new byte[length];
+                readBuffered(length).get(currentValue);
+            } else {
+                currentValue = new byte[length];
+                ByteBuffer large = ByteBuffer.wrap(currentValue);
+                readFully(channel, large, position);
+                position += length;
+                buffer.limit(0);
+            }
+            hasCurrent = true;
+        }
+
+        private ByteBuffer readBuffered(int length) throws IOException {
+            long offsetInBuffer = position - bufferStart;
+            if (buffer.limit() == 0 || offsetInBuffer < 0 || offsetInBuffer + length > buffer.limit()) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), indexOffset - position));
+                readFully(channel, buffer, position);
+                bufferStart = position;
+                offsetInBuffer = 0;
+            }
+            buffer.position((int) offsetInBuffer);
+            position += length;
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import pingpong.task.Task;
+import pingpong.task.TaskChange;
+
+/**
+ * Persists tasks in an {@link LsmTaskStore}, one record per task keyed by a stable record id. The record ids
+ * belong to the store and are unrelated to {@link Task#getId()}, which is only valid within one session.
+ * Every command turns into a few keyed writes, so its cost does not depend on the size of the list.
+ *
+ * <p>Ids are handed out by the store in increasing order and never reused, and tasks are only ever
+ * appended, so the list order is the key order and loading is a single range read. The engine keeps
+ * the id of each task by list index to translate the index-based {@link TaskChange}s into keyed writes.</p>
+ *
+ * <p>The data path names the directory of the store. If it is still the data file of another engine, as
+ * after switching an existing installation to this engine, its tasks are imported into a new store on first
+ * use, and the file is kept next to the store under {@value #PREVIOUS_FILE_SUFFIX}.</p>
+ */
+public class LsmStorageEngine implements StorageEngine {
+    /** Suffix of the data file an imported store replaced, appended to the data path. */
+    public static final String PREVIOUS_FILE_SUFFIX = ".pre-lsm";
+
+    private static final String CORRUPTED_RECORD_WARNING = "Warning: Skipping corrupted task record with id ";
+    private static final String IMPORTED_MESSAGE = "Imported %d tasks into the new task store; the previous "
+            + "data file is kept as %s";
+    private static final String IMPORT_SUFFIX = ".import";
+
+    private final Path directory;
+    private final LongList keys;
+    private long memtableLimitBytes;
+    private int maxSegments;
+    private FsyncTracker fsyncTracker;
+    private LsmTaskStore store;
+
+    /**
+     * Creates an engine that keeps its store in the given directory.
+     * The store is opened on first use.
+     *
+     * @param directoryPath the directory of the store
+     */
+    public LsmStorageEngine(String directoryPath) {
+        assert directoryPath != null : "Directory path should not be null";
+
+        this.directory = Paths.get(directoryPath);
+        this.keys = new LongList();
+        this.memtableLimitBytes = LsmTaskStore.DEFAULT_MEMTABLE_LIMIT_BYTES;
+        this.maxSegments = LsmTaskStore.DEFAULT_MAX_SEGMENTS;
+        this.fsyncTracker = new FsyncTracker(FsyncPolicy.BATCHED, FsyncTracker.DEFAULT_BATCH_MILLIS);
+    }
+
+    /**
+     * Sets when the memtable is flushed and when segments are merged. Must be called before first use.
+     *
+     * @param memtableLimitBytes the memtable size in bytes that triggers a flush to a segment
+     * @param maxSegments the number of segments that triggers a background merge
+     * @return this engine, for chaining
+     */
+    public LsmStorageEngine withThresholds(long memtableLimitBytes, int maxSegments) {
+        assert store == null : "Thresholds should be set before the store is opened";
+        this.memtableLimitBytes = memtableLimitBytes;
+        this.maxSegments = maxSegments;
+        return this;
+    }
+
+    /**
+     * Sets when writes to the store's log are forced to the storage device.
+     *
+     * @param policy the fsync policy
+     * @param batchMillis the minimum time between forced writes under {@link FsyncPolicy#BATCHED}
+     * @return this engine, for chaining
+     */
+    public LsmStorageEngine withFsyncPolicy(FsyncPolicy policy, long batchMillis) {
+        this.fsyncTracker = new FsyncTracker(policy, batchMillis);
+        return this;
+    }
+
+    /**
+     * Gets the underlying store, opening it if needed.
+     *
+     * @return the store
+     * @throws IOException if the store cannot be opened
+     */
+    public synchronized LsmTaskStore getStore() throws IOException {
+        if (store == null) {
+            if (Files.isRegularFile(directory)) {
+                importDataFile();
+            }
+            store = new LsmTaskStore(directory, memtableLimitBytes, maxSegments);
+        }
+        return store;
+    }
+
+    /**
+     * Replaces the data file of another engine at the data path with a store holding its tasks.
+     * The store is built next to it first, so a failure leaves the data file untouched.
+     *
+     * @throws IOException if the data file cannot be read or the store cannot be written
+     */
+    private void importDataFile() throws IOException {
+        String dataPath = directory.toString();
+        List<Task> tasks = new FileStorageEngine(dataPath).withJournal().load();
+
+        Path importDirectory = Paths.get(dataPath + IMPORT_SUFFIX);
+        deleteRecursively(importDirectory);
+        LsmTaskStore importStore = new LsmTaskStore(importDirectory, memtableLimitBytes, maxSegments);
+        try {
+            for (Task task : tasks) {
+                importStore.put(importStore.nextKey(), encode(task, task.isDone()));
+            }
+            importStore.commit(true);
+        } finally {
+            importStore.close();
+        }
+
+        Path previousPath = Paths.get(dataPath + PREVIOUS_FILE_SUFFIX);
+        Path journalPath = Paths.get(dataPath + FileStorageEngine.JOURNAL_SUFFIX);
+        if (Files.exists(journalPath)) {
+            Files.move(journalPath, Paths.get(previousPath + FileStorageEngine.JOURNAL_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(directory, previousPath, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(importDirectory, directory, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println(String.format(IMPORTED_MESSAGE, tasks.size(), previousPath));
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path child : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(child);
+            }
+        }
+    }
+
+    /**
+     * Gets the id under which the task at the given index is stored.
+     *
+     * @param index the 0-based index of the task as of the last load or applied change
+     * @return the task id
+     */
+    public synchronized long getKey(int index) {
+        return keys.get(index);
+    }
+
+    /**
+     * Reads one task by its id.
+     *
+     * @param key the task id
+     * @return the task, or null if there is no task with this id
+     * @throws IOException if the store cannot be read
+     */
+    public Task read(long key) throws IOException {
+        byte[] value = getStore().get(key);
+        return value == null ? null : decode(key, value);
+    }
+
+    /**
+     * Reads the tasks whose ids lie in a range, in list order.
+     *
+     * @param fromKey the smallest id to read, inclusive
+     * @param toKey the largest id to read, inclusive
+     * @return the tasks found
+     * @throws IOException if the store cannot be read
+     */
+    public List<Task> readRange(long fromKey, long toKey) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        getStore().scan(fromKey, toKey, (key, value) -> {
+            Task task = decode(key, value);
+            if (task != null) {
+                tasks.add(task);
+            }
+        });
+        return tasks;
+    }
+
+    @Override
+    public synchronized ArrayList<Task> load() throws IOException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        keys.clear();
+        getStore().scan(0, Long.MAX_VALUE, (key, value) -> {
+            Task task = decode(key, value);
+            if (task != null) {
+                tasks.add(task);
+                keys.add(key);
+            }
+        });
+        return tasks;
+    }
+
+    @Override
+    public synchronized void save(List<Task> tasks) throws IOException {
+        assert tasks != null : "Tasks list should not be null";
+
+        LsmTaskStore openStore = getStore();
+        for (int i = 0; i < keys.size(); i++) {
+            openStore.delete(keys.get(i));
+        }
+        keys.clear();
+        for (Task task : tasks) {
+            long key = openStore.nextKey();
+            openStore.put(key, encode(task, task.isDone()));
+            keys.add(key);
+        }
+        openStore.commit(fsyncTracker.shouldForce());
+    }
+
+    @Override
+    public synchronized void applyChanges(List<Task> tasks, List<TaskChange> changes) throws IOException {
+        assert changes != null : "Changes should not be null";
+
+        LsmTaskStore openStore = getStore();
+        for (TaskChange change : changes) {
+            switch (change.getKind()) {
+            case ADDED:
+                assert change.getIndex() == keys.size() : "Tasks should only be appended";
+                long key = openStore.nextKey();
+                openStore.put(key, encode(change.getTask(), change.isDone()));
+                keys.add(key);
+                break;
+            case DELETED:
+                openStore.delete(keys.remove(change.getIndex()));
+                break;
+            default:
+                openStore.put(keys.get(change.getIndex()), encode(change.getTask(), change.isDone()));
+                break;
+            }
+        }
+        openStore.commit(fsyncTracker.shouldForce());
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (store != null && fsyncTracker.takeUnforcedWrites()) {
+            store.commit(true);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    private static byte[] encode(Task task, boolean isDone) {
+        return TaskFileFormat.formatTask(task, isDone).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Task decode(long key, byte[] value) {
+        Task task = TaskFileFormat.parseTask(new String(value, StandardCharsets.UTF_8));
+        if (task == null) {
+            System.out.println(CORRUPTED_RECORD_WARNING + key);
+        }
+        return task;
+    }
+}
@@ -0,0 +1,687 @@
+package pingpong.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A small log-structured merge store that maps task ids to encoded task records.
+ *
+ * <p>Writes go to a write-ahead log and an in-memory sorted memtable. Once the memtable holds
+ * {@code memtableLimitBytes}, it is written out as an immutable {@link LsmSegment} and the log is
+ * started afresh. Once {@code maxSegments} segments exist, they are merged into one on a background
+ * thread, dropping overwritten records and deletions. Reads consult the memtable first and then the
+ * segments from newest to oldest, so the newest record for a key always wins.</p>
+ *
+ * <p>The live segments are listed, newest first, in a manifest file that is replaced atomically,
+ * so a crash during a flush or merge leaves either the old or the new set of segments in effect.
+ * Segment files not named in the manifest are leftovers of such a crash and are deleted on open.</p>
+ *
+ * <p>Writes are serialized by the store's monitor. Reads may run concurrently with writes and merges.</p>
+ */
+public class LsmTaskStore {
+    /** The in-memory value of a deleted key. Compared by identity. */
+    static final byte[] TOMBSTONE = new byte[0];
+
+    /** Default memtable size in bytes that triggers a flush to a segment. */
+    public static final long DEFAULT_MEMTABLE_LIMIT_BYTES = 4L * 1024 * 1024;
+    /** Default number of segments that triggers a background merge. */
+    public static final int DEFAULT_MAX_SEGMENTS = 4;
+
+    private static final String LOG_FILE = "store.log";
+    private static final String MANIFEST_FILE = "MANIFEST";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String NEXT_KEY_ENTRY = "next-key ";
+    private static final String NEXT_SEGMENT_ENTRY = "next-segment ";
+
+    private static final String MERGE_ERROR_PREFIX = "Error merging task segments: ";
+    private static final String TRUNCATED_LOG_WARNING = "Warning: Ignoring incomplete record at the end of ";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final int RECORD_OVERHEAD_BYTES = 48;
+    private static final int TOMBSTONE_LENGTH = -1;
+
+    private final Path directory;
+    private final long memtableLimitBytes;
+    private final int maxSegments;
+    private final ReentrantReadWriteLock segmentsLock;
+    private final ExecutorService merger;
+    private final AtomicBoolean isMerging;
+
+    private volatile ConcurrentSkipListMap<Long, byte[]> memtable;
+    private volatile List<LsmSegment> segments;
+    private long memtableBytes;
+    private long nextKey;
+    private long nextSegmentNumber;
+    private FileOutputStream logFile;
+    private DataOutputStream log;
+    private volatile long flushCount;
+    private volatile long mergeCount;
+
+    /**
+     * Opens the store in the given directory with the default thresholds, creating it if needed.
+     *
+     * @param directory the directory holding the log, the manifest and the segments
+     * @throws IOException if the store cannot be opened
+     */
+    public LsmTaskStore(Path directory) throws IOException {
+        this(directory, DEFAULT_MEMTABLE_LIMIT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed, and replays its log.
+     *
+     * @param directory the directory holding the log, the manifest and the segments
+     * @param memtableLimitBytes the memtable size in bytes that triggers a flush to a segment
+     * @param maxSegments the number of segments that triggers a background merge
+     * @throws IOException if the store cannot be opened
+     */
+    public LsmTaskStore(Path directory, long memtableLimitBytes, int maxSegments) throws IOException {
+        assert directory != null : "Directory should not be null";
+        assert memtableLimitBytes > 0 : "Memtable limit should be positive";
+        assert maxSegments >= 2 : "At least two segments are needed before merging";
+
+        this.directory = directory;
+        this.memtableLimitBytes = memtableLimitBytes;
+        this.maxSegments = maxSegments;
+        this.segmentsLock = new ReentrantReadWriteLock();
+        this.isMerging = new AtomicBoolean(false);
+        this.memtable = new ConcurrentSkipListMap<>();
+        this.segments = Collections.emptyList();
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pingpong-segment-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        readManifest();
+        replayLog();
+        openLog();
+    }
+
+    /**
+     * Gets the value stored for a key.
+     *
+     * @param key the key to look up
+     * @return the value, or null if the key is absent or deleted
+     * @throws IOException if a segment cannot be read
+     */
+    public byte[] get(long key) throws IOException {
+        segmentsLock.readLock().lock();
+        try {
+            byte[] value = memtable.get(key);
+            for (int i = 0; value == null && i < segments.size(); i++) {
+                value = segments.get(i).get(key);
+            }
+            return value == TOMBSTONE ? null : value;
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the live records whose keys lie in a range, in ascending key order.
+     *
+     * @param fromKey the smallest key to read, inclusive
+     * @param toKey the largest key to read, inclusive
+     * @param consumer receives each key with its value
+     * @throws IOException if a segment cannot be read
+     */
+    public void scan(long fromKey, long toKey, RecordConsumer consumer) throws IOException {
+        assert consumer != null : "Consumer should not be null";
+        if (fromKey > toKey) {
+            return;
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            List<Source> sources = new ArrayList<>();
+            sources.add(new MemtableSource(memtable.subMap(fromKey, true, toKey, true), 0));
+            for (int i = 0; i < segments.size(); i++) {
+                sources.add(new SegmentSource(segments.get(i).cursor(fromKey), i + 1));
+            }
+
+            Iterator<Map.Entry<Long, byte[]>> records = merge(sources, toKey);
+            while (records.hasNext()) {
+                Map.Entry<Long, byte[]> record = records.next();
+                if (record.getValue() != TOMBSTONE) {
+                    consumer.accept(record.getKey(), record.getValue());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a value for a key, replacing any earlier value.
+     * The write is logged but not committed until {@link #commit(boolean)} is called.
+     *
+     * @param key the key, which must not be negative
+     * @param value the value to store
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void put(long key, byte[] value) throws IOException {
+        assert key >= 0 : "Key should not be negative";
+        assert value != null && value != TOMBSTONE : "Value should not be null";
+        write(key, value);
+    }
+
+    /**
+     * Deletes a key. The write is logged but not committed until {@link #commit(boolean)} is called.
+     *
+     * @param key the key to delete
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void delete(long key) throws IOException {
+        assert key >= 0 : "Key should not be negative";
+        write(key, TOMBSTONE);
+    }
+
+    /**
+     * Hands out a key that has never been used by this store, not even for a record deleted since.
+     *
+     * @return the new key
+     */
+    public synchronized long nextKey() {
+        return nextKey++;
+    }
+
+    /**
+     * Writes logged changes to the operating system and flushes the memtable if it is full.
+     *
+     * @param isForced whether to force the log to the storage device
+     * @throws IOException if the log or a segment cannot be written
+     */
+    public synchronized void commit(boolean isForced) throws IOException {
+        log.flush();
+        if (isForced) {
+            logFile.getChannel().force(false);
+        }
+        if (memtableBytes >= memtableLimitBytes) {
+            flushMemtable();
+        }
+    }
+
+    /**
+     * Writes the memtable to a new segment, even if it is not full, and waits until the segments
+     * are merged below the merge threshold.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    public void checkpoint() throws IOException {
+        synchronized (this) {
+            log.flush();
+            if (!memtable.isEmpty()) {
+                flushMemtable();
+            }
+        }
+        awaitMerge();
+        long previousMergeCount = -1;
+        while (segments.size() >= maxSegments && mergeCount != previousMergeCount) {
+            previousMergeCount = mergeCount;
+            scheduleMerge();
+            awaitMerge();
+        }
+    }
+
+    /**
+     * Flushes the log, stops the background merger and closes all files.
+     *
+     * @throws IOException if a file cannot be written or closed
+     */
+    public void close() throws IOException {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            log.flush();
+            logFile.getChannel().force(false);
+            log.close();
+            segmentsLock.writeLock().lock();
+            try {
+                for (LsmSegment segment : segments) {
+                    segment.close();
+                }
+                segments = Collections.emptyList();
+            } finally {
+                segmentsLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segment files currently in use.
+     *
+     * @return the segment count
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Gets the number of times the memtable was written to a segment.
+     *
+     * @return the flush count
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Gets the number of background merges completed.
+     *
+     * @return the merge count
+     */
+    public long getMergeCount() {
+        return mergeCount;
+    }
+
+    private void write(long key, byte[] value) throws IOException {
+        log.writeLong(key);
+        if (value == TOMBSTONE) {
+            log.writeInt(TOMBSTONE_LENGTH);
+        } else {
+            log.writeInt(value.length);
+            log.write(value);
+        }
+        memtable.put(key, value);
+        memtableBytes += value.length + RECORD_OVERHEAD_BYTES;
+        nextKey = Math.max(nextKey, key + 1);
+    }
+
+    /**
+     * Writes the memtable to a new segment, publishes it and starts a new log.
+     * Must be called while holding the store's monitor.
+     */
+    private void flushMemtable() throws IOException {
+        Path segmentPath = directory.resolve(SEGMENT_PREFIX + nextSegmentNumber++ + SEGMENT_SUFFIX);
+        LsmSegment.write(segmentPath, memtable.entrySet().iterator(), true);
+        LsmSegment segment = LsmSegment.open(segmentPath);
+
+        List<LsmSegment> updated = new ArrayList<>(segments.size() + 1);
+        updated.add(segment);
+        updated.addAll(segments);
+        writeManifest(updated);
+
+        segmentsLock.writeLock().lock();
+        try {
+            segments = Collections.unmodifiableList(updated);
+            memtable = new ConcurrentSkipListMap<>();
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        memtableBytes = 0;
+        flushCount++;
+
+        log.close();
+        openLogTruncated();
+
+        scheduleMerge();
+    }
+
+    private void scheduleMerge() {
+        if (segments.size() >= maxSegments && isMerging.compareAndSet(false, true)) {
+            merger.execute(this::mergeSegments);
+        }
+    }
+
+    /**
+     * Merges all segments that exist when the merge starts into one. Segments flushed while the merge
+     * runs are newer than all merged ones, so they stay in front of the merged segment.
+     */
+    private void mergeSegments() {
+        try {
+            List<LsmSegment> merged = segments;
+            Path mergedPath;
+            synchronized (this) {
+                mergedPath = directory.resolve(SEGMENT_PREFIX + nextSegmentNumber++ + SEGMENT_SUFFIX);
+            }
+
+            List<Source> sources = new ArrayList<>();
+            for (int i = 0; i < merged.size(); i++) {
+                sources.add(new SegmentSource(merged.get(i).cursor(Long.MIN_VALUE), i));
+            }
+            Iterator<Map.Entry<Long, byte[]>> records = merge(sources, Long.MAX_VALUE);
+            // The oldest segment is part of the merge, so deletions have nothing left to hide
+            LsmSegment.write(mergedPath, new LiveRecordIterator(records), true);
+            LsmSegment mergedSegment = LsmSegment.open(mergedPath);
+
+            synchronized (this) {
+                List<LsmSegment> updated = new ArrayList<>(segments);
+                updated.removeAll(merged);
+                updated.add(mergedSegment);
+                writeManifest(updated);
+
+                segmentsLock.writeLock().lock();
+                try {
+                    segments = Collections.unmodifiableList(updated);
+                    for (LsmSegment segment : merged) {
+                        segment.close();
+                        Files.deleteIfExists(segment.getPath());
+                    }
+                } finally {
+                    segmentsLock.writeLock().unlock();
+                }
+            }
+            mergeCount++;
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println(MERGE_ERROR_PREFIX + e.getMessage());
+        } finally {
+            isMerging.set(false);
+        }
+    }
+
+    private void awaitMerge() {
+        try {
+            merger.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // The merger was shut down or the merge already reported its error
+        }
+    }
+
+    private void readManifest() throws IOException {
+        Path manifestPath = directory.resolve(MANIFEST_FILE);
+        Set<String> liveNames = new HashSet<>();
+        List<LsmSegment> opened = new ArrayList<>();
+        if (Files.exists(manifestPath)) {
+            for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                if (line.startsWith(NEXT_KEY_ENTRY)) {
+                    nextKey = Long.parseLong(line.substring(NEXT_KEY_ENTRY.length()).trim());
+                } else if (line.startsWith(NEXT_SEGMENT_ENTRY)) {
+                    nextSegmentNumber = Long.parseLong(line.substring(NEXT_SEGMENT_ENTRY.length()).trim());
+                } else if (!line.isBlank()) {
+                    opened.add(LsmSegment.open(directory.resolve(line.trim())));
+                    liveNames.add(line.trim());
+                }
+            }
+        }
+        segments = Collections.unmodifiableList(opened);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : files) {
+                if (!liveNames.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void writeManifest(List<LsmSegment> liveSegments) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(NEXT_KEY_ENTRY).append(nextKey).append(System.lineSeparator());
+        manifest.append(NEXT_SEGMENT_ENTRY).append(nextSegmentNumber).append(System.lineSeparator());
+        for (LsmSegment segment : liveSegments) {
+            manifest.append(segment.getPath().getFileName()).append(System.lineSeparator());
+        }
+
+        Path manifestPath = directory.resolve(MANIFEST_FILE);
+        Path tempPath = directory.resolve(MANIFEST_FILE + TEMP_SUFFIX);
+        Files.write(tempPath, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        FsyncTracker.forceFile(tempPath);
+        Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FsyncTracker.forceDirectory(directory);
+    }
+
+    /**
+     * Rebuilds the memtable from the log. A record cut short by a crash ends the replay.
+     */
+    private void replayLog() throws IOException {
+        Path logPath = directory.resolve(LOG_FILE);
+        if (!Files.exists(logPath)) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                long key;
+                try {
+                    key = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                try {
+                    int length = in.readInt();
+                    byte[] value = TOMBSTONE;
+                    if (length != TOMBSTONE_LENGTH) {
+                        value = new byte[length];
+                        in.readFully(value);
+                    }
+                    memtable.put(key, value);
+                    memtableBytes += value.length + RECORD_OVERHEAD_BYTES;
+                    nextKey = Math.max(nextKey, key + 1);
+                } catch (EOFException | NegativeArraySizeException e) {
+                    System.out.println(TRUNCATED_LOG_WARNING + logPath);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void openLog() throws IOException {
+        logFile = new FileOutputStream(directory.resolve(LOG_FILE).toFile(), true);
+        log = new DataOutputStream(new BufferedOutputStream(logFile));
+    }
+
+    private void openLogTruncated() throws IOException {
+        logFile = new FileOutputStream(directory.resolve(LOG_FILE).toFile(), false);
+        log = new DataOutputStream(new BufferedOutputStream(logFile));
+    }
+
+    /**
+     * Merges sorted sources into one sorted sequence. For keys present in several sources,
+     * the record of the source with the lowest rank, which is the newest, wins.
+     */
+    private static Iterator<Map.Entry<Long, byte[]>> merge(List<Source> sources, long toKey) {
+        PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> a.key() != b.key()
+                ? Long.compare(a.key(), b.key())
+                : Integer.compare(a.rank, b.rank));
+        for (Source source : sources) {
+            if (source.hasCurrent() && source.key() <= toKey) {
+                queue.add(source);
+            }
+        }
+
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !queue.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<Long, byte[]> next() {
+                if (queue.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Source newest = queue.poll();
+                long key = newest.key();
+                Map.Entry<Long, byte[]> record = new AbstractMap.SimpleImmutableEntry<>(key, newest.value());
+                advance(newest);
+                while (!queue.isEmpty() && queue.peek().key() == key) {
+                    advance(queue.poll());
+                }
+                return record;
+            }
+
+            private void advance(Source source) {
+                source.advance();
+                if (source.hasCurrent() && source.key() <= toKey) {
+                    queue.add(source);
+                }
+            }
+        };
+    }
+
+    /**
+     * Receives the records of a range read.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * Accepts one live record.
+         *
+         * @param key the record key
+         * @param value the record value
+         * @throws IOException if the record cannot be handled
+         */
+        void accept(long key, byte[] value) throws IOException;
+    }
+
+    /**
+     * A sorted run of records taking part in a merge, ranked by age with 0 for the newest.
+     */
+    private abstract static class Source {
+        private final int rank;
+
+        private Source(int rank) {
+            this.rank = rank;
+        }
+
+        abstract boolean hasCurrent();
+
+        abstract long key();
+
+        abstract byte[] value();
+
+        abstract void advance();
+    }
+
+    private static class MemtableSource extends Source {
+        private final Iterator<Map.Entry<Long, byte[]>> entries;
+        private Map.Entry<Long, byte[]> current;
+
+        private MemtableSource(NavigableMap<Long, byte[]> records, int rank) {
+            super(rank);
+            this.entries = records.entrySet().iterator();
+            advance();
+        }
+
+        @Override
+        boolean hasCurrent() {
+            return current != null;
+        }
+
+        @Override
+        long key() {
+            return current.getKey();
+        }
+
+        @Override
+        byte[] value() {
+            return current.getValue();
+        }
+
+        @Override
+        void advance() {
+            current = entries.hasNext() ? entries.next() : null;
+        }
+    }
+
+    private static class SegmentSource extends Source {
+        private final LsmSegment.Cursor cursor;
+
+        private SegmentSource(LsmSegment.Cursor cursor, int rank) {
+            super(rank);
+            this.cursor = cursor;
+        }
+
+        @Override
+        boolean hasCurrent() {
+            return cursor.hasCurrent();
+        }
+
+        @Override
+        long key() {
+            return cursor.key();
+        }
+
+        @Override
+        byte[] value() {
+            return cursor.value();
+        }
+
+        @Override
+        void advance() {
+            try {
+                cursor.advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Skips deletions while iterating merged records.
+     */
+    private static class LiveRecordIterator implements Iterator<Map.Entry<Long, byte[]>> {
+        private final Iterator<Map.Entry<Long, byte[]>> records;
+        private Map.Entry<Long, byte[]> next;
+
+        private LiveRecordIterator(Iterator<Map.Entry<Long, byte[]>> records) {
+            this.records = records;
+            findNext();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<Long, byte[]> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<Long, byte[]> result = next;
+            findNext();
+            return result;
+        }
+
+        private void findNext() {
+            next = null;
+            while (next == null && records.hasNext()) {
+                Map.Entry<Long, byte[]> record = records.next();
+                if (record.getValue() != TOMBSTONE) {
+                    next = record;
+                }
+            }
+        }
+    }
+}
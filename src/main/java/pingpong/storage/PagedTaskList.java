@@ -0,0 +1,545 @@
+package pingpong.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+
+/**
+ * A task list for more tasks than fit comfortably in memory. The tasks are split into pages of
+ * consecutive tasks, and only the most recently used pages are kept as {@link Task} objects; the others
+ * are kept in a page file in the binary record format of {@link BinaryTaskFile}. Pages are written when
+ * they are evicted and changed, including tasks marked through the list, and read back when touched.
+ *
+ * <p>A page that outgrows its slot in the page file is moved, and the slots of moved and removed pages are
+ * reused, so the page file stays about the size of the tasks it holds however often they change.</p>
+ *
+ * <p>The page file is scratch space only: the tasks are still persisted by the storage engine.
+ * Reading the tasks in order, as listing and finding do, scans the pages one after another, so a scan
+ * never holds more than the resident pages.</p>
+ */
+public class PagedTaskList extends TaskList implements Closeable {
+    /** The system property that sets the memory budget for tasks in megabytes and enables paging. */
+    public static final String SYSTEM_PROPERTY = "pingpong.memoryBudgetMb";
+    /** Default number of tasks per page. */
+    public static final int DEFAULT_PAGE_TASKS = 1024;
+
+    /** Rough heap footprint of one resident task, used to turn the memory budget into a number of pages. */
+    static final long ESTIMATED_TASK_BYTES = 256;
+    static final int MIN_RESIDENT_PAGES = 2;
+
+    private static final String INVALID_BUDGET_WARNING = "Warning: Invalid memory budget '%s', "
+            + "keeping all tasks in memory.";
+    private static final String PAGE_FILE_WARNING = "Warning: Could not create the page file, "
+            + "keeping all tasks in memory: ";
+    private static final String UNSTREAMED_WARNING = "Warning: The storage engine keeps a copy of every task, "
+            + "keeping all tasks in memory. Run with -D" + StorageEngineType.SYSTEM_PROPERTY + "=text to page them.";
+    private static final String PAGE_FILE_PREFIX = "pingpong-pages";
+    private static final String PAGE_FILE_SUFFIX = ".bin";
+
+    private final TaskPages pages;
+
+    /**
+     * Creates an empty paged task list with the default page size.
+     *
+     * @param pageFile the scratch file for pages that are not resident, which is overwritten
+     * @param memoryBudgetBytes the approximate heap space resident tasks may take
+     */
+    public PagedTaskList(Path pageFile, long memoryBudgetBytes) {
+        this(pageFile, DEFAULT_PAGE_TASKS,
+                (int) Math.min(Integer.MAX_VALUE, memoryBudgetBytes / (DEFAULT_PAGE_TASKS * ESTIMATED_TASK_BYTES)));
+    }
+
+    /**
+     * Creates an empty paged task list.
+     *
+     * @param pageFile the scratch file for pages that are not resident, which is overwritten
+     * @param pageTasks the number of tasks per page
+     * @param maxResidentPages the number of pages kept in memory, at least {@value #MIN_RESIDENT_PAGES}
+     */
+    public PagedTaskList(Path pageFile, int pageTasks, int maxResidentPages) {
+        this(new TaskPages(pageFile, pageTasks, Math.max(MIN_RESIDENT_PAGES, maxResidentPages)));
+    }
+
+    private PagedTaskList(TaskPages pages) {
+        super(pages, false);
+        this.pages = pages;
+    }
+
+    /**
+     * Creates the task list configured by the {@value #SYSTEM_PROPERTY} system property: a paged task list
+     * with a temporary page file if a memory budget is set, otherwise a task list that keeps all tasks in memory.
+     * Paging is refused with a warning if the storage does not stream the tasks, as it would hold all of them
+     * anyway.
+     *
+     * @param storage the storage the tasks are loaded from and saved to
+     * @return the new empty task list
+     */
+    public static TaskList fromSystemProperty(Storage storage) {
+        assert storage != null : "Storage should not be null";
+
+        if (!isConfigured()) {
+            return new TaskList();
+        }
+        if (!storage.canStream()) {
+            System.out.println(UNSTREAMED_WARNING);
+            return new TaskList();
+        }
+
+        String budget = System.getProperty(SYSTEM_PROPERTY).trim();
+        long budgetMegabytes;
+        try {
+            budgetMegabytes = Long.parseLong(budget);
+        } catch (NumberFormatException e) {
+            budgetMegabytes = -1;
+        }
+        if (budgetMegabytes <= 0) {
+            System.out.println(String.format(INVALID_BUDGET_WARNING, budget));
+            return new TaskList();
+        }
+
+        try {
+            Path pageFile = Files.createTempFile(PAGE_FILE_PREFIX, PAGE_FILE_SUFFIX);
+            pageFile.toFile().deleteOnExit();
+            return new PagedTaskList(pageFile, budgetMegabytes * 1024 * 1024);
+        } catch (IOException e) {
+            System.out.println(PAGE_FILE_WARNING + e.getMessage());
+            return new TaskList();
+        }
+    }
+
+    /**
+     * Checks whether the {@value #SYSTEM_PROPERTY} system property asks for a paged task list.
+     *
+     * @return true if a memory budget is set
+     */
+    public static boolean isConfigured() {
+        String budget = System.getProperty(SYSTEM_PROPERTY);
+        return budget != null && !budget.trim().isEmpty();
+    }
+
+    /**
+     * Gets the number of pages the tasks are split into.
+     *
+     * @return the page count
+     */
+    public int getPageCount() {
+        return pages.getPageCount();
+    }
+
+    /**
+     * Gets the number of pages currently kept as task objects.
+     *
+     * @return the resident page count
+     */
+    public int getResidentPageCount() {
+        return pages.getResidentPageCount();
+    }
+
+    /**
+     * Closes and deletes the page file. The list must not be used afterwards.
+     *
+     * @throws IOException if the page file cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        pages.close();
+    }
+
+    /**
+     * The list of tasks behind a {@link PagedTaskList}. Errors reading or writing the page file are thrown
+     * as {@link UncheckedIOException}, as the {@link List} methods cannot throw checked exceptions.
+     */
+    private static class TaskPages extends AbstractList<Task> {
+        private static final String CORRUPTED_PAGE_ERROR = "Page file is corrupted at offset ";
+
+        private final Path pageFile;
+        private final int pageTasks;
+        private final int maxResidentPages;
+        private final ArrayList<Page> pageList = new ArrayList<>();
+        /** The resident pages, least recently used first. */
+        private final LinkedHashMap<Page, Page> residentPages = new LinkedHashMap<>(16, 0.75f, true);
+        /** The list index of the first task of each page, rebuilt after pages are added or removed. */
+        private int[] pageStarts = new int[0];
+        private boolean isIndexValid = true;
+        private int size;
+        /** The lengths of the unused slots before the end of the page file, by their offsets. */
+        private final TreeMap<Long, Long> freeSlots = new TreeMap<>();
+        private FileChannel channel;
+        private long fileEnd;
+
+        private TaskPages(Path pageFile, int pageTasks, int maxResidentPages) {
+            assert pageFile != null : "Page file should not be null";
+            assert pageTasks > 0 : "Pages should hold at least one task";
+
+            this.pageFile = pageFile;
+            this.pageTasks = pageTasks;
+            this.maxResidentPages = maxResidentPages;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Task get(int index) {
+            checkIndex(index, size);
+            int pageIndex = findPage(index);
+            return load(pageList.get(pageIndex)).get(index - pageStarts[pageIndex]);
+        }
+
+        @Override
+        public Task set(int index, Task task) {
+            assert task != null : "Task should not be null";
+            checkIndex(index, size);
+
+            int pageIndex = findPage(index);
+            Page page = pageList.get(pageIndex);
+            Task previous = load(page).set(index - pageStarts[pageIndex], task);
+            page.isDirty = true;
+            return previous;
+        }
+
+        @Override
+        public void add(int index, Task task) {
+            assert task != null : "Task should not be null";
+            checkIndex(index, size + 1);
+
+            int pageIndex;
+            int offset;
+            if (index == size) {
+                pageIndex = pageList.size() - 1;
+                if (pageIndex < 0 || pageList.get(pageIndex).count >= pageTasks) {
+                    pageIndex++;
+                    addPage(pageIndex, new ArrayList<>());
+                }
+                offset = pageList.get(pageIndex).count;
+            } else {
+                pageIndex = findPage(index);
+                offset = index - pageStarts[pageIndex];
+            }
+
+            Page page = pageList.get(pageIndex);
+            load(page).add(offset, task);
+            page.count++;
+            page.isDirty = true;
+            if (page.count > pageTasks) {
+                split(pageIndex);
+            }
+            shiftStarts(pageIndex, 1);
+            size++;
+            modCount++;
+        }
+
+        @Override
+        public Task remove(int index) {
+            checkIndex(index, size);
+
+            int pageIndex = findPage(index);
+            Page page = pageList.get(pageIndex);
+            Task removed = load(page).remove(index - pageStarts[pageIndex]);
+            page.count--;
+            page.isDirty = true;
+            if (page.count == 0) {
+                pageList.remove(pageIndex);
+                residentPages.remove(page);
+                if (page.offset >= 0) {
+                    freeSlot(page.offset, page.capacity);
+                }
+                isIndexValid = false;
+            } else {
+                shiftStarts(pageIndex, -1);
+            }
+            size--;
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            pageList.clear();
+            residentPages.clear();
+            freeSlots.clear();
+            isIndexValid = false;
+            size = 0;
+            fileEnd = 0;
+            modCount++;
+        }
+
+        private static void checkIndex(int index, int bound) {
+            if (index < 0 || index >= bound) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+            }
+        }
+
+        /**
+         * Moves the second half of an overfull page into a new page after it.
+         */
+        private void split(int pageIndex) {
+            Page page = pageList.get(pageIndex);
+            List<Task> tail = page.tasks.subList(page.count / 2, page.count);
+            Page next = addPage(pageIndex + 1, new ArrayList<>(tail));
+            tail.clear();
+            page.count -= next.count;
+        }
+
+        /**
+         * Adds a resident page holding the given tasks, which has not been written yet.
+         */
+        private Page addPage(int pageIndex, List<Task> tasks) {
+            Page page = new Page();
+            page.tasks = tasks;
+            page.count = tasks.size();
+            page.isDirty = true;
+            pageList.add(pageIndex, page);
+            isIndexValid = false;
+            residentPages.put(page, page);
+            evict(page);
+            return page;
+        }
+
+        private void shiftStarts(int pageIndex, int delta) {
+            if (!isIndexValid) {
+                return;
+            }
+            for (int i = pageIndex + 1; i < pageList.size(); i++) {
+                pageStarts[i] += delta;
+            }
+        }
+
+        /**
+         * Finds the page holding the task at the given index by binary search over the page starts.
+         */
+        private int findPage(int index) {
+            if (!isIndexValid) {
+                pageStarts = new int[pageList.size()];
+                int start = 0;
+                for (int i = 0; i < pageList.size(); i++) {
+                    pageStarts[i] = start;
+                    start += pageList.get(i).count;
+                }
+                isIndexValid = true;
+            }
+
+            int low = 0;
+            int high = pageList.size() - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (pageStarts[middle] <= index) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Makes a page resident and the most recently used one, reading it from the page file if needed.
+         */
+        private List<Task> load(Page page) {
+            if (page.tasks != null) {
+                residentPages.get(page);
+                return page.tasks;
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(page.length);
+                while (buffer.hasRemaining()) {
+                    if (openChannel().read(buffer, page.offset + buffer.position()) < 0) {
+                        throw new IOException(CORRUPTED_PAGE_ERROR + page.offset);
+                    }
+                }
+                buffer.flip();
+                List<Task> tasks = new ArrayList<>(page.count + 1);
+                if (BinaryTaskFile.readRecords(buffer, page.count, tasks, null) != page.count) {
+                    throw new IOException(CORRUPTED_PAGE_ERROR + page.offset);
+                }
+                for (int i = 0; i < page.count; i++) {
+                    tasks.get(i).restoreId(page.storedIds[i]);
+                }
+                page.tasks = tasks;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            residentPages.put(page, page);
+            evict(page);
+            return page.tasks;
+        }
+
+        /**
+         * Evicts the least recently used pages beyond the budget, writing those that changed.
+         */
+        private void evict(Page keptPage) {
+            Iterator<Page> iterator = residentPages.keySet().iterator();
+            while (residentPages.size() > maxResidentPages && iterator.hasNext()) {
+                Page page = iterator.next();
+                if (page == keptPage) {
+                    continue;
+                }
+                if (page.hasChanged()) {
+                    write(page);
+                }
+                page.tasks = null;
+                iterator.remove();
+            }
+        }
+
+        /**
+         * Writes a page to the page file, in place if it still fits in its previous slot, or else in the first
+         * free slot large enough, freeing the previous one.
+         */
+        private void write(Page page) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                BitSet doneFlags = new BitSet(page.count);
+                long[] ids = new long[page.count];
+                for (int i = 0; i < page.count; i++) {
+                    Task task = page.tasks.get(i);
+                    BinaryTaskFile.writeRecord(out, task, task.isDone());
+                    doneFlags.set(i, task.isDone());
+                    ids[i] = task.getId();
+                }
+                out.flush();
+
+                if (page.offset < 0 || bytes.size() > page.capacity) {
+                    if (page.offset >= 0) {
+                        freeSlot(page.offset, page.capacity);
+                    }
+                    page.offset = allocateSlot(bytes.size());
+                    page.capacity = bytes.size();
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                while (buffer.hasRemaining()) {
+                    openChannel().write(buffer, page.offset + buffer.position());
+                }
+                page.length = bytes.size();
+                page.storedDone = doneFlags;
+                page.storedIds = ids;
+                page.isDirty = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Takes the start of the first free slot of at least the given length, leaving the rest of it free,
+         * or extends the page file if there is none.
+         */
+        private long allocateSlot(int length) {
+            for (Map.Entry<Long, Long> slot : freeSlots.entrySet()) {
+                long offset = slot.getKey();
+                long slotLength = slot.getValue();
+                if (slotLength >= length) {
+                    freeSlots.remove(offset);
+                    if (slotLength > length) {
+                        freeSlots.put(offset + length, slotLength - length);
+                    }
+                    return offset;
+                }
+            }
+
+            long offset = fileEnd;
+            fileEnd += length;
+            return offset;
+        }
+
+        /**
+         * Frees a slot, merging it with the free slots next to it, or shortening the page file if it is last.
+         */
+        private void freeSlot(long offset, long length) {
+            Map.Entry<Long, Long> previous = freeSlots.floorEntry(offset);
+            if (previous != null && previous.getKey() + previous.getValue() == offset) {
+                offset = previous.getKey();
+                length += previous.getValue();
+                freeSlots.remove(offset);
+            }
+            Long nextLength = freeSlots.remove(offset + length);
+            if (nextLength != null) {
+                length += nextLength;
+            }
+
+            if (offset + length == fileEnd) {
+                fileEnd = offset;
+            } else {
+                freeSlots.put(offset, length);
+            }
+        }
+
+        private FileChannel openChannel() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(pageFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            return channel;
+        }
+
+        private int getPageCount() {
+            return pageList.size();
+        }
+
+        private int getResidentPageCount() {
+            return residentPages.size();
+        }
+
+        private void close() throws IOException {
+            try {
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+            } finally {
+                Files.deleteIfExists(pageFile);
+            }
+        }
+    }
+
+    /**
+     * A run of consecutive tasks, either resident or in the page file.
+     */
+    private static class Page {
+        /** The tasks while the page is resident, or null. */
+        private List<Task> tasks;
+        private int count;
+        /** Where the page was last written in the page file, or -1 if it never was. */
+        private long offset = -1;
+        private int length;
+        private int capacity;
+        /** The done flags as last written, since marking changes tasks without going through the page. */
+        private BitSet storedDone;
+        /** The task ids as last written, which the record format does not hold, as ids only last a session. */
+        private long[] storedIds;
+        private boolean isDirty;
+
+        private boolean hasChanged() {
+            if (isDirty || storedDone == null) {
+                return true;
+            }
+            for (int i = 0; i < count; i++) {
+                if (tasks.get(i).isDone() != storedDone.get(i)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package pingpong.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Computes and checks the CRC32C checksum that prefixes each task line of the text data file.
+ *
+ * <p>A checksummed line is the checksum as {@value #HEX_LENGTH} lowercase hex digits, a space, and the task
+ * in the usual line format, for example {@code 3f9a01c2 T | 0 | read book}. Lines without the prefix are
+ * accepted as written by earlier versions.</p>
+ *
+ * <p>The checksum covers the task bytes with the done marker counted as not done, and is then flipped by a
+ * fixed mask for a completed task. Marking a task in place can therefore update the checksum from its old
+ * value and the old marker, without reading the rest of the line.</p>
+ */
+public class RecordChecksum {
+    /** Number of hex digits in a checksum. */
+    static final int HEX_LENGTH = 8;
+    /** Length of the checksum prefix, including the space that follows the digits. */
+    static final int FIELD_LENGTH = HEX_LENGTH + 1;
+
+    /** The line has a checksum that matches its content. */
+    static final int VALID = 0;
+    /** The line has a checksum that does not match its content. */
+    static final int CORRUPTED = 1;
+    /** The line has no checksum prefix. */
+    static final int UNCHECKED = 2;
+
+    private static final int DONE_MASK = 0x9E3779B9;
+    private static final long INVALID_HEX = -1;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private RecordChecksum() {
+        // Utility class
+    }
+
+    /**
+     * Computes the checksum of a task line held in an array.
+     *
+     * @param crc the checksum engine to use, which is reset first
+     * @param bytes the array holding the line
+     * @param start the index of the first byte of the task, after any checksum prefix
+     * @param end the index just past the last byte of the task, before the line separator
+     * @return the checksum
+     */
+    static int compute(CRC32C crc, byte[] bytes, int start, int end) {
+        int marker = start + TaskFileFormat.DONE_MARKER_OFFSET;
+        crc.reset();
+        if (marker >= end) {
+            crc.update(bytes, start, end - start);
+            return (int) crc.getValue();
+        }
+
+        boolean isDone = bytes[marker] == TaskFileFormat.DONE_MARKER_BYTE;
+        crc.update(bytes, start, marker - start);
+        crc.update(isDone ? TaskFileFormat.NOT_DONE_MARKER_BYTE : bytes[marker]);
+        crc.update(bytes, marker + 1, end - marker - 1);
+        return finish(crc, isDone);
+    }
+
+    /**
+     * Computes the checksum of a task line held in a buffer, leaving the buffer's position and limit unchanged.
+     *
+     * @param crc the checksum engine to use, which is reset first
+     * @param buffer the buffer holding the line
+     * @param start the index of the first byte of the task
+     * @param end the index just past the last byte of the task
+     * @return the checksum
+     */
+    static int compute(CRC32C crc, ByteBuffer buffer, int start, int end) {
+        assert end > start + TaskFileFormat.DONE_MARKER_OFFSET : "Task should include a done marker";
+
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int marker = start + TaskFileFormat.DONE_MARKER_OFFSET;
+        byte markerByte = buffer.get(marker);
+        boolean isDone = markerByte == TaskFileFormat.DONE_MARKER_BYTE;
+
+        crc.reset();
+        buffer.limit(marker).position(start);
+        crc.update(buffer);
+        crc.update(isDone ? TaskFileFormat.NOT_DONE_MARKER_BYTE : markerByte);
+        buffer.limit(end).position(marker + 1);
+        crc.update(buffer);
+        buffer.limit(limit).position(position);
+        return finish(crc, isDone);
+    }
+
+    private static int finish(CRC32C crc, boolean isDone) {
+        int checksum = (int) crc.getValue();
+        return isDone ? checksum ^ DONE_MASK : checksum;
+    }
+
+    /**
+     * Gets the checksum a line has after its done marker is flipped.
+     *
+     * @param checksum the checksum before the flip
+     * @return the checksum after the flip
+     */
+    static int toggleDone(int checksum) {
+        return checksum ^ DONE_MASK;
+    }
+
+    /**
+     * Checks a line of the text data file against its checksum.
+     *
+     * @param crc the checksum engine to use
+     * @param bytes the array holding the line
+     * @param start the index of the first byte of the line
+     * @param end the index just past the last byte of the line, before the line separator
+     * @return {@link #VALID}, {@link #CORRUPTED} or {@link #UNCHECKED}
+     */
+    static int verify(CRC32C crc, byte[] bytes, int start, int end) {
+        if (!hasChecksumField(bytes, start, end)) {
+            return UNCHECKED;
+        }
+        long stored = parseHex(bytes, start);
+        return stored == (compute(crc, bytes, start + FIELD_LENGTH, end) & 0xFFFFFFFFL) ? VALID : CORRUPTED;
+    }
+
+    /**
+     * Checks whether a line starts with a checksum prefix. A line in the older format starts with a
+     * one-letter type followed by a space, so it is never mistaken for one.
+     */
+    static boolean hasChecksumField(byte[] bytes, int start, int end) {
+        if (end - start <= FIELD_LENGTH || bytes[start + HEX_LENGTH] != ' ') {
+            return false;
+        }
+        return parseHex(bytes, start) != INVALID_HEX;
+    }
+
+    /**
+     * Parses the hex digits of a checksum.
+     *
+     * @return the checksum as an unsigned value, or -1 if a digit is not lowercase hex
+     */
+    static long parseHex(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + HEX_LENGTH; i++) {
+            byte digit = bytes[i];
+            if (digit >= '0' && digit <= '9') {
+                value = (value << 4) | (digit - '0');
+            } else if (digit >= 'a' && digit <= 'f') {
+                value = (value << 4) | (digit - 'a' + 10);
+            } else {
+                return INVALID_HEX;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Writes a checksum as hex digits at an absolute index of a buffer.
+     */
+    static void putHex(ByteBuffer buffer, int index, int checksum) {
+        for (int i = HEX_LENGTH - 1; i >= 0; i--) {
+            buffer.put(index + i, HEX_DIGITS[checksum & 0xF]);
+            checksum >>>= 4;
+        }
+    }
+
+    /**
+     * Prefixes a formatted task line with its checksum.
+     *
+     * @param line a line as produced by {@link TaskFileFormat#formatTask(pingpong.task.Task, boolean)}
+     * @return the checksummed line
+     */
+    public static String withChecksum(String line) {
+        assert line != null : "Line should not be null";
+
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer prefix = ByteBuffer.allocate(FIELD_LENGTH);
+        putHex(prefix, 0, compute(new CRC32C(), bytes, 0, bytes.length));
+        prefix.put(HEX_LENGTH, (byte) ' ');
+        return new String(prefix.array(), StandardCharsets.US_ASCII) + line;
+    }
+}
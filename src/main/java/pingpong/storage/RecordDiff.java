@@ -0,0 +1,238 @@
+package pingpong.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Computes the record-level difference between two versions of the task list, each given as its formatted lines.
+ *
+ * <p>The common prefix and suffix are skipped first, so the usual external edit of a few lines costs a single
+ * pass over the list. The remaining middle is compared with Myers' algorithm, which runs in time proportional
+ * to its length times the number of differing records. If more than {@value #MAX_EDIT_DISTANCE} records
+ * differ, the whole middle is reported as one replaced range instead.</p>
+ */
+public class RecordDiff {
+    /** The largest number of inserted and deleted records the middle is compared record by record for. */
+    static final int MAX_EDIT_DISTANCE = 1000;
+
+    private RecordDiff() {
+        // Utility class
+    }
+
+    /**
+     * Computes the ranges of the base version that were replaced to obtain the other version.
+     * A replaced range with as many new records as old ones is split into single-record hunks,
+     * so that two changes to neighbouring tasks are never reported as one.
+     *
+     * @param base the lines of the earlier version
+     * @param other the lines of the later version
+     * @return the hunks in base order, none of which overlap
+     */
+    public static List<Hunk> compute(List<String> base, List<String> other) {
+        assert base != null : "Base lines should not be null";
+        assert other != null : "Other lines should not be null";
+
+        int prefix = 0;
+        int maxPrefix = Math.min(base.size(), other.size());
+        while (prefix < maxPrefix && base.get(prefix).equals(other.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix
+                && base.get(base.size() - 1 - suffix).equals(other.get(other.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<String> baseMiddle = base.subList(prefix, base.size() - suffix);
+        List<String> otherMiddle = other.subList(prefix, other.size() - suffix);
+        List<Hunk> hunks = new ArrayList<>();
+        if (baseMiddle.isEmpty() && otherMiddle.isEmpty()) {
+            return hunks;
+        }
+
+        boolean[] deleted = new boolean[baseMiddle.size()];
+        boolean[] inserted = new boolean[otherMiddle.size()];
+        if (!markEdits(baseMiddle, otherMiddle, deleted, inserted)) {
+            addHunk(hunks, prefix, prefix + baseMiddle.size(), prefix, otherMiddle);
+            return hunks;
+        }
+
+        int i = 0;
+        int j = 0;
+        while (i < deleted.length || j < inserted.length) {
+            if (i < deleted.length && j < inserted.length && !deleted[i] && !inserted[j]) {
+                i++;
+                j++;
+                continue;
+            }
+
+            int baseStart = i;
+            int otherStart = j;
+            while ((i < deleted.length && deleted[i]) || (j < inserted.length && inserted[j])) {
+                if (i < deleted.length && deleted[i]) {
+                    i++;
+                }
+                if (j < inserted.length && inserted[j]) {
+                    j++;
+                }
+            }
+            addHunk(hunks, prefix + baseStart, prefix + i, prefix + otherStart, otherMiddle.subList(otherStart, j));
+        }
+        return hunks;
+    }
+
+    private static void addHunk(List<Hunk> hunks, int baseStart, int baseEnd, int otherStart, List<String> lines) {
+        if (baseEnd - baseStart != lines.size()) {
+            hunks.add(new Hunk(baseStart, baseEnd, otherStart, new ArrayList<>(lines)));
+            return;
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            hunks.add(new Hunk(baseStart + i, baseStart + i + 1, otherStart + i, List.of(lines.get(i))));
+        }
+    }
+
+    /**
+     * Marks the records of a shortest edit script turning one list into the other.
+     *
+     * @param a the earlier lines
+     * @param b the later lines
+     * @param deleted set for each line of {@code a} that is not kept
+     * @param inserted set for each line of {@code b} that is new
+     * @return false if the lists differ in more than {@value #MAX_EDIT_DISTANCE} records
+     */
+    private static boolean markEdits(List<String> a, List<String> b, boolean[] deleted, boolean[] inserted) {
+        int n = a.size();
+        int m = b.size();
+        int maxDistance = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int offset = maxDistance + 1;
+        int[] v = new int[2 * maxDistance + 3];
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= maxDistance; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a.get(x).equals(b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, offset, n, m, d, deleted, inserted);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void backtrack(List<int[]> trace, int offset, int n, int m, int distance, boolean[] deleted,
+            boolean[] inserted) {
+        int x = n;
+        int y = m;
+        for (int d = distance; d > 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int previousK = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]) ? k + 1 : k - 1;
+            int previousX = v[offset + previousK];
+            int previousY = previousX - previousK;
+            while (x > previousX && y > previousY) {
+                x--;
+                y--;
+            }
+            if (previousK == k + 1) {
+                inserted[previousY] = true;
+            } else {
+                deleted[previousX] = true;
+            }
+            x = previousX;
+            y = previousY;
+        }
+    }
+
+    /**
+     * A range of base records replaced by new records. An empty range is an insertion before its start,
+     * and an empty replacement is a deletion.
+     */
+    public static class Hunk {
+        private final int baseStart;
+        private final int baseEnd;
+        private final int otherStart;
+        private final List<String> lines;
+
+        Hunk(int baseStart, int baseEnd, int otherStart, List<String> lines) {
+            this.baseStart = baseStart;
+            this.baseEnd = baseEnd;
+            this.otherStart = otherStart;
+            this.lines = lines;
+        }
+
+        /**
+         * Gets the index of the first replaced base record.
+         *
+         * @return the 0-based start index
+         */
+        public int getBaseStart() {
+            return baseStart;
+        }
+
+        /**
+         * Gets the index just past the last replaced base record.
+         *
+         * @return the 0-based end index
+         */
+        public int getBaseEnd() {
+            return baseEnd;
+        }
+
+        /**
+         * Gets the index of the first new record in the other version.
+         *
+         * @return the 0-based index in the other version
+         */
+        public int getOtherStart() {
+            return otherStart;
+        }
+
+        /**
+         * Gets the records that replace the range.
+         *
+         * @return the new lines
+         */
+        public List<String> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+
+        /**
+         * Checks whether this hunk replaces records also replaced by another hunk of a diff from the same base.
+         * An insertion only overlaps a range it falls strictly inside of; two insertions at the same position
+         * do not overlap and can both be kept.
+         *
+         * @param other the other hunk
+         * @return true if the hunks overlap
+         */
+        public boolean overlaps(Hunk other) {
+            return baseStart < other.baseEnd && other.baseStart < baseEnd;
+        }
+
+        /**
+         * Checks whether another hunk makes exactly the same change.
+         *
+         * @param other the other hunk
+         * @return true if both replace the same range with the same records
+         */
+        public boolean isSameChange(Hunk other) {
+            return baseStart == other.baseStart && baseEnd == other.baseEnd && lines.equals(other.lines);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d, %d) -> %s", baseStart, baseEnd, lines);
+        }
+    }
+}
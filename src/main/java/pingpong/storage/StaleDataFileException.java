@@ -0,0 +1,19 @@
+package pingpong.storage;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a write is refused because another process changed the shared data file since this process
+ * last read or wrote it. Nothing was written; the other process's changes have to be merged first.
+ */
+public class StaleDataFileException extends IOException {
+
+    /**
+     * Creates a new StaleDataFileException with the specified error message.
+     *
+     * @param message the error message describing the refused write
+     */
+    public StaleDataFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,289 @@
+package pingpong.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import pingpong.task.Task;
+
+/**
+ * A snapshot of the fully loaded task list written on clean shutdown, so that the next start can skip
+ * parsing the data file and replaying the journal.
+ *
+ * <p>The image records the size and modification time of the data file and the journal it was taken
+ * from. It is only used while both still match; otherwise the data file and journal, which stay the
+ * source of truth, are loaded as usual. A CRC32C over everything after the header guards against a
+ * damaged image.</p>
+ *
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * header:  magic (int) | version (int) | data file modified (long) | data file size (long)
+ *          | journal modified (long) | journal size (long) | snapshot sequence (long)
+ *          | journal last sequence (long) | journal record count (long) | record count (int)
+ *          | chunk count (int) | chunk table offset (long) | checksum (int)
+ * records: as in {@link BinaryTaskFile}
+ * chunk table: per chunk of {@value #CHUNK_RECORDS} records, offset (long) | record count (int)
+ * </pre>
+ * <p>The chunk table lets the chunks be decoded in parallel, each from its own view of the mapped file.</p>
+ */
+public class StartupImage {
+    /** Suffix of the image file, appended to the data file name. */
+    public static final String IMAGE_SUFFIX = ".image";
+
+    static final int MAGIC = 0x50505349;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 84;
+    static final int CHUNK_RECORDS = 64 * 1024;
+
+    private static final int CHUNK_ENTRY_SIZE = 12;
+    private static final long MISSING_FILE = -1;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String CORRUPTED_IMAGE_WARNING = "Warning: Startup image %s is corrupted; "
+            + "loading the data file instead.";
+
+    private final ArrayList<Task> tasks;
+    private final long snapshotSequence;
+    private final long journalLastSequence;
+    private final long journalRecordCount;
+
+    private StartupImage(ArrayList<Task> tasks, long snapshotSequence, long journalLastSequence,
+            long journalRecordCount) {
+        this.tasks = tasks;
+        this.snapshotSequence = snapshotSequence;
+        this.journalLastSequence = journalLastSequence;
+        this.journalRecordCount = journalRecordCount;
+    }
+
+    /**
+     * Gets the tasks held by the image.
+     *
+     * @return the tasks in list order
+     */
+    public ArrayList<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the journal sequence number in the header of the data file the image was taken from.
+     *
+     * @return the snapshot sequence number
+     */
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Gets the sequence number of the last journal record contained in the image.
+     *
+     * @return the last journal sequence number
+     */
+    public long getJournalLastSequence() {
+        return journalLastSequence;
+    }
+
+    /**
+     * Gets the number of records the journal held when the image was taken.
+     *
+     * @return the journal record count
+     */
+    public long getJournalRecordCount() {
+        return journalRecordCount;
+    }
+
+    /**
+     * Gets the image file that belongs to a data file.
+     *
+     * @param dataPath the data file
+     * @return the image file next to it
+     */
+    public static Path imagePathFor(Path dataPath) {
+        return Paths.get(dataPath + IMAGE_SUFFIX);
+    }
+
+    /**
+     * Writes an image of the task list, stamped with the current state of the data file and journal.
+     * Must only be called when the tasks are exactly what loading those files would produce.
+     *
+     * @param imagePath the image file to write
+     * @param dataPath the data file the tasks were persisted to
+     * @param journalPath the journal file, which need not exist
+     * @param snapshot the tasks and the data file's snapshot sequence
+     * @param journalLastSequence the sequence number of the last journal record
+     * @param journalRecordCount the number of records in the journal
+     * @throws IOException if the image cannot be written
+     */
+    public static void write(Path imagePath, Path dataPath, Path journalPath, TaskSnapshot snapshot,
+            long journalLastSequence, long journalRecordCount) throws IOException {
+        assert imagePath != null : "Image path should not be null";
+        assert snapshot != null : "Snapshot should not be null";
+
+        Path tempPath = Paths.get(imagePath + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            CRC32C crc = new CRC32C();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+
+            int chunkCount = (snapshot.size() + CHUNK_RECORDS - 1) / CHUNK_RECORDS;
+            long[] chunkOffsets = new long[chunkCount];
+            long offset = HEADER_SIZE;
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (i % CHUNK_RECORDS == 0) {
+                    chunkOffsets[i / CHUNK_RECORDS] = offset;
+                }
+                offset += BinaryTaskFile.writeRecord(out, snapshot.getTask(i), snapshot.isDone(i));
+            }
+            long tableOffset = offset;
+            for (int i = 0; i < chunkCount; i++) {
+                out.writeLong(chunkOffsets[i]);
+                out.writeInt(Math.min(CHUNK_RECORDS, snapshot.size() - i * CHUNK_RECORDS));
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION);
+            putStamp(header, dataPath);
+            putStamp(header, journalPath);
+            header.putLong(snapshot.getSequence()).putLong(journalLastSequence).putLong(journalRecordCount)
+                    .putInt(snapshot.size()).putInt(chunkCount).putLong(tableOffset).putInt((int) crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        Files.move(tempPath, imagePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putStamp(ByteBuffer header, Path path) throws IOException {
+        if (path == null || !Files.exists(path)) {
+            header.putLong(MISSING_FILE).putLong(MISSING_FILE);
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        header.putLong(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS)).putLong(attributes.size());
+    }
+
+    /**
+     * Reads an image if it still matches the data file and journal, decoding its chunks in parallel.
+     *
+     * @param imagePath the image file
+     * @param dataPath the data file the image must match
+     * @param journalPath the journal file the image must match, which need not exist
+     * @return the image, or null if there is none, it is stale, or it is corrupted
+     * @throws IOException if the image cannot be read
+     */
+    public static StartupImage read(Path imagePath, Path dataPath, Path journalPath) throws IOException {
+        assert imagePath != null : "Image path should not be null";
+
+        if (!Files.exists(imagePath)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+
+            ByteBuffer stamps = ByteBuffer.allocate(4 * Long.BYTES);
+            putStamp(stamps, dataPath);
+            putStamp(stamps, journalPath);
+            stamps.flip();
+            while (stamps.hasRemaining()) {
+                if (buffer.getLong() != stamps.getLong()) {
+                    return null;
+                }
+            }
+
+            long snapshotSequence = buffer.getLong();
+            long journalLastSequence = buffer.getLong();
+            long journalRecordCount = buffer.getLong();
+            int recordCount = buffer.getInt();
+            int chunkCount = buffer.getInt();
+            long tableOffset = buffer.getLong();
+            int checksum = buffer.getInt();
+
+            CRC32C crc = new CRC32C();
+            crc.update(buffer.duplicate().position(HEADER_SIZE));
+            if ((int) crc.getValue() != checksum || tableOffset + (long) chunkCount * CHUNK_ENTRY_SIZE != size) {
+                System.out.println(String.format(CORRUPTED_IMAGE_WARNING, imagePath));
+                return null;
+            }
+
+            ArrayList<Task> tasks = decodeChunks(buffer, (int) tableOffset, chunkCount, recordCount);
+            if (tasks == null) {
+                System.out.println(String.format(CORRUPTED_IMAGE_WARNING, imagePath));
+                return null;
+            }
+            return new StartupImage(tasks, snapshotSequence, journalLastSequence, journalRecordCount);
+        }
+    }
+
+    private static ArrayList<Task> decodeChunks(ByteBuffer buffer, int tableOffset, int chunkCount,
+            int recordCount) {
+        List<ChunkDecoder> decoders = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int entry = tableOffset + i * CHUNK_ENTRY_SIZE;
+            ChunkDecoder decoder = new ChunkDecoder(buffer.duplicate().position((int) buffer.getLong(entry)),
+                    buffer.getInt(entry + Long.BYTES));
+            if (i > 0) {
+                ForkJoinPool.commonPool().execute(decoder);
+            }
+            decoders.add(decoder);
+        }
+
+        ArrayList<Task> tasks = new ArrayList<>(recordCount);
+        for (int i = 0; i < decoders.size(); i++) {
+            // The first chunk is decoded on the calling thread while the others run in the pool
+            List<Task> chunk = i == 0 ? decoders.get(0).compute() : decoders.get(i).join();
+            if (chunk == null) {
+                return null;
+            }
+            tasks.addAll(chunk);
+        }
+        return tasks.size() == recordCount ? tasks : null;
+    }
+
+    /**
+     * Decodes the records of one chunk.
+     */
+    private static class ChunkDecoder extends RecursiveTask<List<Task>> {
+        private final ByteBuffer buffer;
+        private final int count;
+
+        private ChunkDecoder(ByteBuffer buffer, int count) {
+            this.buffer = buffer;
+            this.count = count;
+        }
+
+        @Override
+        protected List<Task> compute() {
+            List<Task> tasks = new ArrayList<>(count);
+            return BinaryTaskFile.readRecords(buffer, count, tasks, null) == count ? tasks : null;
+        }
+    }
+}
@@ -1,400 +1,329 @@
 package pingpong.storage;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Scanner;
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
 
-import pingpong.task.Deadline;
-import pingpong.task.Event;
+import pingpong.PingpongException;
 import pingpong.task.Task;
-import pingpong.task.Todo;
+import pingpong.task.TaskList;
 
 /**
- * Handles loading and saving of tasks to/from file storage.
- * Manages the persistence layer for the Pingpong application.
+ * Handles loading and saving of tasks to/from storage.
+ * Manages the persistence layer for the Pingpong application by delegating to a {@link StorageEngine},
+ * and reports storage errors to the user instead of failing the command that caused them.
  */
 public class Storage {
-    // File format constants
-    private static final String FIELD_SEPARATOR = " | ";
-    private static final String TODO_TYPE = "T";
-    private static final String DEADLINE_TYPE = "D";
-    private static final String EVENT_TYPE = "E";
-    private static final String DONE_MARKER = "1";
-    private static final String NOT_DONE_MARKER = "0";
-    private static final String DEFAULT_DIRECTORY = "./";
-
     // Error message constants
     private static final String LOAD_ERROR_PREFIX = "Error loading tasks from file: ";
     private static final String SAVE_ERROR_PREFIX = "Error saving tasks to file: ";
-    private static final String CORRUPTED_DATA_WARNING = "Warning: Skipping corrupted task data: ";
-    private static final String INVALID_DATE_WARNING = "Warning: Invalid date format in file for deadline: ";
-    private static final String INVALID_DATETIME_WARNING = "Warning: Invalid datetime format in file for event: ";
-
-    // Minimum number of parts required for different task types
-    private static final int MIN_TASK_PARTS = 3;
-    private static final int MIN_DEADLINE_PARTS = 4;
-    private static final int MIN_EVENT_PARTS = 5;
+    private static final String ARCHIVE_ERROR_PREFIX = "Error archiving tasks: ";
 
-    private final String filePath;
-    private final String directoryPath;
+    private final StorageEngine engine;
+    private BackgroundLoader loader;
+    private TaskArchive archive;
 
     /**
-     * Creates a new Storage instance with the specified file path.
+     * Creates a new Storage instance that keeps tasks in the specified text file.
      *
      * @param filePath the path to the file where tasks will be stored
      */
     public Storage(String filePath) {
-        assert filePath != null : "File path should not be null";
-        assert !filePath.trim().isEmpty() : "File path should not be empty";
-
-        this.filePath = filePath;
-        this.directoryPath = extractDirectoryPath(filePath);
-
-        assert this.filePath != null : "File path should be set";
-        assert this.directoryPath != null : "Directory path should be set";
+        this(new FileStorageEngine(filePath));
     }
 
     /**
-     * Extracts the directory path from the full file path.
+     * Creates a new Storage instance backed by the given engine.
      *
-     * @param filePath the complete file path
-     * @return the directory path portion
+     * @param engine the engine that persists the tasks
      */
-    private String extractDirectoryPath(String filePath) {
-        int lastSlashIndex = filePath.lastIndexOf('/');
-        return lastSlashIndex != -1 ? filePath.substring(0, lastSlashIndex) : DEFAULT_DIRECTORY;
+    public Storage(StorageEngine engine) {
+        assert engine != null : "Storage engine should not be null";
+        this.engine = engine;
     }
 
     /**
-     * Loads tasks from the storage file.
-     * Creates the directory and file if they don't exist.
-     * Handles corrupted or invalid task data gracefully by skipping them.
+     * Gets the engine this storage delegates to.
      *
-     * @return a list of tasks loaded from the file, or empty list if file doesn't exist
+     * @return the storage engine
      */
-    public ArrayList<Task> load() {
-        ArrayList<Task> tasks = new ArrayList<>();
-        assert tasks != null : "Task list should be initialized";
-
-        try {
-            ensureDirectoryExists();
-            File dataFile = new File(filePath);
-            assert dataFile != null : "Data file object should not be null";
-
-            if (!dataFile.exists()) {
-                assert tasks.isEmpty() : "Task list should be empty when no file exists";
-                return tasks;
-            }
+    public StorageEngine getEngine() {
+        return engine;
+    }
 
-            tasks = loadTasksFromFile(dataFile);
-        } catch (IOException e) {
-            System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
-        }
+    /**
+     * Checks whether the engine streams the tasks, as a list that keeps some tasks out of memory needs.
+     *
+     * @return true if the engine never holds all tasks at once
+     * @see StorageEngine#canStream()
+     */
+    public boolean canStream() {
+        return engine.canStream();
+    }
 
-        assert tasks != null : "Returned task list should not be null";
-        return tasks;
+    /**
+     * Moves old done tasks to the given archive whenever the storage is closed with
+     * {@link #close(TaskList)}.
+     *
+     * @param archive the archive to move old done tasks to
+     * @return this storage
+     */
+    public Storage withArchive(TaskArchive archive) {
+        assert archive != null : "Archive should not be null";
+        this.archive = archive;
+        return this;
     }
 
     /**
-     * Creates the data directory if it doesn't exist.
+     * Gets the archive old done tasks are moved to.
      *
-     * @throws IOException if directory creation fails
+     * @return the archive, or null if tasks are not archived
      */
-    private void ensureDirectoryExists() throws IOException {
-        File dataDir = new File(directoryPath);
-        assert dataDir != null : "Data directory file object should not be null";
-
-        if (!dataDir.exists()) {
-            boolean created = dataDir.mkdirs();
-            if (!created) {
-                throw new IOException("Failed to create data directory: " + directoryPath);
-            }
-            assert created || dataDir.exists() : "Directory should exist after creation attempt";
-        }
+    public TaskArchive getArchive() {
+        return archive;
     }
 
     /**
-     * Loads tasks from the specified file.
+     * Loads tasks from storage.
+     * Handles corrupted or invalid task data gracefully by skipping them.
      *
-     * @param dataFile the file to load from
-     * @return list of tasks loaded from file
-     * @throws IOException if file reading fails
+     * @return a list of tasks loaded from storage, or empty list if nothing could be loaded
      */
-    private ArrayList<Task> loadTasksFromFile(File dataFile) throws IOException {
-        ArrayList<Task> tasks = new ArrayList<>();
-        assert dataFile != null : "Data file should not be null";
-
-        try (Scanner fileScanner = new Scanner(dataFile)) {
-            assert fileScanner != null : "File scanner should not be null";
-
-            while (fileScanner.hasNextLine()) {
-                String line = fileScanner.nextLine().trim();
-                if (!line.isEmpty()) {
-                    Task task = parseTaskFromFile(line);
-                    if (task != null) {
-                        assert task.getDescription() != null : "Loaded task should have description";
-                        tasks.add(task);
-                    }
-                }
-            }
+    public ArrayList<Task> load() {
+        try {
+            ArrayList<Task> tasks = engine.load();
+            assert tasks != null : "Returned task list should not be null";
+            return tasks;
+        } catch (IOException e) {
+            System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
+            return new ArrayList<>();
         }
-
-        assert tasks != null : "Returned task list should not be null";
-        return tasks;
     }
 
     /**
-     * Saves the provided list of tasks to the storage file.
-     * Creates the directory if it doesn't exist.
+     * Loads the stored tasks into a task list batch by batch, so that a list which keeps only some tasks
+     * in memory never has to hold all of them at once.
+     * Handles corrupted or invalid task data gracefully by skipping them.
      *
-     * @param tasks the list of tasks to save
+     * @param taskList the task list to append the loaded tasks to
      */
-    public void save(ArrayList<Task> tasks) {
-        assert tasks != null : "Tasks list should not be null";
+    public void load(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
 
         try {
-            ensureDirectoryExists();
-            saveTasksToFile(tasks);
+            engine.load(batch -> taskList.insertTasks(taskList.size(), batch));
         } catch (IOException e) {
-            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
+            System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
         }
     }
 
     /**
-     * Writes tasks to the storage file.
-     *
-     * @param tasks the list of tasks to write
-     * @throws IOException if file writing fails
+     * Starts loading the stored tasks on a background thread. They are moved into the task list whenever
+     * it is saved or waited on, in front of any tasks appended in the meantime. Until all of them are in,
+     * saving is deferred and external changes are not merged.
      */
-    private void saveTasksToFile(ArrayList<Task> tasks) throws IOException {
-        try (PrintWriter printWriter = new PrintWriter(new FileWriter(filePath))) {
-            assert printWriter != null : "Print writer should not be null";
-
-            for (Task task : tasks) {
-                assert task != null : "Each task should not be null";
-                String line = formatTaskForFile(task);
-                assert line != null : "Formatted task string should not be null";
-                assert !line.trim().isEmpty() : "Formatted task string should not be empty";
-                printWriter.println(line);
-            }
-        }
+    public void loadInBackground() {
+        assert loader == null : "Tasks should only be loaded once";
+        loader = new BackgroundLoader(engine);
     }
 
     /**
-     * Parses a single line from the storage file into a Task object.
-     * Handles different task types and validates date/time formats.
+     * Checks whether tasks are still being loaded in the background, after moving those loaded so far
+     * into the task list. Changes made while loading are saved as soon as loading completes.
      *
-     * @param line the line from the file to parse
-     * @return the parsed Task object, or null if parsing fails
+     * @param taskList the task list being loaded
+     * @return true if some tasks are not in the task list yet
      */
-    private Task parseTaskFromFile(String line) {
-        assert line != null : "Line should not be null";
-        assert !line.trim().isEmpty() : "Line should not be empty";
-
-        try {
-            String[] parts = line.split(Pattern.quote(FIELD_SEPARATOR));
-
-            if (!isValidTaskFormat(parts)) {
-                return null;
-            }
-
-            assert parts.length >= MIN_TASK_PARTS : "Should have at least 3 parts for valid task";
-
-            String type = parts[0].trim();
-            boolean isDone = parts[1].trim().equals(DONE_MARKER);
-            String description = parts[2].trim();
-
-            assert type != null : "Task type should not be null";
-            assert description != null : "Task description should not be null";
-            assert !description.isEmpty() : "Task description should not be empty";
-
-            Task task = createTaskByType(type, description, parts);
+    public boolean isLoading(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
 
-            if (task != null && isDone) {
-                task.markAsDone();
-                assert task.isDone() : "Task should be marked as done if loaded as done";
-            }
-
-            return task;
-        } catch (Exception e) {
-            System.out.println(CORRUPTED_DATA_WARNING + line);
-            return null;
+        if (loader == null) {
+            return false;
         }
+        if (!loader.drainInto(taskList)) {
+            return true;
+        }
+        loader = null;
+        saveChanges(taskList);
+        return false;
     }
 
     /**
-     * Validates that the parsed parts array has minimum required elements.
+     * Waits until all tasks loaded in the background are in the task list.
      *
-     * @param parts the split line parts
-     * @return true if format is valid, false otherwise
+     * @param taskList the task list being loaded
+     * @param progressListener receives the number of tasks loaded so far while waiting
      */
-    private boolean isValidTaskFormat(String[] parts) {
-        return parts.length >= MIN_TASK_PARTS;
+    public void awaitLoaded(TaskList taskList, IntConsumer progressListener) {
+        assert taskList != null : "Task list should not be null";
+
+        if (loader != null) {
+            loader.awaitInto(taskList, progressListener);
+            isLoading(taskList);
+        }
     }
 
     /**
-     * Creates a task object based on the type indicator.
+     * Saves the provided list of tasks, replacing what was stored before.
      *
-     * @param type the task type indicator
-     * @param description the task description
-     * @param parts the complete parsed line parts
-     * @return the created Task object, or null if creation fails
+     * @param tasks the list of tasks to save
      */
-    private Task createTaskByType(String type, String description, String[] parts) {
-        assert type != null : "Task type should not be null";
-        assert description != null : "Task description should not be null";
-        assert parts != null : "Parts array should not be null";
-
-        switch (type) {
-        case TODO_TYPE:
-            return new Todo(description);
-        case DEADLINE_TYPE:
-            return createDeadlineTask(description, parts);
-        case EVENT_TYPE:
-            return createEventTask(description, parts);
-        default:
-            return null;
+    public void save(List<Task> tasks) {
+        assert tasks != null : "Tasks list should not be null";
+
+        try {
+            engine.save(tasks);
+        } catch (IOException e) {
+            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
         }
     }
 
     /**
-     * Creates a Deadline task from file data.
+     * Persists only the changes recorded by the task list since they were last persisted, then clears them.
+     * Does not touch the disk at all when nothing changed, so read-only commands can always call it.
+     * While tasks are loaded in the background, the changes are kept until loading completes.
+     * If the changes cannot be written they are kept, so the next call retries them; in write-behind mode
+     * the write fails later, so the engine keeps them instead and retries them with its next flush. If another
+     * process wrote first, they are kept for {@link #reloadExternalChanges(TaskList)} to merge instead.
      *
-     * @param description the task description
-     * @param parts the complete parsed line parts
-     * @return Deadline task or null if creation fails
+     * @param taskList the task list whose pending changes should be persisted
      */
-    private Task createDeadlineTask(String description, String[] parts) {
-        if (parts.length < MIN_DEADLINE_PARTS) {
-            return null;
+    public void saveChanges(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
+
+        if (isLoading(taskList) || !taskList.hasChanges()) {
+            return;
         }
 
         try {
-            LocalDate by = LocalDate.parse(parts[3].trim(), DateTimeFormatter.ISO_LOCAL_DATE);
-            assert by != null : "Parsed deadline date should not be null";
-            return new Deadline(description, by);
-        } catch (DateTimeParseException e) {
-            System.out.println(INVALID_DATE_WARNING + String.join(FIELD_SEPARATOR, parts));
-            return null;
+            engine.applyChanges(taskList.getAllTasks(), taskList.getChanges());
+            taskList.clearChanges();
+        } catch (StaleDataFileException e) {
+            // Kept until the other process's version is merged by the next reload
+        } catch (IOException e) {
+            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
         }
     }
 
     /**
-     * Creates an Event task from file data.
+     * Merges changes another program made to the data file into the task list, then saves the whole merged
+     * list and waits for it to be written, so that the file, any journal and the list agree again.
+     * Tasks changed on both sides keep their version in the list and are reported as conflicts.
      *
-     * @param description the task description
-     * @param parts the complete parsed line parts
-     * @return Event task or null if creation fails
+     * @param taskList the task list to merge the changes into
+     * @return the outcome of the merge, or null if the file was not changed, could not be read or is still
+     *     being loaded
      */
-    private Task createEventTask(String description, String[] parts) {
-        if (parts.length < MIN_EVENT_PARTS) {
+    public ExternalChange.MergeResult reloadExternalChanges(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
+
+        if (isLoading(taskList)) {
             return null;
         }
-
         try {
-            LocalDateTime start = LocalDateTime.parse(parts[3].trim(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            LocalDateTime end = LocalDateTime.parse(parts[4].trim(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            assert start != null : "Parsed start time should not be null";
-            assert end != null : "Parsed end time should not be null";
-            assert !start.isAfter(end) : "Start time should not be after end time";
-            return new Event(description, start, end);
-        } catch (DateTimeParseException e) {
-            System.out.println(INVALID_DATETIME_WARNING + String.join(FIELD_SEPARATOR, parts));
+            ExternalChange change = engine.pollExternalChange();
+            if (change == null) {
+                return null;
+            }
+
+            ExternalChange.MergeResult result = change.applyTo(taskList);
+            engine.save(taskList.getAllTasks());
+            engine.flush();
+            taskList.clearChanges();
+            return result;
+        } catch (IOException e) {
+            System.out.println(LOAD_ERROR_PREFIX + e.getMessage());
             return null;
         }
     }
 
     /**
-     * Formats a Task object into a string suitable for file storage.
+     * Moves the done tasks that are old enough out of the task list and into the archive. The archive is
+     * written before the tasks are deleted, so a failure leaves them in the task list. Does nothing if
+     * tasks are not archived.
      *
-     * @param task the task to format
-     * @return the formatted string for file storage
+     * @param taskList the task list to move the tasks out of
+     * @param today the date the age of the tasks is measured against
+     * @return the number of tasks archived
      */
-    private String formatTaskForFile(Task task) {
-        assert task != null : "Task should not be null";
-        assert task.getType() != null : "Task type should not be null";
-        assert task.getDescription() != null : "Task description should not be null";
-
-        String isDoneStr = task.isDone() ? DONE_MARKER : NOT_DONE_MARKER;
-        String type = task.getType().getSymbol();
-        String description = task.getDescription();
-
-        assert type != null : "Task type symbol should not be null";
-        assert !type.isEmpty() : "Task type symbol should not be empty";
-        assert description != null : "Task description should not be null";
-
-        String formattedString;
-        switch (task.getType()) {
-        case TODO:
-            formattedString = formatTodoForFile(type, isDoneStr, description);
-            break;
-        case DEADLINE:
-            formattedString = formatDeadlineForFile(type, isDoneStr, description, (Deadline) task);
-            break;
-        case Event:
-            formattedString = formatEventForFile(type, isDoneStr, description, (Event) task);
-            break;
-        default:
-            formattedString = formatTodoForFile(type, isDoneStr, description);
-            break;
+    public int archiveColdTasks(TaskList taskList, LocalDate today) {
+        assert taskList != null : "Task list should not be null";
+        assert today != null : "Today should not be null";
+
+        if (archive == null || isLoading(taskList)) {
+            return 0;
+        }
+        int[] coldIndices = new int[taskList.size()];
+        List<Task> coldTasks = new ArrayList<>();
+        int index = 0;
+        for (Task task : taskList.getAllTasks()) {
+            if (archive.isCold(task, today)) {
+                coldIndices[coldTasks.size()] = index;
+                coldTasks.add(task);
+            }
+            index++;
+        }
+        if (coldTasks.isEmpty()) {
+            return 0;
         }
 
-        assert formattedString != null : "Formatted string should not be null";
-        assert !formattedString.trim().isEmpty() : "Formatted string should not be empty";
-        return formattedString;
+        try {
+            archive.add(coldTasks);
+            taskList.deleteTasks(Arrays.copyOf(coldIndices, coldTasks.size()));
+        } catch (IOException | PingpongException e) {
+            System.out.println(ARCHIVE_ERROR_PREFIX + e.getMessage());
+            return 0;
+        }
+        saveChanges(taskList);
+        return coldTasks.size();
     }
 
     /**
-     * Formats a Todo task for file storage.
-     *
-     * @param type the task type symbol
-     * @param isDoneStr the completion status string
-     * @param description the task description
-     * @return formatted string
+     * Writes all pending changes and waits until they are durable.
      */
-    private String formatTodoForFile(String type, String isDoneStr, String description) {
-        return String.join(FIELD_SEPARATOR, type, isDoneStr, description);
+    public void flush() {
+        try {
+            engine.flush();
+        } catch (IOException e) {
+            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
+        }
     }
 
     /**
-     * Formats a Deadline task for file storage.
-     *
-     * @param type the task type symbol
-     * @param isDoneStr the completion status string
-     * @param description the task description
-     * @param deadline the deadline task
-     * @return formatted string
+     * Flushes pending changes, waits for background work to finish and releases open files.
      */
-    private String formatDeadlineForFile(String type, String isDoneStr, String description, Deadline deadline) {
-        assert deadline != null : "Deadline should not be null";
-        assert deadline.getByForFile() != null : "Deadline date string should not be null";
-
-        return String.join(FIELD_SEPARATOR, type, isDoneStr, description, deadline.getByForFile());
+    public void close() {
+        try {
+            engine.close();
+        } catch (IOException e) {
+            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
+        }
     }
 
     /**
-     * Formats an Event task for file storage.
+     * Closes the storage on a clean shutdown, after waiting for tasks still being loaded in the background
+     * and saving the changes made meanwhile. Old done tasks are moved to the archive first, if tasks are
+     * archived. If every change of the task list was saved, the engine may keep
+     * the tasks to start faster next time.
      *
-     * @param type the task type symbol
-     * @param isDoneStr the completion status string
-     * @param description the task description
-     * @param event the event task
-     * @return formatted string
+     * @param taskList the task list that was loaded from this storage
      */
-    private String formatEventForFile(String type, String isDoneStr, String description, Event event) {
-        assert event != null : "Event should not be null";
-        assert event.getStartForFile() != null : "Event start string should not be null";
-        assert event.getEndForFile() != null : "Event end string should not be null";
+    public void close(TaskList taskList) {
+        assert taskList != null : "Task list should not be null";
 
-        return String.join(FIELD_SEPARATOR, type, isDoneStr, description,
-                event.getStartForFile(), event.getEndForFile());
+        awaitLoaded(taskList, loadedCount -> { });
+        archiveColdTasks(taskList, LocalDate.now());
+        try {
+            if (taskList.hasChanges()) {
+                engine.close();
+            } else {
+                engine.close(taskList.getAllTasks());
+            }
+        } catch (IOException e) {
+            System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,98 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import pingpong.task.Task;
+import pingpong.task.TaskChange;
+
+/**
+ * A way of persisting the task list.
+ * {@link Storage} delegates to an engine, so commands work the same whichever engine is in use.
+ */
+public interface StorageEngine {
+    /**
+     * Loads all stored tasks.
+     *
+     * @return the stored tasks in list order, or an empty list if nothing is stored yet
+     * @throws IOException if the stored tasks cannot be read
+     */
+    ArrayList<Task> load() throws IOException;
+
+    /**
+     * Loads all stored tasks, handing them over in list order in one or more batches.
+     * Engines that can read their data incrementally deliver each batch as soon as it is read.
+     *
+     * @param batchConsumer receives the tasks in list order
+     * @throws IOException if the stored tasks cannot be read
+     */
+    default void load(Consumer<List<Task>> batchConsumer) throws IOException {
+        batchConsumer.accept(load());
+    }
+
+    /**
+     * Checks whether this engine works through a task list without holding all of its tasks at once:
+     * {@link #load(Consumer)} hands over small batches, and saving neither copies the list nor keeps it.
+     * Only then does a list that keeps some tasks out of memory stay within its budget.
+     *
+     * @return true if the engine streams the tasks, false by default
+     */
+    default boolean canStream() {
+        return false;
+    }
+
+    /**
+     * Replaces the stored tasks with the given list.
+     *
+     * @param tasks the complete list of tasks
+     * @throws IOException if the tasks cannot be written
+     */
+    void save(List<Task> tasks) throws IOException;
+
+    /**
+     * Persists changes made to the list since it was last saved or changes were last applied.
+     *
+     * @param tasks the complete list of tasks after the changes
+     * @param changes the changes in the order they were made
+     * @throws IOException if the changes cannot be written
+     */
+    void applyChanges(List<Task> tasks, List<TaskChange> changes) throws IOException;
+
+    /**
+     * Reports a change another program made to the stored tasks since this engine last read or wrote them.
+     * Engines that do not watch their data never report one.
+     *
+     * @return the change, or null if there is none
+     * @throws IOException if the changed data cannot be read
+     */
+    default ExternalChange pollExternalChange() throws IOException {
+        return null;
+    }
+
+    /**
+     * Makes all changes accepted so far durable.
+     *
+     * @throws IOException if pending changes cannot be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * Flushes pending changes and releases any resources held by the engine.
+     *
+     * @throws IOException if pending changes cannot be written
+     */
+    void close() throws IOException;
+
+    /**
+     * Closes the engine on a clean shutdown, when the given tasks are exactly what is stored.
+     * Engines may keep them to start faster next time; by default they are ignored.
+     *
+     * @param tasks the complete list of tasks, with every change already saved
+     * @throws IOException if pending changes cannot be written
+     */
+    default void close(List<Task> tasks) throws IOException {
+        close();
+    }
+}
@@ -0,0 +1,108 @@
+package pingpong.storage;
+
+import java.util.Locale;
+
+/**
+ * The storage engines Pingpong can run with.
+ * File-based engines let several Pingpong processes share the data file, see
+ * {@link FileStorageEngine#withSharedAccess()}.
+ * The engine can be chosen without code changes through the {@value #SYSTEM_PROPERTY} system property,
+ * for example {@code -Dpingpong.storage=mmap}.
+ */
+public enum StorageEngineType {
+    /** Keeps tasks in memory only; nothing survives a restart. */
+    MEMORY,
+    /**
+     * Rewrites the text file atomically on each change and patches done markers in place.
+     * Changes other programs make to the file are merged into the running task list, unless a memory budget
+     * is set with {@value PagedTaskList#SYSTEM_PROPERTY}: merging needs a copy of every task, so the file is
+     * then streamed through the budget without being watched, shared or imaged.
+     */
+    TEXT,
+    /**
+     * Appends changes to a journal next to the text file and writes them in the background.
+     * Changes other programs make to the file are merged into the running task list.
+     */
+    JOURNAL,
+    /** Like {@link #JOURNAL}, but with snapshots in the memory-mapped binary format. */
+    MMAP,
+    /** Like {@link #JOURNAL}, but with snapshots compressed in independent blocks. */
+    COMPRESSED,
+    /**
+     * Stores one record per task in a log-structured merge store kept in a directory at the data path.
+     * A data file already at the path is imported on first use and kept under a new name.
+     */
+    LSM;
+
+    /** The system property that selects the engine by name. */
+    public static final String SYSTEM_PROPERTY = "pingpong.storage";
+
+    private static final String UNKNOWN_ENGINE_WARNING = "Warning: Unknown storage engine '%s', using %s.";
+
+    /**
+     * Creates an engine of this type.
+     *
+     * @param filePath the data file used by file-based engines
+     * @return the new engine
+     */
+    public StorageEngine create(String filePath) {
+        assert filePath != null : "File path should not be null";
+
+        switch (this) {
+        case MEMORY:
+            return new InMemoryStorageEngine();
+        case TEXT:
+            if (PagedTaskList.isConfigured()) {
+                return new FileStorageEngine(filePath);
+            }
+            return new FileStorageEngine(filePath).withFileWatcher().withSharedAccess().withStartupImage();
+        case COMPRESSED:
+            return new FileStorageEngine(filePath)
+                    .withCompressedFormat()
+                    .withJournal()
+                    .withSharedAccess()
+                    .withStartupImage()
+                    .withWriteBehind(WriteBehindSaver.DEFAULT_COALESCE_MILLIS,
+                            WriteBehindSaver.DEFAULT_MAX_STALENESS_MILLIS);
+        case LSM:
+            return new LsmStorageEngine(filePath);
+        case MMAP:
+            return new FileStorageEngine(filePath)
+                    .withBinaryFormat()
+                    .withJournal()
+                    .withSharedAccess()
+                    .withStartupImage()
+                    .withWriteBehind(WriteBehindSaver.DEFAULT_COALESCE_MILLIS,
+                            WriteBehindSaver.DEFAULT_MAX_STALENESS_MILLIS);
+        default:
+            return new FileStorageEngine(filePath)
+                    .withJournal()
+                    .withFileWatcher()
+                    .withSharedAccess()
+                    .withStartupImage()
+                    .withWriteBehind(WriteBehindSaver.DEFAULT_COALESCE_MILLIS,
+                            WriteBehindSaver.DEFAULT_MAX_STALENESS_MILLIS);
+        }
+    }
+
+    /**
+     * Gets the engine type named by the {@value #SYSTEM_PROPERTY} system property.
+     *
+     * @param defaultType the type to use if the property is not set or names no engine
+     * @return the selected engine type
+     */
+    public static StorageEngineType fromSystemProperty(StorageEngineType defaultType) {
+        String name = System.getProperty(SYSTEM_PROPERTY);
+        if (name == null || name.trim().isEmpty()) {
+            return defaultType;
+        }
+
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.out.println(String.format(UNKNOWN_ENGINE_WARNING, name,
+                    defaultType.name().toLowerCase(Locale.ROOT)));
+            return defaultType;
+        }
+    }
+}
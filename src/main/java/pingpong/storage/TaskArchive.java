@@ -0,0 +1,312 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.TaskQuery;
+import pingpong.task.TaskSearcher;
+
+/**
+ * The cold tier of the task list: done tasks older than a configurable age, moved out of the data file so that
+ * saving, loading and searching the working set do not touch them. Archived tasks no longer have task numbers;
+ * they are only listed and found on request.
+ *
+ * <p>The archive is a {@link CompressedTaskFile} next to the data file, with the tasks ordered by date.
+ * Its own index file holds the date range of each block, so that finding tasks on a date only decompresses
+ * the blocks whose range contains it:</p>
+ * <pre>
+ * index: magic (int) | version (int) | archive size (long) | block count (int)
+ *        | (first epoch day (long) | last epoch day (long)) per block
+ * </pre>
+ * <p>The index is ignored if the archive size does not match, in which case every block is searched.</p>
+ */
+public class TaskArchive {
+    /** Suffix of the archive file, appended to the data file name. */
+    public static final String ARCHIVE_SUFFIX = ".archive";
+    /** Suffix of the index file, appended to the archive file name. */
+    public static final String INDEX_SUFFIX = ".idx";
+    /** The system property that sets the age in days after which done tasks are archived. */
+    public static final String SYSTEM_PROPERTY = "pingpong.archiveAfterDays";
+
+    static final int INDEX_MAGIC = 0x50504149;
+    static final int INDEX_VERSION = 1;
+    static final int INDEX_HEADER_SIZE = 20;
+
+    private static final int INDEX_ENTRY_SIZE = 2 * Long.BYTES;
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String INVALID_AGE_WARNING = "Warning: Invalid archive age '%s', not archiving tasks.";
+
+    private final Path archivePath;
+    private final Path indexPath;
+    private final int ageDays;
+    private final int blockRecords;
+
+    /**
+     * Creates the archive of a data file with the default block size.
+     *
+     * @param dataPath the data file of the working set
+     * @param ageDays the number of days after its date that a done task is archived
+     */
+    public TaskArchive(Path dataPath, int ageDays) {
+        this(dataPath, ageDays, CompressedTaskFile.DEFAULT_BLOCK_RECORDS);
+    }
+
+    /**
+     * Creates the archive of a data file.
+     *
+     * @param dataPath the data file of the working set
+     * @param ageDays the number of days after its date that a done task is archived
+     * @param blockRecords the number of tasks compressed together in one block
+     */
+    public TaskArchive(Path dataPath, int ageDays, int blockRecords) {
+        assert dataPath != null : "Data path should not be null";
+        assert ageDays >= 0 : "Archive age should not be negative";
+        assert blockRecords > 0 : "Blocks should hold at least one task";
+
+        this.archivePath = Paths.get(dataPath + ARCHIVE_SUFFIX);
+        this.indexPath = Paths.get(archivePath + INDEX_SUFFIX);
+        this.ageDays = ageDays;
+        this.blockRecords = blockRecords;
+    }
+
+    /**
+     * Creates the archive configured by the {@value #SYSTEM_PROPERTY} system property.
+     *
+     * @param dataPath the data file of the working set
+     * @return the archive, or null if archiving is not enabled
+     */
+    public static TaskArchive fromSystemProperty(String dataPath) {
+        String age = System.getProperty(SYSTEM_PROPERTY);
+        if (age == null || age.trim().isEmpty()) {
+            return null;
+        }
+
+        try {
+            int ageDays = Integer.parseInt(age.trim());
+            if (ageDays >= 0) {
+                return new TaskArchive(Paths.get(dataPath), ageDays);
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.out.println(String.format(INVALID_AGE_WARNING, age));
+        return null;
+    }
+
+    /**
+     * Gets the archive file.
+     *
+     * @return the path of the archive
+     */
+    public Path getPath() {
+        return archivePath;
+    }
+
+    /**
+     * Checks whether a task belongs in the archive: it is done, and its date, or the end of an event, lies at
+     * least the archive age in the past. Todos have no date and when they were done is not recorded, so their
+     * age is unknown and they are never archived.
+     *
+     * @param task the task to check
+     * @param today the current date
+     * @return true if the task should be archived
+     */
+    public boolean isCold(Task task, LocalDate today) {
+        assert task != null : "Task should not be null";
+        assert today != null : "Today should not be null";
+
+        if (!task.isDone()) {
+            return false;
+        }
+        LocalDate lastDate = getLastDate(task);
+        return lastDate != null && !lastDate.plusDays(ageDays).isAfter(today);
+    }
+
+    /**
+     * Gets the number of archived tasks.
+     *
+     * @return the archived task count, 0 if there is no archive yet
+     * @throws IOException if the archive cannot be read
+     */
+    public int size() throws IOException {
+        if (!Files.exists(archivePath)) {
+            return 0;
+        }
+        try (CompressedTaskFile file = CompressedTaskFile.open(archivePath)) {
+            return file.getRecordCount();
+        }
+    }
+
+    /**
+     * Adds tasks to the archive. The archive and its index are rewritten and then replace the previous ones,
+     * so a failed write leaves the previous archive intact.
+     *
+     * @param tasks the tasks to archive
+     * @throws IOException if the archive cannot be written
+     */
+    public void add(List<Task> tasks) throws IOException {
+        assert tasks != null : "Tasks should not be null";
+
+        if (tasks.isEmpty()) {
+            return;
+        }
+        List<Task> archived = new ArrayList<>(tasks.size());
+        load(archived::addAll);
+        archived.addAll(tasks);
+        archived.sort(Comparator.comparing(TaskArchive::getFirstDate,
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        Path tempPath = Paths.get(archivePath + TEMP_SUFFIX);
+        Path tempIndexPath = Paths.get(indexPath + TEMP_SUFFIX);
+        try {
+            CompressedTaskFile.write(tempPath, TaskSnapshot.of(archived, 0), blockRecords, true);
+            writeIndex(tempIndexPath, archived, Files.size(tempPath));
+            Files.move(tempPath, archivePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempIndexPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+            Files.deleteIfExists(tempIndexPath);
+        }
+    }
+
+    private void writeIndex(Path path, List<Task> archived, long archiveSize) throws IOException {
+        int blockCount = (archived.size() + blockRecords - 1) / blockRecords;
+        ByteBuffer index = ByteBuffer.allocate(INDEX_HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE);
+        index.putInt(INDEX_MAGIC).putInt(INDEX_VERSION).putLong(archiveSize).putInt(blockCount);
+        for (int block = 0; block < blockCount; block++) {
+            long firstDay = Long.MAX_VALUE;
+            long lastDay = Long.MIN_VALUE;
+            for (int i = block * blockRecords; i < Math.min(archived.size(), (block + 1) * blockRecords); i++) {
+                Task task = archived.get(i);
+                if (getFirstDate(task) != null) {
+                    firstDay = Math.min(firstDay, getFirstDate(task).toEpochDay());
+                    lastDay = Math.max(lastDay, getLastDate(task).toEpochDay());
+                }
+            }
+            index.putLong(firstDay).putLong(lastDay);
+        }
+        index.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Reads the archived tasks block by block, so that only one block is decompressed at a time.
+     *
+     * @param batchConsumer receives the tasks of each block, ordered by date
+     * @throws IOException if the archive cannot be read
+     */
+    public void load(Consumer<List<Task>> batchConsumer) throws IOException {
+        assert batchConsumer != null : "Batch consumer should not be null";
+
+        if (!Files.exists(archivePath)) {
+            return;
+        }
+        try (CompressedTaskFile file = CompressedTaskFile.open(archivePath)) {
+            for (int i = 0; i < file.getBlockCount(); i++) {
+                batchConsumer.accept(file.readBlock(i));
+            }
+        }
+    }
+
+    /**
+     * Finds the archived tasks matching a query of keywords combined with AND, OR and NOT.
+     *
+     * @param query the query to match
+     * @return the matching tasks, ordered by date
+     * @throws IOException if the archive cannot be read
+     */
+    public ArrayList<Task> find(TaskQuery query) throws IOException {
+        assert query != null : "Query should not be null";
+
+        ArrayList<Task> found = new ArrayList<>();
+        load(block -> found.addAll(TaskSearcher.findTasks(block, query)));
+        return found;
+    }
+
+    /**
+     * Finds the archived tasks that occur on a date, decompressing only the blocks whose date range
+     * in the index contains it.
+     *
+     * @param date the date to search for
+     * @return the matching tasks, ordered by date
+     * @throws IOException if the archive cannot be read
+     */
+    public ArrayList<Task> findOnDate(LocalDate date) throws IOException {
+        assert date != null : "Date should not be null";
+
+        ArrayList<Task> found = new ArrayList<>();
+        if (!Files.exists(archivePath)) {
+            return found;
+        }
+        try (CompressedTaskFile file = CompressedTaskFile.open(archivePath)) {
+            ByteBuffer index = readIndex(file.getBlockCount());
+            long day = date.toEpochDay();
+            for (int i = 0; i < file.getBlockCount(); i++) {
+                if (index != null) {
+                    long firstDay = index.getLong();
+                    long lastDay = index.getLong();
+                    if (day < firstDay || day > lastDay) {
+                        continue;
+                    }
+                }
+                found.addAll(TaskSearcher.findTasksOnDate(file.readBlock(i), date));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reads the block date ranges, positioned at the first entry.
+     *
+     * @return the index, or null if it is missing or does not belong to the current archive
+     */
+    private ByteBuffer readIndex(int blockCount) throws IOException {
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+        if (index.remaining() != INDEX_HEADER_SIZE + blockCount * INDEX_ENTRY_SIZE
+                || index.getInt() != INDEX_MAGIC || index.getInt() != INDEX_VERSION
+                || index.getLong() != Files.size(archivePath) || index.getInt() != blockCount) {
+            return null;
+        }
+        return index;
+    }
+
+    private static LocalDate getFirstDate(Task task) {
+        if (task instanceof Deadline) {
+            return ((Deadline) task).getBy();
+        } else if (task instanceof Event) {
+            return ((Event) task).getStart().toLocalDate();
+        }
+        return null;
+    }
+
+    private static LocalDate getLastDate(Task task) {
+        if (task instanceof Event) {
+            return ((Event) task).getEnd().toLocalDate();
+        }
+        return getFirstDate(task);
+    }
+}
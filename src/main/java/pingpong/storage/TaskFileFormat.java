@@ -0,0 +1,269 @@
+package pingpong.storage;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Pattern;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+/**
+ * Converts tasks to and from the pipe-delimited line format used by the data file.
+ * Shared by the snapshot file and the journal so both use exactly the same record layout.
+ */
+public class TaskFileFormat {
+    // File format constants
+    static final String FIELD_SEPARATOR = " | ";
+    private static final String TODO_TYPE = "T";
+    private static final String DEADLINE_TYPE = "D";
+    private static final String EVENT_TYPE = "E";
+    private static final String DONE_MARKER = "1";
+    private static final String NOT_DONE_MARKER = "0";
+
+    /** Byte offset of the done marker within a line: one type character followed by the separator. */
+    static final int DONE_MARKER_OFFSET = 1 + FIELD_SEPARATOR.length();
+    static final byte DONE_MARKER_BYTE = '1';
+    static final byte NOT_DONE_MARKER_BYTE = '0';
+
+    // Error message constants
+    private static final String CORRUPTED_DATA_WARNING = "Warning: Skipping corrupted task data: ";
+    private static final String INVALID_DATE_WARNING = "Warning: Invalid date format in file for deadline: ";
+    private static final String INVALID_DATETIME_WARNING = "Warning: Invalid datetime format in file for event: ";
+
+    // Compiled once, as String.split compiles multi-character separators on every call
+    private static final Pattern FIELD_SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(FIELD_SEPARATOR));
+
+    // Minimum number of parts required for different task types
+    private static final int MIN_TASK_PARTS = 3;
+    private static final int MIN_DEADLINE_PARTS = 4;
+    private static final int MIN_EVENT_PARTS = 5;
+
+    /**
+     * Parses a single line from the storage file into a Task object.
+     * Handles different task types and validates date/time formats.
+     *
+     * @param line the line from the file to parse
+     * @return the parsed Task object, or null if parsing fails
+     */
+    public static Task parseTask(String line) {
+        assert line != null : "Line should not be null";
+        assert !line.trim().isEmpty() : "Line should not be empty";
+
+        try {
+            String[] parts = FIELD_SEPARATOR_PATTERN.split(line);
+
+            if (!isValidTaskFormat(parts)) {
+                return null;
+            }
+
+            assert parts.length >= MIN_TASK_PARTS : "Should have at least 3 parts for valid task";
+
+            String type = parts[0].trim();
+            boolean isDone = parts[1].trim().equals(DONE_MARKER);
+            String description = parts[2].trim();
+
+            assert type != null : "Task type should not be null";
+            assert description != null : "Task description should not be null";
+            assert !description.isEmpty() : "Task description should not be empty";
+
+            Task task = createTaskByType(type, description, parts);
+
+            if (task != null && isDone) {
+                task.markAsDone();
+                assert task.isDone() : "Task should be marked as done if loaded as done";
+            }
+
+            return task;
+        } catch (Exception e) {
+            System.out.println(CORRUPTED_DATA_WARNING + line);
+            return null;
+        }
+    }
+
+    /**
+     * Validates that the parsed parts array has minimum required elements.
+     *
+     * @param parts the split line parts
+     * @return true if format is valid, false otherwise
+     */
+    private static boolean isValidTaskFormat(String[] parts) {
+        return parts.length >= MIN_TASK_PARTS;
+    }
+
+    /**
+     * Creates a task object based on the type indicator.
+     *
+     * @param type the task type indicator
+     * @param description the task description
+     * @param parts the complete parsed line parts
+     * @return the created Task object, or null if creation fails
+     */
+    private static Task createTaskByType(String type, String description, String[] parts) {
+        assert type != null : "Task type should not be null";
+        assert description != null : "Task description should not be null";
+        assert parts != null : "Parts array should not be null";
+
+        switch (type) {
+        case TODO_TYPE:
+            return new Todo(description);
+        case DEADLINE_TYPE:
+            return createDeadlineTask(description, parts);
+        case EVENT_TYPE:
+            return createEventTask(description, parts);
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * Creates a Deadline task from file data.
+     *
+     * @param description the task description
+     * @param parts the complete parsed line parts
+     * @return Deadline task or null if creation fails
+     */
+    private static Task createDeadlineTask(String description, String[] parts) {
+        if (parts.length < MIN_DEADLINE_PARTS) {
+            return null;
+        }
+
+        try {
+            LocalDate by = LocalDate.parse(parts[3].trim(), DateTimeFormatter.ISO_LOCAL_DATE);
+            assert by != null : "Parsed deadline date should not be null";
+            return new Deadline(description, by);
+        } catch (DateTimeParseException e) {
+            System.out.println(INVALID_DATE_WARNING + String.join(FIELD_SEPARATOR, parts));
+            return null;
+        }
+    }
+
+    /**
+     * Creates an Event task from file data.
+     *
+     * @param description the task description
+     * @param parts the complete parsed line parts
+     * @return Event task or null if creation fails
+     */
+    private static Task createEventTask(String description, String[] parts) {
+        if (parts.length < MIN_EVENT_PARTS) {
+            return null;
+        }
+
+        try {
+            LocalDateTime start = LocalDateTime.parse(parts[3].trim(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            LocalDateTime end = LocalDateTime.parse(parts[4].trim(), DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            assert start != null : "Parsed start time should not be null";
+            assert end != null : "Parsed end time should not be null";
+            assert !start.isAfter(end) : "Start time should not be after end time";
+            return new Event(description, start, end);
+        } catch (DateTimeParseException e) {
+            System.out.println(INVALID_DATETIME_WARNING + String.join(FIELD_SEPARATOR, parts));
+            return null;
+        }
+    }
+
+    /**
+     * Formats a Task object into a string suitable for file storage.
+     *
+     * @param task the task to format
+     * @return the formatted string for file storage
+     */
+    public static String formatTask(Task task) {
+        assert task != null : "Task should not be null";
+        return formatTask(task, task.isDone());
+    }
+
+    /**
+     * Formats a Task object into a string suitable for file storage, using the given completion status
+     * instead of the task's current one. Used when writing a point-in-time snapshot of a list that may
+     * have changed since the snapshot was taken.
+     *
+     * @param task the task to format
+     * @param isDone the completion status to record
+     * @return the formatted string for file storage
+     */
+    public static String formatTask(Task task, boolean isDone) {
+        assert task != null : "Task should not be null";
+        assert task.getType() != null : "Task type should not be null";
+        assert task.getDescription() != null : "Task description should not be null";
+
+        String isDoneStr = isDone ? DONE_MARKER : NOT_DONE_MARKER;
+        String type = task.getType().getSymbol();
+        String description = task.getDescription();
+
+        assert type != null : "Task type symbol should not be null";
+        assert !type.isEmpty() : "Task type symbol should not be empty";
+        assert description != null : "Task description should not be null";
+
+        String formattedString;
+        switch (task.getType()) {
+        case TODO:
+            formattedString = formatTodoForFile(type, isDoneStr, description);
+            break;
+        case DEADLINE:
+            formattedString = formatDeadlineForFile(type, isDoneStr, description, (Deadline) task);
+            break;
+        case Event:
+            formattedString = formatEventForFile(type, isDoneStr, description, (Event) task);
+            break;
+        default:
+            formattedString = formatTodoForFile(type, isDoneStr, description);
+            break;
+        }
+
+        assert formattedString != null : "Formatted string should not be null";
+        assert !formattedString.trim().isEmpty() : "Formatted string should not be empty";
+        return formattedString;
+    }
+
+    /**
+     * Formats a Todo task for file storage.
+     *
+     * @param type the task type symbol
+     * @param isDoneStr the completion status string
+     * @param description the task description
+     * @return formatted string
+     */
+    private static String formatTodoForFile(String type, String isDoneStr, String description) {
+        return String.join(FIELD_SEPARATOR, type, isDoneStr, description);
+    }
+
+    /**
+     * Formats a Deadline task for file storage.
+     *
+     * @param type the task type symbol
+     * @param isDoneStr the completion status string
+     * @param description the task description
+     * @param deadline the deadline task
+     * @return formatted string
+     */
+    private static String formatDeadlineForFile(String type, String isDoneStr, String description,
+                                                Deadline deadline) {
+        assert deadline != null : "Deadline should not be null";
+        assert deadline.getByForFile() != null : "Deadline date string should not be null";
+
+        return String.join(FIELD_SEPARATOR, type, isDoneStr, description, deadline.getByForFile());
+    }
+
+    /**
+     * Formats an Event task for file storage.
+     *
+     * @param type the task type symbol
+     * @param isDoneStr the completion status string
+     * @param description the task description
+     * @param event the event task
+     * @return formatted string
+     */
+    private static String formatEventForFile(String type, String isDoneStr, String description, Event event) {
+        assert event != null : "Event should not be null";
+        assert event.getStartForFile() != null : "Event start string should not be null";
+        assert event.getEndForFile() != null : "Event end string should not be null";
+
+        return String.join(FIELD_SEPARATOR, type, isDoneStr, description,
+                event.getStartForFile(), event.getEndForFile());
+    }
+}
@@ -0,0 +1,294 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Checks the text data file against its record checksums in one sequential pass, without parsing any task,
+ * and moves corrupted records to a quarantine file next to it.
+ *
+ * <p>Corrupted records are reported as byte ranges, with neighbouring bad lines merged into one range,
+ * so a damaged region of a large file yields one entry instead of a warning per line.</p>
+ */
+public class TaskFileVerifier {
+    /** Suffix of the file corrupted records are moved to, appended to the data file name. */
+    public static final String QUARANTINE_SUFFIX = ".quarantine";
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final String QUARANTINE_HEADER = "#quarantined %s from %s at offset %d";
+
+    private TaskFileVerifier() {
+        // Utility class
+    }
+
+    /**
+     * Verifies every line of a text data file.
+     *
+     * @param path the data file
+     * @return the verification report
+     * @throws IOException if the file cannot be read
+     */
+    public static Report verify(Path path) throws IOException {
+        assert path != null : "Path should not be null";
+
+        Report report = new Report();
+        CRC32C crc = new CRC32C();
+        byte[] bytes = new byte[BUFFER_SIZE];
+        long bufferOffset = 0;
+        int filled = 0;
+        int scanFrom = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                int read = channel.read(ByteBuffer.wrap(bytes, filled, bytes.length - filled));
+                boolean isEndOfFile = read < 0;
+                filled += Math.max(read, 0);
+
+                int lineStart = 0;
+                for (int i = scanFrom; i < filled; i++) {
+                    if (bytes[i] == '\n') {
+                        report.checkLine(crc, bytes, lineStart, i, i + 1, bufferOffset);
+                        lineStart = i + 1;
+                    }
+                }
+                if (isEndOfFile) {
+                    if (lineStart < filled) {
+                        report.checkLine(crc, bytes, lineStart, filled, filled, bufferOffset);
+                    }
+                    return report;
+                }
+
+                // Carry the incomplete last line over, growing the buffer if it fills the whole buffer
+                if (lineStart == 0 && filled == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                } else {
+                    System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+                }
+                bufferOffset += lineStart;
+                filled -= lineStart;
+                scanFrom = filled;
+            }
+        }
+    }
+
+    /**
+     * Appends the given byte ranges of the data file to a quarantine file, each preceded by a comment line
+     * naming where it came from.
+     *
+     * @param dataFile the data file the ranges refer to
+     * @param badRanges the ranges to copy
+     * @param quarantineFile the file to append to
+     * @return the number of records copied
+     * @throws IOException if either file cannot be accessed
+     */
+    public static long quarantine(Path dataFile, List<BadRange> badRanges, Path quarantineFile) throws IOException {
+        assert dataFile != null : "Data file should not be null";
+        assert badRanges != null : "Bad ranges should not be null";
+        assert quarantineFile != null : "Quarantine file should not be null";
+
+        long recordCount = 0;
+        try (FileChannel source = FileChannel.open(dataFile, StandardOpenOption.READ);
+                FileChannel target = FileChannel.open(quarantineFile, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (BadRange range : badRanges) {
+                String header = String.format(QUARANTINE_HEADER, LocalDateTime.now(), dataFile.getFileName(),
+                        range.getOffset()) + System.lineSeparator();
+                ByteBuffer headerBytes = ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8));
+                while (headerBytes.hasRemaining()) {
+                    target.write(headerBytes);
+                }
+
+                long copied = 0;
+                while (copied < range.getLength()) {
+                    long transferred = source.transferTo(range.getOffset() + copied, range.getLength() - copied,
+                            target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    copied += transferred;
+                }
+                recordCount += range.getRecordCount();
+            }
+        }
+        return recordCount;
+    }
+
+    /**
+     * Gets the quarantine file that belongs to a data file.
+     *
+     * @param dataFile the data file
+     * @return the quarantine file next to it
+     */
+    public static Path quarantinePathFor(Path dataFile) {
+        return Paths.get(dataFile.toString() + QUARANTINE_SUFFIX);
+    }
+
+    /**
+     * Adds a bad line to a list of ranges, extending the last range if the line directly follows it.
+     *
+     * @param badRanges the ranges found so far, in file order
+     * @param offset the file offset of the line
+     * @param length the length of the line including its line break
+     */
+    static void addBadLine(List<BadRange> badRanges, long offset, long length) {
+        addBadRange(badRanges, new BadRange(offset, length, 1));
+    }
+
+    /**
+     * Adds a range to a list of ranges, merging it with the last range if they are adjacent.
+     *
+     * @param badRanges the ranges found so far, in file order
+     * @param range the range to add, which starts after all earlier ranges
+     */
+    static void addBadRange(List<BadRange> badRanges, BadRange range) {
+        if (!badRanges.isEmpty()) {
+            BadRange last = badRanges.get(badRanges.size() - 1);
+            if (last.getOffset() + last.getLength() == range.getOffset()) {
+                badRanges.set(badRanges.size() - 1, new BadRange(last.getOffset(),
+                        last.getLength() + range.getLength(), last.getRecordCount() + range.getRecordCount()));
+                return;
+            }
+        }
+        badRanges.add(range);
+    }
+
+    /**
+     * Gets the end of a line without its trailing carriage return, if any.
+     */
+    static int trimCarriageReturn(byte[] bytes, int start, int end) {
+        return end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * A run of consecutive corrupted records.
+     */
+    public static class BadRange {
+        private final long offset;
+        private final long length;
+        private final long recordCount;
+
+        BadRange(long offset, long length, long recordCount) {
+            this.offset = offset;
+            this.length = length;
+            this.recordCount = recordCount;
+        }
+
+        /**
+         * Gets the file offset of the first corrupted record.
+         *
+         * @return the offset in bytes
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets the length of the range, including the line break of its last record.
+         *
+         * @return the length in bytes
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the number of corrupted records in the range.
+         *
+         * @return the record count
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d, %d): %d records", offset, offset + length, recordCount);
+        }
+    }
+
+    /**
+     * The outcome of verifying a data file.
+     */
+    public static class Report {
+        private final List<BadRange> badRanges = new ArrayList<>();
+        private long recordCount;
+        private long uncheckedCount;
+        private long badRecordCount;
+
+        private void checkLine(CRC32C crc, byte[] bytes, int start, int lineEnd, int nextLineStart,
+                long bufferOffset) {
+            int end = trimCarriageReturn(bytes, start, lineEnd);
+            if (end == start || bytes[start] == '#') {
+                return;
+            }
+
+            recordCount++;
+            switch (RecordChecksum.verify(crc, bytes, start, end)) {
+            case RecordChecksum.CORRUPTED:
+                badRecordCount++;
+                addBadLine(badRanges, bufferOffset + start, nextLineStart - start);
+                break;
+            case RecordChecksum.UNCHECKED:
+                uncheckedCount++;
+                break;
+            default:
+                break;
+            }
+        }
+
+        /**
+         * Gets the number of non-empty lines that are not comments.
+         *
+         * @return the record count
+         */
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        /**
+         * Gets the number of records written without a checksum, which could not be verified.
+         *
+         * @return the unchecked record count
+         */
+        public long getUncheckedCount() {
+            return uncheckedCount;
+        }
+
+        /**
+         * Gets the number of records whose checksum does not match.
+         *
+         * @return the corrupted record count
+         */
+        public long getBadRecordCount() {
+            return badRecordCount;
+        }
+
+        /**
+         * Gets the byte ranges of the corrupted records.
+         *
+         * @return the ranges in file order
+         */
+        public List<BadRange> getBadRanges() {
+            return Collections.unmodifiableList(badRanges);
+        }
+
+        /**
+         * Checks whether no corrupted record was found.
+         *
+         * @return true if every checksum matched
+         */
+        public boolean isClean() {
+            return badRecordCount == 0;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package pingpong.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import pingpong.PingpongException;
+import pingpong.task.Task;
+
+/**
+ * Imports tasks from an external file in one of the {@link ImportFormat}s, without holding the whole file
+ * in memory. A reader thread reads the file in batches of lines and hands each batch to the common fork/join
+ * pool to be parsed and validated; the calling thread appends the parsed batches in file order. At most a
+ * fixed number of batches are in flight, so the reader waits when parsing or appending falls behind.
+ *
+ * <p>Lines that are not valid tasks are skipped and listed, with their line numbers and the reasons, in a
+ * reject report next to the imported file. Blank lines and lines starting with {@code #} are ignored.</p>
+ */
+public class TaskImporter {
+    /** The number of lines parsed together. */
+    public static final int DEFAULT_BATCH_LINES = 4096;
+    /** Suffix of the reject report, appended to the imported file name. */
+    public static final String REJECTS_SUFFIX = ".rejects";
+
+    private static final String COMMENT_PREFIX = "#";
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final String REJECT_LINE = "line %d: %s: %s";
+    private static final String SEPARATOR_IN_DESCRIPTION_ERROR =
+            "The description contains '" + TaskFileFormat.FIELD_SEPARATOR.trim() + "' between spaces, "
+            + "which separates the fields of the data file.";
+    private static final String INTERRUPTED_ERROR = "The import was interrupted.";
+
+    /** Queued after the last batch; compared by identity. */
+    private static final ParsedBatch END_OF_FILE = new ParsedBatch(new ArrayList<>(), new ArrayList<>());
+
+    private final int batchLines;
+    private final int maxBatchesInFlight;
+
+    /**
+     * Creates an importer with the default batch size, keeping two batches in flight per parsing thread.
+     */
+    public TaskImporter() {
+        this(DEFAULT_BATCH_LINES, 2 * ForkJoinPool.commonPool().getParallelism());
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param batchLines the number of lines parsed together
+     * @param maxBatchesInFlight the number of batches read but not yet appended that the reader may get ahead by
+     */
+    public TaskImporter(int batchLines, int maxBatchesInFlight) {
+        assert batchLines > 0 : "Batches should hold at least one line";
+        assert maxBatchesInFlight > 0 : "At least one batch should be in flight";
+
+        this.batchLines = batchLines;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+    }
+
+    /**
+     * Gets the reject report of an imported file.
+     *
+     * @param path the imported file
+     * @return the path of its reject report
+     */
+    public static Path rejectReportPathFor(Path path) {
+        return Paths.get(path + REJECTS_SUFFIX);
+    }
+
+    /**
+     * Imports the tasks of a file. The format is detected from the file name and its first line.
+     * If the file cannot be read to the end, the batches appended before the error stay appended.
+     *
+     * @param path the file to import
+     * @param batchConsumer receives the valid tasks of each batch, in file order
+     * @return the number of imported and rejected lines
+     * @throws IOException if the file cannot be read or the reject report cannot be written
+     */
+    public Result importFile(Path path, Consumer<List<Task>> batchConsumer) throws IOException {
+        assert path != null : "Path should not be null";
+        assert batchConsumer != null : "Batch consumer should not be null";
+
+        Path reportPath = rejectReportPathFor(path);
+        Files.deleteIfExists(reportPath);
+
+        BlockingQueue<Future<ParsedBatch>> inFlight = new ArrayBlockingQueue<>(maxBatchesInFlight);
+        BatchReader reader = new BatchReader(path, inFlight);
+        Thread thread = new Thread(reader, "pingpong-import-reader");
+        thread.setDaemon(true);
+        thread.start();
+
+        int importedCount = 0;
+        int rejectedCount = 0;
+        BufferedWriter report = null;
+        try {
+            while (true) {
+                ParsedBatch batch = inFlight.take().get();
+                if (batch == END_OF_FILE) {
+                    break;
+                }
+                if (!batch.tasks.isEmpty()) {
+                    batchConsumer.accept(batch.tasks);
+                    importedCount += batch.tasks.size();
+                }
+                for (String reject : batch.rejects) {
+                    if (report == null) {
+                        report = Files.newBufferedWriter(reportPath, StandardCharsets.UTF_8);
+                    }
+                    report.write(reject);
+                    report.newLine();
+                    rejectedCount++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(INTERRUPTED_ERROR, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // Stop the reader if the import ended early, unblocking it if it waits for room in the queue
+            thread.interrupt();
+            inFlight.clear();
+            if (report != null) {
+                report.close();
+            }
+        }
+
+        if (reader.error != null) {
+            throw reader.error;
+        }
+        return new Result(importedCount, rejectedCount, rejectedCount > 0 ? reportPath : null);
+    }
+
+    /**
+     * Checks the parts of a task that parsing does not, such as whether the data file can store it.
+     *
+     * @param task the parsed task
+     * @throws PingpongException if the task cannot be imported, with the reason as its message
+     */
+    private static void validate(Task task) throws PingpongException {
+        if (task.getDescription().contains(TaskFileFormat.FIELD_SEPARATOR)) {
+            throw new PingpongException(SEPARATOR_IN_DESCRIPTION_ERROR);
+        }
+    }
+
+    private static ParsedBatch parse(ImportFormat format, List<String> lines, List<Integer> lineNumbers) {
+        List<Task> tasks = new ArrayList<>(lines.size());
+        List<String> rejects = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            try {
+                Task task = format.parse(lines.get(i));
+                validate(task);
+                tasks.add(task);
+            } catch (PingpongException e) {
+                rejects.add(String.format(REJECT_LINE, lineNumbers.get(i), e.getMessage(), lines.get(i)));
+            }
+        }
+        return new ParsedBatch(tasks, rejects);
+    }
+
+    /**
+     * Reads the file on its own thread and submits each batch of lines for parsing.
+     */
+    private class BatchReader implements Runnable {
+        private final Path path;
+        private final BlockingQueue<Future<ParsedBatch>> inFlight;
+        private volatile IOException error;
+
+        BatchReader(Path path, BlockingQueue<Future<ParsedBatch>> inFlight) {
+            this.path = path;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void run() {
+            try {
+                read();
+            } catch (IOException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                return;
+            }
+            // Room is left for the end marker whenever the reader is not interrupted
+            try {
+                inFlight.put(CompletableFuture.completedFuture(END_OF_FILE));
+            } catch (InterruptedException e) {
+                // The import already ended
+            }
+        }
+
+        private void read() throws IOException, InterruptedException {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            // Unlike Files.newBufferedReader, replaces malformed input instead of failing on it
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+                ImportFormat format = null;
+                List<String> lines = new ArrayList<>(batchLines);
+                List<Integer> lineNumbers = new ArrayList<>(batchLines);
+                int lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                        line = line.substring(1);
+                    }
+                    if (line.trim().isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+                        continue;
+                    }
+                    if (format == null) {
+                        format = ImportFormat.detect(path, line);
+                        if (format.isHeader(line)) {
+                            continue;
+                        }
+                    }
+
+                    lines.add(line);
+                    lineNumbers.add(lineNumber);
+                    if (lines.size() == batchLines) {
+                        submit(pool, format, lines, lineNumbers);
+                        lines = new ArrayList<>(batchLines);
+                        lineNumbers = new ArrayList<>(batchLines);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    submit(pool, format, lines, lineNumbers);
+                }
+            }
+        }
+
+        private void submit(ForkJoinPool pool, ImportFormat format, List<String> lines, List<Integer> lineNumbers)
+                throws InterruptedException {
+            inFlight.put(pool.submit(() -> parse(format, lines, lineNumbers)));
+        }
+    }
+
+    /**
+     * The outcome of parsing one batch of lines.
+     */
+    private static class ParsedBatch {
+        private final List<Task> tasks;
+        private final List<String> rejects;
+
+        ParsedBatch(List<Task> tasks, List<String> rejects) {
+            this.tasks = tasks;
+            this.rejects = rejects;
+        }
+    }
+
+    /**
+     * The outcome of an import.
+     */
+    public static class Result {
+        private final int importedCount;
+        private final int rejectedCount;
+        private final Path rejectReport;
+
+        Result(int importedCount, int rejectedCount, Path rejectReport) {
+            this.importedCount = importedCount;
+            this.rejectedCount = rejectedCount;
+            this.rejectReport = rejectReport;
+        }
+
+        /**
+         * Gets the number of imported tasks.
+         *
+         * @return the imported task count
+         */
+        public int getImportedCount() {
+            return importedCount;
+        }
+
+        /**
+         * Gets the number of lines that were not valid tasks.
+         *
+         * @return the rejected line count
+         */
+        public int getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * Gets the report listing the rejected lines.
+         *
+         * @return the path of the reject report, or null if no line was rejected
+         */
+        public Path getRejectReport() {
+            return rejectReport;
+        }
+    }
+}
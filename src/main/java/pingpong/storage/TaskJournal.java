@@ -0,0 +1,519 @@
+package pingpong.storage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import pingpong.task.Task;
+
+/**
+ * Append-only write-ahead journal of task list mutations.
+ * Each mutation is written as one line so that the cost of persisting a command depends
+ * on the size of the change rather than the size of the task list.
+ *
+ * <p>Every record carries a sequence number. The snapshot file remembers the last sequence
+ * number it contains, so replaying never applies a record twice even if the journal could
+ * not be truncated after a snapshot was written.</p>
+ *
+ * <p>Records are only dropped from the queue once they were written, so a commit that fails is retried
+ * in full by the next one. What the failed commit did write is cut off again; if even that fails, the
+ * retried records start on a new line and replaying skips the sequence numbers it has already applied.</p>
+ *
+ * <p>When asked to, the journal also keeps a copy of the tasks its file and the data file hold together, so
+ * that a version another process wrote can be merged against what this process last wrote.</p>
+ *
+ * <p>Records are queued and committed on the command thread, while covered records may be
+ * discarded from a background compaction thread, so file access is synchronized.</p>
+ */
+public class TaskJournal {
+    private static final String SEPARATOR = TaskFileFormat.FIELD_SEPARATOR;
+    private static final String ADD_OP = "A";
+    private static final String MARK_OP = "M";
+    private static final String DELETE_OP = "X";
+    private static final String UPDATE_OP = "U";
+    private static final String DONE_MARKER = "1";
+    private static final String NOT_DONE_MARKER = "0";
+
+    private static final String CORRUPTED_RECORD_WARNING = "Warning: Skipping corrupted journal record: ";
+    private static final String INVALID_INDEX_WARNING = "Warning: Skipping journal record for missing task: ";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path journalPath;
+    private final ArrayList<String> pendingRecords;
+    private FileOutputStream stream;
+    private Writer writer;
+    /** Whether a failed commit may have left a partial line at the end of the file. */
+    private boolean isTailTorn;
+    private long lastSequence;
+    private long recordCount;
+    private long sizeInBytes;
+    /** A copy of the tasks the data file and the committed records hold together, or null if not kept. */
+    private ArrayList<Task> committedTasks;
+    /** The last sequence number reflected in the committed tasks. */
+    private long committedSequence;
+
+    /**
+     * Creates a journal backed by the given file.
+     * The file is only created once the first record is committed.
+     *
+     * @param journalPath the path of the journal file
+     */
+    public TaskJournal(String journalPath) {
+        assert journalPath != null : "Journal path should not be null";
+
+        this.journalPath = Paths.get(journalPath);
+        this.pendingRecords = new ArrayList<>();
+        this.lastSequence = 0;
+    }
+
+    /**
+     * Gets the sequence number of the most recent record written or replayed.
+     *
+     * @return the last sequence number
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Gets the number of records currently held in the journal file.
+     *
+     * @return the number of records
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the approximate size of the journal file.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    /**
+     * Checks whether records were queued that have not been committed yet.
+     *
+     * @return true if the next commit writes records
+     */
+    public synchronized boolean hasPendingRecords() {
+        return !pendingRecords.isEmpty();
+    }
+
+    /**
+     * Queues a record for a task appended to the end of the list.
+     *
+     * @param task the task that was added
+     */
+    public void add(Task task) {
+        assert task != null : "Added task should not be null";
+        queue(ADD_OP, TaskFileFormat.formatTask(task));
+    }
+
+    /**
+     * Queues a record for a change in a task's completion status.
+     *
+     * @param index the 0-based index of the task
+     * @param isDone the new completion status
+     */
+    public void mark(int index, boolean isDone) {
+        assert index >= 0 : "Index should not be negative";
+        queue(MARK_OP, index + SEPARATOR + (isDone ? DONE_MARKER : NOT_DONE_MARKER));
+    }
+
+    /**
+     * Queues a record for a task removed from the list.
+     *
+     * @param index the 0-based index of the task at the time of deletion
+     */
+    public void delete(int index) {
+        assert index >= 0 : "Index should not be negative";
+        queue(DELETE_OP, String.valueOf(index));
+    }
+
+    /**
+     * Queues a record for a task replaced by its updated version.
+     *
+     * @param index the 0-based index of the task
+     * @param task the updated task
+     */
+    public void update(int index, Task task) {
+        assert index >= 0 : "Index should not be negative";
+        assert task != null : "Updated task should not be null";
+        queue(UPDATE_OP, index + SEPARATOR + TaskFileFormat.formatTask(task));
+    }
+
+    private synchronized void queue(String op, String payload) {
+        lastSequence++;
+        pendingRecords.add(lastSequence + SEPARATOR + op + SEPARATOR + payload);
+    }
+
+    /**
+     * Appends all queued records to the journal file and flushes them to the operating system.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void commit() throws IOException {
+        commit(false);
+    }
+
+    /**
+     * Appends all queued records to the journal file and flushes them to the operating system,
+     * optionally forcing them to the storage device. If this fails, the records stay queued for the next commit.
+     *
+     * @param isForced whether to force the records to the storage device
+     * @throws IOException if the journal cannot be written
+     */
+    public synchronized void commit(boolean isForced) throws IOException {
+        if (pendingRecords.isEmpty()) {
+            if (isForced) {
+                force();
+            }
+            return;
+        }
+
+        long committedSize = -1;
+        try {
+            if (writer == null) {
+                stream = new FileOutputStream(journalPath.toFile(), true);
+                writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            }
+            committedSize = stream.getChannel().position();
+            if (isTailTorn) {
+                writer.write(System.lineSeparator());
+            }
+
+            long writtenSize = 0;
+            for (String record : pendingRecords) {
+                writer.write(record);
+                writer.write(System.lineSeparator());
+                writtenSize += record.length() + System.lineSeparator().length();
+            }
+            writer.flush();
+            if (isForced) {
+                stream.getChannel().force(false);
+            }
+
+            recordCount += pendingRecords.size();
+            sizeInBytes += writtenSize;
+            applyToCommittedTasks(pendingRecords);
+            pendingRecords.clear();
+            isTailTorn = false;
+        } catch (IOException e) {
+            abandonWriter(committedSize);
+            throw e;
+        }
+    }
+
+    /**
+     * Starts keeping a copy of the committed tasks, taking the given tasks as what the data file and the
+     * journal file hold together right after loading them.
+     *
+     * @param tasks the tasks just loaded
+     */
+    public synchronized void trackCommittedTasks(List<Task> tasks) {
+        assert tasks != null : "Task list should not be null";
+        assert pendingRecords.isEmpty() : "Tasks should only be tracked before any record is queued";
+
+        committedTasks = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            committedTasks.add(copyTask(task, task.isDone()));
+        }
+        committedSequence = lastSequence;
+    }
+
+    /**
+     * Takes a snapshot just written to the data file, together with the records the journal file still
+     * holds after it, as the committed tasks.
+     *
+     * @param snapshot the snapshot just written
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized void rebaseCommittedTasks(TaskSnapshot snapshot) throws IOException {
+        assert snapshot != null : "Snapshot should not be null";
+
+        ArrayList<Task> tasks = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            tasks.add(copyTask(snapshot.getTask(i), snapshot.isDone(i)));
+        }
+        committedTasks = tasks;
+        committedSequence = snapshot.getSequence();
+        if (Files.exists(journalPath)) {
+            applyToCommittedTasks(Files.readAllLines(journalPath, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Gets the tasks the data file and the journal file hold together as far as this journal knows.
+     *
+     * @return a snapshot of the committed tasks, or null if they are not kept
+     */
+    public synchronized TaskSnapshot getCommittedTasks() {
+        return committedTasks == null ? null : TaskSnapshot.of(committedTasks, committedSequence);
+    }
+
+    private void applyToCommittedTasks(List<String> records) {
+        if (committedTasks == null) {
+            return;
+        }
+        for (String record : records) {
+            if (record.trim().isEmpty()) {
+                continue;
+            }
+            applyRecord(committedTasks, record, committedSequence);
+            committedSequence = Math.max(committedSequence, parseSequence(record));
+        }
+    }
+
+    private static Task copyTask(Task task, boolean isDone) {
+        return TaskFileFormat.parseTask(TaskFileFormat.formatTask(task, isDone));
+    }
+
+    /**
+     * Closes the file after a failed write without flushing what is still buffered, and cuts off what was
+     * written, as the records are written again by the next commit.
+     *
+     * @param committedSize the size of the file before the failed write, or -1 if nothing was written
+     */
+    private void abandonWriter(long committedSize) {
+        if (stream != null) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // The records are written again through a new stream, so the old one is of no further use
+            }
+        }
+        writer = null;
+        stream = null;
+        if (committedSize < 0) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(committedSize);
+        } catch (IOException e) {
+            isTailTorn = true;
+        }
+    }
+
+    /**
+     * Forces the records committed so far to the storage device.
+     *
+     * @throws IOException if the journal cannot be forced
+     */
+    public synchronized void force() throws IOException {
+        if (stream != null) {
+            stream.getChannel().force(false);
+        } else {
+            FsyncTracker.forceFile(journalPath);
+        }
+    }
+
+    /**
+     * Replays journal records on top of a loaded snapshot.
+     * Records already contained in the snapshot are skipped, as are corrupted or torn records and records
+     * written again after a failed commit.
+     *
+     * @param tasks the tasks loaded from the snapshot, modified in place
+     * @param snapshotSequence the last sequence number contained in the snapshot
+     * @return the number of records applied
+     * @throws IOException if the journal cannot be read
+     */
+    public synchronized int replay(ArrayList<Task> tasks, long snapshotSequence) throws IOException {
+        assert tasks != null : "Task list should not be null";
+
+        lastSequence = Math.max(lastSequence, snapshotSequence);
+        File journalFile = journalPath.toFile();
+        if (!journalFile.exists()) {
+            return 0;
+        }
+
+        int appliedCount = 0;
+        long coveredSequence = snapshotSequence;
+        List<String> lines = Files.readAllLines(journalPath, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            recordCount++;
+            if (applyRecord(tasks, line, coveredSequence)) {
+                appliedCount++;
+            }
+            coveredSequence = Math.max(coveredSequence, parseSequence(line));
+        }
+        sizeInBytes = Files.size(journalPath);
+        return appliedCount;
+    }
+
+    /**
+     * Takes over the state of a journal whose records are already applied to the loaded tasks, as when
+     * the tasks come from a {@link StartupImage} that was taken after the records were written.
+     *
+     * @param lastSequence the sequence number of the last record
+     * @param recordCount the number of records in the journal
+     * @throws IOException if the size of the journal cannot be read
+     */
+    public synchronized void restore(long lastSequence, long recordCount) throws IOException {
+        this.lastSequence = Math.max(this.lastSequence, lastSequence);
+        this.recordCount = recordCount;
+        this.sizeInBytes = Files.exists(journalPath) ? Files.size(journalPath) : 0;
+    }
+
+    private boolean applyRecord(ArrayList<Task> tasks, String line, long coveredSequence) {
+        try {
+            int firstSeparator = line.indexOf(SEPARATOR);
+            int secondSeparator = line.indexOf(SEPARATOR, firstSeparator + SEPARATOR.length());
+            long sequence = Long.parseLong(line.substring(0, firstSeparator).trim());
+            String op = line.substring(firstSeparator + SEPARATOR.length(), secondSeparator).trim();
+            String payload = line.substring(secondSeparator + SEPARATOR.length());
+
+            lastSequence = Math.max(lastSequence, sequence);
+            if (sequence <= coveredSequence) {
+                return false;
+            }
+
+            return applyOperation(tasks, op, payload, line);
+        } catch (RuntimeException e) {
+            System.out.println(CORRUPTED_RECORD_WARNING + line);
+            return false;
+        }
+    }
+
+    private boolean applyOperation(ArrayList<Task> tasks, String op, String payload, String line) {
+        switch (op) {
+        case ADD_OP:
+            return applyAdd(tasks, payload);
+        case MARK_OP:
+            return applyMark(tasks, payload, line);
+        case DELETE_OP:
+            return applyDelete(tasks, payload, line);
+        case UPDATE_OP:
+            return applyUpdate(tasks, payload, line);
+        default:
+            System.out.println(CORRUPTED_RECORD_WARNING + line);
+            return false;
+        }
+    }
+
+    private boolean applyAdd(ArrayList<Task> tasks, String payload) {
+        Task task = TaskFileFormat.parseTask(payload);
+        if (task == null) {
+            return false;
+        }
+        tasks.add(task);
+        return true;
+    }
+
+    private boolean applyMark(ArrayList<Task> tasks, String payload, String line) {
+        String[] parts = payload.split(Pattern.quote(SEPARATOR));
+        int index = Integer.parseInt(parts[0].trim());
+        if (!isValidIndex(tasks, index, line)) {
+            return false;
+        }
+
+        if (parts[1].trim().equals(DONE_MARKER)) {
+            tasks.get(index).markAsDone();
+        } else {
+            tasks.get(index).markAsUndone();
+        }
+        return true;
+    }
+
+    private boolean applyDelete(ArrayList<Task> tasks, String payload, String line) {
+        int index = Integer.parseInt(payload.trim());
+        if (!isValidIndex(tasks, index, line)) {
+            return false;
+        }
+        tasks.remove(index);
+        return true;
+    }
+
+    private boolean applyUpdate(ArrayList<Task> tasks, String payload, String line) {
+        int separator = payload.indexOf(SEPARATOR);
+        int index = Integer.parseInt(payload.substring(0, separator).trim());
+        Task task = TaskFileFormat.parseTask(payload.substring(separator + SEPARATOR.length()));
+        if (task == null || !isValidIndex(tasks, index, line)) {
+            return false;
+        }
+        tasks.set(index, task);
+        return true;
+    }
+
+    private boolean isValidIndex(ArrayList<Task> tasks, int index, String line) {
+        if (index < 0 || index >= tasks.size()) {
+            System.out.println(INVALID_INDEX_WARNING + line);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Discards the records covered by a snapshot, keeping any records committed after it.
+     * The remaining records are written to a temporary file which atomically replaces the journal.
+     *
+     * @param sequence the last sequence number contained in the snapshot
+     * @param isForced whether to force the rewritten journal to the storage device before replacing the old one
+     * @throws IOException if the journal cannot be rewritten
+     */
+    public synchronized void discardUpTo(long sequence, boolean isForced) throws IOException {
+        close();
+        if (!Files.exists(journalPath)) {
+            return;
+        }
+
+        ArrayList<String> remainingRecords = new ArrayList<>();
+        long remainingSize = 0;
+        for (String line : Files.readAllLines(journalPath, StandardCharsets.UTF_8)) {
+            if (!line.trim().isEmpty() && parseSequence(line) > sequence) {
+                remainingRecords.add(line);
+                remainingSize += line.length() + System.lineSeparator().length();
+            }
+        }
+
+        Path tempPath = Paths.get(journalPath + TEMP_SUFFIX);
+        Files.write(tempPath, remainingRecords, StandardCharsets.UTF_8);
+        if (isForced) {
+            FsyncTracker.forceFile(tempPath);
+        }
+        Files.move(tempPath, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        recordCount = remainingRecords.size();
+        sizeInBytes = remainingSize;
+    }
+
+    private long parseSequence(String line) {
+        try {
+            return Long.parseLong(line.substring(0, line.indexOf(SEPARATOR)).trim());
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Closes the journal file if it is open.
+     *
+     * @throws IOException if the journal cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            stream = null;
+        }
+    }
+}
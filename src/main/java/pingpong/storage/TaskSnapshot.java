@@ -0,0 +1,99 @@
+package pingpong.storage;
+
+import java.util.List;
+
+import pingpong.task.Task;
+
+/**
+ * An immutable point-in-time view of a task list.
+ * Tasks are only mutated through their completion status, so copying the references together
+ * with the completion flags is enough to write the list later from another thread.
+ *
+ * <p>A snapshot written right away on the thread that changes the list need not be a copy: a view
+ * reads the tasks through the list instead, so a list that keeps only some tasks in memory is written
+ * page by page rather than being pulled into memory as a whole.</p>
+ */
+public class TaskSnapshot {
+    private final Task[] tasks;
+    private final boolean[] doneFlags;
+    /** The list read through by a view, or null if the tasks were copied. */
+    private final List<Task> viewedTasks;
+    private final long sequence;
+
+    private TaskSnapshot(Task[] tasks, boolean[] doneFlags, List<Task> viewedTasks, long sequence) {
+        this.tasks = tasks;
+        this.doneFlags = doneFlags;
+        this.viewedTasks = viewedTasks;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Captures the current state of the given tasks.
+     *
+     * @param tasks the tasks to capture
+     * @param sequence the last journal sequence number reflected in the tasks
+     * @return the captured snapshot
+     */
+    public static TaskSnapshot of(List<Task> tasks, long sequence) {
+        assert tasks != null : "Tasks should not be null";
+
+        Task[] taskArray = tasks.toArray(new Task[0]);
+        boolean[] doneFlags = new boolean[taskArray.length];
+        for (int i = 0; i < taskArray.length; i++) {
+            doneFlags[i] = taskArray[i].isDone();
+        }
+        return new TaskSnapshot(taskArray, doneFlags, null, sequence);
+    }
+
+    /**
+     * Creates a view of the given tasks that reads through to the list without copying it.
+     * The view is only valid until the list is next changed, so it must be written before returning
+     * to the caller and never kept.
+     *
+     * @param tasks the tasks to view
+     * @param sequence the last journal sequence number reflected in the tasks
+     * @return the view
+     */
+    public static TaskSnapshot view(List<Task> tasks, long sequence) {
+        assert tasks != null : "Tasks should not be null";
+        return new TaskSnapshot(null, null, tasks, sequence);
+    }
+
+    /**
+     * Gets the number of tasks in the snapshot.
+     *
+     * @return the number of tasks
+     */
+    public int size() {
+        return viewedTasks != null ? viewedTasks.size() : tasks.length;
+    }
+
+    /**
+     * Gets the task at the given position.
+     *
+     * @param index the 0-based index of the task
+     * @return the task
+     */
+    public Task getTask(int index) {
+        return viewedTasks != null ? viewedTasks.get(index) : tasks[index];
+    }
+
+    /**
+     * Gets the completion status the task had when the snapshot was taken.
+     *
+     * @param index the 0-based index of the task
+     * @return true if the task was done
+     */
+    public boolean isDone(int index) {
+        return viewedTasks != null ? viewedTasks.get(index).isDone() : doneFlags[index];
+    }
+
+    /**
+     * Gets the last journal sequence number reflected in this snapshot.
+     *
+     * @return the journal sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,285 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.CRC32C;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+
+/**
+ * Writes tasks in the text line format straight into a reusable direct buffer that is drained to a file channel.
+ * Produces exactly the bytes of {@link TaskFileFormat#formatTask(Task, boolean)} prefixed by its
+ * {@link RecordChecksum} and followed by the line separator, but without building a string per task:
+ * descriptions are encoded as UTF-8 character by character, ISO dates are written digit by digit from
+ * their numeric fields, and the checksum is computed over the encoded bytes while they are still in the buffer.
+ *
+ * <p>An encoder is not thread-safe. Callers share one instance under a lock so the buffer is allocated once.</p>
+ */
+public class TextTaskEncoder {
+    /** Default size of the direct buffer. */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_BYTES_PER_CHAR = 3;
+    private static final int MIN_ISO_YEAR = 0;
+    private static final int MAX_ISO_YEAR = 9999;
+    /** Generous bound on the bytes of a line besides its description, so a reserved line never drains. */
+    private static final int MAX_FIXED_LINE_BYTES = 256;
+
+    private static final byte[] FIELD_SEPARATOR_BYTES = TaskFileFormat.FIELD_SEPARATOR.getBytes();
+    private static final byte[] LINE_SEPARATOR_BYTES = System.lineSeparator().getBytes();
+
+    private final ByteBuffer buffer;
+    private final CRC32C crc;
+    private FileChannel channel;
+    private long flushedBytes;
+    private boolean isLineOpen;
+
+    /**
+     * Creates an encoder with a direct buffer of the default size.
+     */
+    public TextTaskEncoder() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates an encoder with a direct buffer of the given size.
+     *
+     * @param bufferSize the buffer size in bytes, large enough for a date-time field
+     */
+    public TextTaskEncoder(int bufferSize) {
+        assert bufferSize >= 64 : "Buffer should hold at least one date-time field";
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.crc = new CRC32C();
+    }
+
+    /**
+     * Truncates or creates the given file and starts writing at its beginning.
+     *
+     * @param path the file to write
+     * @throws IOException if the file cannot be opened
+     */
+    public void open(Path path) throws IOException {
+        assert channel == null : "Previous file should be closed first";
+
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.clear();
+        flushedBytes = 0;
+    }
+
+    /**
+     * Gets the file offset the next byte will be written at.
+     *
+     * @return the number of bytes encoded since the file was opened
+     */
+    public long position() {
+        return flushedBytes + buffer.position();
+    }
+
+    /**
+     * Writes a line that contains no task, such as the snapshot header.
+     *
+     * @param line the line without a line separator
+     * @throws IOException if the buffer cannot be drained
+     */
+    public void writeLine(String line) throws IOException {
+        writeString(line);
+        writeBytes(LINE_SEPARATOR_BYTES);
+    }
+
+    /**
+     * Writes one task as a line.
+     *
+     * @param task the task to write
+     * @param isDone the completion status to record
+     * @return the file offset of the task's done marker
+     * @throws IOException if the buffer cannot be drained
+     */
+    public long writeTask(Task task, boolean isDone) throws IOException {
+        assert task != null : "Task should not be null";
+
+        int maxLength = RecordChecksum.FIELD_LENGTH + task.getDescription().length() * MAX_BYTES_PER_CHAR
+                + MAX_FIXED_LINE_BYTES;
+        if (maxLength > buffer.capacity()) {
+            return writeLongTask(task, isDone);
+        }
+
+        // Reserve room for the whole line, so its bytes stay in the buffer until the checksum is filled in
+        ensureRemaining(maxLength);
+        int lineStart = buffer.position();
+        buffer.position(lineStart + RecordChecksum.FIELD_LENGTH);
+        isLineOpen = true;
+
+        writeString(task.getType().getSymbol());
+        writeBytes(FIELD_SEPARATOR_BYTES);
+        long doneOffset = position();
+        writeByte(isDone ? TaskFileFormat.DONE_MARKER_BYTE : TaskFileFormat.NOT_DONE_MARKER_BYTE);
+        writeBytes(FIELD_SEPARATOR_BYTES);
+        writeString(task.getDescription());
+
+        switch (task.getType()) {
+        case DEADLINE:
+            writeBytes(FIELD_SEPARATOR_BYTES);
+            writeDate(((Deadline) task).getBy());
+            break;
+        case Event:
+            Event event = (Event) task;
+            writeBytes(FIELD_SEPARATOR_BYTES);
+            writeDateTime(event.getStart());
+            writeBytes(FIELD_SEPARATOR_BYTES);
+            writeDateTime(event.getEnd());
+            break;
+        default:
+            break;
+        }
+
+        int checksum = RecordChecksum.compute(crc, buffer, lineStart + RecordChecksum.FIELD_LENGTH, buffer.position());
+        RecordChecksum.putHex(buffer, lineStart, checksum);
+        buffer.put(lineStart + RecordChecksum.HEX_LENGTH, (byte) ' ');
+        isLineOpen = false;
+
+        writeBytes(LINE_SEPARATOR_BYTES);
+        return doneOffset;
+    }
+
+    /**
+     * Writes a task whose line may not fit in the buffer by formatting it as a string first.
+     */
+    private long writeLongTask(Task task, boolean isDone) throws IOException {
+        String line = RecordChecksum.withChecksum(TaskFileFormat.formatTask(task, isDone));
+        long doneOffset = position() + RecordChecksum.FIELD_LENGTH + TaskFileFormat.DONE_MARKER_OFFSET;
+        writeString(line);
+        writeBytes(LINE_SEPARATOR_BYTES);
+        return doneOffset;
+    }
+
+    /**
+     * Drains the buffer, optionally forces the file to the storage device, and closes it.
+     *
+     * @param isForced whether to force the written bytes to the storage device before closing
+     * @throws IOException if the file cannot be written
+     */
+    public void close(boolean isForced) throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            drain();
+            if (isForced) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < MIN_ISO_YEAR || year > MAX_ISO_YEAR) {
+            writeString(date.format(DateTimeFormatter.ISO_LOCAL_DATE));
+            return;
+        }
+        ensureRemaining(10);
+        writeDigits(year, 4);
+        buffer.put((byte) '-');
+        writeDigits(date.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        writeDigits(date.getDayOfMonth(), 2);
+    }
+
+    /**
+     * Writes a date-time the way ISO_LOCAL_DATE_TIME does.
+     * The rare cases of fractional seconds and years outside 0000-9999 are left to the formatter.
+     */
+    private void writeDateTime(LocalDateTime dateTime) throws IOException {
+        int year = dateTime.getYear();
+        if (dateTime.getNano() != 0 || year < MIN_ISO_YEAR || year > MAX_ISO_YEAR) {
+            writeString(dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        writeDate(dateTime.toLocalDate());
+        ensureRemaining(9);
+        buffer.put((byte) 'T');
+        writeDigits(dateTime.getHour(), 2);
+        buffer.put((byte) ':');
+        writeDigits(dateTime.getMinute(), 2);
+        buffer.put((byte) ':');
+        writeDigits(dateTime.getSecond(), 2);
+    }
+
+    private void writeDigits(int value, int width) {
+        int end = buffer.position() + width;
+        for (int i = end - 1; i >= end - width; i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * Encodes a string as UTF-8. Unpaired surrogates are written as '?', like {@link String#getBytes}.
+     */
+    private void writeString(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            ensureRemaining(MAX_BYTES_PER_CHAR + 1);
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                } else {
+                    buffer.put((byte) '?');
+                }
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        ensureRemaining(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void writeByte(byte value) throws IOException {
+        ensureRemaining(1);
+        buffer.put(value);
+    }
+
+    private void ensureRemaining(int byteCount) throws IOException {
+        if (buffer.remaining() < byteCount) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        assert channel != null : "A file should be open";
+        assert !isLineOpen : "A line should not be drained before its checksum is written";
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushedBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
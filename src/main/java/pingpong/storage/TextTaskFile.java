@@ -0,0 +1,469 @@
+package pingpong.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import pingpong.task.Task;
+
+/**
+ * Reads the text task file in parallel.
+ * The file is split into byte ranges that each end on a line break, every range is read and parsed
+ * on a fork/join worker into its own list, and the lists are concatenated in file order.
+ * Lines carrying a {@link RecordChecksum} are verified before they are parsed, and corrupted ones are
+ * collected as {@link TaskFileVerifier.BadRange}s for the caller to quarantine, without parsing them or
+ * printing a warning per line. Lines written without a checksum are parsed with
+ * {@link TaskFileFormat#parseTask(String)}, so corrupted ones are skipped with the same warnings as before.
+ * A file another program is known to have edited may be read accepting edits, in which case a line whose
+ * checksum no longer matches is taken as edited and kept if it still parses.
+ *
+ * <p>Since lines are located by their byte positions, the file offset of each task's done marker
+ * is known after reading, which allows marking a task right after startup to patch it in place.</p>
+ */
+public class TextTaskFile {
+    /** Files smaller than this are parsed on the calling thread as a single chunk. */
+    static final int MIN_CHUNK_BYTES = 256 * 1024;
+    /** Upper bound on the bytes held in memory by a single chunk. */
+    static final int MAX_CHUNK_BYTES = 16 * 1024 * 1024;
+    /** Upper bound on the bytes held in memory by a single chunk when streaming. */
+    static final int MAX_STREAM_CHUNK_BYTES = 1024 * 1024;
+    /** Upper bound on the chunks being parsed or waiting to be handed over when streaming. */
+    static final int MAX_STREAM_CHUNKS_AHEAD = 4;
+
+    private static final int CHUNKS_PER_WORKER = 4;
+    private static final int BOUNDARY_SCAN_BYTES = 4096;
+    private static final long NO_SEQUENCE = -1;
+
+    private final long sequence;
+    private final ArrayList<Task> tasks;
+    private final long[] doneOffsets;
+    private final boolean hasChecksums;
+    private final List<TaskFileVerifier.BadRange> badRanges;
+
+    private TextTaskFile(long sequence, ArrayList<Task> tasks, long[] doneOffsets, boolean hasChecksums,
+            List<TaskFileVerifier.BadRange> badRanges) {
+        this.sequence = sequence;
+        this.tasks = tasks;
+        this.doneOffsets = doneOffsets;
+        this.hasChecksums = hasChecksums;
+        this.badRanges = badRanges;
+    }
+
+    /**
+     * Gets the journal sequence number from the snapshot header line.
+     *
+     * @return the journal sequence number, or 0 if the file has no header
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the tasks read from the file.
+     *
+     * @return the tasks in file order
+     */
+    public ArrayList<Task> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Gets the file offset of the done marker of each task read.
+     *
+     * @return the done marker offsets indexed like the tasks, or null if a line is not laid out as
+     *         written by {@link TaskFileFormat#formatTask(Task)} or only some lines have checksums
+     */
+    public long[] getDoneOffsets() {
+        return doneOffsets;
+    }
+
+    /**
+     * Checks whether the tasks were read from lines with checksums.
+     *
+     * @return true if every task line has a checksum before its done marker
+     */
+    public boolean hasChecksums() {
+        return hasChecksums;
+    }
+
+    /**
+     * Gets the corrupted records found while reading, which were left out of the tasks.
+     *
+     * @return the byte ranges of the corrupted records, in file order
+     */
+    public List<TaskFileVerifier.BadRange> getBadRanges() {
+        return badRanges;
+    }
+
+    /**
+     * Reads a text task file using the common fork/join pool.
+     *
+     * @param path the file to read
+     * @return the file contents
+     * @throws IOException if the file cannot be read
+     */
+    public static TextTaskFile read(Path path) throws IOException {
+        return read(path, ForkJoinPool.commonPool(), false);
+    }
+
+    /**
+     * Reads a text task file using the common fork/join pool, optionally accepting lines edited by
+     * another program: a line whose checksum does not match is then kept if it still parses, and only
+     * lines that do not parse are reported as corrupted. Saving the tasks stamps the kept lines afresh.
+     *
+     * @param path the file to read
+     * @param isEditAccepted whether lines with a mismatched checksum are kept if they parse
+     * @return the file contents
+     * @throws IOException if the file cannot be read
+     */
+    public static TextTaskFile read(Path path, boolean isEditAccepted) throws IOException {
+        return read(path, ForkJoinPool.commonPool(), isEditAccepted);
+    }
+
+    /**
+     * Reads a text task file, parsing its chunks on the given pool.
+     *
+     * @param path the file to read
+     * @param pool the pool that parses the chunks
+     * @return the file contents
+     * @throws IOException if the file cannot be read
+     */
+    public static TextTaskFile read(Path path, ForkJoinPool pool) throws IOException {
+        return read(path, pool, false);
+    }
+
+    private static TextTaskFile read(Path path, ForkJoinPool pool, boolean isEditAccepted) throws IOException {
+        assert path != null : "Path should not be null";
+        assert pool != null : "Pool should not be null";
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel, pool.getParallelism(), MAX_CHUNK_BYTES);
+            List<ChunkParser> parsers = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.length; i++) {
+                parsers.add(new ChunkParser(channel, boundaries[i], boundaries[i + 1], isEditAccepted));
+            }
+
+            List<Chunk> chunks = new ArrayList<>();
+            try {
+                if (parsers.size() == 1) {
+                    chunks.add(parsers.get(0).compute());
+                } else {
+                    pool.invoke(new ChunkBatch(parsers));
+                    for (ChunkParser parser : parsers) {
+                        chunks.add(parser.join());
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return concatenate(chunks);
+        }
+    }
+
+    /**
+     * Reads a text task file using the common fork/join pool, handing over the tasks of each chunk
+     * as soon as it and all chunks before it are parsed. The snapshot header is skipped.
+     * Chunks are kept small and only a few are parsed ahead of the consumer, so the tasks held in memory
+     * at once are bounded however large the file is.
+     *
+     * @param path the file to read
+     * @param chunkConsumer receives the tasks of each chunk, in file order
+     * @return the byte ranges of the corrupted records, which were left out of the chunks
+     * @throws IOException if the file cannot be read
+     */
+    public static List<TaskFileVerifier.BadRange> stream(Path path, Consumer<List<Task>> chunkConsumer)
+            throws IOException {
+        assert path != null : "Path should not be null";
+        assert chunkConsumer != null : "Chunk consumer should not be null";
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long[] boundaries = findChunkBoundaries(channel, pool.getParallelism(), MAX_STREAM_CHUNK_BYTES);
+            int chunksAhead = Math.max(1, Math.min(pool.getParallelism(), MAX_STREAM_CHUNKS_AHEAD));
+            ArrayDeque<ChunkParser> parsers = new ArrayDeque<>();
+            int nextChunk = 0;
+
+            List<TaskFileVerifier.BadRange> badRanges = new ArrayList<>();
+            try {
+                while (nextChunk + 1 < boundaries.length || !parsers.isEmpty()) {
+                    while (parsers.size() < chunksAhead && nextChunk + 1 < boundaries.length) {
+                        ChunkParser parser = new ChunkParser(channel, boundaries[nextChunk],
+                                boundaries[nextChunk + 1], false);
+                        pool.execute(parser);
+                        parsers.add(parser);
+                        nextChunk++;
+                    }
+
+                    Chunk chunk = parsers.remove().join();
+                    chunkConsumer.accept(chunk.tasks);
+                    for (TaskFileVerifier.BadRange range : chunk.badRanges) {
+                        TaskFileVerifier.addBadRange(badRanges, range);
+                    }
+                }
+                return badRanges;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                // The channel is closed on return, so stop chunks that have not started yet
+                for (ChunkParser parser : parsers) {
+                    parser.cancel(false);
+                    parser.quietlyJoin();
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the file into ranges of roughly equal size, moving each split point past the next line break.
+     *
+     * @return the start of each range followed by the end of the file
+     */
+    private static long[] findChunkBoundaries(FileChannel channel, int parallelism, int maxChunkBytes)
+            throws IOException {
+        long size = channel.size();
+        long chunkCount = Math.max(1, Math.min((long) parallelism * CHUNKS_PER_WORKER, size / MIN_CHUNK_BYTES));
+        chunkCount = Math.max(chunkCount, (size + maxChunkBytes - 1) / maxChunkBytes);
+
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        for (long i = 1; i < chunkCount; i++) {
+            long previous = boundaries.get(boundaries.size() - 1);
+            long lineStart = findNextLineStart(channel, Math.max(previous, size * i / chunkCount), size);
+            if (lineStart > previous && lineStart < size) {
+                boundaries.add(lineStart);
+            }
+        }
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private static long findNextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static TextTaskFile concatenate(List<Chunk> chunks) {
+        int taskCount = 0;
+        boolean hasOffsets = true;
+        long checkedCount = 0;
+        long sequence = NO_SEQUENCE;
+        List<TaskFileVerifier.BadRange> badRanges = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            taskCount += chunk.tasks.size();
+            hasOffsets &= chunk.hasOffsets;
+            checkedCount += chunk.checkedCount;
+            if (chunk.sequence != NO_SEQUENCE) {
+                sequence = chunk.sequence;
+            }
+            for (TaskFileVerifier.BadRange range : chunk.badRanges) {
+                TaskFileVerifier.addBadRange(badRanges, range);
+            }
+        }
+
+        // Markers can only be patched if all lines agree on whether a checksum has to be updated with them
+        boolean hasChecksums = checkedCount > 0;
+        hasOffsets &= checkedCount == 0 || checkedCount == taskCount;
+
+        ArrayList<Task> tasks = new ArrayList<>(taskCount);
+        long[] doneOffsets = hasOffsets ? new long[taskCount] : null;
+        for (Chunk chunk : chunks) {
+            if (hasOffsets) {
+                System.arraycopy(chunk.doneOffsets, 0, doneOffsets, tasks.size(), chunk.tasks.size());
+            }
+            tasks.addAll(chunk.tasks);
+        }
+        return new TextTaskFile(Math.max(0, sequence), tasks, doneOffsets, hasChecksums, badRanges);
+    }
+
+    /**
+     * The tasks parsed from one byte range of the file.
+     */
+    private static class Chunk {
+        private final ArrayList<Task> tasks = new ArrayList<>();
+        private long[] doneOffsets = new long[16];
+        private boolean hasOffsets = true;
+        private long checkedCount;
+        private long sequence = NO_SEQUENCE;
+        private final List<TaskFileVerifier.BadRange> badRanges = new ArrayList<>();
+
+        private void add(Task task, long doneOffset) {
+            if (tasks.size() == doneOffsets.length) {
+                doneOffsets = Arrays.copyOf(doneOffsets, doneOffsets.length * 2);
+            }
+            doneOffsets[tasks.size()] = doneOffset;
+            tasks.add(task);
+        }
+    }
+
+    /**
+     * Forks all chunk parsers and waits for them, so that each chunk can be joined in order afterwards.
+     */
+    private static class ChunkBatch extends RecursiveTask<Void> {
+        private final List<ChunkParser> parsers;
+
+        private ChunkBatch(List<ChunkParser> parsers) {
+            this.parsers = parsers;
+        }
+
+        @Override
+        protected Void compute() {
+            ForkJoinTask.invokeAll(parsers);
+            return null;
+        }
+    }
+
+    /**
+     * Reads and parses the lines of one byte range of the file.
+     */
+    private static class ChunkParser extends RecursiveTask<Chunk> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean isEditAccepted;
+        private final CRC32C crc = new CRC32C();
+
+        private ChunkParser(FileChannel channel, long start, long end, boolean isEditAccepted) {
+            assert end - start <= Integer.MAX_VALUE : "Chunk should fit in an array";
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.isEditAccepted = isEditAccepted;
+        }
+
+        @Override
+        protected Chunk compute() {
+            byte[] bytes = new byte[(int) (end - start)];
+            try {
+                readFully(ByteBuffer.wrap(bytes));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            Chunk chunk = new Chunk();
+            int lineStart = 0;
+            for (int i = 0; i <= bytes.length; i++) {
+                if (i == bytes.length || bytes[i] == '\n') {
+                    if (i > lineStart) {
+                        parseLine(chunk, bytes, lineStart, i, Math.min(i + 1, bytes.length));
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            return chunk;
+        }
+
+        private void readFully(ByteBuffer buffer) throws IOException {
+            long position = start;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Task file was truncated while reading");
+                }
+                position += read;
+            }
+        }
+
+        private void parseLine(Chunk chunk, byte[] bytes, int lineStart, int lineEnd, int nextLineStart) {
+            int end = TaskFileVerifier.trimCarriageReturn(bytes, lineStart, lineEnd);
+            switch (RecordChecksum.verify(crc, bytes, lineStart, end)) {
+            case RecordChecksum.CORRUPTED:
+                if (isEditAccepted) {
+                    addCheckedLine(chunk, bytes, lineStart, end, nextLineStart);
+                } else {
+                    TaskFileVerifier.addBadLine(chunk.badRanges, start + lineStart, nextLineStart - lineStart);
+                }
+                return;
+            case RecordChecksum.VALID:
+                addCheckedLine(chunk, bytes, lineStart, end, nextLineStart);
+                return;
+            default:
+                break;
+            }
+
+            String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8).trim();
+            if (line.isEmpty()) {
+                return;
+            }
+            if (line.startsWith(FileStorageEngine.SNAPSHOT_HEADER)) {
+                chunk.sequence = Long.parseLong(line.substring(FileStorageEngine.SNAPSHOT_HEADER.length()).trim());
+                return;
+            }
+
+            Task task = TaskFileFormat.parseTask(line);
+            if (task == null) {
+                return;
+            }
+            assert task.getDescription() != null : "Loaded task should have description";
+
+            int markerIndex = lineStart + TaskFileFormat.DONE_MARKER_OFFSET;
+            if (!hasFormattedLayout(bytes, lineStart, lineEnd, task.isDone())) {
+                chunk.hasOffsets = false;
+            }
+            chunk.add(task, start + markerIndex);
+        }
+
+        /**
+         * Parses the task after the checksum of a line, reporting the line as corrupted if it does not parse.
+         */
+        private void addCheckedLine(Chunk chunk, byte[] bytes, int lineStart, int end, int nextLineStart) {
+            int taskStart = lineStart + RecordChecksum.FIELD_LENGTH;
+            Task task = TaskFileFormat.parseTask(new String(bytes, taskStart, end - taskStart,
+                    StandardCharsets.UTF_8));
+            if (task == null) {
+                TaskFileVerifier.addBadLine(chunk.badRanges, start + lineStart, nextLineStart - lineStart);
+                return;
+            }
+            chunk.checkedCount++;
+            chunk.add(task, start + taskStart + TaskFileFormat.DONE_MARKER_OFFSET);
+        }
+
+        /**
+         * Checks that the line starts exactly like a formatted line, so its done marker is at the usual offset.
+         */
+        private static boolean hasFormattedLayout(byte[] bytes, int lineStart, int lineEnd, boolean isDone) {
+            int markerIndex = lineStart + TaskFileFormat.DONE_MARKER_OFFSET;
+            if (markerIndex >= lineEnd || bytes[lineStart] <= ' ') {
+                return false;
+            }
+            for (int i = 0; i < TaskFileFormat.FIELD_SEPARATOR.length(); i++) {
+                if (bytes[lineStart + 1 + i] != TaskFileFormat.FIELD_SEPARATOR.charAt(i)) {
+                    return false;
+                }
+            }
+            byte expectedMarker = isDone ? TaskFileFormat.DONE_MARKER_BYTE : TaskFileFormat.NOT_DONE_MARKER_BYTE;
+            return bytes[markerIndex] == expectedMarker;
+        }
+    }
+}
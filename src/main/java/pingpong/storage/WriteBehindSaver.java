@@ -0,0 +1,218 @@
+package pingpong.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists changes on a dedicated thread so that commands do not block on disk I/O.
+ * Commands only mark the storage dirty; bursts of changes are coalesced into a single flush
+ * once no new change has arrived for the coalescing window, or once the oldest unflushed change
+ * reaches the maximum staleness, whichever comes first.
+ *
+ * <p>A flush that fails is reported and kept: its snapshot is written with the next flush unless a newer
+ * one replaces it, and journal records stay queued in the journal. The next change or explicit flush
+ * retries it, so a broken disk is not retried in a loop.</p>
+ */
+public class WriteBehindSaver {
+    /** Default quiet period after the last change before flushing. */
+    public static final long DEFAULT_COALESCE_MILLIS = 100;
+    /** Default upper bound on how long a change may stay unflushed. */
+    public static final long DEFAULT_MAX_STALENESS_MILLIS = 1000;
+
+    private static final String SAVE_ERROR_PREFIX = "Error saving tasks to file: ";
+
+    private final FileStorageEngine storage;
+    private final long coalesceNanos;
+    private final long maxStalenessNanos;
+    private final Thread thread;
+
+    private TaskSnapshot pendingSnapshot;
+    private boolean isDirty;
+    /** Whether a failed flush left changes that the next flush writes. */
+    private boolean hasFailedChanges;
+    private boolean isFlushing;
+    private boolean isFlushRequested;
+    private boolean isClosed;
+    private long firstChangeNanos;
+    private long lastChangeNanos;
+    private long flushCount;
+
+    /**
+     * Creates a saver for the given storage and starts its background thread.
+     *
+     * @param storage the storage whose pending changes are flushed
+     * @param coalesceMillis the quiet period after the last change before flushing
+     * @param maxStalenessMillis the maximum time a change may stay unflushed
+     */
+    public WriteBehindSaver(FileStorageEngine storage, long coalesceMillis, long maxStalenessMillis) {
+        assert storage != null : "Storage should not be null";
+        assert coalesceMillis >= 0 : "Coalescing window should not be negative";
+        assert maxStalenessMillis >= coalesceMillis : "Staleness bound should cover the coalescing window";
+
+        this.storage = storage;
+        this.coalesceNanos = TimeUnit.MILLISECONDS.toNanos(coalesceMillis);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        this.thread = new Thread(this::run, "pingpong-write-behind-saver");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Records that there are unflushed changes which need no snapshot, such as queued journal records.
+     */
+    public synchronized void markDirty() {
+        long now = System.nanoTime();
+        if (!isDirty) {
+            isDirty = true;
+            firstChangeNanos = now;
+        }
+        lastChangeNanos = now;
+        notifyAll();
+    }
+
+    /**
+     * Schedules a snapshot to be written, replacing any snapshot that has not been written yet.
+     *
+     * @param snapshot the point-in-time view of the task list to write
+     */
+    public synchronized void submit(TaskSnapshot snapshot) {
+        assert snapshot != null : "Snapshot should not be null";
+
+        pendingSnapshot = snapshot;
+        markDirty();
+    }
+
+    /**
+     * Drops the changes that have not been written yet, such as changes another process has superseded.
+     * A flush already in progress is not interrupted.
+     */
+    public synchronized void discardPending() {
+        pendingSnapshot = null;
+        isDirty = false;
+        hasFailedChanges = false;
+        notifyAll();
+    }
+
+    /**
+     * Writes all pending changes immediately, including those of a failed flush, and waits until they are
+     * written or have failed again.
+     */
+    public synchronized void flush() {
+        if (hasFailedChanges) {
+            markDirty();
+        }
+        isFlushRequested = true;
+        notifyAll();
+        try {
+            while ((isDirty || isFlushing) && thread.isAlive()) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            isFlushRequested = false;
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the background thread.
+     */
+    public void close() {
+        flush();
+        synchronized (this) {
+            isClosed = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of flushes performed, which is at most the number of changes submitted.
+     *
+     * @return the flush count
+     */
+    public synchronized long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Checks whether there are changes that have not been written yet.
+     *
+     * @return true if changes are pending, being written, or kept after a failed flush
+     */
+    public synchronized boolean hasPendingChanges() {
+        return isDirty || isFlushing || hasFailedChanges;
+    }
+
+    private void run() {
+        while (true) {
+            TaskSnapshot snapshot;
+            synchronized (this) {
+                try {
+                    if (!awaitFlushDue()) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                snapshot = pendingSnapshot;
+                pendingSnapshot = null;
+                isDirty = false;
+                hasFailedChanges = false;
+                isFlushing = true;
+            }
+
+            try {
+                storage.flushPending(snapshot);
+            } catch (StaleDataFileException e) {
+                // Reported to the user when the other process's changes are merged
+            } catch (Exception e) {
+                System.out.println(SAVE_ERROR_PREFIX + e.getMessage());
+                keepFailed(snapshot);
+            } finally {
+                synchronized (this) {
+                    isFlushing = false;
+                    flushCount++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the changes of a failed flush for the next one, unless a newer snapshot has replaced them.
+     */
+    private synchronized void keepFailed(TaskSnapshot snapshot) {
+        if (pendingSnapshot == null) {
+            pendingSnapshot = snapshot;
+        }
+        hasFailedChanges = true;
+    }
+
+    /**
+     * Waits until there are changes and either the coalescing window or the staleness bound has elapsed.
+     *
+     * @return false if the saver was closed with nothing left to flush
+     */
+    private boolean awaitFlushDue() throws InterruptedException {
+        while (!isDirty) {
+            if (isClosed) {
+                return false;
+            }
+            wait();
+        }
+
+        while (!isFlushRequested && !isClosed) {
+            long now = System.nanoTime();
+            long deadline = Math.min(lastChangeNanos + coalesceNanos, firstChangeNanos + maxStalenessNanos);
+            if (now - deadline >= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, deadline - now);
+        }
+        return true;
+    }
+}
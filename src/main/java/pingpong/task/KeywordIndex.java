@@ -0,0 +1,88 @@
+package pingpong.task;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * An inverted index from the words of task descriptions to the ids of the tasks using them, so that the
+ * tasks containing a word are found without reading every description.
+ *
+ * <p>A word is a run of letters and digits, compared in lower case. Each word maps to a {@link PostingList}
+ * of task ids in ascending order.</p>
+ */
+class KeywordIndex {
+    private final HashMap<String, PostingList> postingsByWord = new HashMap<>();
+
+    /**
+     * Splits text into its distinct words, in lower case and in the order they first appear.
+     *
+     * @param text the text to split, such as a task description or a query
+     * @return the distinct words of the text
+     */
+    static Set<String> tokenize(String text) {
+        assert text != null : "Text should not be null";
+
+        Set<String> words = new LinkedHashSet<>();
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lowerText.length(); i++) {
+            boolean isWordChar = i < lowerText.length() && Character.isLetterOrDigit(lowerText.charAt(i));
+            if (isWordChar && start < 0) {
+                start = i;
+            } else if (!isWordChar && start >= 0) {
+                words.add(lowerText.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Adds the words of a task's description.
+     *
+     * @param task the task added to the list
+     */
+    void add(Task task) {
+        assert task != null : "Task should not be null";
+
+        for (String word : tokenize(task.getDescription())) {
+            postingsByWord.computeIfAbsent(word, w -> new PostingList()).add(task.getId());
+        }
+    }
+
+    /**
+     * Removes the words of a task's description, dropping the words no other task uses.
+     *
+     * @param task the task removed from the list
+     */
+    void remove(Task task) {
+        assert task != null : "Task should not be null";
+
+        for (String word : tokenize(task.getDescription())) {
+            PostingList postings = postingsByWord.get(word);
+            if (postings != null && postings.remove(task.getId()) && postings.size() == 0) {
+                postingsByWord.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Removes every word.
+     */
+    void clear() {
+        postingsByWord.clear();
+    }
+
+    /**
+     * Gets the ids of the tasks whose descriptions contain a word.
+     *
+     * @param word the word, in lower case
+     * @return the ids in ascending order, to be read only
+     */
+    PostingList getPostings(String word) {
+        assert word != null : "Word should not be null";
+        return postingsByWord.getOrDefault(word, PostingList.EMPTY);
+    }
+}
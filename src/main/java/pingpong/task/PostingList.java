@@ -0,0 +1,225 @@
+package pingpong.task;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * The ids of the tasks under one key of an index, kept in ascending order in a growable array.
+ * New tasks get the highest id so far, so adding one usually appends; removing one shifts the ids after it.
+ *
+ * <p>Lists are combined with galloping search: the position of each id of one list is found in the other by
+ * probing 1, 2, 4, ... ids ahead of the last position and then searching the overshot range. Intersecting
+ * or subtracting a short list from a long one thus costs O(m log(n / m)) rather than O(m + n), and a union
+ * copies the runs between the ids of the other list in bulk.</p>
+ */
+class PostingList {
+    /** A list that is always empty, returned for keys no task has; it must not be added to. */
+    static final PostingList EMPTY = new PostingList();
+
+    private long[] ids;
+    private int size;
+
+    /**
+     * Creates an empty list.
+     */
+    PostingList() {
+        this(new long[2], 0);
+    }
+
+    /**
+     * Creates a list over the first ids of an array, which the list takes over.
+     *
+     * @param ids the ids, in ascending order and without repeats
+     * @param size the number of ids in use
+     */
+    PostingList(long[] ids, int size) {
+        assert size >= 0 && size <= ids.length : "Size should be within the array";
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Adds an id, unless it is already listed.
+     *
+     * @param id the task id
+     */
+    void add(long id) {
+        int index = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            return;
+        }
+        int insertion = -index - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, insertion, ids, insertion + 1, size - insertion);
+        ids[insertion] = id;
+        size++;
+    }
+
+    /**
+     * Removes an id.
+     *
+     * @param id the task id
+     * @return true if the id was listed
+     */
+    boolean remove(long id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Checks whether an id is listed, in O(log n) time.
+     *
+     * @param id the task id
+     * @return true if the id is listed
+     */
+    boolean contains(long id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Gets the id at a position.
+     *
+     * @param index the 0-based position, in ascending id order
+     * @return the id
+     */
+    long get(int index) {
+        assert index >= 0 && index < size : "Index should be within the list";
+        return ids[index];
+    }
+
+    /**
+     * Gets the number of listed ids.
+     *
+     * @return the id count
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Keeps the ids a check accepts.
+     *
+     * @param isKept decides whether an id is kept
+     * @return a new list of the accepted ids
+     */
+    PostingList filter(LongPredicate isKept) {
+        long[] kept = new long[size];
+        int keptCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (isKept.test(ids[i])) {
+                kept[keptCount++] = ids[i];
+            }
+        }
+        return new PostingList(kept, keptCount);
+    }
+
+    /**
+     * Gets the ids in both lists, galloping through the longer list.
+     *
+     * @param first a list
+     * @param second another list
+     * @return a new list of the common ids
+     */
+    static PostingList intersect(PostingList first, PostingList second) {
+        PostingList shorter = first.size <= second.size ? first : second;
+        PostingList longer = shorter == first ? second : first;
+
+        long[] common = new long[shorter.size];
+        int commonCount = 0;
+        int position = 0;
+        for (int i = 0; i < shorter.size && position < longer.size; i++) {
+            long id = shorter.ids[i];
+            position = gallop(longer.ids, position, longer.size, id);
+            if (position < longer.size && longer.ids[position] == id) {
+                common[commonCount++] = id;
+            }
+        }
+        return new PostingList(common, commonCount);
+    }
+
+    /**
+     * Gets the ids in either list. Each run of ids of one list that falls before the next id of the other
+     * is found by galloping and copied at once.
+     *
+     * @param first a list
+     * @param second another list
+     * @return a new list of all ids of both lists
+     */
+    static PostingList union(PostingList first, PostingList second) {
+        long[] all = new long[first.size + second.size];
+        int allCount = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.size && j < second.size) {
+            if (first.ids[i] < second.ids[j]) {
+                int end = gallop(first.ids, i, first.size, second.ids[j]);
+                System.arraycopy(first.ids, i, all, allCount, end - i);
+                allCount += end - i;
+                i = end;
+            } else if (second.ids[j] < first.ids[i]) {
+                int end = gallop(second.ids, j, second.size, first.ids[i]);
+                System.arraycopy(second.ids, j, all, allCount, end - j);
+                allCount += end - j;
+                j = end;
+            } else {
+                all[allCount++] = first.ids[i++];
+                j++;
+            }
+        }
+        System.arraycopy(first.ids, i, all, allCount, first.size - i);
+        allCount += first.size - i;
+        System.arraycopy(second.ids, j, all, allCount, second.size - j);
+        allCount += second.size - j;
+        return new PostingList(all, allCount);
+    }
+
+    /**
+     * Gets the ids of a list that are not in another, galloping through the other list.
+     *
+     * @param kept the list to take ids from
+     * @param removed the list of ids to leave out
+     * @return a new list of the remaining ids
+     */
+    static PostingList subtract(PostingList kept, PostingList removed) {
+        long[] remaining = new long[kept.size];
+        int remainingCount = 0;
+        int position = 0;
+        for (int i = 0; i < kept.size; i++) {
+            long id = kept.ids[i];
+            position = gallop(removed.ids, position, removed.size, id);
+            if (position == removed.size || removed.ids[position] != id) {
+                remaining[remainingCount++] = id;
+            }
+        }
+        return new PostingList(remaining, remainingCount);
+    }
+
+    /**
+     * Finds the first position at or after a start whose id is not less than the target, probing ahead in
+     * doubling steps before searching the range the target must be in.
+     *
+     * @return the position, or the end if every id from the start on is less than the target
+     */
+    private static int gallop(long[] ids, int start, int end, long target) {
+        if (start >= end || ids[start] >= target) {
+            return start;
+        }
+        // ids[low] stays below the target while the step doubles
+        int low = start;
+        int step = 1;
+        while (step < end - low && ids[low + step] < target) {
+            low += step;
+            step <<= 1;
+        }
+        int high = Math.min(low + step, end);
+        int index = Arrays.binarySearch(ids, low + 1, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+}
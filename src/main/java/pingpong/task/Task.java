@@ -1,10 +1,15 @@
 package pingpong.task;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represents a task with a description, completion status, and task type.
  * This is the base class for all types of tasks in the Pingpong application.
  */
 public class Task {
+    private static final AtomicLong LAST_ID = new AtomicLong();
+
+    private long id;
     private String description;
     private boolean isDone;
     private TaskType type;
@@ -21,6 +26,7 @@ public class Task {
         assert !description.trim().isEmpty() : "Task description should not be empty";
         assert type != null : "Task type should not be null";
 
+        this.id = LAST_ID.incrementAndGet();
         this.description = description;
         this.isDone = false;
         this.type = type;
@@ -42,6 +48,31 @@ public class Task {
         return status;
     }
 
+    /**
+     * Gets the id of this task, which stays the same when its position in the list changes or it is updated,
+     * and is never shared with another task created by this process.
+     * Ids are handed out by each process and never stored, so they are only valid within one session: a task
+     * gets a new id when it is loaded again after a restart, or read from a file another process wrote.
+     *
+     * @return the id of this task
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gives this task the id of the task it replaces or was re-created from, such as the original of an
+     * updated task or a task read back from a page file of the same session. Tasks created later get higher
+     * ids still.
+     *
+     * @param id the id to keep
+     */
+    public void restoreId(long id) {
+        assert id > 0 : "Task ids should be positive";
+        this.id = id;
+        LAST_ID.accumulateAndGet(id, Math::max);
+    }
+
     /**
      * Marks this task as completed.
      */
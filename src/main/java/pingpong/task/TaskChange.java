@@ -0,0 +1,82 @@
+package pingpong.task;
+
+/**
+ * A single mutation of a task list that has not been persisted yet.
+ * Changes are recorded in the order they were made, and each index refers to the list
+ * as it was right after the earlier changes, so replaying them in order reproduces the list.
+ */
+public class TaskChange {
+    /**
+     * Enumeration of the kinds of mutation a task list records.
+     */
+    public enum Kind {
+        /** A task was appended to the end of the list */
+        ADDED,
+        /** A task was replaced with an updated copy */
+        UPDATED,
+        /** A task was removed from the list */
+        DELETED,
+        /** The completion status of a task was set */
+        MARKED
+    }
+
+    private final Kind kind;
+    private final int index;
+    private final Task task;
+    private final boolean isDone;
+
+    /**
+     * Creates a change record.
+     *
+     * @param kind the kind of mutation
+     * @param index the 0-based index of the affected task
+     * @param task the affected task; the new task for updates and the removed task for deletions
+     * @param isDone the completion status of the task when the change was made
+     */
+    public TaskChange(Kind kind, int index, Task task, boolean isDone) {
+        assert kind != null : "Change kind should not be null";
+        assert index >= 0 : "Index should not be negative";
+        assert task != null : "Changed task should not be null";
+
+        this.kind = kind;
+        this.index = index;
+        this.task = task;
+        this.isDone = isDone;
+    }
+
+    /**
+     * Gets the kind of mutation.
+     *
+     * @return the change kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the index of the affected task at the time of the change.
+     *
+     * @return the 0-based index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the affected task.
+     *
+     * @return the task that was added, updated, deleted or marked
+     */
+    public Task getTask() {
+        return task;
+    }
+
+    /**
+     * Gets the completion status the task had when the change was made.
+     *
+     * @return true if the task was done
+     */
+    public boolean isDone() {
+        return isDone;
+    }
+}
@@ -3,35 +3,53 @@ package pingpong.task;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 
 import pingpong.PingpongException;
 
 /**
  * Contains the task list and operations to add/delete/modify tasks.
  * Acts as the main container for all tasks in the Pingpong application.
+ * Every mutation is also recorded as a {@link TaskChange} until the changes are persisted,
+ * so that storage can write only what changed.
  */
 public class TaskList {
     private static final String TASK_NOT_EXISTS_ERROR = "Task number %d does not exist.";
+    private static final String TASK_ID_NOT_EXISTS_ERROR = "Task with id %d does not exist.";
 
-    private ArrayList<Task> tasks;
+    private List<Task> tasks;
+    private final ArrayList<TaskChange> changes = new ArrayList<>();
 
     /**
      * Creates a new empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this.tasks = new TaskTree();
         assert tasks != null : "Task list should be initialized";
         assert tasks.isEmpty() : "New task list should be empty";
     }
 
     /**
-     * Creates a new TaskList with the provided list of tasks.
+     * Creates a new TaskList holding the provided tasks.
      *
      * @param tasks the initial list of tasks
      */
-    public TaskList(ArrayList<Task> tasks) {
+    public TaskList(List<Task> tasks) {
+        this(tasks, true);
+    }
+
+    /**
+     * Creates a new TaskList over the provided list of tasks. A subclass that keeps its tasks elsewhere, such
+     * as in a page file, passes its own list to be kept and modified; finding a task by id then scans it.
+     *
+     * @param tasks the initial list of tasks
+     * @param isCopied whether to copy the tasks into a {@link TaskTree} instead of keeping the list
+     */
+    protected TaskList(List<Task> tasks, boolean isCopied) {
         assert tasks != null : "Input task list should not be null";
-        this.tasks = tasks;
+        this.tasks = isCopied ? new TaskTree(tasks) : tasks;
         assert this.tasks != null : "Task list should be initialized";
     }
 
@@ -46,9 +64,28 @@ public class TaskList {
 
         int originalSize = tasks.size();
         tasks.add(task);
+        recordChange(TaskChange.Kind.ADDED, originalSize, task);
 
         assert tasks.size() == originalSize + 1 : "Task list size should increase by 1 after adding";
-        assert tasks.contains(task) : "Task should be in the list after adding";
+        assert tasks.get(tasks.size() - 1) == task : "Task should be in the list after adding";
+    }
+
+    /**
+     * Appends tasks to the end of the task list, such as a batch of imported tasks.
+     *
+     * @param added the tasks to append, in list order
+     */
+    public void addTasks(List<Task> added) {
+        assert added != null : "Tasks to be added should not be null";
+        assert tasks != null : "Task list should be initialized";
+
+        int originalSize = tasks.size();
+        tasks.addAll(added);
+        for (int i = 0; i < added.size(); i++) {
+            recordChange(TaskChange.Kind.ADDED, originalSize + i, added.get(i));
+        }
+
+        assert tasks.size() == originalSize + added.size() : "Task list size should increase by the added tasks";
     }
 
     /**
@@ -65,12 +102,70 @@ public class TaskList {
 
         int originalSize = tasks.size();
         Task deletedTask = tasks.remove(index);
+        recordChange(TaskChange.Kind.DELETED, index, deletedTask);
 
         assert deletedTask != null : "Deleted task should not be null";
         assert tasks.size() == originalSize - 1 : "Task list size should decrease by 1 after deletion";
         return deletedTask;
     }
 
+    /**
+     * Deletes several tasks at once. Every index is validated before any task is deleted, and an index given
+     * more than once deletes its task once. When many tasks are deleted, the remaining tasks are moved into
+     * place in a single pass instead of closing the gap after each deletion.
+     *
+     * @param indices the 0-based indices of the tasks to delete, in any order
+     * @return the deleted tasks, in list order
+     * @throws PingpongException if any index is invalid, in which case no task is deleted
+     */
+    public ArrayList<Task> deleteTasks(int... indices) throws PingpongException {
+        assert tasks != null : "Task list should be initialized";
+        assert indices != null : "Indices array should not be null";
+
+        BitSet deleted = new BitSet(tasks.size());
+        for (int index : indices) {
+            validateTaskIndex(index);
+            deleted.set(index);
+        }
+
+        int originalSize = tasks.size();
+        int deletedCount = deleted.cardinality();
+        ArrayList<Task> deletedTasks = new ArrayList<>(deletedCount);
+        // Removing a task costs O(log n) and a single pass O(n), so only few deletions are made one by one
+        int logSize = 32 - Integer.numberOfLeadingZeros(originalSize);
+        if ((long) deletedCount * logSize < originalSize) {
+            // Removing from the end keeps the lower indices valid
+            for (int index = deleted.previousSetBit(originalSize - 1); index >= 0;
+                    index = deleted.previousSetBit(index - 1)) {
+                deletedTasks.add(tasks.remove(index));
+            }
+            Collections.reverse(deletedTasks);
+        } else {
+            List<Task> keptTasks = new ArrayList<>(originalSize - deletedCount);
+            int index = 0;
+            for (Task task : tasks) {
+                if (deleted.get(index++)) {
+                    deletedTasks.add(task);
+                } else {
+                    keptTasks.add(task);
+                }
+            }
+            tasks.clear();
+            tasks.addAll(keptTasks);
+        }
+
+        // Recorded from the end, so that each deletion replays against the indices it was made at
+        int deletedIndex = deletedCount;
+        for (int index = deleted.previousSetBit(originalSize - 1); index >= 0;
+                index = deleted.previousSetBit(index - 1)) {
+            recordChange(TaskChange.Kind.DELETED, index, deletedTasks.get(--deletedIndex));
+        }
+
+        assert deletedTasks.size() == deletedCount : "Every marked task should be deleted";
+        assert tasks.size() == originalSize - deletedCount : "Task list size should decrease by the deleted tasks";
+        return deletedTasks;
+    }
+
     /**
      * Marks a task as completed at the specified index.
      *
@@ -87,6 +182,7 @@ public class TaskList {
         assert task != null : "Retrieved task should not be null";
 
         task.markAsDone();
+        recordChange(TaskChange.Kind.MARKED, index, task);
 
         assert task.isDone() : "Task should be marked as done after marking";
         return task;
@@ -133,6 +229,7 @@ public class TaskList {
         assert task != null : "Retrieved task should not be null";
 
         task.markAsUndone();
+        recordChange(TaskChange.Kind.MARKED, index, task);
 
         assert !task.isDone() : "Task should be unmarked after unmarking";
         return task;
@@ -180,6 +277,97 @@ public class TaskList {
         return task;
     }
 
+    /**
+     * Gets the task with the given id. Ids are only valid within the session that handed them out, see
+     * {@link Task#getId()}.
+     *
+     * @param id the id of the task
+     * @return the task with the id
+     * @throws PingpongException if no task in the list has the id
+     */
+    public Task getTaskById(long id) throws PingpongException {
+        Task task = tasks instanceof TaskTree ? ((TaskTree) tasks).getById(id) : findByIdScanning(id);
+        if (task == null) {
+            throw new PingpongException(String.format(TASK_ID_NOT_EXISTS_ERROR, id));
+        }
+        return task;
+    }
+
+    private Task findByIdScanning(long id) {
+        for (Task task : tasks) {
+            if (task.getId() == id) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the current position of the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the 0-based index of the task, or -1 if no task in the list has the id
+     */
+    public int indexOfId(long id) {
+        if (tasks instanceof TaskTree) {
+            return ((TaskTree) tasks).indexOfId(id);
+        }
+
+        int index = 0;
+        for (Task task : tasks) {
+            if (task.getId() == id) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Deletes the task with the given id, wherever it is in the list. Ids are only valid within the session
+     * that handed them out, see {@link Task#getId()}.
+     *
+     * @param id the id of the task to delete
+     * @return the deleted task
+     * @throws PingpongException if no task in the list has the id
+     */
+    public Task deleteTaskById(long id) throws PingpongException {
+        int index = indexOfId(id);
+        if (index < 0) {
+            throw new PingpongException(String.format(TASK_ID_NOT_EXISTS_ERROR, id));
+        }
+        return deleteTask(index);
+    }
+
+    /**
+     * Gets the changes made since they were last cleared, in the order they were made.
+     *
+     * @return an unmodifiable view of the pending changes
+     */
+    public List<TaskChange> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * Checks whether any change was made since the changes were last cleared.
+     *
+     * @return true if there are changes that have not been persisted
+     */
+    public boolean hasChanges() {
+        return !changes.isEmpty();
+    }
+
+    /**
+     * Forgets the recorded changes, typically because they were persisted.
+     */
+    public void clearChanges() {
+        changes.clear();
+    }
+
+    private void recordChange(TaskChange.Kind kind, int index, Task task) {
+        changes.add(new TaskChange(kind, index, task, task.isDone()));
+    }
+
     /**
      * Validates that the given index is within valid range.
      *
@@ -193,15 +381,62 @@ public class TaskList {
     }
 
     /**
-     * Gets all tasks in the task list.
+     * Gets all tasks in the task list. Reading it in order is efficient for every implementation,
+     * while copying it may not be.
      *
      * @return the complete list of tasks
      */
-    public ArrayList<Task> getAllTasks() {
+    public List<Task> getAllTasks() {
         assert tasks != null : "Task list should be initialized";
         return tasks;
     }
 
+    /**
+     * Replaces a range of tasks with other tasks, such as tasks another program changed in the data file.
+     * The replacement is not recorded as a change, as it cannot be expressed as appends, deletions and
+     * updates by index; the caller saves the whole list afterwards instead.
+     *
+     * @param index the 0-based index of the first task to replace
+     * @param count the number of tasks to replace
+     * @param replacement the tasks to put in their place
+     */
+    public void replaceTasks(int index, int count, List<Task> replacement) {
+        assert index >= 0 && index + count <= tasks.size() : "Replaced range should be within the list";
+        assert replacement != null : "Replacement tasks should not be null";
+
+        int originalSize = tasks.size();
+        List<Task> range = tasks.subList(index, index + count);
+        range.clear();
+        range.addAll(replacement);
+
+        assert tasks.size() == originalSize - count + replacement.size() : "Size should reflect the replacement";
+    }
+
+    /**
+     * Inserts tasks that are already stored, such as tasks still being loaded in the background.
+     * The insertion is not recorded as a change, but the recorded changes at or after the position are
+     * moved along with their tasks, so that they still replay on top of the stored list.
+     *
+     * @param index the 0-based position to insert the tasks at
+     * @param inserted the tasks to insert, in list order
+     */
+    public void insertTasks(int index, List<Task> inserted) {
+        assert index >= 0 && index <= tasks.size() : "Insert position should be within the list";
+        assert inserted != null : "Inserted tasks should not be null";
+
+        if (inserted.isEmpty()) {
+            return;
+        }
+        tasks.addAll(index, inserted);
+        for (int i = 0; i < changes.size(); i++) {
+            TaskChange change = changes.get(i);
+            if (change.getIndex() >= index) {
+                changes.set(i, new TaskChange(change.getKind(), change.getIndex() + inserted.size(),
+                        change.getTask(), change.isDone()));
+            }
+        }
+    }
+
     /**
      * Gets the number of tasks in the task list.
      *
@@ -229,7 +464,7 @@ public class TaskList {
         addTask(task);
 
         assert task != null : "Created todo should not be null";
-        assert tasks.contains(task) : "Todo should be in task list after adding";
+        assert tasks.get(tasks.size() - 1) == task : "Todo should be in task list after adding";
         return task;
     }
 
@@ -274,7 +509,7 @@ public class TaskList {
         addTask(task);
 
         assert task != null : "Created deadline should not be null";
-        assert tasks.contains(task) : "Deadline should be in task list after adding";
+        assert tasks.get(tasks.size() - 1) == task : "Deadline should be in task list after adding";
         return task;
     }
 
@@ -298,7 +533,7 @@ public class TaskList {
         addTask(task);
 
         assert task != null : "Created event should not be null";
-        assert tasks.contains(task) : "Event should be in task list after adding";
+        assert tasks.get(tasks.size() - 1) == task : "Event should be in task list after adding";
         return task;
     }
 
@@ -322,6 +557,28 @@ public class TaskList {
         return TaskSearcher.findTasksByKeyword(tasks, keyword);
     }
 
+    /**
+     * Finds all tasks whose descriptions contain every word of a query as a whole word. Unlike
+     * {@link #findTasksByKeyword(String)}, this looks the words up in an index instead of reading every task.
+     *
+     * @param query the words to search for
+     * @return a list of matching tasks, in list order
+     */
+    public ArrayList<Task> findTasksByWords(String query) {
+        return TaskSearcher.findTasksByWords(tasks, query);
+    }
+
+    /**
+     * Finds all tasks matching a query of keywords combined with AND, OR and NOT, answered from the
+     * description indexes instead of reading every task.
+     *
+     * @param query the query to match
+     * @return a list of matching tasks, in list order
+     */
+    public ArrayList<Task> findTasks(TaskQuery query) {
+        return TaskSearcher.findTasks(tasks, query);
+    }
+
     /**
      * Finds all tasks that contain any of the specified keywords in their description.
      *
@@ -357,6 +614,7 @@ public class TaskList {
         assert updatedTask != null : "Updated task should not be null";
 
         tasks.set(index, updatedTask);
+        recordChange(TaskChange.Kind.UPDATED, index, updatedTask);
 
         assert tasks.get(index) == updatedTask : "Task should be replaced in the list";
         return updatedTask;
@@ -0,0 +1,366 @@
+package pingpong.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import pingpong.PingpongException;
+
+/**
+ * A search for tasks by their descriptions, combining keywords with {@code AND}, {@code OR} and {@code NOT},
+ * such as {@code report AND NOT draft} or {@code team meeting OR standup}.
+ *
+ * <p>The operators are written in upper case. {@code NOT} binds tightest and {@code OR} loosest, and a
+ * {@code NOT} right after a keyword means {@code AND NOT}. The words between operators form one keyword,
+ * which a description contains as in a plain {@code find}, or, when searching whole words, by containing
+ * each of its words. A query without operators, or made only of operator words, is a single keyword, kept
+ * exactly as given.</p>
+ *
+ * <p>On a {@link TaskTree}, each keyword is looked up in the tree's indexes as a sorted list of task ids, and
+ * the lists are combined by galloping intersection, union and difference, so the cost follows the sizes of
+ * the lists involved rather than the size of the task list. Only a {@code NOT} without a keyword to subtract
+ * it from needs the ids of every task. Other lists are scanned, lower-casing each description once.</p>
+ */
+public class TaskQuery {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final String NOT = "NOT";
+    private static final Set<String> OPERATORS = Set.of(AND, OR, NOT);
+
+    // Error message constants
+    private static final String MISSING_KEYWORD_ERROR = "Expected a keyword %s in '%s'.\n"
+            + "Example: find report AND NOT draft";
+
+    private final Clause root;
+
+    private TaskQuery(Clause root) {
+        this.root = root;
+    }
+
+    /**
+     * Checks whether a search term uses any of the operators. A term made only of operator words, such as
+     * {@code find OR}, has nothing to combine and is searched for literally.
+     *
+     * @param query the search term
+     * @return true if the term has a standalone AND, OR or NOT next to at least one other word
+     */
+    public static boolean isBoolean(String query) {
+        assert query != null : "Query should not be null";
+
+        String[] tokens = query.trim().split("\\s+");
+        return Arrays.stream(tokens).anyMatch(OPERATORS::contains)
+                && !Arrays.stream(tokens).allMatch(OPERATORS::contains);
+    }
+
+    /**
+     * Parses a search term.
+     *
+     * @param query the search term
+     * @param isWholeWord whether keywords match whole words, using the keyword index, instead of substrings
+     * @return the query
+     * @throws PingpongException if an operator is missing a keyword next to it
+     */
+    public static TaskQuery parse(String query, boolean isWholeWord) throws PingpongException {
+        assert query != null : "Query should not be null";
+        assert !query.trim().isEmpty() : "Query should not be empty";
+
+        if (!isBoolean(query)) {
+            return new TaskQuery(new Keyword(query, isWholeWord));
+        }
+        return new TaskQuery(new QueryParser(query, isWholeWord).parse());
+    }
+
+    /**
+     * Creates a query for the tasks containing any of the given keywords.
+     *
+     * @param keywords the keywords, each matched as a substring
+     * @return the query
+     */
+    public static TaskQuery anyOf(String... keywords) {
+        assert keywords != null && keywords.length > 0 : "Keywords should not be empty";
+
+        List<Clause> clauses = new ArrayList<>(keywords.length);
+        for (String keyword : keywords) {
+            clauses.add(new Keyword(keyword, false));
+        }
+        return new TaskQuery(clauses.size() == 1 ? clauses.get(0) : new Or(clauses));
+    }
+
+    /**
+     * Checks whether a task matches the query.
+     *
+     * @param task the task to check
+     * @return true if the task matches
+     */
+    public boolean matches(Task task) {
+        assert task != null : "Task should not be null";
+        return root.matches(new Description(task));
+    }
+
+    /**
+     * Finds the tasks matching the query.
+     *
+     * @param tasks the list of tasks to search
+     * @return the matching tasks, in list order
+     */
+    ArrayList<Task> findIn(List<Task> tasks) {
+        assert tasks != null : "Task list should not be null";
+
+        if (tasks instanceof TaskTree) {
+            TaskTree tree = (TaskTree) tasks;
+            return tree.tasksOf(root.evaluate(new Evaluation(tree)));
+        }
+        return tasks.stream()
+                .filter(this::matches)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * A part of a query.
+     */
+    private interface Clause {
+        /**
+         * Gets the ids of the tasks in the tree matching this clause.
+         */
+        PostingList evaluate(Evaluation evaluation);
+
+        /**
+         * Checks whether a description matches this clause.
+         */
+        boolean matches(Description description);
+    }
+
+    /**
+     * A keyword, matched as a substring or as whole words.
+     */
+    private static class Keyword implements Clause {
+        private final String keywordLower;
+        private final Set<String> words;
+
+        Keyword(String keyword, boolean isWholeWord) {
+            this.keywordLower = keyword.toLowerCase();
+            this.words = isWholeWord ? KeywordIndex.tokenize(keyword) : null;
+        }
+
+        @Override
+        public PostingList evaluate(Evaluation evaluation) {
+            if (words == null) {
+                return evaluation.tree.idsContaining(keywordLower,
+                        task -> task.getDescription().toLowerCase().contains(keywordLower));
+            }
+            return words.isEmpty() ? PostingList.EMPTY : evaluation.tree.idsWithWords(words);
+        }
+
+        @Override
+        public boolean matches(Description description) {
+            if (words == null) {
+                return description.getLower().contains(keywordLower);
+            }
+            return !words.isEmpty() && description.getWords().containsAll(words);
+        }
+    }
+
+    /**
+     * The tasks not matching a clause.
+     */
+    private static class Not implements Clause {
+        private final Clause negated;
+
+        Not(Clause negated) {
+            this.negated = negated;
+        }
+
+        @Override
+        public PostingList evaluate(Evaluation evaluation) {
+            return PostingList.subtract(evaluation.getAllIds(), negated.evaluate(evaluation));
+        }
+
+        @Override
+        public boolean matches(Description description) {
+            return !negated.matches(description);
+        }
+    }
+
+    /**
+     * The tasks matching every clause. The clauses to match are intersected from the shortest up, and the
+     * negated clauses are then subtracted, so the ids of every task are only needed if all are negated.
+     */
+    private static class And implements Clause {
+        private final List<Clause> clauses;
+
+        And(List<Clause> clauses) {
+            this.clauses = clauses;
+        }
+
+        @Override
+        public PostingList evaluate(Evaluation evaluation) {
+            List<PostingList> matched = new ArrayList<>();
+            List<Clause> negated = new ArrayList<>();
+            for (Clause clause : clauses) {
+                if (clause instanceof Not) {
+                    negated.add(((Not) clause).negated);
+                } else {
+                    matched.add(clause.evaluate(evaluation));
+                }
+            }
+
+            PostingList ids;
+            if (matched.isEmpty()) {
+                ids = evaluation.getAllIds();
+            } else {
+                matched.sort(Comparator.comparingInt(PostingList::size));
+                ids = matched.get(0);
+                for (int i = 1; i < matched.size() && ids.size() > 0; i++) {
+                    ids = PostingList.intersect(ids, matched.get(i));
+                }
+            }
+            for (int i = 0; i < negated.size() && ids.size() > 0; i++) {
+                ids = PostingList.subtract(ids, negated.get(i).evaluate(evaluation));
+            }
+            return ids;
+        }
+
+        @Override
+        public boolean matches(Description description) {
+            return clauses.stream().allMatch(clause -> clause.matches(description));
+        }
+    }
+
+    /**
+     * The tasks matching any clause.
+     */
+    private static class Or implements Clause {
+        private final List<Clause> clauses;
+
+        Or(List<Clause> clauses) {
+            this.clauses = clauses;
+        }
+
+        @Override
+        public PostingList evaluate(Evaluation evaluation) {
+            PostingList ids = PostingList.EMPTY;
+            for (Clause clause : clauses) {
+                ids = PostingList.union(ids, clause.evaluate(evaluation));
+            }
+            return ids;
+        }
+
+        @Override
+        public boolean matches(Description description) {
+            return clauses.stream().anyMatch(clause -> clause.matches(description));
+        }
+    }
+
+    /**
+     * The tree a query is evaluated against, with the ids of all its tasks gathered once if needed.
+     */
+    private static class Evaluation {
+        private final TaskTree tree;
+        private PostingList allIds;
+
+        Evaluation(TaskTree tree) {
+            this.tree = tree;
+        }
+
+        PostingList getAllIds() {
+            if (allIds == null) {
+                allIds = tree.allIds();
+            }
+            return allIds;
+        }
+    }
+
+    /**
+     * A task description being scanned, lower-cased and split into words at most once for all keywords.
+     */
+    private static class Description {
+        private final Task task;
+        private String lower;
+        private Set<String> words;
+
+        Description(Task task) {
+            this.task = task;
+        }
+
+        String getLower() {
+            if (lower == null) {
+                lower = task.getDescription().toLowerCase();
+            }
+            return lower;
+        }
+
+        Set<String> getWords() {
+            if (words == null) {
+                words = KeywordIndex.tokenize(task.getDescription());
+            }
+            return words;
+        }
+    }
+
+    /**
+     * Parses the operators of a search term by recursive descent, one precedence level per method.
+     */
+    private static class QueryParser {
+        private final String query;
+        private final boolean isWholeWord;
+        private final String[] tokens;
+        private int position;
+
+        QueryParser(String query, boolean isWholeWord) {
+            this.query = query.trim();
+            this.isWholeWord = isWholeWord;
+            this.tokens = this.query.split("\\s+");
+        }
+
+        Clause parse() throws PingpongException {
+            Clause clause = parseOr();
+            assert position == tokens.length : "Every token should be parsed";
+            return clause;
+        }
+
+        private Clause parseOr() throws PingpongException {
+            List<Clause> clauses = new ArrayList<>();
+            clauses.add(parseAnd());
+            while (position < tokens.length && tokens[position].equals(OR)) {
+                position++;
+                clauses.add(parseAnd());
+            }
+            return clauses.size() == 1 ? clauses.get(0) : new Or(clauses);
+        }
+
+        private Clause parseAnd() throws PingpongException {
+            List<Clause> clauses = new ArrayList<>();
+            clauses.add(parseNot());
+            while (position < tokens.length && (tokens[position].equals(AND) || tokens[position].equals(NOT))) {
+                if (tokens[position].equals(AND)) {
+                    position++;
+                }
+                clauses.add(parseNot());
+            }
+            return clauses.size() == 1 ? clauses.get(0) : new And(clauses);
+        }
+
+        private Clause parseNot() throws PingpongException {
+            if (position < tokens.length && tokens[position].equals(NOT)) {
+                position++;
+                return new Not(parseNot());
+            }
+            return parseKeyword();
+        }
+
+        private Clause parseKeyword() throws PingpongException {
+            int start = position;
+            while (position < tokens.length && !OPERATORS.contains(tokens[position])) {
+                position++;
+            }
+            if (position == start) {
+                String place = start == 0 ? "before '" + tokens[start] + "'" : "after '" + tokens[start - 1] + "'";
+                throw new PingpongException(String.format(MISSING_KEYWORD_ERROR, place, query));
+            }
+            return new Keyword(String.join(" ", Arrays.asList(tokens).subList(start, position)), isWholeWord);
+        }
+    }
+}
@@ -2,7 +2,8 @@ package pingpong.task;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -17,7 +18,7 @@ public class TaskSearcher {
      * @param targetDate the date to search for
      * @return a list of tasks occurring on the specified date
      */
-    public static ArrayList<Task> findTasksOnDate(ArrayList<Task> tasks, LocalDate targetDate) {
+    public static ArrayList<Task> findTasksOnDate(List<Task> tasks, LocalDate targetDate) {
         assert targetDate != null : "Target date should not be null";
         assert tasks != null : "Task list should not be null";
 
@@ -28,31 +29,77 @@ public class TaskSearcher {
 
     /**
      * Finds all tasks that contain the specified keyword in their description.
+     * A {@link TaskTree} only checks the tasks its trigram index lists for every trigram of the keyword;
+     * other lists, and keywords shorter than a trigram, are scanned.
      *
      * @param tasks the list of tasks to search
      * @param keyword the keyword to search for
      * @return a list of tasks whose descriptions contain the keyword
      */
-    public static ArrayList<Task> findTasksByKeyword(ArrayList<Task> tasks, String keyword) {
+    public static ArrayList<Task> findTasksByKeyword(List<Task> tasks, String keyword) {
         assert keyword != null : "Keyword should not be null";
         assert !keyword.trim().isEmpty() : "Keyword should not be empty";
         assert tasks != null : "Task list should not be null";
 
         String keywordLower = keyword.toLowerCase();
+        if (tasks instanceof TaskTree && keywordLower.length() >= TrigramIndex.GRAM_LENGTH) {
+            return ((TaskTree) tasks).findBySubstring(keywordLower, task -> containsKeyword(task, keywordLower));
+        }
 
         return tasks.stream()
                 .filter(task -> containsKeyword(task, keywordLower))
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
+    /**
+     * Finds all tasks whose descriptions contain every word of a query as a whole word, ignoring case.
+     * A word is a run of letters and digits, so {@code book} matches "Read the book!" but not "Notebook".
+     * A {@link TaskTree} answers from its keyword index; other lists are scanned.
+     *
+     * @param tasks the list of tasks to search
+     * @param query the words to search for
+     * @return a list of matching tasks, in list order
+     */
+    public static ArrayList<Task> findTasksByWords(List<Task> tasks, String query) {
+        assert query != null : "Query should not be null";
+        assert tasks != null : "Task list should not be null";
+
+        Set<String> words = KeywordIndex.tokenize(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (tasks instanceof TaskTree) {
+            return ((TaskTree) tasks).findByWords(words);
+        }
+
+        return tasks.stream()
+                .filter(task -> KeywordIndex.tokenize(task.getDescription()).containsAll(words))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Finds all tasks matching a query of keywords combined with AND, OR and NOT.
+     *
+     * @param tasks the list of tasks to search
+     * @param query the query to match
+     * @return a list of matching tasks, in list order
+     */
+    public static ArrayList<Task> findTasks(List<Task> tasks, TaskQuery query) {
+        assert query != null : "Query should not be null";
+        assert tasks != null : "Task list should not be null";
+
+        return query.findIn(tasks);
+    }
+
     /**
      * Finds all tasks that contain any of the specified keywords.
+     * The keywords are lower-cased once, and each description at most once, rather than once per keyword.
      *
      * @param tasks the list of tasks to search
      * @param keywords the keywords to search for
      * @return a list of tasks whose descriptions contain any of the keywords
      */
-    public static ArrayList<Task> findTasksByKeywords(ArrayList<Task> tasks, String... keywords) {
+    public static ArrayList<Task> findTasksByKeywords(List<Task> tasks, String... keywords) {
         assert keywords != null : "Keywords array should not be null";
         assert tasks != null : "Task list should not be null";
 
@@ -60,9 +107,7 @@ public class TaskSearcher {
             return new ArrayList<>();
         }
 
-        return tasks.stream()
-                .filter(task -> taskMatchesAnyKeyword(task, keywords))
-                .collect(Collectors.toCollection(ArrayList::new));
+        return findTasks(tasks, TaskQuery.anyOf(keywords));
     }
 
     private static boolean isTaskOnDate(Task task, LocalDate targetDate) {
@@ -100,14 +145,4 @@ public class TaskSearcher {
 
         return task.getDescription().toLowerCase().contains(keywordLower);
     }
-
-    private static boolean taskMatchesAnyKeyword(Task task, String... keywords) {
-        assert task != null : "Task should not be null";
-        assert task.getDescription() != null : "Task description should not be null";
-        assert keywords != null : "Keywords array should not be null";
-
-        String descriptionLower = task.getDescription().toLowerCase();
-        return Arrays.stream(keywords)
-                .anyMatch(keyword -> descriptionLower.contains(keyword.toLowerCase()));
-    }
 }
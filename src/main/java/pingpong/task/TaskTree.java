@@ -0,0 +1,557 @@
+package pingpong.task;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * The list of tasks behind a {@link TaskList}: an order-statistic tree, so that finding, inserting and removing
+ * the task at a position take O(log n) time instead of shifting an array, together with a hash map from task
+ * ids to tree nodes, so that a task is found by its id in O(1) time and its position in O(log n) time.
+ * A {@link KeywordIndex} and a {@link TrigramIndex} over the descriptions find the tasks containing a word or
+ * a keyword without reading every description. Each is built the first time it is searched, so that loading
+ * and importing do not pay for searches that never come, and is kept up to date with every change after.
+ *
+ * <p>The tree is a treap ordered by position: each node keeps the size of its subtree and a random priority
+ * that is never lower than those of its children, which keeps the expected height logarithmic. Each task
+ * is expected to be in the list at most once.</p>
+ */
+public class TaskTree extends AbstractList<Task> {
+    private static final String ID_NOT_FOUND_ERROR = "No task with id ";
+
+    private final HashMap<Long, Node> nodesById = new HashMap<>();
+    private KeywordIndex keywordIndex;
+    private TrigramIndex trigramIndex;
+    private Node root;
+
+    /**
+     * Creates an empty tree.
+     */
+    public TaskTree() {
+    }
+
+    /**
+     * Creates a tree holding the given tasks, in linear time.
+     *
+     * @param tasks the tasks in list order
+     */
+    public TaskTree(Collection<? extends Task> tasks) {
+        assert tasks != null : "Tasks should not be null";
+        root = build(tasks);
+    }
+
+    @Override
+    public int size() {
+        return sizeOf(root);
+    }
+
+    @Override
+    public Task get(int index) {
+        return nodeAt(index).task;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        assert task != null : "Task should not be null";
+
+        Node node = nodeAt(index);
+        Task previous = node.task;
+        unmapNode(node);
+        node.task = task;
+        mapNode(node);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        assert task != null : "Task should not be null";
+        checkIndex(index, size() + 1);
+
+        Node node = new Node(task);
+        mapNode(node);
+        insert(index, node);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Task> tasks) {
+        assert tasks != null : "Tasks should not be null";
+        checkIndex(index, size() + 1);
+
+        if (tasks.isEmpty()) {
+            return false;
+        }
+        insert(index, build(tasks));
+        return true;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Node node = nodeAt(index);
+        unmapNode(node);
+
+        // Replace the node by its merged children, then shrink the subtrees on the way up
+        Node parent = node.parent;
+        Node child = merge(node.left, node.right);
+        if (child != null) {
+            child.parent = parent;
+        }
+        if (parent == null) {
+            root = child;
+        } else if (parent.left == node) {
+            parent.left = child;
+        } else {
+            parent.right = child;
+        }
+        for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+            ancestor.size--;
+        }
+        modCount++;
+        return node.task;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodesById.clear();
+        if (keywordIndex != null) {
+            keywordIndex.clear();
+        }
+        if (trigramIndex != null) {
+            trigramIndex.clear();
+        }
+        modCount++;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof Task)) {
+            return -1;
+        }
+        Node node = nodesById.get(((Task) object).getId());
+        return node != null && node.task == object ? rankOf(node) : -1;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(object) >= 0;
+    }
+
+    /**
+     * Finds the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the task, or null if no task in the list has the id
+     */
+    public Task getById(long id) {
+        Node node = nodesById.get(id);
+        return node == null ? null : node.task;
+    }
+
+    /**
+     * Finds the position of the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the 0-based position of the task, or -1 if no task in the list has the id
+     */
+    public int indexOfId(long id) {
+        Node node = nodesById.get(id);
+        return node == null ? -1 : rankOf(node);
+    }
+
+    /**
+     * Removes the task with the given id.
+     *
+     * @param id the id of the task
+     * @return the removed task
+     * @throws NoSuchElementException if no task in the list has the id
+     */
+    public Task removeById(long id) {
+        int index = indexOfId(id);
+        if (index < 0) {
+            throw new NoSuchElementException(ID_NOT_FOUND_ERROR + id);
+        }
+        return remove(index);
+    }
+
+    /**
+     * Finds the tasks whose descriptions contain all of the given words as whole words, using the keyword
+     * index.
+     *
+     * @param words the words to find, each a run of letters and digits in lower case
+     * @return the matching tasks, in list order
+     */
+    public ArrayList<Task> findByWords(Collection<String> words) {
+        return tasksOf(idsWithWords(words));
+    }
+
+    /**
+     * Finds the tasks whose lower-cased descriptions may contain a keyword, using the trigram index, and keeps
+     * those the given check accepts. Only the tasks containing every trigram of the keyword are checked.
+     *
+     * @param keywordLower the lower-cased keyword, at least as long as a trigram
+     * @param isMatch decides whether a candidate task really contains the keyword
+     * @return the matching tasks, in list order
+     */
+    public ArrayList<Task> findBySubstring(String keywordLower, Predicate<Task> isMatch) {
+        assert keywordLower != null && keywordLower.length() >= TrigramIndex.GRAM_LENGTH
+                : "Keyword should be at least as long as a trigram";
+        return tasksOf(idsContaining(keywordLower, isMatch));
+    }
+
+    /**
+     * Gets the ids of the tasks whose descriptions contain all of the given words as whole words.
+     *
+     * @param words the words to find, each a run of letters and digits in lower case
+     * @return the ids in ascending order
+     */
+    PostingList idsWithWords(Collection<String> words) {
+        assert words != null && !words.isEmpty() : "Words should not be empty";
+
+        List<PostingList> postings = new ArrayList<>(words.size());
+        for (String word : words) {
+            postings.add(getKeywordIndex().getPostings(word));
+        }
+        return intersectAll(postings);
+    }
+
+    /**
+     * Gets the ids of the tasks the given check accepts among those whose lower-cased descriptions may contain
+     * a keyword. Keywords shorter than a trigram are checked against every task.
+     *
+     * @param keywordLower the lower-cased keyword
+     * @param isMatch decides whether a candidate task really contains the keyword
+     * @return the ids in ascending order
+     */
+    PostingList idsContaining(String keywordLower, Predicate<Task> isMatch) {
+        assert keywordLower != null : "Keyword should not be null";
+        assert isMatch != null : "Match check should not be null";
+
+        if (keywordLower.length() < TrigramIndex.GRAM_LENGTH) {
+            return allIds().filter(id -> isMatch.test(nodesById.get(id).task));
+        }
+        long[] trigrams = TrigramIndex.trigramsOf(keywordLower);
+        List<PostingList> postings = new ArrayList<>(trigrams.length);
+        for (long trigram : trigrams) {
+            postings.add(getTrigramIndex().getPostings(trigram));
+        }
+        return intersectAll(postings).filter(id -> isMatch.test(nodesById.get(id).task));
+    }
+
+    /**
+     * Gets the ids of all tasks, such as to take the ids a query excludes from.
+     *
+     * @return the ids in ascending order
+     */
+    PostingList allIds() {
+        long[] ids = new long[nodesById.size()];
+        int count = 0;
+        for (long id : nodesById.keySet()) {
+            ids[count++] = id;
+        }
+        Arrays.sort(ids);
+        return new PostingList(ids, count);
+    }
+
+    /**
+     * Gets the tasks with the given ids, in list order, by sorting their positions.
+     *
+     * @param ids the ids of tasks in the tree
+     * @return the tasks, in list order
+     */
+    ArrayList<Task> tasksOf(PostingList ids) {
+        int[] positions = new int[ids.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = rankOf(nodesById.get(ids.get(i)));
+        }
+        Arrays.sort(positions);
+
+        ArrayList<Task> found = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            found.add(get(position));
+        }
+        return found;
+    }
+
+    private KeywordIndex getKeywordIndex() {
+        if (keywordIndex == null) {
+            keywordIndex = new KeywordIndex();
+            forEach(keywordIndex::add);
+        }
+        return keywordIndex;
+    }
+
+    private TrigramIndex getTrigramIndex() {
+        if (trigramIndex == null) {
+            trigramIndex = new TrigramIndex();
+            forEach(trigramIndex::add);
+        }
+        return trigramIndex;
+    }
+
+    /**
+     * Intersects posting lists from the shortest up, so that each step gallops with the fewest ids.
+     */
+    private static PostingList intersectAll(List<PostingList> postings) {
+        postings.sort(Comparator.comparingInt(PostingList::size));
+        PostingList common = postings.get(0);
+        for (int i = 1; i < postings.size() && common.size() > 0; i++) {
+            common = PostingList.intersect(common, postings.get(i));
+        }
+        return common;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new InOrderIterator();
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    private Node nodeAt(int index) {
+        checkIndex(index, size());
+
+        Node node = root;
+        while (true) {
+            int leftSize = sizeOf(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    private static int rankOf(Node node) {
+        int rank = sizeOf(node.left);
+        for (Node child = node; child.parent != null; child = child.parent) {
+            if (child.parent.right == child) {
+                rank += sizeOf(child.parent.left) + 1;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Adds the task in a node to the id map and the description indexes.
+     */
+    private void mapNode(Node node) {
+        nodesById.put(node.task.getId(), node);
+        if (keywordIndex != null) {
+            keywordIndex.add(node.task);
+        }
+        if (trigramIndex != null) {
+            trigramIndex.add(node.task);
+        }
+    }
+
+    /**
+     * Removes the task in a node from the id map and the description indexes, unless another node holds it.
+     */
+    private void unmapNode(Node node) {
+        if (nodesById.remove(node.task.getId(), node)) {
+            if (keywordIndex != null) {
+                keywordIndex.remove(node.task);
+            }
+            if (trigramIndex != null) {
+                trigramIndex.remove(node.task);
+            }
+        }
+    }
+
+    /**
+     * Inserts a treap, such as a single new node, so that its first task ends up at the given position.
+     */
+    private void insert(int index, Node inserted) {
+        Node[] parts = split(root, index);
+        root = merge(merge(parts[0], inserted), parts[1]);
+        root.parent = null;
+        modCount++;
+    }
+
+    /**
+     * Builds a treap of the given tasks in linear time, keeping the nodes with higher priorities on a stack
+     * down the right spine.
+     */
+    private Node build(Collection<? extends Task> tasks) {
+        Node[] spine = new Node[tasks.size()];
+        int height = 0;
+        for (Task task : tasks) {
+            assert task != null : "Task should not be null";
+            Node node = new Node(task);
+            mapNode(node);
+
+            Node lastPopped = null;
+            while (height > 0 && spine[height - 1].priority < node.priority) {
+                lastPopped = spine[--height];
+            }
+            node.left = lastPopped;
+            if (lastPopped != null) {
+                lastPopped.parent = node;
+            }
+            if (height > 0) {
+                spine[height - 1].right = node;
+                node.parent = spine[height - 1];
+            }
+            spine[height++] = node;
+        }
+        if (height == 0) {
+            return null;
+        }
+        computeSizes(spine[0]);
+        return spine[0];
+    }
+
+    private static int computeSizes(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = computeSizes(node.left) + computeSizes(node.right) + 1;
+        return node.size;
+    }
+
+    /**
+     * Splits a treap into the nodes before a position and the nodes from it on. Both parts have no parent.
+     */
+    private static Node[] split(Node node, int index) {
+        if (node == null) {
+            return new Node[2];
+        }
+
+        Node[] parts;
+        if (index <= sizeOf(node.left)) {
+            parts = split(node.left, index);
+            node.left = parts[1];
+            if (node.left != null) {
+                node.left.parent = node;
+            }
+            parts[1] = node;
+        } else {
+            parts = split(node.right, index - sizeOf(node.left) - 1);
+            node.right = parts[0];
+            if (node.right != null) {
+                node.right.parent = node;
+            }
+            parts[0] = node;
+        }
+        node.size = sizeOf(node.left) + sizeOf(node.right) + 1;
+        node.parent = null;
+        return parts;
+    }
+
+    /**
+     * Joins two treaps, all nodes of the first before those of the second. The result has no parent set.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        } else if (second == null) {
+            return first;
+        }
+
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.right.parent = first;
+            first.size = sizeOf(first.left) + sizeOf(first.right) + 1;
+            return first;
+        }
+        second.left = merge(first, second.left);
+        second.left.parent = second;
+        second.size = sizeOf(second.left) + sizeOf(second.right) + 1;
+        return second;
+    }
+
+    /**
+     * A node of the treap, holding one task.
+     */
+    private static class Node {
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Task task;
+        private int size = 1;
+        private Node left;
+        private Node right;
+        private Node parent;
+
+        Node(Task task) {
+            this.task = task;
+        }
+    }
+
+    /**
+     * Walks the tree in order through the parent links, in O(1) amortized time per task.
+     */
+    private class InOrderIterator implements Iterator<Task> {
+        private Node next = first(root);
+        private Node last;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = successor(next);
+            return last.task;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            } else if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Removing a node relinks its children but keeps every other node, including the successor
+            TaskTree.this.remove(rankOf(last));
+            last = null;
+            expectedModCount = modCount;
+        }
+
+        private Node first(Node node) {
+            if (node == null) {
+                return null;
+            }
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+
+        private Node successor(Node node) {
+            if (node.right != null) {
+                return first(node.right);
+            }
+            while (node.parent != null && node.parent.right == node) {
+                node = node.parent;
+            }
+            return node.parent;
+        }
+    }
+}
@@ -11,7 +11,7 @@ import pingpong.PingpongException;
 public class TaskUpdater {
 
     /**
-     * Creates a new task with updated fields based on the original task.
+     * Creates a new task with updated fields based on the original task. The new task keeps the id of the original.
      *
      * @param originalTask the original task to base the update on
      * @param newDescription the new description (null to keep current)
@@ -25,16 +25,23 @@ public class TaskUpdater {
                                          LocalDateTime newStart, LocalDateTime newEnd) throws PingpongException {
         assert originalTask != null : "Original task should not be null";
 
+        Task updatedTask;
         switch (originalTask.getType()) {
         case TODO:
-            return createUpdatedTodo(originalTask, newDescription, newDeadline, newStart, newEnd);
+            updatedTask = createUpdatedTodo(originalTask, newDescription, newDeadline, newStart, newEnd);
+            break;
         case DEADLINE:
-            return createUpdatedDeadline(originalTask, newDescription, newDeadline, newStart, newEnd);
+            updatedTask = createUpdatedDeadline(originalTask, newDescription, newDeadline, newStart, newEnd);
+            break;
         case Event:
-            return createUpdatedEvent(originalTask, newDescription, newDeadline, newStart, newEnd);
+            updatedTask = createUpdatedEvent(originalTask, newDescription, newDeadline, newStart, newEnd);
+            break;
         default:
             throw new PingpongException("Unknown task type cannot be updated.");
         }
+
+        updatedTask.restoreId(originalTask.getId());
+        return updatedTask;
     }
 
     private static Task createUpdatedTodo(Task originalTask, String newDescription, LocalDate newDeadline,
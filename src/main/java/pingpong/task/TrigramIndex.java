@@ -0,0 +1,95 @@
+package pingpong.task;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * An index from the trigrams, the runs of three characters, of lower-cased task descriptions to the ids of
+ * the tasks containing them. A description containing a keyword contains every trigram of the keyword, so
+ * intersecting the posting lists of those trigrams gives the only tasks worth checking for the keyword.
+ *
+ * <p>Descriptions are lower-cased the same way as keyword searches, so the candidates are never fewer than
+ * the matches. Keywords shorter than a trigram cannot be answered and are left to a scan.</p>
+ */
+class TrigramIndex {
+    /** The length of the keys. */
+    static final int GRAM_LENGTH = 3;
+
+    private static final long[] NO_TRIGRAMS = new long[0];
+
+    private final HashMap<Long, PostingList> postingsByTrigram = new HashMap<>();
+
+    /**
+     * Gets the distinct trigrams of a lower-cased text, each packed into a long.
+     *
+     * @param lowerText the lower-cased text
+     * @return the trigrams in ascending order, or an empty array if the text is shorter than a trigram
+     */
+    static long[] trigramsOf(String lowerText) {
+        assert lowerText != null : "Text should not be null";
+
+        if (lowerText.length() < GRAM_LENGTH) {
+            return NO_TRIGRAMS;
+        }
+        long[] trigrams = new long[lowerText.length() - GRAM_LENGTH + 1];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = ((long) lowerText.charAt(i) << 32) | ((long) lowerText.charAt(i + 1) << 16)
+                    | lowerText.charAt(i + 2);
+        }
+        Arrays.sort(trigrams);
+
+        int distinctCount = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinctCount++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, distinctCount);
+    }
+
+    /**
+     * Adds the trigrams of a task's description.
+     *
+     * @param task the task added to the list
+     */
+    void add(Task task) {
+        assert task != null : "Task should not be null";
+
+        for (long trigram : trigramsOf(task.getDescription().toLowerCase())) {
+            postingsByTrigram.computeIfAbsent(trigram, t -> new PostingList()).add(task.getId());
+        }
+    }
+
+    /**
+     * Removes the trigrams of a task's description, dropping those no other task contains.
+     *
+     * @param task the task removed from the list
+     */
+    void remove(Task task) {
+        assert task != null : "Task should not be null";
+
+        for (long trigram : trigramsOf(task.getDescription().toLowerCase())) {
+            PostingList postings = postingsByTrigram.get(trigram);
+            if (postings != null && postings.remove(task.getId()) && postings.size() == 0) {
+                postingsByTrigram.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Removes every trigram.
+     */
+    void clear() {
+        postingsByTrigram.clear();
+    }
+
+    /**
+     * Gets the ids of the tasks whose descriptions contain a trigram.
+     *
+     * @param trigram the packed trigram
+     * @return the ids in ascending order, to be read only
+     */
+    PostingList getPostings(long trigram) {
+        return postingsByTrigram.getOrDefault(trigram, PostingList.EMPTY);
+    }
+}
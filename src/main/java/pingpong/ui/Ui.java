@@ -1,6 +1,7 @@
 package pingpong.ui;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 import pingpong.task.Task;
@@ -10,6 +11,13 @@ import pingpong.task.Task;
  * Manages the command line interface for the Pingpong application.
  */
 public class Ui {
+    /** The total task count passed while older tasks are still being loaded in the background. */
+    public static final int TOTAL_STILL_LOADING = -1;
+
+    private static final String TOTAL_MESSAGE = " Now you have %d tasks in the list.";
+    private static final String TOTAL_STILL_LOADING_MESSAGE =
+            " Your other tasks are still loading, so they are not counted yet.";
+
     private Scanner scanner;
 
     /**
@@ -89,19 +97,19 @@ public class Ui {
      * Displays a confirmation message when a task has been added.
      *
      * @param task the task that was added
-     * @param totalTasks the total number of tasks in the list after adding
+     * @param totalTasks the total number of tasks in the list after adding, or {@link #TOTAL_STILL_LOADING}
      */
     public void showTaskAdded(Task task, int totalTasks) {
         System.out.println(" Got it. I've added this task:");
         System.out.println("   " + task);
-        System.out.println(" Now you have " + totalTasks + " tasks in the list.");
+        System.out.println(describeTotal(totalTasks));
     }
 
     /**
      * Displays confirmation messages when multiple tasks have been added using varargs.
      *
      * @param tasks the tasks that were added
-     * @param totalTasks the total number of tasks in the list after adding
+     * @param totalTasks the total number of tasks in the list after adding, or {@link #TOTAL_STILL_LOADING}
      */
     public void showTasksAdded(ArrayList<Task> tasks, int totalTasks) {
         if (tasks.size() == 1) {
@@ -111,8 +119,21 @@ public class Ui {
             for (int i = 0; i < tasks.size(); i++) {
                 System.out.println("   " + (i + 1) + ". " + tasks.get(i));
             }
-            System.out.println(" Now you have " + totalTasks + " tasks in the list.");
+            System.out.println(describeTotal(totalTasks));
+        }
+    }
+
+    /**
+     * Describes the number of tasks in the list after a change.
+     *
+     * @param totalTasks the total number of tasks, or {@link #TOTAL_STILL_LOADING}
+     * @return the message line, which does not guess a count while tasks are still being loaded
+     */
+    protected static String describeTotal(int totalTasks) {
+        if (totalTasks == TOTAL_STILL_LOADING) {
+            return TOTAL_STILL_LOADING_MESSAGE;
         }
+        return String.format(TOTAL_MESSAGE, totalTasks);
     }
 
     /**
@@ -120,10 +141,27 @@ public class Ui {
      *
      * @param tasks the list of tasks to display
      */
-    public void showTaskList(ArrayList<Task> tasks) {
+    public void showTaskList(List<Task> tasks) {
         System.out.println(" Here are the tasks in your list:");
-        for (int i = 0; i < tasks.size(); i++) {
-            System.out.println(" " + (i + 1) + "." + tasks.get(i));
+        int number = 1;
+        for (Task task : tasks) {
+            System.out.println(" " + number++ + "." + task);
+        }
+    }
+
+    /**
+     * Displays the archived tasks, which have no task numbers.
+     *
+     * @param archivedTasks the archived tasks to display
+     */
+    public void showArchivedTasks(List<Task> archivedTasks) {
+        if (archivedTasks.isEmpty()) {
+            System.out.println(" There are no archived tasks.");
+        } else {
+            System.out.println(" Here are the archived tasks:");
+            for (Task task : archivedTasks) {
+                System.out.println("  " + task);
+            }
         }
     }
 
@@ -137,11 +175,12 @@ public class Ui {
             if (i + 1 < listsWithHeaders.length) {
                 String header = (String) listsWithHeaders[i];
                 @SuppressWarnings("unchecked")
-                ArrayList<Task> tasks = (ArrayList<Task>) listsWithHeaders[i + 1];
+                List<Task> tasks = (List<Task>) listsWithHeaders[i + 1];
 
                 System.out.println(" " + header);
-                for (int j = 0; j < tasks.size(); j++) {
-                    System.out.println(" " + (j + 1) + "." + tasks.get(j));
+                int number = 1;
+                for (Task task : tasks) {
+                    System.out.println(" " + number++ + "." + task);
                 }
                 System.out.println();
             }
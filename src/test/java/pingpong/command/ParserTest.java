@@ -139,6 +139,31 @@ public class ParserTest {
         assertThrows(PingpongException.class, () -> Parser.parse("find "));
     }
 
+    @Test
+    public void parse_importCommand_success() throws PingpongException {
+        assertTrue(Parser.parse("import tasks.csv") instanceof ImportCommand);
+        assertThrows(PingpongException.class, () -> Parser.parse("import"));
+    }
+
+    @Test
+    public void parse_allOption_success() throws PingpongException {
+        assertTrue(Parser.parse("list --all") instanceof ListCommand);
+        assertTrue(Parser.parse("find book --all") instanceof FindCommand);
+        assertTrue(Parser.parse("find --all 2024-12-25") instanceof FindCommand);
+    }
+
+    @Test
+    public void parse_findOnlyAllOption_throwsException() {
+        assertThrows(PingpongException.class, () -> Parser.parse("find --all"));
+    }
+
+    @Test
+    public void parse_wordOption_success() throws PingpongException {
+        assertTrue(Parser.parse("find --word book") instanceof FindCommand);
+        assertTrue(Parser.parse("find book club --word --all") instanceof FindCommand);
+        assertThrows(PingpongException.class, () -> Parser.parse("find --word --all"));
+    }
+
     @Test
     public void parse_emptyInput_throwsException() {
         assertThrows(PingpongException.class, () -> Parser.parse(""));
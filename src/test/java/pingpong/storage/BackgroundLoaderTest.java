@@ -0,0 +1,118 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.MockUi;
+import pingpong.PingpongException;
+import pingpong.command.AddTodoCommand;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackgroundLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path createDataFile(int taskCount) throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        new FileStorageEngine(dataPath.toString()).save(tasks);
+        return dataPath;
+    }
+
+    @Test
+    public void awaitLoaded_appendedWhileLoading_appendedAfterLoadedTasks() throws IOException {
+        Path dataPath = createDataFile(5000);
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()));
+        TaskList taskList = new TaskList();
+
+        storage.loadInBackground();
+        taskList.addTodo("appended");
+        storage.saveChanges(taskList);
+        storage.awaitLoaded(taskList, loadedCount -> { });
+
+        assertFalse(storage.isLoading(taskList));
+        assertFalse(taskList.hasChanges());
+        assertEquals(5001, taskList.size());
+        assertEquals("task 0", taskList.getAllTasks().get(0).getDescription());
+        assertEquals("appended", taskList.getAllTasks().get(5000).getDescription());
+        storage.close();
+
+        List<Task> stored = new FileStorageEngine(dataPath.toString()).load();
+        assertEquals(5001, stored.size());
+        assertEquals("appended", stored.get(5000).getDescription());
+    }
+
+    @Test
+    public void addTodo_whileLoading_totalNotReported() throws IOException, PingpongException {
+        Path dataPath = createDataFile(10);
+        CountDownLatch isReleased = new CountDownLatch(1);
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()) {
+            @Override
+            public void load(Consumer<List<Task>> batchConsumer) throws IOException {
+                try {
+                    isReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.load(batchConsumer);
+            }
+        });
+        TaskList taskList = new TaskList();
+        MockUi ui = new MockUi();
+
+        storage.loadInBackground();
+        new AddTodoCommand("appended").execute(taskList, ui, storage);
+        String output = ui.getOutput();
+        assertFalse(output.contains("Now you have"));
+        assertTrue(output.contains("still loading"));
+
+        isReleased.countDown();
+        storage.awaitLoaded(taskList, loadedCount -> { });
+        new AddTodoCommand("after loading").execute(taskList, ui, storage);
+        assertTrue(ui.getOutput().contains("Now you have 12 tasks in the list."));
+        storage.close();
+    }
+
+    @Test
+    public void close_whileLoading_waitsAndSavesAppendedTasks() throws IOException {
+        Path dataPath = createDataFile(100);
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()).withJournal());
+        TaskList taskList = new TaskList();
+
+        storage.loadInBackground();
+        taskList.addTodos("first", "second");
+        storage.close(taskList);
+
+        List<Task> stored = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(102, stored.size());
+        assertEquals("task 99", stored.get(99).getDescription());
+        assertEquals("second", stored.get(101).getDescription());
+    }
+
+    @Test
+    public void drainInto_missingFile_emptyAndDone() {
+        BackgroundLoader loader = new BackgroundLoader(
+                new FileStorageEngine(tempDir.resolve("missing.txt").toString()));
+        TaskList taskList = new TaskList();
+
+        assertTrue(loader.awaitInto(taskList, loadedCount -> { }));
+        assertTrue(loader.drainInto(taskList));
+        assertEquals(0, taskList.size());
+        assertEquals(0, loader.getLoadedCount());
+    }
+}
@@ -0,0 +1,70 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryTaskFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void writeThenRead_allTaskTypes_roundTrips() throws IOException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("Buy groceries"));
+        tasks.add(new Deadline("Submit report", LocalDate.of(2025, 9, 15)));
+        tasks.add(new Event("Caf\u00e9 meeting", LocalDateTime.of(2025, 9, 10, 14, 0),
+                LocalDateTime.of(2025, 9, 10, 16, 30)));
+        tasks.get(1).markAsDone();
+        Path path = tempDir.resolve("tasks.bin");
+
+        BinaryTaskFile.write(path, TaskSnapshot.of(tasks, 42), false);
+        BinaryTaskFile file = BinaryTaskFile.read(path);
+
+        assertEquals(42, file.getSequence());
+        assertEquals(3, file.getTasks().size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).toString(), file.getTasks().get(i).toString());
+        }
+    }
+
+    @Test
+    public void read_truncatedFile_keepsCompleteRecords() throws IOException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+        tasks.add(new Todo("second"));
+        Path path = tempDir.resolve("tasks.bin");
+        BinaryTaskFile.write(path, TaskSnapshot.of(tasks, 0), true);
+
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 3));
+
+        assertEquals(1, BinaryTaskFile.read(path).getTasks().size());
+    }
+
+    @Test
+    public void load_binaryFormatStorage_readsSavedTasks() throws IOException {
+        String filePath = tempDir.resolve("pingpong.bin").toString();
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+
+        new FileStorageEngine(filePath).withBinaryFormat().save(tasks);
+
+        assertEquals("first", new FileStorageEngine(filePath).withBinaryFormat().load().get(0).getDescription());
+    }
+}
@@ -0,0 +1,107 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Deadline;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedTaskFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ArrayList<Task> createTasks(int count) {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = i % 2 == 0
+                    ? new Todo("Pay monthly bills " + i)
+                    : new Deadline("Caf\u00e9 rent " + i, LocalDate.of(2025, 1, 1).plusDays(i));
+            if (i % 3 == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    @Test
+    public void readAll_severalBlocks_roundTripsInOrder() throws IOException {
+        Path path = tempDir.resolve("tasks.dat");
+        ArrayList<Task> tasks = createTasks(250);
+        CompressedTaskFile.write(path, TaskSnapshot.of(tasks, 9), 64, true);
+
+        try (CompressedTaskFile file = CompressedTaskFile.open(path)) {
+            assertEquals(9, file.getSequence());
+            assertEquals(250, file.getRecordCount());
+            assertEquals(4, file.getBlockCount());
+            List<Task> loaded = file.readAll();
+            assertEquals(tasks.size(), loaded.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                assertEquals(tasks.get(i).toString(), loaded.get(i).toString());
+            }
+        }
+    }
+
+    @Test
+    public void readBlock_blockOfRecord_containsOnlyThatBlock() throws IOException {
+        Path path = tempDir.resolve("tasks.dat");
+        ArrayList<Task> tasks = createTasks(250);
+        CompressedTaskFile.write(path, TaskSnapshot.of(tasks, 0), 64, false);
+
+        try (CompressedTaskFile file = CompressedTaskFile.open(path)) {
+            int block = file.getBlockOf(200);
+            assertEquals(3, block);
+            List<Task> loaded = file.readBlock(block);
+            assertEquals(file.getBlockRecordCount(block), loaded.size());
+            assertEquals(250 - 192, loaded.size());
+            assertEquals(tasks.get(200).toString(), loaded.get(200 - 192).toString());
+        }
+    }
+
+    @Test
+    public void readAll_corruptedBlock_otherBlocksKept() throws IOException {
+        Path path = tempDir.resolve("tasks.dat");
+        CompressedTaskFile.write(path, TaskSnapshot.of(createTasks(200), 0), 100, false);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}), CompressedTaskFile.HEADER_SIZE + 2);
+        }
+
+        try (CompressedTaskFile file = CompressedTaskFile.open(path)) {
+            assertThrows(IOException.class, () -> file.readBlock(0));
+            assertEquals(100, file.readAll().size());
+        }
+    }
+
+    @Test
+    public void save_compressedFormat_smallerThanTextAndReloads() throws IOException {
+        ArrayList<Task> tasks = createTasks(2000);
+        Path textPath = tempDir.resolve("text.txt");
+        Path compressedPath = tempDir.resolve("compressed.txt");
+        new FileStorageEngine(textPath.toString()).save(tasks);
+        FileStorageEngine storage = new FileStorageEngine(compressedPath.toString()).withCompressedFormat(128);
+        storage.save(tasks);
+
+        assertTrue(Files.size(compressedPath) * 4 < Files.size(textPath));
+        tasks.get(1).markAsDone();
+        storage.saveMarked(tasks, 1);
+
+        List<Task> loaded = new FileStorageEngine(compressedPath.toString()).load();
+        assertEquals(2000, loaded.size());
+        assertTrue(loaded.get(1).isDone());
+        assertEquals(tasks.get(1999).toString(), loaded.get(1999).toString());
+    }
+}
@@ -0,0 +1,147 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalChangeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ArrayList<Task> createTodos(String... descriptions) {
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (String description : descriptions) {
+            tasks.add(new Todo(description));
+        }
+        return tasks;
+    }
+
+    @Test
+    public void compute_mixedEdits_minimalHunks() {
+        List<String> base = List.of("a", "b", "c", "d", "e");
+        List<String> other = List.of("a", "x", "c", "e", "f");
+
+        List<RecordDiff.Hunk> hunks = RecordDiff.compute(base, other);
+
+        assertEquals(3, hunks.size());
+        assertEquals(1, hunks.get(0).getBaseStart());
+        assertEquals(List.of("x"), hunks.get(0).getLines());
+        assertEquals(3, hunks.get(1).getBaseStart());
+        assertEquals(4, hunks.get(1).getBaseEnd());
+        assertTrue(hunks.get(1).getLines().isEmpty());
+        assertEquals(5, hunks.get(2).getBaseStart());
+        assertEquals(List.of("f"), hunks.get(2).getLines());
+    }
+
+    @Test
+    public void applyTo_disjointChanges_fileChangesMergedIntoList() throws PingpongException {
+        ArrayList<Task> baseTasks = createTodos("read book", "return book", "lend book");
+        TaskList taskList = new TaskList(new ArrayList<>(baseTasks));
+        TaskSnapshot base = TaskSnapshot.of(baseTasks, 0);
+        taskList.markTask(0);
+        taskList.addTodo("buy book");
+
+        ArrayList<Task> fileTasks = createTodos("read book", "lend book", "sell book");
+        ExternalChange.MergeResult result = new ExternalChange(base, fileTasks).applyTo(taskList);
+
+        assertEquals(2, result.getAppliedCount());
+        assertTrue(result.getConflicts().isEmpty());
+        List<Task> merged = taskList.getAllTasks();
+        assertEquals(4, merged.size());
+        assertTrue(merged.get(0).isDone());
+        assertEquals("lend book", merged.get(1).getDescription());
+        assertEquals("buy book", merged.get(2).getDescription());
+        assertEquals("sell book", merged.get(3).getDescription());
+    }
+
+    @Test
+    public void applyTo_sameTaskChangedOnBothSides_conflictKeepsListVersion() throws PingpongException {
+        ArrayList<Task> baseTasks = createTodos("read book", "return book");
+        TaskList taskList = new TaskList(new ArrayList<>(baseTasks));
+        TaskSnapshot base = TaskSnapshot.of(baseTasks, 0);
+        taskList.markTask(1);
+
+        ArrayList<Task> fileTasks = createTodos("read book", "return library book");
+        ExternalChange.MergeResult result = new ExternalChange(base, fileTasks).applyTo(taskList);
+
+        assertEquals(0, result.getAppliedCount());
+        assertEquals(1, result.getConflicts().size());
+        assertEquals(1, result.getConflicts().get(0).getBaseIndex());
+        assertEquals("return library book", result.getConflicts().get(0).getFileTasks().get(0).getDescription());
+        assertEquals("return book", taskList.getTask(1).getDescription());
+        assertTrue(taskList.getTask(1).isDone());
+    }
+
+    @Test
+    public void reloadExternalChanges_fileEditedByAnotherProgram_mergedAndOwnWritesIgnored()
+            throws IOException, InterruptedException {
+        Path path = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(path.toString()).withFileWatcher());
+        TaskList taskList = new TaskList(storage.load());
+        taskList.addTodos("read book", "return book");
+        storage.saveChanges(taskList);
+        Thread.sleep(200);
+        assertNull(storage.reloadExternalChanges(taskList));
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(path));
+        lines.set(1, RecordChecksum.withChecksum("T | 1 | return book"));
+        lines.add("T | 0 | lend book");
+        Files.write(path, lines);
+
+        ExternalChange.MergeResult result = null;
+        for (int attempt = 0; attempt < 100 && result == null; attempt++) {
+            Thread.sleep(50);
+            result = storage.reloadExternalChanges(taskList);
+        }
+        storage.close();
+
+        assertNotNull(result);
+        assertEquals(2, result.getAppliedCount());
+        assertEquals(3, taskList.size());
+        assertTrue(taskList.getAllTasks().get(1).isDone());
+        assertEquals("lend book", taskList.getAllTasks().get(2).getDescription());
+        assertEquals(3, new FileStorageEngine(path.toString()).load().size());
+    }
+
+    @Test
+    public void reloadExternalChanges_checksummedLineEdited_keptAsEdit() throws IOException, InterruptedException {
+        Path path = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(path.toString()).withFileWatcher());
+        TaskList taskList = new TaskList(storage.load());
+        taskList.addTodos("first", "second", "third");
+        storage.saveChanges(taskList);
+        Thread.sleep(200);
+        assertNull(storage.reloadExternalChanges(taskList));
+
+        List<String> lines = new ArrayList<>(Files.readAllLines(path));
+        assertEquals(RecordChecksum.withChecksum("T | 0 | third"), lines.get(2));
+        lines.set(2, lines.get(2).replace("third", "third, edited"));
+        Files.write(path, lines);
+
+        ExternalChange.MergeResult result = null;
+        for (int attempt = 0; attempt < 100 && result == null; attempt++) {
+            Thread.sleep(50);
+            result = storage.reloadExternalChanges(taskList);
+        }
+        storage.close();
+
+        assertNotNull(result);
+        assertEquals(3, taskList.size());
+        assertEquals("third, edited", taskList.getAllTasks().get(2).getDescription());
+        assertFalse(Files.exists(TaskFileVerifier.quarantinePathFor(path)));
+        assertEquals(RecordChecksum.withChecksum("T | 0 | third, edited"), Files.readAllLines(path).get(2));
+    }
+}
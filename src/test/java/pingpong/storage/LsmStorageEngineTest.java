@@ -0,0 +1,155 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LsmStorageEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void get_afterFlushesAndMerge_newestValueWins() throws IOException {
+        LsmTaskStore store = new LsmTaskStore(tempDir.resolve("store"), 1, 3);
+        for (int round = 0; round < 5; round++) {
+            for (long key = 0; key < 200; key++) {
+                store.put(key, bytes("v" + round + "-" + key));
+            }
+            store.commit(false);
+        }
+        store.delete(7);
+        store.checkpoint();
+
+        assertTrue(store.getMergeCount() > 0);
+        assertTrue(store.getSegmentCount() < 3);
+        assertEquals("v4-0", string(store.get(0)));
+        assertEquals("v4-199", string(store.get(199)));
+        assertNull(store.get(7));
+        assertNull(store.get(200));
+        store.close();
+    }
+
+    @Test
+    public void scan_acrossMemtableAndSegments_sortedLiveRecordsInRange() throws IOException {
+        LsmTaskStore store = new LsmTaskStore(tempDir.resolve("store"), 1, 10);
+        for (long key = 0; key < 100; key += 2) {
+            store.put(key, bytes("even" + key));
+        }
+        store.commit(false);
+        for (long key = 1; key < 100; key += 2) {
+            store.put(key, bytes("odd" + key));
+        }
+        store.delete(10);
+        store.put(12, bytes("new12"));
+
+        List<Long> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        store.scan(9, 13, (key, value) -> {
+            keys.add(key);
+            values.add(string(value));
+        });
+        store.close();
+
+        assertEquals(List.of(9L, 11L, 12L, 13L), keys);
+        assertEquals(List.of("odd9", "odd11", "new12", "odd13"), values);
+    }
+
+    @Test
+    public void open_afterClose_recoversLogAndSegments() throws IOException {
+        Path directory = tempDir.resolve("store");
+        LsmTaskStore store = new LsmTaskStore(directory, 64, 10);
+        for (long key = 0; key < 50; key++) {
+            store.put(store.nextKey(), bytes("task" + key));
+        }
+        store.commit(false);
+        store.delete(49);
+        store.close();
+
+        LsmTaskStore reopened = new LsmTaskStore(directory, 64, 10);
+        assertTrue(reopened.getSegmentCount() > 0);
+        assertEquals("task0", string(reopened.get(0)));
+        assertEquals("task48", string(reopened.get(48)));
+        assertNull(reopened.get(49));
+        assertEquals(50, reopened.nextKey());
+        reopened.close();
+    }
+
+    @Test
+    public void applyChanges_taskListMutations_keyedWritesReloadInOrder() throws IOException, PingpongException {
+        String directoryPath = tempDir.resolve("tasks").toString();
+        LsmStorageEngine engine = new LsmStorageEngine(directoryPath).withThresholds(256, 2);
+        Storage storage = new Storage(engine);
+        TaskList taskList = new TaskList(storage.load());
+        taskList.addTodos("first", "second", "third", "fourth");
+        storage.saveChanges(taskList);
+        long secondKey = engine.getKey(1);
+
+        taskList.markTask(1);
+        taskList.deleteTask(0);
+        taskList.addTodos("fifth");
+        storage.saveChanges(taskList);
+        storage.close();
+
+        LsmStorageEngine reopened = new LsmStorageEngine(directoryPath);
+        List<Task> loaded = reopened.load();
+        assertEquals(4, loaded.size());
+        assertEquals("second", loaded.get(0).getDescription());
+        assertTrue(loaded.get(0).isDone());
+        assertEquals("fifth", loaded.get(3).getDescription());
+        assertEquals(secondKey, reopened.getKey(0));
+        assertEquals("second", reopened.read(secondKey).getDescription());
+        assertEquals(2, reopened.readRange(reopened.getKey(1), reopened.getKey(2)).size());
+        reopened.close();
+    }
+
+    @Test
+    public void load_existingJournalDataFile_importedIntoStore() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine previous = new FileStorageEngine(dataPath.toString()).withJournal();
+        ArrayList<Task> previousTasks = new ArrayList<>();
+        previousTasks.add(new Todo("first"));
+        previousTasks.add(new Todo("second"));
+        previous.save(previousTasks);
+        Task third = new Todo("third");
+        previousTasks.add(third);
+        previous.saveAdded(previousTasks, third);
+        previous.close();
+
+        Storage storage = new Storage(StorageEngineType.LSM.create(dataPath.toString()));
+        TaskList taskList = new TaskList(storage.load());
+        taskList.markTask(2);
+        storage.saveChanges(taskList);
+        storage.close();
+
+        assertTrue(Files.isDirectory(dataPath));
+        assertTrue(Files.isRegularFile(Path.of(dataPath + LsmStorageEngine.PREVIOUS_FILE_SUFFIX)));
+        StorageEngine reopened = StorageEngineType.LSM.create(dataPath.toString());
+        List<Task> loaded = reopened.load();
+        reopened.close();
+        assertEquals(3, loaded.size());
+        assertEquals("third", loaded.get(2).getDescription());
+        assertTrue(loaded.get(2).isDone());
+    }
+}
@@ -0,0 +1,198 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.task.Deadline;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PagedTaskListTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void addTodos_manyPages_residentPagesBounded() throws IOException, PingpongException {
+        try (PagedTaskList taskList = new PagedTaskList(tempDir.resolve("pages.bin"), 8, 2)) {
+            for (int i = 0; i < 100; i++) {
+                taskList.addTodo("task " + i);
+            }
+
+            assertEquals(100, taskList.size());
+            assertEquals(13, taskList.getPageCount());
+            assertTrue(taskList.getResidentPageCount() <= 2);
+            assertEquals("task 0", taskList.getTask(0).getDescription());
+            assertEquals("task 57", taskList.getTask(57).getDescription());
+            assertTrue(taskList.getResidentPageCount() <= 2);
+        }
+    }
+
+    @Test
+    public void markTask_pageEvicted_markKept() throws IOException, PingpongException {
+        try (PagedTaskList taskList = new PagedTaskList(tempDir.resolve("pages.bin"), 4, 2)) {
+            for (int i = 0; i < 40; i++) {
+                taskList.addTodo("task " + i);
+            }
+
+            taskList.markTask(1);
+            taskList.getTask(20);
+            taskList.getTask(39);
+
+            assertTrue(taskList.getTask(1).isDone());
+            assertFalse(taskList.getTask(2).isDone());
+        }
+    }
+
+    @Test
+    public void getTaskById_pageEvicted_idKept() throws IOException, PingpongException {
+        try (PagedTaskList taskList = new PagedTaskList(tempDir.resolve("pages.bin"), 4, 2)) {
+            Task first = taskList.addTodo("first");
+            for (int i = 0; i < 40; i++) {
+                taskList.addTodo("task " + i);
+            }
+
+            assertEquals(first.getId(), taskList.getTask(0).getId());
+            assertEquals(0, taskList.indexOfId(first.getId()));
+            assertEquals("first", taskList.getTaskById(first.getId()).getDescription());
+        }
+    }
+
+    @Test
+    public void mutations_matchInMemoryList() throws IOException, PingpongException {
+        try (PagedTaskList paged = new PagedTaskList(tempDir.resolve("pages.bin"), 4, 2)) {
+            TaskList plain = new TaskList();
+            for (TaskList taskList : List.of(paged, plain)) {
+                for (int i = 0; i < 30; i++) {
+                    taskList.addTodo("task " + i);
+                }
+                taskList.deleteTask(5);
+                taskList.deleteTask(0);
+                taskList.updateTask(10, "updated", null, null, null);
+                taskList.insertTasks(12, List.of(new Todo("inserted a"), new Todo("inserted b"),
+                        new Deadline("inserted c", LocalDate.of(2025, 9, 15))));
+                taskList.markTasks(3, 13, 29);
+                taskList.replaceTasks(20, 4, List.of(new Todo("replaced")));
+            }
+
+            assertEquals(plain.size(), paged.size());
+            List<String> expected = new ArrayList<>();
+            for (Task task : plain.getAllTasks()) {
+                expected.add(task.toString());
+            }
+            List<String> actual = new ArrayList<>();
+            for (Task task : paged.getAllTasks()) {
+                actual.add(task.toString());
+            }
+            assertEquals(expected, actual);
+            assertEquals(plain.findTasksByKeyword("inserted").size(), paged.findTasksByKeyword("inserted").size());
+        }
+    }
+
+    @Test
+    public void close_pageFileDeleted() throws IOException {
+        Path pageFile = tempDir.resolve("pages.bin");
+        PagedTaskList taskList = new PagedTaskList(pageFile, 2, 2);
+        taskList.addTodos("a", "b", "c", "d", "e", "f", "g");
+        assertTrue(Files.exists(pageFile));
+
+        taskList.close();
+
+        assertFalse(Files.exists(pageFile));
+    }
+
+    @Test
+    public void load_intoPagedList_allTasksLoaded() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            tasks.add(new Todo("task " + i));
+        }
+        new FileStorageEngine(dataPath.toString()).save(tasks);
+
+        try (PagedTaskList taskList = new PagedTaskList(tempDir.resolve("pages.bin"), 16, 3)) {
+            new Storage(new FileStorageEngine(dataPath.toString())).load(taskList);
+
+            assertEquals(500, taskList.size());
+            assertTrue(taskList.getResidentPageCount() <= 3);
+            assertEquals("task 499", taskList.getAllTasks().get(499).getDescription());
+        }
+    }
+
+    @Test
+    public void addAndDelete_manyTimes_pageFileBounded() throws IOException, PingpongException {
+        Path pageFile = tempDir.resolve("pages.bin");
+        try (PagedTaskList taskList = new PagedTaskList(pageFile, 4, 2)) {
+            for (int i = 0; i < 32; i++) {
+                taskList.addTodo("task " + i);
+            }
+            taskList.getTask(0);
+            long initialSize = Files.size(pageFile);
+
+            for (int i = 32; i < 2000; i++) {
+                taskList.addTodo("task " + i);
+                taskList.deleteTask(0);
+                taskList.getTask(15);
+            }
+
+            assertEquals(32, taskList.size());
+            assertEquals("task 1968", taskList.getTask(0).getDescription());
+            assertTrue(Files.size(pageFile) <= 2 * initialSize, "Page file grew to " + Files.size(pageFile));
+        }
+    }
+
+    @Test
+    public void save_pagedList_writtenThroughPages() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        try (PagedTaskList taskList = new PagedTaskList(tempDir.resolve("pages.bin"), 16, 3)) {
+            for (int i = 0; i < 500; i++) {
+                taskList.addTodo("task " + i);
+            }
+            taskList.getTask(250).markAsDone();
+
+            new FileStorageEngine(dataPath.toString()).save(taskList.getAllTasks());
+
+            assertTrue(taskList.getResidentPageCount() <= 3);
+        }
+
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).load();
+        assertEquals(500, loaded.size());
+        assertEquals("task 499", loaded.get(499).getDescription());
+        assertTrue(loaded.get(250).isDone());
+        assertFalse(loaded.get(251).isDone());
+    }
+
+    @Test
+    public void fromSystemProperty_engineCannotStream_notPaged() throws IOException {
+        String filePath = tempDir.resolve("pingpong.txt").toString();
+        String previous = System.getProperty(PagedTaskList.SYSTEM_PROPERTY);
+        try {
+            System.setProperty(PagedTaskList.SYSTEM_PROPERTY, "4");
+
+            TaskList journaled = PagedTaskList.fromSystemProperty(
+                    new Storage(StorageEngineType.JOURNAL.create(filePath)));
+            assertFalse(journaled instanceof PagedTaskList);
+
+            TaskList streamed = PagedTaskList.fromSystemProperty(new Storage(new FileStorageEngine(filePath)));
+            assertTrue(streamed instanceof PagedTaskList);
+            ((PagedTaskList) streamed).close();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(PagedTaskList.SYSTEM_PROPERTY);
+            } else {
+                System.setProperty(PagedTaskList.SYSTEM_PROPERTY, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Deadline;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StartupImageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<Task> createTasks() {
+        Todo done = new Todo("read book");
+        done.markAsDone();
+        return new ArrayList<>(List.of(done, new Todo("return book"),
+                new Deadline("submit report", LocalDate.of(2025, 9, 15))));
+    }
+
+    @Test
+    public void close_withTasks_imageLoadedOnNextStart() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine engine = new FileStorageEngine(dataPath.toString()).withJournal().withStartupImage();
+        engine.load();
+        List<Task> tasks = createTasks();
+        engine.save(tasks);
+        tasks.add(new Todo("lend book"));
+        engine.saveAdded(tasks, tasks.get(3));
+        engine.close(tasks);
+
+        Path journalPath = Path.of(dataPath + ".journal");
+        StartupImage image = StartupImage.read(StartupImage.imagePathFor(dataPath), dataPath, journalPath);
+        assertNotNull(image);
+        assertEquals(4, image.getTasks().size());
+        assertEquals(1, image.getJournalRecordCount());
+
+        ArrayList<Task> loaded = new FileStorageEngine(dataPath.toString()).withJournal().withStartupImage().load();
+        assertEquals(4, loaded.size());
+        assertTrue(loaded.get(0).isDone());
+        assertEquals("submit report", loaded.get(2).getDescription());
+        assertEquals("lend book", loaded.get(3).getDescription());
+    }
+
+    @Test
+    public void read_dataFileChanged_stale() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine engine = new FileStorageEngine(dataPath.toString()).withStartupImage();
+        engine.load();
+        List<Task> tasks = createTasks();
+        engine.save(tasks);
+        engine.close(tasks);
+
+        new FileStorageEngine(dataPath.toString()).save(List.of(new Todo("other program")));
+
+        assertNull(StartupImage.read(StartupImage.imagePathFor(dataPath), dataPath, null));
+        ArrayList<Task> loaded = new FileStorageEngine(dataPath.toString()).withStartupImage().load();
+        assertEquals(1, loaded.size());
+        assertEquals("other program", loaded.get(0).getDescription());
+    }
+
+    @Test
+    public void load_corruptedImage_dataFileLoaded() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine engine = new FileStorageEngine(dataPath.toString()).withStartupImage();
+        engine.load();
+        List<Task> tasks = createTasks();
+        engine.save(tasks);
+        engine.close(tasks);
+
+        Path imagePath = StartupImage.imagePathFor(dataPath);
+        byte[] bytes = Files.readAllBytes(imagePath);
+        bytes[StartupImage.HEADER_SIZE + 1] ^= 0x40;
+        Files.write(imagePath, bytes);
+
+        assertNull(StartupImage.read(imagePath, dataPath, null));
+        ArrayList<Task> loaded = new FileStorageEngine(dataPath.toString()).withStartupImage().load();
+        assertEquals(3, loaded.size());
+        assertEquals("read book", loaded.get(0).getDescription());
+    }
+
+    @Test
+    public void close_withoutTasks_noImage() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine engine = new FileStorageEngine(dataPath.toString()).withStartupImage();
+        engine.save(createTasks());
+        engine.close();
+
+        assertFalse(Files.exists(StartupImage.imagePathFor(dataPath)));
+    }
+
+    @Test
+    public void load_fromImage_journalContinuesAfterImage() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine first = new FileStorageEngine(dataPath.toString()).withJournal().withStartupImage();
+        first.load();
+        List<Task> tasks = createTasks();
+        first.save(tasks);
+        tasks.add(new Todo("lend book"));
+        first.saveAdded(tasks, tasks.get(3));
+        first.close(tasks);
+
+        FileStorageEngine second = new FileStorageEngine(dataPath.toString()).withJournal().withStartupImage();
+        ArrayList<Task> loaded = second.load();
+        loaded.get(1).markAsDone();
+        second.saveMarked(loaded, 1);
+        second.close();
+
+        ArrayList<Task> reloaded = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(4, reloaded.size());
+        assertTrue(reloaded.get(1).isDone());
+        assertEquals("lend book", reloaded.get(3).getDescription());
+    }
+}
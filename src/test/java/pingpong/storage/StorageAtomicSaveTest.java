@@ -0,0 +1,68 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageAtomicSaveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void save_tempFileCannotBeWritten_previousFileKept() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Files.write(dataPath, List.of("T | 0 | read book"));
+        // A directory in place of the temporary file makes the write fail before the rename
+        Files.createDirectory(tempDir.resolve("pingpong.txt.tmp"));
+
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString());
+        ArrayList<Task> tasks = storage.load();
+        tasks.add(new Todo("return book"));
+        assertThrows(IOException.class, () -> storage.save(tasks));
+
+        assertEquals(List.of("T | 0 | read book"), Files.readAllLines(dataPath));
+    }
+
+    @Test
+    public void save_eachPolicy_fileReplacedWithoutLeftovers() throws IOException {
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            Path dataPath = tempDir.resolve(policy + ".txt");
+            FileStorageEngine storage = new FileStorageEngine(dataPath.toString()).withFsyncPolicy(policy);
+            ArrayList<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                tasks.add(new Todo("task " + i));
+                storage.save(tasks);
+            }
+            storage.close();
+
+            assertEquals(policy, storage.getFsyncPolicy());
+            assertEquals(3, Files.readAllLines(dataPath).size());
+            assertFalse(Files.exists(tempDir.resolve(policy + ".txt.tmp")));
+        }
+    }
+
+    @Test
+    public void takeUnforcedWrites_batchedPolicy_forcesOncePerInterval() throws IOException {
+        FsyncTracker tracker = new FsyncTracker(FsyncPolicy.BATCHED, 60_000);
+
+        assertTrue(tracker.shouldForce());
+        assertFalse(tracker.shouldForce());
+        assertFalse(tracker.shouldForce());
+        assertTrue(tracker.takeUnforcedWrites());
+        assertFalse(tracker.takeUnforcedWrites());
+
+        assertTrue(new FsyncTracker(FsyncPolicy.ALWAYS, 60_000).shouldForce());
+        assertFalse(new FsyncTracker(FsyncPolicy.NEVER, 0).shouldForce());
+    }
+}
@@ -0,0 +1,83 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.command.FindCommand;
+import pingpong.command.HelpCommand;
+import pingpong.command.ListCommand;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.ui.Ui;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageChangesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void saveChanges_journalMode_onlyDeltaAppended() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()).withJournal());
+        TaskList taskList = new TaskList();
+        taskList.addTodos("first", "second", "third");
+        storage.saveChanges(taskList);
+
+        taskList.markTask(2);
+        taskList.deleteTask(0);
+        taskList.updateTask(0, "second updated", null, null, null);
+        storage.saveChanges(taskList);
+        storage.close();
+
+        assertFalse(taskList.hasChanges());
+        assertEquals(6, Files.readAllLines(Path.of(dataPath + ".journal")).size());
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(2, loaded.size());
+        assertEquals("second updated", loaded.get(0).getDescription());
+        assertTrue(loaded.get(1).isDone());
+    }
+
+    @Test
+    public void saveChanges_onlyMarks_patchedWithoutRewrite() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()));
+        TaskList taskList = new TaskList();
+        taskList.addTodos("first", "second");
+        storage.saveChanges(taskList);
+        long sizeBefore = Files.size(dataPath);
+
+        taskList.markTasks(0, 1);
+        taskList.unmarkTask(0);
+        storage.saveChanges(taskList);
+
+        assertEquals(sizeBefore, Files.size(dataPath));
+        assertEquals(List.of(RecordChecksum.withChecksum("T | 0 | first"),
+                RecordChecksum.withChecksum("T | 1 | second")), Files.readAllLines(dataPath));
+    }
+
+    @Test
+    public void execute_readOnlyCommands_neverTouchDisk() throws PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()).withJournal());
+        TaskList taskList = new TaskList();
+        taskList.addTodo("read book");
+        taskList.clearChanges();
+        Ui ui = new Ui();
+
+        new ListCommand().execute(taskList, ui, storage);
+        new FindCommand("book").execute(taskList, ui, storage);
+        new HelpCommand().execute(taskList, ui, storage);
+        storage.saveChanges(taskList);
+
+        assertFalse(Files.exists(dataPath));
+        assertFalse(Files.exists(Path.of(dataPath + ".journal")));
+    }
+}
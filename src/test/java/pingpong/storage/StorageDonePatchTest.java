@@ -0,0 +1,105 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageDonePatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ArrayList<Task> createTasks() {
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("Caf\u00e9 meeting"));
+        tasks.add(new Todo("return book"));
+        return tasks;
+    }
+
+    @Test
+    public void saveMarked_textFile_onlyDoneMarkersChange() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString());
+        ArrayList<Task> tasks = createTasks();
+        storage.save(tasks);
+        byte[] before = Files.readAllBytes(dataPath);
+
+        tasks.get(1).markAsDone();
+        tasks.get(2).markAsDone();
+        storage.saveMarked(tasks, 1, 2);
+        byte[] after = Files.readAllBytes(dataPath);
+
+        assertEquals(before.length, after.length);
+        assertEquals(List.of(RecordChecksum.withChecksum("T | 0 | read book"),
+                RecordChecksum.withChecksum("T | 1 | Caf\u00e9 meeting"),
+                RecordChecksum.withChecksum("T | 1 | return book")),
+                Files.readAllLines(dataPath));
+
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).load();
+        assertFalse(loaded.get(0).isDone());
+        assertTrue(loaded.get(1).isDone());
+        assertTrue(loaded.get(2).isDone());
+    }
+
+    @Test
+    public void saveMarked_binaryFile_markAndUnmarkPatchedInPlace() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.bin");
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString()).withBinaryFormat()
+                .withFsyncPolicy(FsyncPolicy.ALWAYS);
+        ArrayList<Task> tasks = createTasks();
+        storage.save(tasks);
+        long sizeBefore = Files.size(dataPath);
+
+        tasks.get(0).markAsDone();
+        storage.saveMarked(tasks, 0);
+        tasks.get(0).markAsUndone();
+        tasks.get(2).markAsDone();
+        storage.saveMarked(tasks, 0, 2);
+
+        assertEquals(sizeBefore, Files.size(dataPath));
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).withBinaryFormat().load();
+        assertFalse(loaded.get(0).isDone());
+        assertFalse(loaded.get(1).isDone());
+        assertTrue(loaded.get(2).isDone());
+    }
+
+    @Test
+    public void saveMarked_loadedTextFile_patchedInPlace() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Files.write(dataPath, List.of("T | 0 | read book", "T | 0 | return book"));
+        long sizeBefore = Files.size(dataPath);
+
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString());
+        ArrayList<Task> tasks = storage.load();
+        tasks.get(1).markAsDone();
+        storage.saveMarked(tasks, 1);
+
+        assertEquals(List.of("T | 0 | read book", "T | 1 | return book"), Files.readAllLines(dataPath));
+        assertEquals(sizeBefore, Files.size(dataPath));
+    }
+
+    @Test
+    public void saveMarked_irregularTextLayout_fallsBackToFullSave() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Files.write(dataPath, List.of("T | 0 | read book", "T |  0 | return book"));
+
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString());
+        ArrayList<Task> tasks = storage.load();
+        tasks.get(1).markAsDone();
+        storage.saveMarked(tasks, 1);
+
+        assertEquals(List.of(RecordChecksum.withChecksum("T | 0 | read book"),
+                RecordChecksum.withChecksum("T | 1 | return book")), Files.readAllLines(dataPath));
+    }
+}
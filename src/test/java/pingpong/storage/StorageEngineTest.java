@@ -0,0 +1,130 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void saveChanges_inMemoryEngine_noFilesWritten() throws PingpongException {
+        InMemoryStorageEngine engine = new InMemoryStorageEngine();
+        Storage storage = new Storage(engine);
+        TaskList taskList = new TaskList();
+        taskList.addTodos("first", "second");
+        storage.saveChanges(taskList);
+        taskList.markTask(1);
+        storage.saveChanges(taskList);
+        storage.saveChanges(taskList);
+
+        assertEquals(2, engine.getSaveCount());
+        taskList.unmarkTask(1);
+        List<Task> loaded = storage.load();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(1).isDone());
+    }
+
+    @Test
+    public void create_eachType_roundTripsTasks() throws IOException, PingpongException {
+        for (StorageEngineType type : StorageEngineType.values()) {
+            String filePath = tempDir.resolve(type + ".txt").toString();
+            Storage storage = new Storage(type.create(filePath));
+            TaskList taskList = new TaskList();
+            taskList.addTodos("first", "second");
+            storage.saveChanges(taskList);
+            taskList.markTask(0);
+            storage.saveChanges(taskList);
+            storage.flush();
+
+            List<Task> loaded = type == StorageEngineType.MEMORY
+                    ? storage.load()
+                    : type.create(filePath).load();
+            storage.close();
+            assertEquals(2, loaded.size(), type.name());
+            assertTrue(loaded.get(0).isDone(), type.name());
+        }
+    }
+
+    @Test
+    public void fromSystemProperty_propertySet_selectsEngine() {
+        String previous = System.getProperty(StorageEngineType.SYSTEM_PROPERTY);
+        try {
+            System.setProperty(StorageEngineType.SYSTEM_PROPERTY, "mmap");
+            assertEquals(StorageEngineType.MMAP, StorageEngineType.fromSystemProperty(StorageEngineType.TEXT));
+            System.setProperty(StorageEngineType.SYSTEM_PROPERTY, "unknown");
+            assertEquals(StorageEngineType.TEXT, StorageEngineType.fromSystemProperty(StorageEngineType.TEXT));
+        } finally {
+            if (previous == null) {
+                System.clearProperty(StorageEngineType.SYSTEM_PROPERTY);
+            } else {
+                System.setProperty(StorageEngineType.SYSTEM_PROPERTY, previous);
+            }
+        }
+    }
+
+    @Test
+    public void load_streamingTextFile_batchesInFileOrder() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            lines.add("T | 0 | task " + i);
+        }
+        Files.write(dataPath, lines);
+
+        List<Task> streamed = new ArrayList<>();
+        int[] batchCount = new int[1];
+        new FileStorageEngine(dataPath.toString()).load(batch -> {
+            streamed.addAll(batch);
+            batchCount[0]++;
+        });
+
+        assertEquals(40_000, streamed.size());
+        assertTrue(batchCount[0] >= 1);
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals("task " + i, streamed.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void canStream_engineKeepingCopies_false() {
+        String filePath = tempDir.resolve("pingpong.txt").toString();
+
+        assertTrue(new FileStorageEngine(filePath).canStream());
+        assertFalse(new FileStorageEngine(filePath).withJournal().canStream());
+        assertFalse(new FileStorageEngine(filePath).withFileWatcher().canStream());
+        assertFalse(new FileStorageEngine(filePath).withStartupImage().canStream());
+        assertFalse(StorageEngineType.JOURNAL.create(filePath).canStream());
+        assertFalse(new InMemoryStorageEngine().canStream());
+    }
+
+    @Test
+    public void create_textWithMemoryBudget_streams() {
+        String filePath = tempDir.resolve("pingpong.txt").toString();
+        String previous = System.getProperty(PagedTaskList.SYSTEM_PROPERTY);
+        try {
+            assertFalse(StorageEngineType.TEXT.create(filePath).canStream());
+            System.setProperty(PagedTaskList.SYSTEM_PROPERTY, "4");
+            assertTrue(StorageEngineType.TEXT.create(filePath).canStream());
+        } finally {
+            if (previous == null) {
+                System.clearProperty(PagedTaskList.SYSTEM_PROPERTY);
+            } else {
+                System.setProperty(PagedTaskList.SYSTEM_PROPERTY, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private String filePath;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        filePath = tempDir.resolve("pingpong.txt").toString();
+    }
+
+    @Test
+    public void load_journalAfterSnapshot_replaysMutations() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath).withJournal();
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+        storage.save(tasks);
+
+        Task second = new Todo("second");
+        tasks.add(second);
+        storage.saveAdded(tasks, second);
+        tasks.get(0).markAsDone();
+        storage.saveMarked(tasks, 0);
+        tasks.set(1, new Todo("second updated"));
+        storage.saveUpdated(tasks, 1);
+
+        ArrayList<Task> loaded = new FileStorageEngine(filePath).withJournal().load();
+
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(0).isDone());
+        assertEquals("second updated", loaded.get(1).getDescription());
+    }
+
+    @Test
+    public void saveAdded_journalMode_doesNotRewriteSnapshot() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath).withJournal();
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+        storage.save(tasks);
+        List<String> snapshot = Files.readAllLines(Path.of(filePath));
+
+        Task second = new Todo("second");
+        tasks.add(second);
+        storage.saveAdded(tasks, second);
+
+        assertEquals(snapshot, Files.readAllLines(Path.of(filePath)));
+        assertEquals(1, Files.readAllLines(Path.of(filePath + ".journal")).size());
+    }
+
+    @Test
+    public void save_journalMode_truncatesJournal() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath).withJournal();
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.save(tasks);
+
+        Task task = new Todo("first");
+        tasks.add(task);
+        storage.saveAdded(tasks, task);
+        tasks.remove(0);
+        storage.saveDeleted(tasks, 0);
+        storage.save(tasks);
+
+        assertEquals(0, Files.size(Path.of(filePath + ".journal")));
+        assertEquals(0, new FileStorageEngine(filePath).withJournal().load().size());
+    }
+
+    @Test
+    public void load_recordsCoveredBySnapshot_notAppliedTwice() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath).withJournal();
+        ArrayList<Task> tasks = new ArrayList<>();
+        storage.save(tasks);
+
+        Task task = new Todo("only once");
+        tasks.add(task);
+        storage.saveAdded(tasks, task);
+        List<String> journal = Files.readAllLines(Path.of(filePath + ".journal"));
+        storage.save(tasks);
+
+        // Simulate a crash between writing the snapshot and truncating the journal
+        Files.write(Path.of(filePath + ".journal"), journal);
+
+        assertEquals(1, new FileStorageEngine(filePath).withJournal().load().size());
+    }
+
+    @Test
+    public void saveMarked_withoutJournal_rewritesFile() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath);
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+        tasks.get(0).markAsDone();
+        storage.saveMarked(tasks, 0);
+
+        assertEquals(List.of(RecordChecksum.withChecksum("T | 1 | first")), Files.readAllLines(Path.of(filePath)));
+        assertFalse(Files.exists(Path.of(filePath + ".journal")));
+    }
+
+    @Test
+    public void saveAdded_recordThresholdReached_compactsJournal() throws IOException {
+        FileStorageEngine storage = new FileStorageEngine(filePath).withJournal(3, Long.MAX_VALUE);
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Task task = new Todo("task " + i);
+            tasks.add(task);
+            storage.saveAdded(tasks, task);
+        }
+        storage.close();
+
+        assertEquals(1, storage.getCompactor().getCompactionCount());
+        assertNotNull(storage.getCompactor().getLastCompactionTime());
+        assertTrue(Files.readAllLines(Path.of(filePath + ".journal")).size() < 3);
+
+        FileStorageEngine reloaded = new FileStorageEngine(filePath).withJournal();
+        ArrayList<Task> loaded = reloaded.load();
+        assertEquals(5, loaded.size());
+        assertEquals("task 4", loaded.get(4).getDescription());
+    }
+
+    @Test
+    public void commit_writeFails_recordsKeptForNextCommit() throws IOException {
+        Path journalPath = tempDir.resolve("pingpong.txt.journal");
+        Files.createDirectory(journalPath);
+        TaskJournal journal = new TaskJournal(journalPath.toString());
+        journal.add(new Todo("first"));
+
+        assertThrows(IOException.class, journal::commit);
+        assertTrue(journal.hasPendingRecords());
+
+        Files.delete(journalPath);
+        journal.add(new Todo("second"));
+        journal.commit();
+        journal.close();
+
+        ArrayList<Task> tasks = new ArrayList<>();
+        assertEquals(2, new TaskJournal(journalPath.toString()).replay(tasks, 0));
+        assertEquals("first", tasks.get(0).getDescription());
+        assertEquals("second", tasks.get(1).getDescription());
+    }
+
+    @Test
+    public void replay_recordsWrittenAgainAfterFailedCommit_appliedOnce() throws IOException {
+        Path journalPath = tempDir.resolve("pingpong.txt.journal");
+        String first = "1 | A | " + TaskFileFormat.formatTask(new Todo("first"));
+        String second = "2 | A | " + TaskFileFormat.formatTask(new Todo("second"));
+        String third = "3 | A | " + TaskFileFormat.formatTask(new Todo("third"));
+        Files.write(journalPath, List.of(first, second, "", first, second, third));
+
+        ArrayList<Task> tasks = new ArrayList<>();
+        new TaskJournal(journalPath.toString()).replay(tasks, 0);
+
+        assertEquals(3, tasks.size());
+        assertEquals("third", tasks.get(2).getDescription());
+    }
+}
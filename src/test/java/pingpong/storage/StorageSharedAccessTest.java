@@ -0,0 +1,169 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.PingpongException;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageSharedAccessTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void lockExclusive_bumpVersion_visibleToOtherLocks() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        DataFileLock first = new DataFileLock(dataPath);
+        DataFileLock second = new DataFileLock(dataPath);
+
+        try (DataFileLock.Holder holder = first.lockExclusive()) {
+            assertEquals(0, holder.getVersion());
+            assertEquals(1, holder.bumpVersion(false));
+        }
+        try (DataFileLock.Holder holder = second.lockShared()) {
+            assertEquals(1, holder.getVersion());
+        }
+        assertEquals(1, second.peekVersion());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void pollExternalChange_firstRunBeforeDataDirectoryExists_noError() throws IOException {
+        Path dataPath = tempDir.resolve("data").resolve("pingpong.txt");
+        StorageEngine engine = StorageEngineType.JOURNAL.create(dataPath.toString());
+
+        assertEquals(0, new DataFileLock(dataPath).peekVersion());
+        assertTrue(engine.load().isEmpty());
+        engine.save(List.of(new Todo("first")));
+        assertNull(engine.pollExternalChange());
+        engine.close();
+
+        assertEquals(1, new FileStorageEngine(dataPath.toString()).load().size());
+    }
+
+    @Test
+    public void save_otherProcessWroteFirst_refused() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine first = new FileStorageEngine(dataPath.toString()).withSharedAccess();
+        FileStorageEngine second = new FileStorageEngine(dataPath.toString()).withSharedAccess();
+        first.load();
+        second.load();
+
+        first.save(new ArrayList<>(List.of(new Todo("read book"))));
+
+        assertThrows(StaleDataFileException.class, () -> second.save(new ArrayList<>(List.of(new Todo("x")))));
+        assertEquals(1, first.getKnownVersion());
+        assertEquals("read book", new FileStorageEngine(dataPath.toString()).load().get(0).getDescription());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void saveChanges_textFileChangedByOtherProcess_merged() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage first = new Storage(new FileStorageEngine(dataPath.toString()).withSharedAccess());
+        TaskList firstList = new TaskList(first.load());
+        firstList.addTodos("read book", "return book");
+        first.saveChanges(firstList);
+
+        Storage second = new Storage(new FileStorageEngine(dataPath.toString()).withSharedAccess());
+        TaskList secondList = new TaskList(second.load());
+        firstList.addTodo("lend book");
+        first.saveChanges(firstList);
+        secondList.markTask(0);
+        second.saveChanges(secondList);
+
+        assertTrue(secondList.hasChanges());
+        ExternalChange.MergeResult result = second.reloadExternalChanges(secondList);
+
+        assertNotNull(result);
+        assertEquals(1, result.getAppliedCount());
+        assertTrue(result.getConflicts().isEmpty());
+        assertFalse(result.hasDiscardedChanges());
+        assertFalse(secondList.hasChanges());
+        List<Task> stored = new FileStorageEngine(dataPath.toString()).load();
+        assertEquals(3, stored.size());
+        assertTrue(stored.get(0).isDone());
+        assertEquals("lend book", stored.get(2).getDescription());
+        assertNotNull(first.reloadExternalChanges(firstList));
+        assertTrue(firstList.getAllTasks().get(0).isDone());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void saveChanges_journalChangedByOtherProcess_merged() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage first = new Storage(StorageEngineType.JOURNAL.create(dataPath.toString()));
+        Storage second = new Storage(StorageEngineType.JOURNAL.create(dataPath.toString()));
+        TaskList firstList = new TaskList(first.load());
+        TaskList secondList = new TaskList(second.load());
+
+        firstList.addTodo("read book");
+        first.saveChanges(firstList);
+        first.flush();
+        secondList.addTodo("return book");
+        second.saveChanges(secondList);
+        second.flush();
+        ExternalChange.MergeResult result = second.reloadExternalChanges(secondList);
+
+        assertNotNull(result);
+        assertFalse(result.hasDiscardedChanges());
+        assertTrue(result.getConflicts().isEmpty());
+        assertEquals(List.of("return book", "read book"), describe(secondList.getAllTasks()));
+
+        secondList.markTask(1);
+        second.saveChanges(secondList);
+        second.flush();
+        assertNotNull(first.reloadExternalChanges(firstList));
+        assertEquals(List.of("return book", "read book"), describe(firstList.getAllTasks()));
+        assertTrue(firstList.getAllTasks().get(1).isDone());
+        first.close();
+        second.close();
+
+        List<Task> stored = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(List.of("return book", "read book"), describe(stored));
+        assertTrue(stored.get(1).isDone());
+    }
+
+    @Test
+    public void saveChanges_binaryFileChangedByOtherProcess_otherVersionTakenOver() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.bin");
+        Storage first = new Storage(new FileStorageEngine(dataPath.toString()).withBinaryFormat().withSharedAccess());
+        Storage second = new Storage(new FileStorageEngine(dataPath.toString()).withBinaryFormat().withSharedAccess());
+        TaskList firstList = new TaskList(first.load());
+        TaskList secondList = new TaskList(second.load());
+
+        firstList.addTodo("read book");
+        first.saveChanges(firstList);
+        secondList.addTodo("return book");
+        second.saveChanges(secondList);
+        ExternalChange.MergeResult result = second.reloadExternalChanges(secondList);
+
+        assertNotNull(result);
+        assertTrue(result.hasDiscardedChanges());
+        assertEquals(1, secondList.size());
+        assertEquals("read book", secondList.getAllTasks().get(0).getDescription());
+        first.close();
+        second.close();
+    }
+
+    private static List<String> describe(List<Task> tasks) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : tasks) {
+            descriptions.add(task.getDescription());
+        }
+        return descriptions;
+    }
+}
@@ -0,0 +1,88 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StorageWriteBehindTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void save_burstOfChanges_coalescedIntoFewFlushes() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString()).withWriteBehind(1000, 5000);
+        ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tasks.add(new Todo("task " + i));
+            storage.save(tasks);
+        }
+        storage.flush();
+
+        assertEquals(1, storage.getSaver().getFlushCount());
+        assertEquals(50, Files.readAllLines(dataPath).size());
+        storage.close();
+    }
+
+    @Test
+    public void saveMarked_journalMode_recordsWrittenOnClose() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString()).withJournal()
+                .withWriteBehind(60_000, 60_000);
+        ArrayList<Task> tasks = new ArrayList<>();
+        Task task = new Todo("task");
+        tasks.add(task);
+        storage.saveAdded(tasks, task);
+        task.markAsDone();
+        storage.saveMarked(tasks, 0);
+        storage.close();
+
+        assertEquals(2, Files.readAllLines(Path.of(dataPath + ".journal")).size());
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.get(0).isDone());
+    }
+
+    @Test
+    public void flush_previousFlushFailed_changesWritten() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        int[] failuresLeft = {1};
+        FileStorageEngine storage = new FileStorageEngine(dataPath.toString()) {
+            @Override
+            void flushPending(TaskSnapshot snapshot) throws IOException {
+                if (failuresLeft[0]-- > 0) {
+                    throw new IOException("Disk full");
+                }
+                super.flushPending(snapshot);
+            }
+        }.withJournal().withWriteBehind(60_000, 60_000);
+        ArrayList<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("first"));
+        storage.save(tasks);
+        Task second = new Todo("second");
+        tasks.add(second);
+        storage.saveAdded(tasks, second);
+
+        storage.flush();
+        assertTrue(storage.getSaver().hasPendingChanges());
+        assertFalse(Files.exists(dataPath));
+
+        storage.flush();
+        assertFalse(storage.getSaver().hasPendingChanges());
+        storage.close();
+        List<Task> loaded = new FileStorageEngine(dataPath.toString()).withJournal().load();
+        assertEquals(2, loaded.size());
+        assertEquals("second", loaded.get(1).getDescription());
+    }
+}
@@ -0,0 +1,126 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.MockUi;
+import pingpong.PingpongException;
+import pingpong.command.FindCommand;
+import pingpong.command.ListCommand;
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskArchiveTest {
+    private static final LocalDate TODAY = LocalDate.of(2025, 10, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void isCold_doneAndOldEnough_true() {
+        TaskArchive archive = new TaskArchive(tempDir.resolve("pingpong.txt"), 30);
+        Deadline old = new Deadline("old", TODAY.minusDays(30));
+        Deadline recent = new Deadline("recent", TODAY.minusDays(29));
+        Event endingRecently = new Event("event", LocalDateTime.of(2025, 8, 1, 10, 0),
+                LocalDateTime.of(2025, 9, 20, 10, 0));
+        Todo todo = new Todo("todo");
+        old.markAsDone();
+        recent.markAsDone();
+        endingRecently.markAsDone();
+
+        assertTrue(archive.isCold(old, TODAY));
+        assertFalse(archive.isCold(recent, TODAY));
+        assertFalse(archive.isCold(endingRecently, TODAY));
+        assertFalse(archive.isCold(todo, TODAY));
+        todo.markAsDone();
+        assertFalse(archive.isCold(todo, TODAY));
+    }
+
+    @Test
+    public void archiveColdTasks_todoJustMarkedDone_kept() throws PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()))
+                .withArchive(new TaskArchive(dataPath, 7));
+        TaskList taskList = new TaskList();
+        taskList.addTodo("buy milk");
+        taskList.markTask(0);
+
+        assertEquals(0, storage.archiveColdTasks(taskList, TODAY));
+        assertEquals(1, taskList.size());
+        assertTrue(taskList.getTask(0).isDone());
+    }
+
+    @Test
+    public void add_twice_tasksKeptInDateOrder() throws IOException {
+        TaskArchive archive = new TaskArchive(tempDir.resolve("pingpong.txt"), 0, 4);
+        archive.add(List.of(new Deadline("b", LocalDate.of(2025, 3, 1)), new Todo("todo")));
+        archive.add(List.of(new Deadline("a", LocalDate.of(2025, 1, 1)), new Deadline("c", LocalDate.of(2025, 5, 1))));
+
+        List<Task> archived = new ArrayList<>();
+        archive.load(archived::addAll);
+
+        assertEquals(4, archive.size());
+        assertEquals(List.of("todo", "a", "b", "c"), archived.stream().map(Task::getDescription).toList());
+        assertTrue(Files.exists(Path.of(archive.getPath() + TaskArchive.INDEX_SUFFIX)));
+    }
+
+    @Test
+    public void findOnDate_indexedAndWithoutIndex_sameTasks() throws IOException {
+        TaskArchive archive = new TaskArchive(tempDir.resolve("pingpong.txt"), 0, 8);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Deadline("task " + i, LocalDate.of(2025, 1, 1).plusDays(i)));
+        }
+        tasks.add(new Event("long event", LocalDateTime.of(2025, 1, 5, 9, 0), LocalDateTime.of(2025, 3, 1, 9, 0)));
+        archive.add(tasks);
+
+        List<Task> indexed = archive.findOnDate(LocalDate.of(2025, 2, 10));
+        Files.delete(Path.of(archive.getPath() + TaskArchive.INDEX_SUFFIX));
+        List<Task> scanned = archive.findOnDate(LocalDate.of(2025, 2, 10));
+
+        assertEquals(2, indexed.size());
+        assertEquals(scanned.stream().map(Task::toString).toList(), indexed.stream().map(Task::toString).toList());
+    }
+
+    @Test
+    public void archiveColdTasks_oldDoneTasks_movedOutAndFoundWithAll() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        TaskArchive archive = new TaskArchive(dataPath, 7);
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString())).withArchive(archive);
+        TaskList taskList = new TaskList();
+        taskList.addDeadline("old report", TODAY.minusDays(10));
+        taskList.addDeadline("new report", TODAY.minusDays(1));
+        taskList.addTodo("open todo");
+        taskList.markTasks(0, 1);
+
+        assertEquals(1, storage.archiveColdTasks(taskList, TODAY));
+
+        storage.flush();
+        assertEquals(2, taskList.size());
+        assertEquals(2, new FileStorageEngine(dataPath.toString()).load().size());
+        MockUi ui = new MockUi();
+        new FindCommand("report").execute(taskList, ui, storage);
+        assertFalse(ui.getOutput().contains("old report"));
+        new FindCommand("report", true).execute(taskList, ui, storage);
+        String output = ui.getOutput();
+        assertTrue(output.contains("old report"));
+        assertTrue(output.contains("new report"));
+        new ListCommand(true).execute(taskList, ui, storage);
+        output = ui.getOutput();
+        assertTrue(output.contains("archived tasks"));
+        assertTrue(output.contains("old report"));
+    }
+}
@@ -0,0 +1,94 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskFileVerifierTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String corrupt(String line) {
+        return line.replace("book", "bool");
+    }
+
+    @Test
+    public void verify_damagedLines_reportsMergedRanges() throws IOException {
+        Path path = tempDir.resolve("pingpong.txt");
+        String first = RecordChecksum.withChecksum("T | 0 | read book");
+        String second = corrupt(RecordChecksum.withChecksum("T | 1 | return book"));
+        String third = corrupt(RecordChecksum.withChecksum("T | 0 | lend book"));
+        Files.write(path, List.of(first, second, third, "T | 0 | legacy", RecordChecksum.withChecksum("T | 0 | x")));
+
+        TaskFileVerifier.Report report = TaskFileVerifier.verify(path);
+
+        assertEquals(5, report.getRecordCount());
+        assertEquals(1, report.getUncheckedCount());
+        assertEquals(2, report.getBadRecordCount());
+        assertFalse(report.isClean());
+        assertEquals(1, report.getBadRanges().size());
+        TaskFileVerifier.BadRange range = report.getBadRanges().get(0);
+        assertEquals(first.length() + System.lineSeparator().length(), range.getOffset());
+        assertEquals(second.length() + third.length() + 2 * System.lineSeparator().length(), range.getLength());
+        assertEquals(2, range.getRecordCount());
+    }
+
+    @Test
+    public void verify_flippedDoneMarker_detected() throws IOException {
+        Path path = tempDir.resolve("pingpong.txt");
+        String line = RecordChecksum.withChecksum("T | 0 | read book");
+        Files.write(path, List.of(line.replace("| 0 |", "| 1 |")));
+
+        assertEquals(1, TaskFileVerifier.verify(path).getBadRecordCount());
+    }
+
+    @Test
+    public void load_corruptedRecords_skippedAndQuarantined() throws IOException {
+        Path path = tempDir.resolve("pingpong.txt");
+        String bad = corrupt(RecordChecksum.withChecksum("T | 1 | return book"));
+        Files.write(path, List.of(RecordChecksum.withChecksum("T | 0 | read book"), bad,
+                RecordChecksum.withChecksum("T | 0 | lend book")));
+
+        List<Task> tasks = new FileStorageEngine(path.toString()).load();
+
+        assertEquals(2, tasks.size());
+        assertEquals("lend book", tasks.get(1).getDescription());
+        List<String> quarantined = Files.readAllLines(TaskFileVerifier.quarantinePathFor(path));
+        assertEquals(2, quarantined.size());
+        assertTrue(quarantined.get(0).startsWith("#quarantined"));
+        assertEquals(bad, quarantined.get(1));
+    }
+
+    @Test
+    public void saveMarked_checksummedFile_checksumsStayValid() throws IOException {
+        Path path = tempDir.resolve("pingpong.txt");
+        FileStorageEngine storage = new FileStorageEngine(path.toString());
+        storage.save(new ArrayList<>(List.of(new Todo("read book"), new Todo("return book"))));
+        long sizeBefore = Files.size(path);
+
+        FileStorageEngine reopened = new FileStorageEngine(path.toString());
+        ArrayList<Task> loaded = reopened.load();
+        loaded.get(1).markAsDone();
+        reopened.saveMarked(loaded, 1);
+        loaded.get(1).markAsUndone();
+        loaded.get(0).markAsDone();
+        reopened.saveMarked(loaded, 0, 1);
+
+        assertEquals(sizeBefore, Files.size(path));
+        assertTrue(TaskFileVerifier.verify(path).isClean());
+        List<Task> reloaded = new FileStorageEngine(path.toString()).load();
+        assertTrue(reloaded.get(0).isDone());
+        assertFalse(reloaded.get(1).isDone());
+    }
+}
@@ -0,0 +1,138 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.MockUi;
+import pingpong.PingpongException;
+import pingpong.command.ImportCommand;
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.TaskList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<Task> importLines(String fileName, String... lines) throws IOException {
+        Path path = tempDir.resolve(fileName);
+        Files.write(path, List.of(lines));
+        List<Task> imported = new ArrayList<>();
+        new TaskImporter(2, 2).importFile(path, imported::addAll);
+        return imported;
+    }
+
+    @Test
+    public void importFile_csvWithHeaderAndQuotes_allTypesImported() throws IOException {
+        List<Task> imported = importLines("tasks.csv",
+                "type,done,description,by/from,to",
+                "T,0,\"Buy milk, eggs\",,",
+                "deadline,x,Report,2025-09-15,",
+                "E,false,Meeting,2025-09-10 14:00,2025-09-10 1600");
+
+        assertEquals(3, imported.size());
+        assertEquals("Buy milk, eggs", imported.get(0).getDescription());
+        assertTrue(imported.get(1).isDone());
+        assertEquals(LocalDate.of(2025, 9, 15), ((Deadline) imported.get(1)).getBy());
+        assertEquals(16, ((Event) imported.get(2)).getEnd().getHour());
+    }
+
+    @Test
+    public void importFile_todoTxt_dueTagsBecomeDeadlines() throws IOException {
+        List<Task> imported = importLines("todo.txt",
+                "(A) 2025-09-01 Call mom +family @phone",
+                "x 2025-09-16 2025-09-01 Pay rent due:2025-09-15");
+
+        assertEquals(2, imported.size());
+        assertEquals("Call mom +family @phone", imported.get(0).getDescription());
+        assertFalse(imported.get(0).isDone());
+        assertTrue(imported.get(1) instanceof Deadline);
+        assertEquals("Pay rent", imported.get(1).getDescription());
+        assertTrue(imported.get(1).isDone());
+    }
+
+    @Test
+    public void importFile_dataFile_matchesStoredTasks() throws IOException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        TaskList taskList = new TaskList();
+        taskList.addTodo("todo");
+        taskList.addDeadline("deadline", LocalDate.of(2025, 9, 15));
+        taskList.addEvent("event", LocalDate.of(2025, 9, 10).atTime(14, 0), LocalDate.of(2025, 9, 10).atTime(16, 30));
+        new FileStorageEngine(dataPath.toString()).withJournal().save(taskList.getAllTasks());
+
+        List<Task> imported = new ArrayList<>();
+        new TaskImporter().importFile(dataPath, imported::addAll);
+
+        assertEquals(3, imported.size());
+        for (int i = 0; i < imported.size(); i++) {
+            assertEquals(taskList.getAllTasks().get(i).toString(), imported.get(i).toString());
+        }
+    }
+
+    @Test
+    public void importFile_invalidLines_rejectedWithLineNumbers() throws IOException {
+        Path path = tempDir.resolve("tasks.csv");
+        Files.write(path, List.of("T,0,valid", "Q,0,unknown type", "", "D,0,no date", "E,0,backwards,"
+                + "2025-09-10 1600,2025-09-10 1400", "T,0,\"unclosed", "T,0,a | b", "T,1,also valid"));
+
+        List<Task> imported = new ArrayList<>();
+        TaskImporter.Result result = new TaskImporter(3, 1).importFile(path, imported::addAll);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals(5, result.getRejectedCount());
+        assertEquals(List.of("valid", "also valid"), imported.stream().map(Task::getDescription).toList());
+        List<String> rejects = Files.readAllLines(result.getRejectReport());
+        assertEquals(5, rejects.size());
+        assertTrue(rejects.get(0).startsWith("line 2: "));
+        assertTrue(rejects.get(1).startsWith("line 4: "));
+        assertTrue(rejects.get(4).startsWith("line 7: "));
+    }
+
+    @Test
+    public void importFile_manyBatches_orderKept() throws IOException {
+        Path path = tempDir.resolve("todo.txt");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            lines.add("task " + i);
+        }
+        Files.write(path, lines);
+
+        List<Task> imported = new ArrayList<>();
+        TaskImporter.Result result = new TaskImporter(1000, 2).importFile(path, imported::addAll);
+
+        assertEquals(50_000, result.getImportedCount());
+        assertNull(result.getRejectReport());
+        for (int i = 0; i < imported.size(); i++) {
+            assertEquals("task " + i, imported.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void importCommand_savedOnce_andMissingFileReported() throws IOException, PingpongException {
+        Path dataPath = tempDir.resolve("pingpong.txt");
+        Path importPath = tempDir.resolve("tasks.csv");
+        Files.write(importPath, List.of("T,0,first", "T,0,second"));
+        Storage storage = new Storage(new FileStorageEngine(dataPath.toString()));
+        TaskList taskList = new TaskList();
+        MockUi ui = new MockUi();
+
+        new ImportCommand(importPath.toString()).execute(taskList, ui, storage);
+
+        assertTrue(ui.getOutput().contains("Imported 2 tasks"));
+        assertFalse(taskList.hasChanges());
+        assertEquals(2, new FileStorageEngine(dataPath.toString()).load().size());
+        assertThrows(PingpongException.class, () -> new ImportCommand(tempDir.resolve("missing.csv").toString())
+                .execute(taskList, ui, storage));
+    }
+}
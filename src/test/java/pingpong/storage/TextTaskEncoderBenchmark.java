@@ -0,0 +1,99 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Compares saving a large task list with the string-based formatter against {@link TextTaskEncoder}.
+ * Not a unit test; run it directly, optionally passing the number of tasks.
+ * Reports the best time of several runs and the bytes allocated per task by the saving thread.
+ */
+public class TextTaskEncoderBenchmark {
+    private static final int DEFAULT_TASK_COUNT = 1_000_000;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_TASK_COUNT;
+        List<Task> tasks = createTasks(taskCount);
+        Path path = Files.createTempFile("pingpong-benchmark", ".txt");
+
+        try {
+            report("String.join + PrintWriter", taskCount, () -> writeWithFormatter(path, tasks));
+            report("TextTaskEncoder", taskCount, () -> writeWithEncoder(path, tasks, new TextTaskEncoder()));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static List<Task> createTasks(int count) {
+        List<Task> tasks = new ArrayList<>(count);
+        LocalDateTime start = LocalDateTime.of(2025, 1, 1, 9, 0);
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+            case 0:
+                tasks.add(new Todo("todo number " + i));
+                break;
+            case 1:
+                tasks.add(new Deadline("deadline number " + i, LocalDate.of(2025, 1, 1).plusDays(i % 365)));
+                break;
+            default:
+                tasks.add(new Event("event number " + i, start.plusHours(i % 1000), start.plusHours(i % 1000 + 2)));
+                break;
+            }
+        }
+        return tasks;
+    }
+
+    private static void writeWithFormatter(Path path, List<Task> tasks) throws IOException {
+        try (PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            for (Task task : tasks) {
+                printWriter.println(TaskFileFormat.formatTask(task));
+            }
+        }
+    }
+
+    private static void writeWithEncoder(Path path, List<Task> tasks, TextTaskEncoder encoder) throws IOException {
+        encoder.open(path);
+        for (Task task : tasks) {
+            encoder.writeTask(task, task.isDone());
+        }
+        encoder.close(false);
+    }
+
+    private static void report(String name, int taskCount, SaveAction action) throws IOException {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bestNanos = Long.MAX_VALUE;
+        long bestAllocated = Long.MAX_VALUE;
+
+        for (int run = 0; run < RUNS; run++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long startNanos = System.nanoTime();
+            action.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startNanos);
+            bestAllocated = Math.min(bestAllocated, threads.getThreadAllocatedBytes(threadId) - allocatedBefore);
+        }
+
+        System.out.printf("%-28s %6d ms %8.1f bytes/task%n", name, bestNanos / 1_000_000,
+                (double) bestAllocated / taskCount);
+    }
+
+    private interface SaveAction {
+        void run() throws IOException;
+    }
+}
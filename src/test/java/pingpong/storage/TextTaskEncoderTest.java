@@ -0,0 +1,81 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Deadline;
+import pingpong.task.Event;
+import pingpong.task.Task;
+import pingpong.task.Todo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextTaskEncoderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<Task> createTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Todo("read book"));
+        tasks.add(new Todo("Caf\u00e9 \u4f1a\u8bae \ud83d\ude00"));
+        tasks.add(new Deadline("return book", LocalDate.of(2025, 1, 5)));
+        tasks.add(new Event("meeting", LocalDateTime.of(2025, 3, 4, 9, 0), LocalDateTime.of(2025, 3, 4, 10, 30, 15)));
+        tasks.add(new Event("precise", LocalDateTime.of(2025, 3, 4, 9, 0, 0, 5_000_000),
+                LocalDateTime.of(2025, 3, 4, 9, 0, 1)));
+        tasks.get(2).markAsDone();
+        return tasks;
+    }
+
+    @Test
+    public void writeTask_variousTasks_matchesFormatTask() throws IOException {
+        Path path = tempDir.resolve("tasks.txt");
+        List<Task> tasks = createTasks();
+        StringBuilder expected = new StringBuilder(FileStorageEngine.SNAPSHOT_HEADER + 7 + System.lineSeparator());
+        long[] offsets = new long[tasks.size()];
+
+        // A tiny buffer forces many drains in the middle of fields
+        TextTaskEncoder encoder = new TextTaskEncoder(64);
+        encoder.open(path);
+        encoder.writeLine(FileStorageEngine.SNAPSHOT_HEADER + 7);
+        for (int i = 0; i < tasks.size(); i++) {
+            offsets[i] = encoder.writeTask(tasks.get(i), tasks.get(i).isDone());
+            expected.append(RecordChecksum.withChecksum(TaskFileFormat.formatTask(tasks.get(i))))
+                    .append(System.lineSeparator());
+        }
+        encoder.close(true);
+
+        byte[] bytes = Files.readAllBytes(path);
+        assertEquals(expected.toString(), new String(bytes, StandardCharsets.UTF_8));
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).isDone() ? '1' : '0', bytes[(int) offsets[i]]);
+        }
+    }
+
+    @Test
+    public void open_reusedEncoder_truncatesPreviousContent() throws IOException {
+        Path path = tempDir.resolve("tasks.txt");
+        TextTaskEncoder encoder = new TextTaskEncoder();
+        encoder.open(path);
+        for (Task task : createTasks()) {
+            encoder.writeTask(task, false);
+        }
+        encoder.close(false);
+
+        encoder.open(path);
+        assertEquals(RecordChecksum.FIELD_LENGTH + TaskFileFormat.DONE_MARKER_OFFSET,
+                encoder.writeTask(new Todo("only"), true));
+        encoder.close(false);
+
+        assertEquals(List.of(RecordChecksum.withChecksum("T | 1 | only")), Files.readAllLines(path));
+    }
+}
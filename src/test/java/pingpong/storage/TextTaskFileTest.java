@@ -0,0 +1,96 @@
+package pingpong.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import pingpong.task.Task;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TextTaskFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void read_largeFileInChunks_sameTasksInOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(FileStorageEngine.SNAPSHOT_HEADER + 42);
+        for (int i = 0; i < 60_000; i++) {
+            if (i % 1000 == 999) {
+                lines.add("X | 0 | corrupted " + i);
+            } else if (i % 3 == 0) {
+                lines.add("D | 1 | deadline " + i + " | 2025-12-31");
+            } else {
+                lines.add("T | 0 | todo " + i);
+            }
+        }
+        Path path = tempDir.resolve("tasks.txt");
+        Files.write(path, lines);
+        assertTrue(Files.size(path) > 4L * TextTaskFile.MIN_CHUNK_BYTES);
+
+        TextTaskFile file = TextTaskFile.read(path, new ForkJoinPool(4));
+
+        assertEquals(42, file.getSequence());
+        List<Task> tasks = file.getTasks();
+        assertEquals(60_000 - 60, tasks.size());
+        int taskIndex = 0;
+        for (int i = 1; i < lines.size(); i++) {
+            Task expected = TaskFileFormat.parseTask(lines.get(i));
+            if (expected != null) {
+                assertEquals(expected.toString(), tasks.get(taskIndex++).toString());
+            }
+        }
+
+        long[] offsets = file.getDoneOffsets();
+        byte[] bytes = Files.readAllBytes(path);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).isDone() ? '1' : '0', bytes[(int) offsets[i]]);
+        }
+    }
+
+    @Test
+    public void stream_largeFile_boundedBatchesInOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 150_000; i++) {
+            lines.add("T | 0 | todo " + i);
+        }
+        Path path = tempDir.resolve("tasks.txt");
+        Files.write(path, lines);
+        long fileSize = Files.size(path);
+        assertTrue(fileSize > 2L * TextTaskFile.MAX_STREAM_CHUNK_BYTES);
+
+        List<Task> streamed = new ArrayList<>();
+        int[] batchCount = new int[1];
+        TextTaskFile.stream(path, batch -> {
+            streamed.addAll(batch);
+            batchCount[0]++;
+        });
+
+        assertTrue(batchCount[0] >= fileSize / TextTaskFile.MAX_STREAM_CHUNK_BYTES);
+        assertEquals(150_000, streamed.size());
+        for (int i = 0; i < streamed.size(); i++) {
+            assertEquals("todo " + i, streamed.get(i).getDescription());
+        }
+    }
+
+    @Test
+    public void read_smallFile_parsedWithoutHeader() throws IOException {
+        Path path = tempDir.resolve("tasks.txt");
+        Files.write(path, List.of("T | 1 | read book", "", "not a task", "T | 0 | return book"));
+
+        TextTaskFile file = TextTaskFile.read(path);
+
+        assertEquals(0, file.getSequence());
+        assertEquals(2, file.getTasks().size());
+        assertTrue(file.getTasks().get(0).isDone());
+        assertEquals(2, file.getDoneOffsets().length);
+    }
+}
@@ -0,0 +1,82 @@
+package pingpong.task;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import pingpong.PingpongException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeywordIndexTest {
+
+    @Test
+    public void tokenize_punctuationAndCase_splitsIntoDistinctWords() {
+        Set<String> words = KeywordIndex.tokenize("Read the BOOK, then re-read the book!");
+
+        assertEquals(List.of("read", "the", "book", "then", "re"), new ArrayList<>(words));
+    }
+
+    @Test
+    public void findTasksByWords_wholeWordsOnly_skipsPartialMatches() {
+        TaskList taskList = new TaskList();
+        Task readBook = taskList.addTodo("Read book");
+        taskList.addTodo("Facebook update");
+        Task bookClub = taskList.addDeadline("Book club", LocalDate.of(2025, 9, 15));
+
+        assertEquals(List.of(readBook, bookClub), taskList.findTasksByWords("book"));
+        assertEquals(List.of(bookClub), taskList.findTasksByWords("club BOOK"));
+        assertTrue(taskList.findTasksByWords("boo").isEmpty());
+        assertTrue(taskList.findTasksByWords("!!").isEmpty());
+    }
+
+    @Test
+    public void findTasksByWords_afterUpdateAndDelete_indexFollowsChanges() throws PingpongException {
+        TaskList taskList = new TaskList();
+        taskList.addTodo("Buy milk");
+        taskList.addTodo("Buy bread");
+        taskList.addTodo("Call mom");
+
+        Task updated = taskList.updateTask(0, "Sell milk", null, null, null);
+        taskList.deleteTask(1);
+        Task added = taskList.addTodo("Buy eggs");
+
+        assertEquals(List.of(added), taskList.findTasksByWords("buy"));
+        assertEquals(List.of(updated), taskList.findTasksByWords("milk"));
+        assertTrue(taskList.findTasksByWords("bread").isEmpty());
+    }
+
+    @Test
+    public void findTasksByWords_randomChanges_matchesScanningCopy() throws PingpongException {
+        Random random = new Random(7);
+        String[] vocabulary = {"alpha", "beta", "gamma", "delta", "epsilon"};
+        TaskList taskList = new TaskList();
+
+        for (int i = 0; i < 2000; i++) {
+            String description = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(vocabulary.length)];
+            int operation = random.nextInt(4);
+            if (operation <= 1 || taskList.size() == 0) {
+                taskList.addTodo(description);
+            } else if (operation == 2) {
+                taskList.deleteTask(random.nextInt(taskList.size()));
+            } else {
+                taskList.updateTask(random.nextInt(taskList.size()), description, null, null, null);
+            }
+        }
+        taskList.deleteTasks(0, 2, 4, 6, 8);
+
+        // A plain list is scanned instead of answered from the index
+        List<Task> scanned = new ArrayList<>(taskList.getAllTasks());
+        for (String word : vocabulary) {
+            assertEquals(TaskSearcher.findTasksByWords(scanned, word), taskList.findTasksByWords(word));
+            String pair = word + " " + vocabulary[random.nextInt(vocabulary.length)];
+            assertEquals(TaskSearcher.findTasksByWords(scanned, pair), taskList.findTasksByWords(pair));
+        }
+    }
+}
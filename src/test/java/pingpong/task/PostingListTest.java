@@ -0,0 +1,75 @@
+package pingpong.task;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PostingListTest {
+
+    private static PostingList toPostingList(TreeSet<Long> ids) {
+        PostingList list = new PostingList();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static TreeSet<Long> toSet(PostingList list) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (int i = 0; i < list.size(); i++) {
+            ids.add(list.get(i));
+        }
+        return ids;
+    }
+
+    private static TreeSet<Long> randomIds(Random random, int count, int bound) {
+        TreeSet<Long> ids = new TreeSet<>();
+        while (ids.size() < count) {
+            ids.add((long) random.nextInt(bound));
+        }
+        return ids;
+    }
+
+    @Test
+    public void setOperations_skewedSizes_matchTreeSet() {
+        Random random = new Random(5);
+        for (int i = 0; i < 200; i++) {
+            TreeSet<Long> first = randomIds(random, random.nextInt(20), 5000);
+            TreeSet<Long> second = randomIds(random, random.nextInt(2000), 5000);
+            PostingList firstList = toPostingList(first);
+            PostingList secondList = toPostingList(second);
+
+            TreeSet<Long> common = new TreeSet<>(first);
+            common.retainAll(second);
+            TreeSet<Long> all = new TreeSet<>(first);
+            all.addAll(second);
+            TreeSet<Long> firstOnly = new TreeSet<>(first);
+            firstOnly.removeAll(second);
+            TreeSet<Long> secondOnly = new TreeSet<>(second);
+            secondOnly.removeAll(first);
+
+            assertEquals(common, toSet(PostingList.intersect(firstList, secondList)));
+            assertEquals(common, toSet(PostingList.intersect(secondList, firstList)));
+            assertEquals(all, toSet(PostingList.union(firstList, secondList)));
+            assertEquals(firstOnly, toSet(PostingList.subtract(firstList, secondList)));
+            assertEquals(secondOnly, toSet(PostingList.subtract(secondList, firstList)));
+        }
+    }
+
+    @Test
+    public void addAndRemove_outOfOrder_keepsAscendingIds() {
+        PostingList list = new PostingList();
+        list.add(5);
+        list.add(1);
+        list.add(3);
+        list.add(3);
+        list.remove(1);
+
+        assertEquals(2, list.size());
+        assertEquals(3, list.get(0));
+        assertEquals(5, list.get(1));
+    }
+}
@@ -2,6 +2,7 @@ package pingpong.task;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -90,4 +91,51 @@ public class TaskListBatchTest {
         assertEquals(0, unmarkedTasks.size());
         assertTrue(taskList.getTask(0).isDone());
     }
+
+    @Test
+    public void deleteTasks_unsortedAndRepeated_deletedInListOrder() throws PingpongException {
+        taskList.addTodos("Task 1", "Task 2", "Task 3", "Task 4", "Task 5");
+
+        ArrayList<Task> deleted = taskList.deleteTasks(3, 0, 3);
+
+        assertEquals(2, deleted.size());
+        assertEquals("Task 1", deleted.get(0).getDescription());
+        assertEquals("Task 4", deleted.get(1).getDescription());
+        assertEquals(3, taskList.size());
+        assertEquals("Task 5", taskList.getTask(2).getDescription());
+    }
+
+    @Test
+    public void deleteTasks_invalidIndex_nothingDeleted() {
+        taskList.addTodos("Task 1", "Task 2", "Task 3");
+
+        assertThrows(PingpongException.class, () -> taskList.deleteTasks(0, 5));
+        assertEquals(3, taskList.size());
+    }
+
+    @Test
+    public void deleteTasks_mostTasks_changesReplayInOrder() throws PingpongException {
+        for (int i = 0; i < 100; i++) {
+            taskList.addTodo("Task " + i);
+        }
+        taskList.clearChanges();
+        int[] indices = new int[90];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i + 5;
+        }
+
+        taskList.deleteTasks(indices);
+
+        ArrayList<String> replayed = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            replayed.add("Task " + i);
+        }
+        for (TaskChange change : taskList.getChanges()) {
+            assertEquals(TaskChange.Kind.DELETED, change.getKind());
+            assertEquals(replayed.remove(change.getIndex()), change.getTask().getDescription());
+        }
+        assertEquals(10, taskList.size());
+        assertEquals(10, replayed.size());
+        assertEquals("Task 99", taskList.getTask(9).getDescription());
+    }
 }
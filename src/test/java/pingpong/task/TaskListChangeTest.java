@@ -0,0 +1,87 @@
+package pingpong.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import pingpong.PingpongException;
+
+/**
+ * Tests for change tracking in TaskList.
+ */
+public class TaskListChangeTest {
+    private TaskList taskList;
+
+    @BeforeEach
+    public void setUp() {
+        taskList = new TaskList();
+    }
+
+    @Test
+    public void getChanges_eachMutation_recordedInOrder() throws PingpongException {
+        taskList.addTodos("first", "second", "third");
+        taskList.markTasks(0, 2);
+        taskList.unmarkTask(0);
+        Task updated = taskList.updateTask(1, "second updated", null, null, null);
+        Task deleted = taskList.deleteTask(2);
+
+        List<TaskChange> changes = taskList.getChanges();
+
+        assertEquals(8, changes.size());
+        assertEquals(TaskChange.Kind.ADDED, changes.get(2).getKind());
+        assertEquals(2, changes.get(2).getIndex());
+        assertEquals(TaskChange.Kind.MARKED, changes.get(3).getKind());
+        assertTrue(changes.get(3).isDone());
+        assertEquals(0, changes.get(5).getIndex());
+        assertFalse(changes.get(5).isDone());
+        assertEquals(TaskChange.Kind.UPDATED, changes.get(6).getKind());
+        assertSame(updated, changes.get(6).getTask());
+        assertEquals(TaskChange.Kind.DELETED, changes.get(7).getKind());
+        assertSame(deleted, changes.get(7).getTask());
+    }
+
+    @Test
+    public void clearChanges_afterMutations_noChangesLeft() {
+        taskList.addDeadline("return book", LocalDate.of(2025, 1, 1));
+        assertTrue(taskList.hasChanges());
+
+        taskList.clearChanges();
+
+        assertFalse(taskList.hasChanges());
+        assertEquals(0, taskList.getChanges().size());
+    }
+
+    @Test
+    public void getChanges_invalidIndex_nothingRecorded() {
+        taskList.addTodo("only");
+        taskList.clearChanges();
+
+        try {
+            taskList.markTask(5);
+        } catch (PingpongException e) {
+            // Expected
+        }
+
+        assertFalse(taskList.hasChanges());
+    }
+
+    @Test
+    public void insertTasks_beforeAppendedTasks_changesShifted() {
+        taskList.addTodo("appended");
+
+        taskList.insertTasks(0, List.of(new Todo("loaded first"), new Todo("loaded second")));
+
+        assertEquals(3, taskList.size());
+        assertEquals("appended", taskList.getAllTasks().get(2).getDescription());
+        assertEquals(1, taskList.getChanges().size());
+        assertEquals(2, taskList.getChanges().get(0).getIndex());
+        assertSame(taskList.getAllTasks().get(2), taskList.getChanges().get(0).getTask());
+    }
+}
@@ -0,0 +1,101 @@
+package pingpong.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pingpong.PingpongException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TaskQueryTest {
+
+    @Test
+    public void isBoolean_upperCaseOperatorsOnly() {
+        assertTrue(TaskQuery.isBoolean("report AND NOT draft"));
+        assertTrue(TaskQuery.isBoolean("a OR b"));
+        assertFalse(TaskQuery.isBoolean("salt and pepper"));
+        assertFalse(TaskQuery.isBoolean("NOTES"));
+        assertFalse(TaskQuery.isBoolean("OR"));
+        assertFalse(TaskQuery.isBoolean("AND NOT"));
+    }
+
+    @Test
+    public void findTasks_loneOperatorWord_searchedLiterally() throws PingpongException {
+        TaskList taskList = new TaskList();
+        Task orTask = taskList.addTodo("Update the OR schedule");
+        taskList.addTodo("Buy milk");
+
+        assertEquals(List.of(orTask), taskList.findTasks(TaskQuery.parse("OR", false)));
+        assertEquals(List.of(orTask), taskList.findTasks(TaskQuery.parse("or", true)));
+        assertEquals(List.of(), taskList.findTasks(TaskQuery.parse("NOT", false)));
+    }
+
+    @Test
+    public void parse_missingKeyword_throwsException() {
+        assertThrows(PingpongException.class, () -> TaskQuery.parse("report AND", false));
+        assertThrows(PingpongException.class, () -> TaskQuery.parse("OR report", false));
+        assertThrows(PingpongException.class, () -> TaskQuery.parse("report AND OR draft", false));
+        assertThrows(PingpongException.class, () -> TaskQuery.parse("report NOT", false));
+    }
+
+    @Test
+    public void findTasks_operators_matchExpectedTasks() throws PingpongException {
+        TaskList taskList = new TaskList();
+        Task finalReport = taskList.addTodo("Final report");
+        Task draftReport = taskList.addTodo("Draft report");
+        Task teamMeeting = taskList.addTodo("Team meeting");
+        Task standup = taskList.addTodo("Standup");
+
+        assertEquals(List.of(finalReport), taskList.findTasks(TaskQuery.parse("report AND NOT draft", false)));
+        assertEquals(List.of(finalReport), taskList.findTasks(TaskQuery.parse("report NOT draft", false)));
+        assertEquals(List.of(teamMeeting, standup),
+                taskList.findTasks(TaskQuery.parse("team meeting OR standup", false)));
+        assertEquals(List.of(finalReport, teamMeeting, standup),
+                taskList.findTasks(TaskQuery.parse("NOT draft", false)));
+        // NOT binds tighter than AND, which binds tighter than OR
+        assertEquals(List.of(draftReport, standup),
+                taskList.findTasks(TaskQuery.parse("standup OR report AND NOT final", false)));
+    }
+
+    @Test
+    public void findTasks_wholeWords_skipsPartialMatches() throws PingpongException {
+        TaskList taskList = new TaskList();
+        taskList.addTodo("Reports due");
+        Task report = taskList.addTodo("Write report");
+
+        assertEquals(List.of(report), taskList.findTasks(TaskQuery.parse("report OR nothing", true)));
+        assertEquals(2, taskList.findTasks(TaskQuery.parse("report OR nothing", false)).size());
+    }
+
+    @Test
+    public void findTasks_randomQueries_matchesScanningCopy() throws PingpongException {
+        Random random = new Random(3);
+        String[] words = {"red", "green", "blue", "bluegrass", "re", "ee"};
+        String[] operators = {"AND", "OR", "NOT", "AND NOT", "OR NOT"};
+        TaskList taskList = new TaskList();
+        for (int i = 0; i < 1000; i++) {
+            taskList.addTodo(words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]);
+        }
+        for (int i = 0; i < 300; i++) {
+            taskList.deleteTask(random.nextInt(taskList.size()));
+        }
+
+        // A plain list is scanned instead of answered from the indexes
+        List<Task> scanned = new ArrayList<>(taskList.getAllTasks());
+        for (int i = 0; i < 300; i++) {
+            StringBuilder query = new StringBuilder(words[random.nextInt(words.length)]);
+            for (int terms = random.nextInt(4); terms > 0; terms--) {
+                query.append(' ').append(operators[random.nextInt(operators.length)])
+                        .append(' ').append(words[random.nextInt(words.length)]);
+            }
+            TaskQuery parsed = TaskQuery.parse(query.toString(), random.nextBoolean());
+            assertEquals(TaskSearcher.findTasks(scanned, parsed), taskList.findTasks(parsed), query.toString());
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package pingpong.task;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pingpong.PingpongException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskTreeTest {
+
+    private static List<Task> createTodos(int count) {
+        List<Task> todos = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            todos.add(new Todo("task " + i));
+        }
+        return todos;
+    }
+
+    @Test
+    public void randomOperations_matchArrayList() {
+        Random random = new Random(42);
+        TaskTree tree = new TaskTree(createTodos(100));
+        List<Task> expected = new ArrayList<>(tree);
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(5);
+            if (operation <= 1 || expected.isEmpty()) {
+                int index = random.nextInt(expected.size() + 1);
+                Task task = new Todo("added " + i);
+                tree.add(index, task);
+                expected.add(index, task);
+            } else if (operation == 2) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), tree.remove(index));
+            } else if (operation == 3) {
+                int index = random.nextInt(expected.size());
+                Task task = new Todo("set " + i);
+                assertSame(expected.set(index, task), tree.set(index, task));
+            } else {
+                int index = random.nextInt(expected.size() + 1);
+                List<Task> inserted = createTodos(random.nextInt(10));
+                tree.addAll(index, inserted);
+                expected.addAll(index, inserted);
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected, new ArrayList<>(tree));
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), tree.get(i));
+            assertEquals(i, tree.indexOfId(expected.get(i).getId()));
+        }
+    }
+
+    @Test
+    public void getById_afterRemovals_foundOrNull() {
+        List<Task> todos = createTodos(10);
+        TaskTree tree = new TaskTree(todos);
+
+        tree.remove(3);
+        tree.removeById(todos.get(7).getId());
+
+        assertNull(tree.getById(todos.get(3).getId()));
+        assertSame(todos.get(9), tree.getById(todos.get(9).getId()));
+        assertEquals(7, tree.indexOfId(todos.get(9).getId()));
+        assertEquals(-1, tree.indexOf(todos.get(7)));
+    }
+
+    @Test
+    public void iteratorRemove_everyOtherTask_remainingInOrder() {
+        TaskTree tree = new TaskTree(createTodos(20));
+
+        Iterator<Task> iterator = tree.iterator();
+        for (int i = 0; iterator.hasNext(); i++) {
+            iterator.next();
+            if (i % 2 == 0) {
+                iterator.remove();
+            }
+        }
+
+        assertEquals(10, tree.size());
+        assertEquals("task 1", tree.get(0).getDescription());
+        assertEquals("task 19", tree.get(9).getDescription());
+    }
+
+    @Test
+    public void taskList_idsStableAcrossDeleteAndUpdate() throws PingpongException {
+        TaskList taskList = new TaskList(createTodos(5));
+        Task third = taskList.getTask(2);
+        Task deadline = taskList.addDeadline("deadline", LocalDate.of(2025, 9, 15));
+
+        taskList.deleteTask(0);
+        Task updated = taskList.updateTask(4, "renamed", LocalDate.of(2025, 9, 20), null, null);
+
+        assertEquals(deadline.getId(), updated.getId());
+        assertSame(third, taskList.getTaskById(third.getId()));
+        assertEquals(1, taskList.indexOfId(third.getId()));
+        assertEquals("renamed", taskList.getTaskById(deadline.getId()).getDescription());
+        assertSame(third, taskList.deleteTaskById(third.getId()));
+        assertThrows(PingpongException.class, () -> taskList.getTaskById(third.getId()));
+    }
+}
@@ -0,0 +1,76 @@
+package pingpong.task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import pingpong.PingpongException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TrigramIndexTest {
+
+    @Test
+    public void trigramsOf_repeatedAndShortText_distinctTrigrams() {
+        assertEquals(1, TrigramIndex.trigramsOf("aaaaa").length);
+        assertEquals(3, TrigramIndex.trigramsOf("abcabc").length);
+        assertArrayEquals(new long[0], TrigramIndex.trigramsOf("ab"));
+    }
+
+    @Test
+    public void findTasksByKeyword_substringAcrossWords_sameAsContains() throws PingpongException {
+        TaskList taskList = new TaskList();
+        Task groceries = taskList.addTodo("Buy groceries");
+        taskList.addTodo("Read book");
+        Task grocer = taskList.addTodo("Visit the GROCER");
+
+        assertEquals(List.of(groceries, grocer), taskList.findTasksByKeyword("groc"));
+        assertEquals(List.of(groceries), taskList.findTasksByKeyword("y gro"));
+        assertTrue(taskList.findTasksByKeyword("grocx").isEmpty());
+
+        taskList.updateTask(0, "Buy milk", null, null, null);
+        assertEquals(List.of(grocer), taskList.findTasksByKeyword("groc"));
+    }
+
+    @Test
+    public void findTasksByKeyword_randomChanges_matchesScanningCopy() throws PingpongException {
+        Random random = new Random(11);
+        String alphabet = "abc d";
+        TaskList taskList = new TaskList();
+
+        for (int i = 0; i < 2000; i++) {
+            String description = randomText(random, alphabet, 1 + random.nextInt(8));
+            int operation = random.nextInt(4);
+            if (operation <= 1 || taskList.size() == 0) {
+                taskList.addTodo(description);
+            } else if (operation == 2) {
+                taskList.deleteTask(random.nextInt(taskList.size()));
+            } else {
+                taskList.updateTask(random.nextInt(taskList.size()), description, null, null, null);
+            }
+        }
+
+        // A plain list is scanned instead of answered from the index
+        List<Task> scanned = new ArrayList<>(taskList.getAllTasks());
+        for (int i = 0; i < 200; i++) {
+            String keyword = randomText(random, alphabet, 1 + random.nextInt(5));
+            if (keyword.trim().isEmpty()) {
+                continue;
+            }
+            assertEquals(TaskSearcher.findTasksByKeyword(scanned, keyword), taskList.findTasksByKeyword(keyword));
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        text.append((char) ('a' + random.nextInt(3)));
+        for (int i = 1; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}